@@ -53,6 +53,48 @@ if [[ -n $NUMBER_OF_CRAWLERS ]]; then
 	NOC_PARAMETER=" -noc $NUMBER_OF_CRAWLERS "
 fi
 
+CO_PARAMETER=""
+if [[ -n $COORDINATED ]]; then
+	echo "'Coordinated' parameter provided, lease seconds: $COORDINATED"
+	CO_PARAMETER=" -co -ls $COORDINATED "
+fi
+
+DP_PARAMETER=""
+if [[ -n $DELTA_PERSISTENCE ]]; then
+	echo "'Delta persistence' parameter provided, heartbeat minutes: $DELTA_PERSISTENCE"
+	DP_PARAMETER=" -dp -hb $DELTA_PERSISTENCE "
+fi
+
+CP_PARAMETER=""
+if [[ -n $CHECKPOINT_DIRECTORY ]]; then
+	echo "'Checkpoint directory' parameter provided: $CHECKPOINT_DIRECTORY"
+	CP_PARAMETER=" -cp $CHECKPOINT_DIRECTORY "
+fi
+
+SD_PARAMETER=""
+if [[ -n $SPOOL_DIRECTORY ]]; then
+	echo "'Spool directory' parameter provided: $SPOOL_DIRECTORY"
+	SD_PARAMETER=" -sd $SPOOL_DIRECTORY "
+fi
+
+LVP_PARAMETER=""
+if [[ -n $LIVE_PORT ]]; then
+	echo "'Live port' parameter provided: $LIVE_PORT"
+	LVP_PARAMETER=" -lvp $LIVE_PORT "
+fi
+
+AS_PARAMETER=""
+if [[ -n $ADAPTIVE_SCHEDULING ]]; then
+	echo "'Adaptive scheduling' parameter provided, burst factor: $ADAPTIVE_SCHEDULING"
+	AS_PARAMETER=" -as -ab $ADAPTIVE_SCHEDULING "
+fi
+
+PR_PARAMETER=""
+if [[ -n $PARTIAL_REFRESHES ]]; then
+	echo "'Partial refreshes' parameter provided: $PARTIAL_REFRESHES"
+	PR_PARAMETER=" -pr $PARTIAL_REFRESHES "
+fi
+
 echo "Running Crawler"
 
 echo "Waiting for Database to start!"
@@ -77,4 +119,4 @@ if [ "$COUNTER" -ge 10 ]; then
 fi
 
 echo "Starting Crawler"
-java -jar crawler-all.jar -lt "$LIME_API_TOKEN" "$MBR_PARAMETER" "$MRH_PARAMETER" "$MRC_PARAMETER" "$CN_PARAMETER" "$NOC_PARAMETER" &> /logs/crawler-out.log
+java -jar crawler-all.jar -lt "$LIME_API_TOKEN" "$MBR_PARAMETER" "$MRH_PARAMETER" "$MRC_PARAMETER" "$CN_PARAMETER" "$NOC_PARAMETER" "$CO_PARAMETER" "$DP_PARAMETER" "$CP_PARAMETER" "$SD_PARAMETER" "$LVP_PARAMETER" "$AS_PARAMETER" "$PR_PARAMETER" &> /logs/crawler-out.log
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * Distributes the crawls of a day by how fast the fleet changes at each hour of the day, to crawl more often when
+ * vehicles are moved and less often when they are parked, within the same daily request budget.
+ * <p>
+ * The change rate is the number of vehicles which appeared, disappeared or moved per minute between two subsequent
+ * crawls. It is recorded with the statistics of each crawl, so that the rates learned survive a restart. Each hour
+ * of the day keeps an exponentially smoothed average of the rates observed in it. The crawls per day are assigned to
+ * the hours proportionally to these averages, but each hour keeps at least {@link #MIN_SHARE} of the crawls of a
+ * uniform schedule and no hour exceeds the crawls allowed by the minimal time between two crawls.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class AdaptiveSchedule implements CrawlListener {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveSchedule.class);
+    /**
+     * The number of time slots per day, one per hour.
+     */
+    private static final int SLOTS = 24;
+    /**
+     * The seconds per time slot.
+     */
+    private static final long SECONDS_PER_SLOT = 3_600;
+    /**
+     * The weight of a new observation in the smoothed change rate of a time slot.
+     */
+    private static final double SMOOTHING = 0.2;
+    /**
+     * The share of the crawls of a uniform schedule each time slot keeps, to notice when the fleet starts moving.
+     */
+    static final double MIN_SHARE = 0.25;
+    /**
+     * The distance in meters a vehicle has to move between two crawls to count as changed.
+     * <p>
+     * Larger than the usual jitter of the reported positions of parked vehicles.
+     */
+    private static final double MOVED_METERS = 50;
+    /**
+     * The average seconds between two crawls of the uniform schedule with the same daily budget.
+     */
+    private final long secondsBetweenCrawls;
+    /**
+     * The minimal seconds between two crawls.
+     */
+    private final long minSecondsBetweenCrawls;
+    /**
+     * The time zone which defines the hours of the day.
+     */
+    private final ZoneId zone;
+    /**
+     * The smoothed change rate of each time slot or {@code NaN} if no rate was observed in the slot.
+     */
+    private final double[] rates = new double[SLOTS];
+    /**
+     * The position of each vehicle found by the previous crawl, by its plate number, or {@code null} before the first
+     * crawl.
+     */
+    private Map<String, double[]> previous;
+    /**
+     * When the previous crawl started, in milliseconds since epoch.
+     */
+    private long previousStarted;
+
+    /**
+     * Creates a fully initialized instance of this class which starts with a uniform schedule.
+     *
+     * @param secondsBetweenCrawls The average seconds between two crawls, which defines the daily budget
+     * @param minSecondsBetweenCrawls The minimal seconds between two crawls, which must be longer than a crawl takes
+     * @param zone The time zone which defines the hours of the day
+     */
+    public AdaptiveSchedule(final long secondsBetweenCrawls, final long minSecondsBetweenCrawls, final ZoneId zone) {
+        Validate.isTrue(minSecondsBetweenCrawls > 0);
+        Validate.isTrue(minSecondsBetweenCrawls <= secondsBetweenCrawls);
+        Validate.notNull(zone);
+
+        this.secondsBetweenCrawls = secondsBetweenCrawls;
+        this.minSecondsBetweenCrawls = minSecondsBetweenCrawls;
+        this.zone = zone;
+        Arrays.fill(rates, Double.NaN);
+    }
+
+    /**
+     * Learns the change rates from the statistics of past crawls, e.g. after the crawler was restarted.
+     *
+     * @param runs The statistics of past crawls, in the order the crawls started
+     */
+    public synchronized void learn(final List<CrawlRun> runs) {
+        var learned = 0;
+        for (final var run : runs) {
+            if (run.getChangesPerMinute() != null) {
+                observe(run.getCrawlStarted().toInstant(), run.getChangesPerMinute());
+                learned++;
+            }
+        }
+        LOGGER.info(String.format("Learned the change rates of %d crawls: %s", learned, Arrays.toString(rates)));
+    }
+
+    @Override
+    public synchronized void crawled(final Collection<LimeVehicle> vehicles, final CrawlRun run) {
+        if (run.isPartial()) {
+            // A partial crawl misses vehicles which would count as disappeared
+            return;
+        }
+        if (run.getErrors() > 0) {
+            // An interrupted crawl misses vehicles, so the next crawl is compared to none
+            previous = null;
+            return;
+        }
+        final var current = new HashMap<String, double[]>();
+        vehicles.stream().filter(v -> v.getPlateNumber() != null)
+                .forEach(v -> current.put(v.getPlateNumber(), new double[] {v.getLatitude(), v.getLongitude()}));
+        final var started = run.getCrawlStarted().getTime();
+        final var minutes = (started - previousStarted) / 60_000.;
+        if (previous != null && minutes > 0) {
+            var changes = 0;
+            for (final var entry : current.entrySet()) {
+                final var before = previous.get(entry.getKey());
+                final var now = entry.getValue();
+                if (before == null
+                        || VehicleStateCache.distanceMeters(before[0], before[1], now[0], now[1]) > MOVED_METERS) {
+                    changes++;
+                }
+            }
+            changes += previous.keySet().stream().filter(p -> !current.containsKey(p)).count();
+            final var rate = changes / minutes;
+            run.changed(rate);
+            observe(run.getCrawlStarted().toInstant(), rate);
+        }
+        previous = current;
+        previousStarted = started;
+    }
+
+    /**
+     * @param now The time the previous crawl was started
+     * @return The seconds to wait until the next crawl is started
+     */
+    public synchronized long nextDelaySeconds(final Instant now) {
+        final var crawls = crawlsPerSlot()[slot(now)];
+        return Math.max(minSecondsBetweenCrawls, Math.round(SECONDS_PER_SLOT / crawls));
+    }
+
+    /**
+     * @return The minimal seconds between two crawls.
+     */
+    public long getMinSecondsBetweenCrawls() {
+        return minSecondsBetweenCrawls;
+    }
+
+    /**
+     * Assigns the crawls of a day to the time slots proportionally to their change rates.
+     * <p>
+     * Slots whose share would exceed the bounds are fixed at the bound and the remaining crawls are distributed among
+     * the other slots again, until all slots are within the bounds.
+     *
+     * @return The number of crawls to start in each time slot
+     */
+    double[] crawlsPerSlot() {
+        final var uniform = SECONDS_PER_SLOT / (double)secondsBetweenCrawls;
+        final var min = uniform * MIN_SHARE;
+        final var max = SECONDS_PER_SLOT / (double)minSecondsBetweenCrawls;
+        final var known = Arrays.stream(rates).filter(r -> !Double.isNaN(r)).average();
+        final var ret = new double[SLOTS];
+        if (known.isEmpty() || known.getAsDouble() == 0) {
+            Arrays.fill(ret, uniform);
+            return ret;
+        }
+        // Slots without observations are assumed to be average
+        final var weights = Arrays.stream(rates).map(r -> Double.isNaN(r) ? known.getAsDouble() : r).toArray();
+        final var fixed = new boolean[SLOTS];
+        var budget = uniform * SLOTS;
+        for (var round = 0; round < SLOTS; round++) {
+            var weightSum = 0.;
+            for (var i = 0; i < SLOTS; i++) {
+                weightSum += fixed[i] ? 0 : weights[i];
+            }
+            var clamped = false;
+            for (var i = 0; i < SLOTS; i++) {
+                if (fixed[i]) {
+                    continue;
+                }
+                ret[i] = weightSum == 0 ? min : budget * weights[i] / weightSum;
+                if (ret[i] < min || ret[i] > max) {
+                    ret[i] = ret[i] < min ? min : max;
+                    fixed[i] = true;
+                    budget -= ret[i];
+                    clamped = true;
+                }
+            }
+            if (!clamped) {
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param crawlStarted When the crawl started
+     * @param rate The change rate observed by the crawl
+     */
+    private void observe(final Instant crawlStarted, final double rate) {
+        final var slot = slot(crawlStarted);
+        rates[slot] = Double.isNaN(rates[slot]) ? rate : SMOOTHING * rate + (1 - SMOOTHING) * rates[slot];
+    }
+
+    /**
+     * @param time The time to find the slot for
+     * @return The time slot of the day the time lies in
+     */
+    private int slot(final Instant time) {
+        return time.atZone(zone).getHour();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event spanning one request to a provider API.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+@Name("de.cyface.crawler.ApiRequest")
+@Label("API Request")
+@Category({"Cyface", "Crawler"})
+@Description("One request to a provider API")
+@StackTrace(false)
+final class ApiRequestEvent extends Event {
+
+    @Label("Provider")
+    String provider;
+
+    @Label("North-East Latitude")
+    double northEastLat;
+
+    @Label("North-East Longitude")
+    double northEastLon;
+
+    @Label("South-West Latitude")
+    double southWestLat;
+
+    @Label("South-West Longitude")
+    double southWestLon;
+
+    @Label("Zoom")
+    int zoom;
+
+    @Label("Status Code")
+    @Description("The HTTP status code of the response or 0 if no response was received")
+    int statusCode;
+
+    @Label("Bytes Received")
+    @Description("The size of the response body before decompression")
+    @DataAmount
+    long bytes;
+
+    @Label("Vehicles Returned")
+    int vehicles;
+}
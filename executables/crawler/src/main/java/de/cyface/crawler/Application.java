@@ -18,11 +18,21 @@
  */
 package de.cyface.crawler;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -35,6 +45,9 @@ import org.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.cyface.crawler.export.ExportFormat;
+import de.cyface.crawler.model.RecordSchema;
+
 /**
  * This application starts a scheduler which crawls an API regularly and persists the data returned.
  * <p>
@@ -72,6 +85,8 @@ public class Application {
      * {@link #LIME_AUTH_TOKEN_SHORT_OPTION}.
      */
     static final String LIME_AUTH_TOKEN_LONG_OPTION = "lime-auth-token";
+    static final String LIME_BASE_URI_SHORT_OPTION = "lu";
+    static final String LIME_BASE_URI_LONG_OPTION = "lime-base-uri";
     static final String MONGO_HOST_SHORT_OPTION = "mh";
     static final String MONGO_HOST_LONG_OPTION = "mongo-host";
     static final String MONGO_PORT_SHORT_OPTION = "mp";
@@ -96,6 +111,40 @@ public class Application {
     static final String CRAWLER_NUMBER_LONG_OPTION = "crawler-number";
     static final String NUMBER_OF_CRAWLERS_SHORT_OPTION = "noc";
     static final String NUMBER_OF_CRAWLERS_LONG_OPTION = "number-of-crawlers";
+    static final String COORDINATED_SHORT_OPTION = "co";
+    static final String COORDINATED_LONG_OPTION = "coordinated";
+    static final String LEASE_SECONDS_SHORT_OPTION = "ls";
+    static final String LEASE_SECONDS_LONG_OPTION = "lease-seconds";
+    static final String CONNECT_TIMEOUT_SHORT_OPTION = "ct";
+    static final String CONNECT_TIMEOUT_LONG_OPTION = "connect-timeout-seconds";
+    static final String REQUEST_TIMEOUT_SHORT_OPTION = "rt";
+    static final String REQUEST_TIMEOUT_LONG_OPTION = "request-timeout-seconds";
+    static final String DELTA_PERSISTENCE_SHORT_OPTION = "dp";
+    static final String DELTA_PERSISTENCE_LONG_OPTION = "delta-persistence";
+    static final String DELTA_DISTANCE_SHORT_OPTION = "dd";
+    static final String DELTA_DISTANCE_LONG_OPTION = "delta-distance-meters";
+    static final String DELTA_BATTERY_SHORT_OPTION = "db";
+    static final String DELTA_BATTERY_LONG_OPTION = "delta-battery-percentage";
+    static final String HEARTBEAT_SHORT_OPTION = "hb";
+    static final String HEARTBEAT_LONG_OPTION = "heartbeat-minutes";
+    static final String CHECKPOINT_DIRECTORY_SHORT_OPTION = "cp";
+    static final String CHECKPOINT_DIRECTORY_LONG_OPTION = "checkpoint-directory";
+    static final String EXPORT_FORMAT_SHORT_OPTION = "ef";
+    static final String EXPORT_FORMAT_LONG_OPTION = "export-format";
+    static final String SPOOL_DIRECTORY_SHORT_OPTION = "sd";
+    static final String SPOOL_DIRECTORY_LONG_OPTION = "spool-directory";
+    static final String SPOOL_MEMORY_MAPPED_SHORT_OPTION = "sm";
+    static final String SPOOL_MEMORY_MAPPED_LONG_OPTION = "spool-memory-mapped";
+    static final String LIVE_PORT_SHORT_OPTION = "lvp";
+    static final String LIVE_PORT_LONG_OPTION = "live-port";
+    static final String ADAPTIVE_SCHEDULING_SHORT_OPTION = "as";
+    static final String ADAPTIVE_SCHEDULING_LONG_OPTION = "adaptive-scheduling";
+    static final String ADAPTIVE_BURST_SHORT_OPTION = "ab";
+    static final String ADAPTIVE_BURST_LONG_OPTION = "adaptive-burst-factor";
+    static final String PARTIAL_REFRESHES_SHORT_OPTION = "pr";
+    static final String PARTIAL_REFRESHES_LONG_OPTION = "partial-refreshes";
+    static final String PARTIAL_SHARE_SHORT_OPTION = "ps";
+    static final String PARTIAL_SHARE_LONG_OPTION = "partial-share";
     /**
      * {@code Null} to continue until no no vehicles are found or the number of requests.
      */
@@ -121,13 +170,55 @@ public class Application {
      */
     private static final long DEFAULT_NUMBER_OF_CRAWLERS = 0;
     /**
-     * The crawler used to crawl the TIER API.
+     * The number of seconds after which a region leased by a crawler which did not finish it can be claimed again.
+     * <p>
+     * Should be larger than the time required to request a region, including the request timeout.
+     */
+    private static final int DEFAULT_LEASE_SECONDS = 60;
+    /**
+     * The number of seconds after which establishing a connection to an API fails.
+     */
+    private static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+    /**
+     * The number of seconds after which a request to an API without response fails.
+     */
+    private static final int DEFAULT_REQUEST_TIMEOUT_SECONDS = 30;
+    /**
+     * The distance in meters a vehicle has to move to be persisted again in delta persistence mode.
+     * <p>
+     * Larger than the usual jitter of the reported positions of parked vehicles.
+     */
+    private static final int DEFAULT_DELTA_DISTANCE_METERS = 20;
+    /**
+     * The change in battery percentage points required to persist a vehicle again in delta persistence mode.
+     */
+    private static final int DEFAULT_DELTA_BATTERY_PERCENTAGE = 5;
+    /**
+     * The minutes after which a vehicle is persisted again in delta persistence mode even if it did not change.
+     */
+    private static final int DEFAULT_HEARTBEAT_MINUTES = 60;
+    /**
+     * The minutes for which the positions of each vehicle are kept in the live fleet.
+     */
+    private static final int LIVE_HISTORY_MINUTES = 60;
+    /**
+     * How many times more often than on average crawls may be started in an hour with adaptive scheduling.
+     */
+    private static final double DEFAULT_ADAPTIVE_BURST_FACTOR = 2;
+    /**
+     * The days of crawl statistics to learn the change rate of the fleet at each hour of the day from.
      */
-    private Crawler tierCrawler;
+    private static final int ADAPTIVE_LEARNING_DAYS = 14;
     /**
-     * The crawler used to crawl the Lime API.
+     * The number of partial crawls of the regions with the highest churn between two full crawls.
+     * <p>
+     * Or `0` to crawl the whole area each time.
      */
-    private Crawler limeCrawler;
+    private static final int DEFAULT_PARTIAL_REFRESHES = 0;
+    /**
+     * The share of the request budget used by partial crawls.
+     */
+    private static final double DEFAULT_PARTIAL_SHARE = 0.3;
     /**
      * Database to persist crawled data into.
      */
@@ -160,15 +251,22 @@ public class Application {
         try {
             // Parse Command Line
             commandLine = commandLineParser().parse(options(), args);
-            final var tierApiKey = commandLine.getOptionValue(TIER_API_KEY_SHORT_OPTION, null);
-            final var limeAuthToken = commandLine.getOptionValue(LIME_AUTH_TOKEN_SHORT_OPTION);
+            final var settings = new HashMap<String, String>();
+            settings.put(LimeProvider.AUTH_TOKEN, commandLine.getOptionValue(LIME_AUTH_TOKEN_SHORT_OPTION));
+            settings.put(LimeProvider.BASE_URI,
+                    commandLine.getOptionValue(LIME_BASE_URI_SHORT_OPTION, LimeProvider.DEFAULT_BASE_URI));
+            if (commandLine.hasOption(TIER_API_KEY_SHORT_OPTION)) {
+                settings.put(TierProvider.API_KEY, commandLine.getOptionValue(TIER_API_KEY_SHORT_OPTION));
+            }
             final var mongoHost = commandLine.getOptionValue(MONGO_HOST_SHORT_OPTION, "mongo-data");
             final var mongoPort = commandLine.getOptionValue(MONGO_PORT_SHORT_OPTION, "27017");
             final var mongoDatabase = commandLine.getOptionValue(MONGO_DATABASE_SHORT_OPTION, "scone");
             final var mongoCollection = commandLine.getOptionValue(MONGO_COLLECTION_SHORT_OPTION, "lime_records");
             final var mongoUser = commandLine.getOptionValue(MONGO_USER_SHORT_OPTION, "root");
             final var mongoPassword = commandLine.getOptionValue(MONGO_PASSWORD_SHORT_OPTION, "example");
-            final var debugMode = commandLine.hasOption(DEBUG_MODE_SHORT_OPTION);
+            final var debugExport = commandLine.hasOption(DEBUG_MODE_SHORT_OPTION)
+                    ? ExportFormat.of(commandLine.getOptionValue(EXPORT_FORMAT_SHORT_OPTION, ExportFormat.CSV.name()))
+                    : null;
             final var millisecondsBetweenRequests = commandLine
                     .getOptionValue(MILLISECONDS_BETWEEN_REQUESTS_SHORT_OPTION,
                             String.valueOf(DEFAULT_MILLISECONDS_BETWEEN_REQUESTS));
@@ -182,12 +280,52 @@ public class Application {
                     String.valueOf(DEFAULT_CRAWLER_NUMBER));
             final var numberOfCrawlers = commandLine.getOptionValue(NUMBER_OF_CRAWLERS_SHORT_OPTION,
                     String.valueOf(DEFAULT_NUMBER_OF_CRAWLERS));
+            final var connectTimeoutSeconds = commandLine.getOptionValue(CONNECT_TIMEOUT_SHORT_OPTION,
+                    String.valueOf(DEFAULT_CONNECT_TIMEOUT_SECONDS));
+            final var requestTimeoutSeconds = commandLine.getOptionValue(REQUEST_TIMEOUT_SHORT_OPTION,
+                    String.valueOf(DEFAULT_REQUEST_TIMEOUT_SECONDS));
+            final var leaseSeconds = commandLine.hasOption(COORDINATED_SHORT_OPTION)
+                    ? commandLine.getOptionValue(LEASE_SECONDS_SHORT_OPTION, String.valueOf(DEFAULT_LEASE_SECONDS))
+                    : null;
+            final var stateCache = commandLine.hasOption(DELTA_PERSISTENCE_SHORT_OPTION)
+                    ? new VehicleStateCache(
+                            Double.parseDouble(commandLine.getOptionValue(DELTA_DISTANCE_SHORT_OPTION,
+                                    String.valueOf(DEFAULT_DELTA_DISTANCE_METERS))),
+                            Integer.parseInt(commandLine.getOptionValue(DELTA_BATTERY_SHORT_OPTION,
+                                    String.valueOf(DEFAULT_DELTA_BATTERY_PERCENTAGE))),
+                            Integer.parseInt(commandLine.getOptionValue(HEARTBEAT_SHORT_OPTION,
+                                    String.valueOf(DEFAULT_HEARTBEAT_MINUTES))))
+                    : null;
+            final var checkpointDirectory = commandLine.getOptionValue(CHECKPOINT_DIRECTORY_SHORT_OPTION, null);
+            Validate.isTrue(checkpointDirectory == null || leaseSeconds == null,
+                    "Coordinated crawls cannot be checkpointed");
+            final var spoolDirectory = commandLine.getOptionValue(SPOOL_DIRECTORY_SHORT_OPTION, null);
+            final var spoolMemoryMapped = commandLine.hasOption(SPOOL_MEMORY_MAPPED_SHORT_OPTION);
+            final var livePort = commandLine.getOptionValue(LIVE_PORT_SHORT_OPTION, null);
+            final var adaptiveBurstFactor = commandLine.hasOption(ADAPTIVE_SCHEDULING_SHORT_OPTION)
+                    ? commandLine.getOptionValue(ADAPTIVE_BURST_SHORT_OPTION,
+                            String.valueOf(DEFAULT_ADAPTIVE_BURST_FACTOR))
+                    : null;
+            Validate.isTrue(adaptiveBurstFactor == null || leaseSeconds == null,
+                    "Coordinated crawls cannot be scheduled adaptively");
+            final var partialRefreshes = commandLine.getOptionValue(PARTIAL_REFRESHES_SHORT_OPTION,
+                    String.valueOf(DEFAULT_PARTIAL_REFRESHES));
+            final var partialShare = commandLine.getOptionValue(PARTIAL_SHARE_SHORT_OPTION,
+                    String.valueOf(DEFAULT_PARTIAL_SHARE));
+            Validate.isTrue(Integer.parseInt(partialRefreshes) == 0 || leaseSeconds == null,
+                    "Coordinated crawls cannot be refreshed partially");
 
             // Execution
             final var application = new Application(mongoHost, mongoPort, mongoDatabase, mongoCollection, mongoUser,
                     mongoPassword);
-            application.run(tierApiKey, limeAuthToken, debugMode, millisecondsBetweenRequests, maxRequestsPerHour,
-                    maxRequestsPerCrawl, crawlerNumber, numberOfCrawlers);
+            final var transport = new HttpTransport(Duration.ofSeconds(Integer.parseInt(connectTimeoutSeconds)),
+                    Duration.ofSeconds(Integer.parseInt(requestTimeoutSeconds)));
+            application.run(transport, VehicleProvider.load(settings), debugExport, millisecondsBetweenRequests,
+                    maxRequestsPerHour, maxRequestsPerCrawl, crawlerNumber, numberOfCrawlers, leaseSeconds, stateCache,
+                    checkpointDirectory,
+                    spoolDirectory != null ? application.spool(Paths.get(spoolDirectory), spoolMemoryMapped) : null,
+                    livePort != null ? liveFleet(Integer.parseInt(livePort)) : null, adaptiveBurstFactor,
+                    partialRefreshes, partialShare);
 
         } catch (ParseException e) {
             final var header = String.format("API Crawler Input Preparation%n%n\tError: %s%n%n",
@@ -203,9 +341,12 @@ public class Application {
     /**
      * Runs the application.
      * 
-     * @param tierApiKey {@code null} to disable tier crawling or the access token otherwise.
-     * @param limeAuthToken required to crawl the Lime API
-     * @param debugMode {@code true} to log processing results into CSV files
+     * @param transport The HTTP transport shared by all API clients for the lifetime of the application.
+     * @param providers The configured providers to crawl. The first provider is crawled with all features enabled by
+     *            the other parameters, the others are crawled concurrently after each of its full crawls, with the
+     *            same request limits and {@code spool} but without coordination, checkpoints, delta persistence,
+     *            partial crawls and listeners.
+     * @param debugExport {@code null} or the format to log processing results in for debugging
      * @param millisecondsBetweenRequests Milliseconds after which a new request can be sent.
      * @param maxRequestsPerHour The maximum crawls per minute which did not instantly lead to a REQUEST_LIMIT_EXCEEDED
      *            result.
@@ -214,46 +355,239 @@ public class Application {
      *            {@code numberOfCrawlers} to start crawling without delay.
      * @param numberOfCrawlers The number of crawlers which should be scheduled equally during the day. Or `0` for `0`
      *            {@code crawlerNumber} to start crawling without delay.
+     * @param leaseSeconds {@code null} to crawl the whole area alone or the number of seconds after which a region
+     *            leased by a crawler which did not finish it can be claimed again, to share each crawl with all other
+     *            crawlers started with this option. {@code crawlerNumber} and {@code numberOfCrawlers} are ignored in
+     *            this case as all crawlers start at the same time.
+     * @param stateCache {@code null} to persist all vehicles found by each crawl or the cache used to persist only
+     *            vehicles which changed since they were persisted last. The cache is rebuilt from the database first.
+     * @param checkpointDirectory {@code null} to start each crawl from scratch or the directory to journal each crawl
+     *            to, so that a crawl interrupted by a restart is resumed within the same crawl window. Not supported
+     *            together with {@code leaseSeconds}.
+     * @param spool {@code null} to write the results of each crawl to the database directly or the spool to write
+     *            them to first, which is drained into the database in the background.
+     * @param liveFleet {@code null} or the in-memory snapshot to update with the vehicles found by each crawl.
+     * @param adaptiveBurstFactor {@code null} to start crawls at a fixed rate or how many times more often than on
+     *            average crawls may be started in an hour, to distribute the crawls of a day by how fast the fleet
+     *            changes at each hour of the day. {@code maxRequestsPerHour} is the daily average in this case. Not
+     *            supported together with {@code leaseSeconds}.
+     * @param partialRefreshes The number of partial crawls between two full crawls, which only request the regions
+     *            with the highest churn, or `0` to crawl the whole area each time. Not supported together with
+     *            {@code leaseSeconds}.
+     * @param partialShare The share of the request budget used by the partial crawls, e.g. `0.3`.
      */
-    public void run(final String tierApiKey, final String limeAuthToken, final boolean debugMode,
-            final String millisecondsBetweenRequests, final String maxRequestsPerHour,
-            final String maxRequestsPerCrawl, final String crawlerNumber, final String numberOfCrawlers) {
+    public void run(final HttpTransport transport, final List<VehicleProvider> providers,
+            final ExportFormat debugExport, final String millisecondsBetweenRequests,
+            final String maxRequestsPerHour, final String maxRequestsPerCrawl, final String crawlerNumber,
+            final String numberOfCrawlers, final String leaseSeconds, final VehicleStateCache stateCache,
+            final String checkpointDirectory, final WriteSpool spool, final LiveFleet liveFleet,
+            final String adaptiveBurstFactor, final String partialRefreshes, final String partialShare) {
+
+        Validate.notEmpty(providers, "No provider is configured");
+        providers.forEach(p -> mongoConnection.provision(p.collectionName()));
+        final var primary = providers.get(0);
+        final var others = providers.subList(1, providers.size());
+        if (stateCache != null) {
+            stateCache.rebuild(mongoConnection, primary.collectionName());
+        }
 
         // Start scheduler
         final var scheduler = Executors.newScheduledThreadPool(1);
+        // Full crawls use up to maxRequestsPerCrawl, the partial crawls between them share the rest of the budget
+        final var fullRequests = Integer.parseInt(maxRequestsPerCrawl);
+        final var refreshes = Integer.parseInt(partialRefreshes);
+        final var share = Double.parseDouble(partialShare);
+        Validate.isTrue(refreshes >= 0, "The number of partial crawls must not be negative");
+        Validate.isTrue(refreshes == 0 || share > 0 && share < 1, "The partial share must be between 0 and 1");
+        final int partialRequests = refreshes == 0 ? 0
+                : (int)Math.max(1, Math.round(fullRequests * share / ((1 - share) * refreshes)));
+        final var churn = refreshes > 0 ? new RegionChurn() : null;
         // Number of crawls to schedule per hour.
         final double crawlsPerHour = Integer.parseInt(maxRequestsPerHour)
-                / (double)Integer.parseInt(maxRequestsPerCrawl);
+                / ((fullRequests + refreshes * (double)partialRequests) / (refreshes + 1));
         final long secondsPerMinute = 60;
         final long minutesPerHour = 60;
         // Time to wait between two "crawl" schedules.
         final long secondsBetweenCrawls = (long)Math.ceil(minutesPerHour / crawlsPerHour * secondsPerMinute);
-        final long initialDelay = initialDelay(Integer.parseInt(crawlerNumber), Integer.parseInt(numberOfCrawlers),
-                secondsBetweenCrawls);
-        // Non-concurrent scheduling (subsequent starting late if previous still ongoing)
-        scheduler.scheduleAtFixedRate(
-                () -> {
-                    // Initializing the crawler here to create new dump files for testing each crawl
-                    this.limeCrawler = new LimeCrawler(limeAuthToken, Integer.parseInt(maxRequestsPerCrawl),
-                            Integer.parseInt(millisecondsBetweenRequests), debugMode);
-                    this.tierCrawler = tierApiKey != null ? new TierCrawler(tierApiKey) : null;
+        final var schedule = adaptiveBurstFactor != null
+                ? adaptiveSchedule(primary.name(), secondsBetweenCrawls, Double.parseDouble(adaptiveBurstFactor),
+                        Integer.parseInt(maxRequestsPerCrawl), Integer.parseInt(millisecondsBetweenRequests))
+                : null;
+        // At most one crawl is started per checkpoint window
+        final long windowSeconds = schedule != null ? schedule.getMinSecondsBetweenCrawls() : secondsBetweenCrawls;
+        final var listeners = new ArrayList<CrawlListener>();
+        if (liveFleet != null) {
+            listeners.add(liveFleet);
+        }
+        if (schedule != null) {
+            listeners.add(schedule);
+        }
+        // Coordinated crawlers all start at the beginning of the crawl window to share the crawl
+        final var coordinated = leaseSeconds != null;
+        final long initialDelay = coordinated ? initialDelay(1, 1, secondsBetweenCrawls)
+                : initialDelay(Integer.parseInt(crawlerNumber), Integer.parseInt(numberOfCrawlers),
+                        secondsBetweenCrawls);
+        final var nodeId = UUID.randomUUID().toString();
+        final var checkpoints = checkpointDirectory != null ? Paths.get(checkpointDirectory) : null;
+        // The checkpoint window of the last crawl started, to start at most one crawl per window
+        final var lastWindow = new AtomicLong(-1);
+        // The number of crawls started, to start one full crawl followed by the partial crawls
+        final var crawls = new AtomicLong();
+        final Runnable crawl = () -> {
+            if (refreshes > 0 && crawls.getAndIncrement() % (refreshes + 1) != 0) {
+                final var partialCrawler = new CrawlEngine(transport, primary, partialRequests,
+                        Integer.parseInt(millisecondsBetweenRequests), debugExport, null, stateCache, null, spool,
+                        churn, listeners);
+                if (!partialCrawler.refresh(mongoConnection, partialRequests)) {
+                    LOGGER.info("Skipping partial crawl, no region with churn is known yet.");
+                }
+                return;
+            }
+            // Initializing the crawler here to create new dump files for testing each crawl
+            final var coordination = coordinated
+                    ? new Coordination(crawlWindow(secondsBetweenCrawls), nodeId, Integer.parseInt(leaseSeconds))
+                    : null;
+            final var checkpoint = checkpoints != null
+                    ? checkpoint(checkpoints, checkpointWindow(windowSeconds), lastWindow)
+                    : null;
+            if (checkpoints != null && checkpoint == null) {
+                return;
+            }
+            final var crawlers = new ArrayList<Crawler>();
+            crawlers.add(new CrawlEngine(transport, primary, Integer.parseInt(maxRequestsPerCrawl),
+                    Integer.parseInt(millisecondsBetweenRequests), debugExport, coordination, stateCache, checkpoint,
+                    spool, churn, listeners));
+            for (final var provider : others) {
+                crawlers.add(new CrawlEngine(transport, provider, Integer.parseInt(maxRequestsPerCrawl),
+                        Integer.parseInt(millisecondsBetweenRequests), debugExport, null, null, null, spool, null,
+                        List.of()));
+            }
+
+            // Each engine schedules its requests on its own thread, so that the providers are crawled concurrently
+            for (final var crawler : crawlers) {
+                try {
+                    crawler.crawl(mongoConnection);
+                } catch (JSONException e) {
+                    LOGGER.error(e.getMessage());
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
 
-                    try {
-                        limeCrawler.crawl(mongoConnection);
-                    } catch (JSONException e) {
-                        LOGGER.error(e.getMessage());
-                        throw new IllegalStateException(e);
-                    }
+        // Resume a crawl interrupted by a restart without waiting for the next scheduling event
+        if (checkpoints != null
+                && new CrawlCheckpoint(checkpoints, checkpointWindow(windowSeconds)).exists()) {
+            LOGGER.info("Found checkpoint of an interrupted crawl, resuming it now.");
+            scheduler.execute(crawl);
+        }
+        if (schedule == null) {
+            // Non-concurrent scheduling (subsequent starting late if previous still ongoing)
+            scheduler.scheduleAtFixedRate(crawl, initialDelay, secondsBetweenCrawls, TimeUnit.SECONDS);
+            return;
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    crawl.run();
+                } finally {
+                    final var delay = schedule.nextDelaySeconds(Instant.now());
+                    LOGGER.info("Scheduling next crawl in " + delay + " seconds.");
+                    scheduler.schedule(this, delay, TimeUnit.SECONDS);
+                }
+            }
+        }, initialDelay, TimeUnit.SECONDS);
+    }
 
-                    if (tierCrawler != null) {
-                        try {
-                            tierCrawler.crawl(mongoConnection);
-                        } catch (JSONException e) {
-                            LOGGER.error(e.getMessage());
-                            throw new IllegalStateException(e);
-                        }
-                    }
-                }, initialDelay, secondsBetweenCrawls, TimeUnit.SECONDS);
+    /**
+     * Creates the schedule which distributes the crawls of a day by how fast the fleet changes at each hour of the
+     * day and learns the change rates from the statistics of past crawls.
+     *
+     * @param provider The name of the provider whose crawl statistics are learned from.
+     * @param secondsBetweenCrawls The average seconds between two crawls.
+     * @param burstFactor How many times more often than on average crawls may be started in an hour.
+     * @param maxRequestsPerCrawl The maximum number of requests per crawl.
+     * @param millisecondsBetweenRequests Milliseconds after which a new request can be sent.
+     * @return The schedule.
+     */
+    private AdaptiveSchedule adaptiveSchedule(final String provider, final long secondsBetweenCrawls,
+            final double burstFactor, final int maxRequestsPerCrawl, final int millisecondsBetweenRequests) {
+        Validate.isTrue(burstFactor >= 1, "The burst factor must be at least 1");
+        // A crawl must be finished before the next one starts
+        final var crawlSeconds = (long)Math.ceil(maxRequestsPerCrawl * (long)millisecondsBetweenRequests / 1_000.);
+        final var minSecondsBetweenCrawls = Math.min(secondsBetweenCrawls,
+                Math.max(crawlSeconds, (long)Math.ceil(secondsBetweenCrawls / burstFactor)));
+        final var ret = new AdaptiveSchedule(secondsBetweenCrawls, minSecondsBetweenCrawls, ZoneId.systemDefault());
+        final var now = Instant.now();
+        ret.learn(mongoConnection.crawlRuns(provider, Date.from(now.minus(Duration.ofDays(ADAPTIVE_LEARNING_DAYS))),
+                Date.from(now)));
+        return ret;
+    }
+
+    /**
+     * Creates the spool the results of each crawl are written to and starts draining it into the database.
+     *
+     * @param directory The directory to write the spool to.
+     * @param memoryMapped {@code true} to access the spool via memory-mapped files.
+     * @return The started spool.
+     */
+    private WriteSpool spool(final Path directory, final boolean memoryMapped) {
+        try {
+            final var ret = new WriteSpool(directory, mongoConnection, memoryMapped);
+            ret.start();
+            return ret;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to start the spool in " + directory, e);
+        }
+    }
+
+    /**
+     * Creates the in-memory snapshot of the fleet and starts serving it.
+     *
+     * @param port The port to serve the snapshot on.
+     * @return The snapshot to update with the vehicles found by each crawl.
+     */
+    private static LiveFleet liveFleet(final int port) {
+        final var ret = new LiveFleet(LIVE_HISTORY_MINUTES);
+        try {
+            new LiveFleetServer(ret, port);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serve the live fleet on port " + port, e);
+        }
+        return ret;
+    }
+
+    /**
+     * Prepares the checkpoint of the crawl which starts now.
+     *
+     * @param directory The directory to journal the crawls to.
+     * @param window The checkpoint window which starts now.
+     * @param lastWindow The checkpoint window of the last crawl started.
+     * @return The checkpoint to use or {@code null} if a crawl was already started in this window, e.g. because an
+     *         interrupted crawl was resumed.
+     */
+    private CrawlCheckpoint checkpoint(final Path directory, final long window, final AtomicLong lastWindow) {
+        if (lastWindow.getAndSet(window) == window) {
+            LOGGER.info("Skipping crawl, a crawl was already started in this crawl window.");
+            return null;
+        }
+        try {
+            CrawlCheckpoint.deleteStale(directory, window);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete stale checkpoints: " + e.getMessage());
+        }
+        return new CrawlCheckpoint(directory, window);
+    }
+
+    /**
+     * Identifies the crawl window the current time lies in, so that an interrupted crawl is only resumed until the
+     * next crawl is due.
+     *
+     * @param secondsBetweenCrawls The number of seconds between two crawls.
+     * @return The number of the crawl window since epoch.
+     */
+    private long checkpointWindow(final long secondsBetweenCrawls) {
+        return Instant.now().getEpochSecond() / secondsBetweenCrawls;
     }
 
     /**
@@ -295,6 +629,20 @@ public class Application {
         return initialDelay;
     }
 
+    /**
+     * Identifies the crawl window which starts now, so that all coordinated crawlers join the same crawl.
+     * <p>
+     * The window start is rounded to the nearest window boundary to tolerate scheduling delays and clock skew between
+     * the crawlers.
+     *
+     * @param secondsBetweenCrawls The number of seconds between two crawls.
+     * @return The start of the crawl window in seconds since epoch.
+     */
+    private long crawlWindow(final long secondsBetweenCrawls) {
+        final long now = Instant.now().getEpochSecond();
+        return Math.round(now / (double)secondsBetweenCrawls) * secondsBetweenCrawls;
+    }
+
     /**
      * @return An Apache CLI <code>Options</code> object configured with the options available for this application.
      */
@@ -304,6 +652,9 @@ public class Application {
                 "If a TIER API key is provided, the TIER API is crawled, too.");
         ret.addRequiredOption(LIME_AUTH_TOKEN_SHORT_OPTION, LIME_AUTH_TOKEN_LONG_OPTION, true,
                 "Please provide a Lime API auth token.");
+        ret.addOption(LIME_BASE_URI_SHORT_OPTION, LIME_BASE_URI_LONG_OPTION, true,
+                "Please provide the base URI of the Lime API, e.g. of a local simulator.");
+
         ret.addOption(MONGO_HOST_SHORT_OPTION, MONGO_HOST_LONG_OPTION, true,
                 "Please provide a Mongo Database hostname.");
         ret.addOption(MONGO_PORT_SHORT_OPTION, MONGO_PORT_LONG_OPTION, true,
@@ -317,7 +668,9 @@ public class Application {
         ret.addOption(MONGO_PASSWORD_SHORT_OPTION, MONGO_PASSWORD_LONG_OPTION, true,
                 "Please provide a Mongo Database password.");
         ret.addOption(DEBUG_MODE_SHORT_OPTION, DEBUG_MODE_LONG_OPTION, false,
-                "Set this flag to log crawling results into CSV files.");
+                "Set this flag to log crawling results into files.");
+        ret.addOption(EXPORT_FORMAT_SHORT_OPTION, EXPORT_FORMAT_LONG_OPTION, true,
+                "Please provide the format of the debug files, `csv` (default) or `parquet`.");
         ret.addOption(MILLISECONDS_BETWEEN_REQUESTS_SHORT_OPTION, MILLISECONDS_BETWEEN_REQUESTS_LONG_OPTION,
                 true, "Please provide the number of milliseconds between two request.");
         ret.addOption(MAX_REQUESTS_PER_HOUR_SHORT_OPTION, MAX_REQUESTS_PER_HOUR_LONG_OPTION,
@@ -328,6 +681,47 @@ public class Application {
                 true, "Please provide the number of this crawler.");
         ret.addOption(NUMBER_OF_CRAWLERS_SHORT_OPTION, NUMBER_OF_CRAWLERS_LONG_OPTION,
                 true, "Please provide the number of crawlers.");
+        ret.addOption(COORDINATED_SHORT_OPTION, COORDINATED_LONG_OPTION, false,
+                "Set this flag to share each crawl with all other crawlers started with this flag, using leases "
+                        + "in the Mongo Database. The max requests per crawl are shared by all crawlers.");
+        ret.addOption(LEASE_SECONDS_SHORT_OPTION, LEASE_SECONDS_LONG_OPTION,
+                true, "Please provide the number of seconds after which a region leased by a coordinated crawler "
+                        + "can be claimed by another one.");
+        ret.addOption(CONNECT_TIMEOUT_SHORT_OPTION, CONNECT_TIMEOUT_LONG_OPTION,
+                true, "Please provide the number of seconds after which connecting to an API fails.");
+        ret.addOption(REQUEST_TIMEOUT_SHORT_OPTION, REQUEST_TIMEOUT_LONG_OPTION,
+                true, "Please provide the number of seconds after which a request to an API without response fails.");
+        ret.addOption(DELTA_PERSISTENCE_SHORT_OPTION, DELTA_PERSISTENCE_LONG_OPTION, false,
+                "Set this flag to persist only vehicles which changed since they were persisted last.");
+        ret.addOption(DELTA_DISTANCE_SHORT_OPTION, DELTA_DISTANCE_LONG_OPTION,
+                true, "Please provide the distance in meters a vehicle has to move to be persisted again.");
+        ret.addOption(DELTA_BATTERY_SHORT_OPTION, DELTA_BATTERY_LONG_OPTION,
+                true, "Please provide the change in battery percentage points required to persist a vehicle again.");
+        ret.addOption(HEARTBEAT_SHORT_OPTION, HEARTBEAT_LONG_OPTION,
+                true, "Please provide the minutes after which an unchanged vehicle is persisted again, below "
+                        + RecordSchema.MAX_CRAWLING_GAP_MINUTES + ".");
+        ret.addOption(CHECKPOINT_DIRECTORY_SHORT_OPTION, CHECKPOINT_DIRECTORY_LONG_OPTION,
+                true, "Please provide a directory to checkpoint crawls to, to resume them after a restart.");
+        ret.addOption(SPOOL_DIRECTORY_SHORT_OPTION, SPOOL_DIRECTORY_LONG_OPTION,
+                true, "Please provide a directory to spool crawl results to, which are drained into the Mongo "
+                        + "Database in the background.");
+        ret.addOption(SPOOL_MEMORY_MAPPED_SHORT_OPTION, SPOOL_MEMORY_MAPPED_LONG_OPTION, false,
+                "Set this flag to access the spool via memory-mapped files.");
+        ret.addOption(LIVE_PORT_SHORT_OPTION, LIVE_PORT_LONG_OPTION, true,
+                "Please provide a port to serve the vehicles found by the latest crawl and their recent positions "
+                        + "on.");
+        ret.addOption(ADAPTIVE_SCHEDULING_SHORT_OPTION, ADAPTIVE_SCHEDULING_LONG_OPTION, false,
+                "Set this flag to crawl more often at the hours of the day when the fleet changes most, within the "
+                        + "same daily request budget.");
+        ret.addOption(ADAPTIVE_BURST_SHORT_OPTION, ADAPTIVE_BURST_LONG_OPTION, true,
+                "Please provide how many times more often than on average crawls may be started in an hour with "
+                        + "adaptive scheduling.");
+        ret.addOption(PARTIAL_REFRESHES_SHORT_OPTION, PARTIAL_REFRESHES_LONG_OPTION, true,
+                "Please provide the number of partial crawls between two full crawls, which only request the "
+                        + "regions where most vehicles appear and disappear.");
+        ret.addOption(PARTIAL_SHARE_SHORT_OPTION, PARTIAL_SHARE_LONG_OPTION, true,
+                "Please provide the share of the request budget used by partial crawls, e.g. 0.3.");
+
         return ret;
     }
 
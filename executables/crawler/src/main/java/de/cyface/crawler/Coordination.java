@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Describes how this crawler node takes part in a crawl which is shared between multiple nodes using a
+ * {@link LeasedFrontier}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class Coordination {
+
+    /**
+     * Identifies the crawl shared by all nodes, i.e. the start of the crawl window in seconds since epoch.
+     */
+    private final long crawlId;
+    /**
+     * Identifies this crawler node as owner of leases.
+     */
+    private final String nodeId;
+    /**
+     * The number of seconds after which a region leased by a node which did not finish it can be claimed again.
+     */
+    private final int leaseSeconds;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param crawlId Identifies the crawl shared by all nodes, i.e. the start of the crawl window in seconds since
+     *            epoch.
+     * @param nodeId Identifies this crawler node as owner of leases.
+     * @param leaseSeconds The number of seconds after which a region leased by a node which did not finish it can be
+     *            claimed again.
+     */
+    public Coordination(final long crawlId, final String nodeId, final int leaseSeconds) {
+        Validate.notEmpty(nodeId);
+        Validate.isTrue(leaseSeconds > 0);
+
+        this.crawlId = crawlId;
+        this.nodeId = nodeId;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * @return Identifies the crawl shared by all nodes, i.e. the start of the crawl window in seconds since epoch.
+     */
+    public long getCrawlId() {
+        return crawlId;
+    }
+
+    /**
+     * @return Identifies this crawler node as owner of leases.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return The number of seconds after which a region leased by a node which did not finish it can be claimed
+     *         again.
+     */
+    public int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+}
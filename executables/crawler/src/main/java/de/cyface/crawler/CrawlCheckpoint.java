@@ -0,0 +1,441 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.model.BoundingBox;
+
+/**
+ * An append-only journal of one crawl, which allows to resume the crawl after the crawler was restarted.
+ * <p>
+ * Each request appends one line with the requested region, its sub-regions and the vehicles it found first. The state
+ * of the crawl, i.e. the frontier, the vehicles found and the number of requests sent, is restored by replaying the
+ * lines. A line which was not written completely when the crawler died is ignored and cut off.
+ * <p>
+ * The journal is kept open during the crawl. Each line is handed to the operating system when it is written, so that
+ * it survives a crash of the crawler, and forced to the disk every {@link #FORCE_INTERVAL} lines, so that at most
+ * these lines are lost when the machine fails.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class CrawlCheckpoint {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrawlCheckpoint.class);
+    /**
+     * The prefix of the names of all checkpoint files.
+     */
+    private static final String PREFIX = "crawl_";
+    /**
+     * The suffix of the names of all checkpoint files.
+     */
+    private static final String SUFFIX = ".jsonl";
+    /**
+     * The number of lines after which the journal is forced to the disk.
+     */
+    private static final int FORCE_INTERVAL = 10;
+    /**
+     * The file the journal is written to.
+     */
+    private final Path file;
+    /**
+     * The open journal or {@code null} if it is not opened yet.
+     */
+    private FileChannel channel;
+    /**
+     * Writes to the {@link #channel}.
+     */
+    private BufferedWriter writer;
+    /**
+     * The number of lines written since the journal was last forced to the disk.
+     */
+    private int unforced;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param directory The directory to write the journal to
+     * @param crawlWindow Identifies the crawl window, only crawls in the same window can be resumed
+     */
+    public CrawlCheckpoint(final Path directory, final long crawlWindow) {
+        Validate.notNull(directory);
+
+        this.file = directory.resolve(PREFIX + crawlWindow + SUFFIX);
+    }
+
+    /**
+     * Deletes the journals of crawl windows which are over.
+     *
+     * @param directory The directory the journals are written to
+     * @param currentWindow The current crawl window
+     * @throws IOException If the directory could not be read or a journal not be deleted
+     */
+    public static void deleteStale(final Path directory, final long currentWindow) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        final var current = PREFIX + currentWindow + SUFFIX;
+        try (var files = Files.list(directory)) {
+            for (final var path : (Iterable<Path>)files::iterator) {
+                final var name = path.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX) && !name.equals(current)) {
+                    LOGGER.info("Deleting stale crawl checkpoint " + path);
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if a crawl in this window was started but did not persist its results.
+     */
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Starts the journal of a new crawl.
+     *
+     * @param crawlStarted The time when the crawl started
+     * @throws IOException If the journal could not be written
+     */
+    public void started(final Date crawlStarted) throws IOException {
+        close();
+        Files.createDirectories(file.getParent());
+        open(StandardOpenOption.TRUNCATE_EXISTING);
+        final var line = new JSONObject()
+                .put("type", "started")
+                .put("crawl_started", crawlStarted.getTime());
+        append(line);
+        force();
+    }
+
+    /**
+     * Appends a completed request to the journal.
+     *
+     * @param region The requested region
+     * @param subRegions The sub-regions added to the frontier for the region
+     * @param vehicles The vehicles in the API response which were not found by any earlier request of the crawl
+     * @param requestTime The time when the request was sent
+     * @throws IOException If the journal could not be written
+     */
+    public void requested(final BoundingBox region, final List<BoundingBox> subRegions, final JSONArray vehicles,
+            final Date requestTime) throws IOException {
+        final var children = new JSONArray();
+        subRegions.forEach(r -> children.put(toJson(r)));
+        final var line = new JSONObject()
+                .put("type", "requested")
+                .put("region", toJson(region))
+                .put("sub_regions", children)
+                .put("vehicles", vehicles)
+                .put("request_time", requestTime.getTime());
+        if (writer == null) {
+            // Resuming a crawl restored from this journal
+            open(StandardOpenOption.APPEND);
+        }
+        append(line);
+        if (++unforced >= FORCE_INTERVAL) {
+            force();
+        }
+    }
+
+    /**
+     * Restores the state of the crawl from the journal.
+     *
+     * @param initialRegion The region the crawl started with
+     * @return The restored state
+     * @throws IOException If the journal could not be read
+     */
+    public State restore(final BoundingBox initialRegion) throws IOException {
+
+        final var bytes = Files.readAllBytes(file);
+        final var lines = new ArrayList<JSONObject>();
+        // The byte length of the complete lines, a torn line is cut off so that the resumed crawl appends behind them
+        var length = 0;
+        for (var newline = indexOf(bytes, length); newline >= 0; newline = indexOf(bytes, length)) {
+            try {
+                lines.add(new JSONObject(new String(bytes, length, newline - length, StandardCharsets.UTF_8)));
+            } catch (JSONException e) {
+                LOGGER.warn("Ignoring incomplete crawl checkpoint entry: " + e.getMessage());
+                break;
+            }
+            length = newline + 1;
+        }
+        Validate.isTrue(!lines.isEmpty(), "Empty crawl checkpoint " + file);
+        if (length < bytes.length) {
+            LOGGER.warn(String.format("Truncating crawl checkpoint %s after %d complete entries.", file, lines.size()));
+            try (var truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncated.truncate(length);
+                truncated.force(false);
+            }
+        }
+
+        final var crawlStarted = new Date(lines.get(0).getLong("crawl_started"));
+        final var regions = new ArrayList<BoundingBox>();
+        regions.add(initialRegion);
+        final var responses = new ArrayList<Response>();
+        for (final var entry : lines.subList(1, lines.size())) {
+            final var region = fromJson(entry.getJSONObject("region"));
+            regions.removeIf(r -> r.key().equals(region.key()));
+            final var subRegions = entry.getJSONArray("sub_regions");
+            for (int i = 0; i < subRegions.length(); i++) {
+                regions.add(fromJson(subRegions.getJSONObject(i)));
+            }
+            responses.add(new Response(entry.getJSONArray("vehicles"), new Date(entry.getLong("request_time")),
+                    region.getZoom()));
+        }
+        LOGGER.info(String.format("Resuming crawl started at %s after %d requests, %d regions left.", crawlStarted,
+                responses.size(), regions.size()));
+        return new State(crawlStarted, regions, responses);
+    }
+
+    /**
+     * Deletes the journal after the crawl persisted its results.
+     *
+     * @throws IOException If the journal could not be deleted
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Forces the journal to the disk and closes it. It is opened again by the next write.
+     *
+     * @throws IOException If the journal could not be written
+     */
+    public void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            force();
+        } finally {
+            writer.close();
+            writer = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * @param mode {@link StandardOpenOption#TRUNCATE_EXISTING} to start a new journal or
+     *            {@link StandardOpenOption#APPEND} to continue it
+     * @throws IOException If the journal could not be opened
+     */
+    private void open(final StandardOpenOption mode) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+        unforced = 0;
+    }
+
+    /**
+     * @param bytes The content of the journal
+     * @param from The index to start searching at
+     * @return The index of the next line break or {@code -1} if the rest of the journal is no complete line
+     */
+    private static int indexOf(final byte[] bytes, final int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hands a line to the operating system.
+     *
+     * @param line The line to append
+     * @throws IOException If the journal could not be written
+     */
+    private void append(final JSONObject line) throws IOException {
+        writer.write(line.toString());
+        writer.write('\n');
+        writer.flush();
+    }
+
+    /**
+     * Forces the lines written to the disk.
+     *
+     * @throws IOException If the journal could not be written
+     */
+    private void force() throws IOException {
+        channel.force(false);
+        unforced = 0;
+    }
+
+    /**
+     * @param region The region to write
+     * @return The region as written to the journal
+     */
+    private static JSONObject toJson(final BoundingBox region) {
+        return new JSONObject()
+                .put("found_by_parent", region.getFoundByParent())
+                .put("ne_lat", region.getNorthEastLat())
+                .put("ne_lon", region.getNorthEastLon())
+                .put("sw_lat", region.getSouthWestLat())
+                .put("sw_lon", region.getSouthWestLon())
+                .put("zoom", region.getZoom());
+    }
+
+    /**
+     * @param json A region as written by {@link #toJson(BoundingBox)}
+     * @return The region
+     */
+    private static BoundingBox fromJson(final JSONObject json) {
+        return new BoundingBox(json.getInt("found_by_parent"), json.getDouble("ne_lat"), json.getDouble("ne_lon"),
+                json.getDouble("sw_lat"), json.getDouble("sw_lon"), (short)json.getInt("zoom"));
+    }
+
+    /**
+     * The state of a crawl restored from a journal.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class State {
+
+        /**
+         * The time when the crawl started.
+         */
+        private final Date crawlStarted;
+        /**
+         * The regions still to request, in the order they were added.
+         */
+        private final List<BoundingBox> regions;
+        /**
+         * The responses received so far.
+         */
+        private final List<Response> responses;
+
+        /**
+         * Creates a fully initialized instance of this class.
+         *
+         * @param crawlStarted The time when the crawl started.
+         * @param regions The regions still to request, in the order they were added.
+         * @param responses The responses received so far.
+         */
+        State(final Date crawlStarted, final List<BoundingBox> regions, final List<Response> responses) {
+            this.crawlStarted = crawlStarted;
+            this.regions = regions;
+            this.responses = responses;
+        }
+
+        /**
+         * @return The time when the crawl started.
+         */
+        public Date getCrawlStarted() {
+            return crawlStarted;
+        }
+
+        /**
+         * @return The regions still to request, in the order they were added.
+         */
+        public List<BoundingBox> getRegions() {
+            return regions;
+        }
+
+        /**
+         * @return The responses received so far.
+         */
+        public List<Response> getResponses() {
+            return responses;
+        }
+    }
+
+    /**
+     * A response received during a crawl restored from a journal.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class Response {
+
+        /**
+         * The vehicles in the API response which were not found by any earlier request.
+         */
+        private final JSONArray vehicles;
+        /**
+         * The time when the request was sent.
+         */
+        private final Date requestTime;
+        /**
+         * The zoom level of the requested region.
+         */
+        private final short zoom;
+
+        /**
+         * Creates a fully initialized instance of this class.
+         *
+         * @param vehicles The vehicles in the API response which were not found by any earlier request.
+         * @param requestTime The time when the request was sent.
+         * @param zoom The zoom level of the requested region.
+         */
+        Response(final JSONArray vehicles, final Date requestTime, final short zoom) {
+            this.vehicles = vehicles;
+            this.requestTime = requestTime;
+            this.zoom = zoom;
+        }
+
+        /**
+         * @return The vehicles in the API response which were not found by any earlier request.
+         */
+        public JSONArray getVehicles() {
+            return vehicles;
+        }
+
+        /**
+         * @return The time when the request was sent.
+         */
+        public Date getRequestTime() {
+            return requestTime;
+        }
+
+        /**
+         * @return The zoom level of the requested region.
+         */
+        public short getZoom() {
+            return zoom;
+        }
+    }
+}
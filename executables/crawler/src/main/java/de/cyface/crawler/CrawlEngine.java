@@ -0,0 +1,564 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+
+import de.cyface.crawler.export.Column;
+import de.cyface.crawler.export.ColumnType;
+import de.cyface.crawler.export.ExportFormat;
+import de.cyface.crawler.export.ExportSchema;
+import de.cyface.crawler.export.Exporter;
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * The crawler shared by all {@link VehicleProvider}s.
+ * <p>
+ * The provider only builds the requests and decodes the vehicles. This engine paces the requests, manages the
+ * frontier of the regions to request, deduplicates the vehicles found, persists them in one batch per crawl and
+ * records the statistics of each crawl. Each engine schedules its requests on its own thread, so that engines of
+ * different providers crawl concurrently while each provider's API is only requested at the configured pace.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class CrawlEngine implements Crawler {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CrawlEngine.class);
+    /**
+     * The number of lease durations a node waits for regions leased by other nodes before it gives up on a shared
+     * crawl. Regions of nodes which died are claimed again after one lease duration.
+     */
+    private static final int MAX_IDLE_LEASES = 2;
+    /**
+     * The directory the debug files are written to.
+     */
+    private static final Path WORKING_DIRECTORY = Paths.get("");
+    /**
+     * The columns of the debug log of the requests sent.
+     */
+    private static final ExportSchema REQUEST_LOG = new ExportSchema("requests",
+            new Column("request", ColumnType.INT), new Column("timestamp", ColumnType.LONG),
+            new Column("lat", ColumnType.DOUBLE), new Column("lon", ColumnType.DOUBLE),
+            new Column("found", ColumnType.INT), new Column("parentFound", ColumnType.INT),
+            new Column("zoom", ColumnType.INT), new Column("queue", ColumnType.INT));
+    /**
+     * The columns of the debug dump of the plates found.
+     */
+    private static final ExportSchema PLATES = new ExportSchema("plates",
+            new Column("plate_number", ColumnType.STRING), new Column("lat", ColumnType.STRING),
+            new Column("lon", ColumnType.STRING));
+    /**
+     * The columns of the debug dump of the vehicles found.
+     */
+    private static final ExportSchema VEHICLES = new ExportSchema("vehicles",
+            new Column("plate_number", ColumnType.STRING), new Column("lat", ColumnType.DOUBLE),
+            new Column("lon", ColumnType.DOUBLE), new Column("meterRange", ColumnType.INT),
+            new Column("status", ColumnType.STRING), new Column("lastActivityAt", ColumnType.TIMESTAMP),
+            new Column("batteryLevel", ColumnType.STRING), new Column("typeName", ColumnType.STRING),
+            new Column("requestTime", ColumnType.TIMESTAMP));
+
+    /**
+     * {@code Null} to continue until no no vehicles are found or the number of requests.
+     */
+    private final int maxRequestsPerCrawl;
+
+    /**
+     * Milliseconds after which a new request can be sent.
+     */
+    private final int millisecondsBetweenRequests;
+
+    /**
+     * {@code null} or the format to log processing results in for debugging.
+     */
+    private final ExportFormat debugExport;
+
+    /**
+     * The provider to be crawled.
+     */
+    private final VehicleProvider provider;
+
+    /**
+     * The API of the provider.
+     */
+    private final ProviderApi api;
+
+    /**
+     * How this crawler shares the crawl with other nodes or {@code null} to crawl the whole area alone.
+     */
+    private final Coordination coordination;
+
+    /**
+     * The HTTP transport shared by all API clients, used to log its statistics after each crawl.
+     */
+    private final HttpTransport transport;
+
+    /**
+     * The last persisted state of each vehicle to persist only changed vehicles or {@code null} to persist all
+     * vehicles found.
+     */
+    private final VehicleStateCache stateCache;
+
+    /**
+     * The journal used to resume the crawl after a restart or {@code null} to start each crawl from scratch.
+     */
+    private final CrawlCheckpoint checkpoint;
+
+    /**
+     * The spool the results of each crawl are written to before they are drained into the database or {@code null}
+     * to write them to the database directly.
+     */
+    private final WriteSpool spool;
+
+    /**
+     * The churn of each leaf region, updated by each crawl, or {@code null} to track no churn.
+     */
+    private final RegionChurn churn;
+
+    /**
+     * Notified about the vehicles found by each crawl, e.g. the in-memory snapshot of the fleet.
+     */
+    private final List<CrawlListener> listeners;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param transport The HTTP transport shared by all API clients
+     * @param provider The provider to be crawled
+     * @param maxRequestsPerCrawl {@code Null} to continue until no no vehicles are found or the number of requests.
+     * @param millisecondsBetweenRequests Milliseconds after which a new request can be sent, {@code 0} to send the
+     *            requests back to back.
+     * @param debugExport {@code null} or the format to log processing results in for debugging
+     * @param coordination How this crawler shares the crawl with other nodes or {@code null} to crawl the whole area
+     *            alone.
+     * @param stateCache The last persisted state of each vehicle to persist only changed vehicles or {@code null} to
+     *            persist all vehicles found.
+     * @param checkpoint The journal used to resume the crawl after a restart or {@code null} to start each crawl from
+     *            scratch. Only supported without {@code coordination}, where the leases allow to resume the crawl.
+     * @param spool The spool the results of each crawl are written to before they are drained into the database or
+     *            {@code null} to write them to the database directly.
+     * @param churn The churn of each leaf region, updated by each crawl, or {@code null} to track no churn. Required
+     *            for {@link #refresh(MongoConnection, int)}.
+     * @param listeners Notified about the vehicles found by each crawl, e.g. the in-memory snapshot of the fleet.
+     */
+    public CrawlEngine(final HttpTransport transport, final VehicleProvider provider, final int maxRequestsPerCrawl,
+            final int millisecondsBetweenRequests, final ExportFormat debugExport,
+            final Coordination coordination, final VehicleStateCache stateCache, final CrawlCheckpoint checkpoint,
+            final WriteSpool spool, final RegionChurn churn, final List<CrawlListener> listeners) {
+        Validate.isTrue(coordination == null || checkpoint == null, "Coordinated crawls cannot be checkpointed");
+        Validate.notNull(provider);
+        Validate.notNull(listeners);
+
+        this.transport = transport;
+        this.provider = provider;
+        this.api = new ProviderApi(transport, provider);
+        this.maxRequestsPerCrawl = maxRequestsPerCrawl;
+        this.debugExport = debugExport;
+        this.millisecondsBetweenRequests = millisecondsBetweenRequests;
+        this.coordination = coordination;
+        this.stateCache = stateCache;
+        this.checkpoint = checkpoint;
+        this.spool = spool;
+        this.churn = churn;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public void crawl(MongoConnection mongoWriter) throws JSONException {
+        LOGGER.info("Crawling " + provider.name() + " @ " + new Date());
+        final var bb = provider.area();
+
+        try {
+            final var restored = checkpoint != null && checkpoint.exists() ? checkpoint.restore(bb) : null;
+            scheduleCrawling(frontier(bb, mongoWriter, restored), mongoWriter, restored, false);
+        } catch (IOException e) {
+            // Continue on next scheduling event
+            LOGGER.warn("Unable to start the crawl", e);
+        }
+    }
+
+    /**
+     * Starts a partial crawl which only requests the leaf regions with the highest churn, see {@link RegionChurn}.
+     * <p>
+     * Leaf regions which are saturated by now are split as in a full crawl, within the request budget.
+     *
+     * @param mongoWriter The sink to write the found locations to.
+     * @param maxRequests The request budget of the partial crawl.
+     * @return {@code false} if no region with churn is known yet, so that no partial crawl was started
+     */
+    public boolean refresh(final MongoConnection mongoWriter, final int maxRequests) {
+        Validate.notNull(churn, "Partial crawls require the churn to be tracked");
+        Validate.isTrue(maxRequests > 0);
+
+        final var regions = churn.hottest(maxRequests);
+        if (regions.isEmpty()) {
+            return false;
+        }
+        LOGGER.info(String.format("Refreshing the %d regions with the highest churn @ %s", regions.size(),
+                new Date()));
+        try {
+            scheduleCrawling(new LocalFrontier(regions, maxRequests, 0), mongoWriter, null, true);
+        } catch (IOException e) {
+            // Continue on next scheduling event
+            LOGGER.warn("Unable to start the refresh", e);
+        }
+        return true;
+    }
+
+    /**
+     * Creates the frontier for a new crawl.
+     *
+     * @param initialRegion The region to scan for vehicles
+     * @param mongoWriter The database which contains the leases if the crawl is shared with other nodes
+     * @param restored The state of an interrupted crawl to resume or {@code null} to start a new crawl
+     * @return A frontier which is shared with the other nodes if a {@link Coordination} is configured
+     */
+    private Frontier frontier(final BoundingBox initialRegion, final MongoConnection mongoWriter,
+            final CrawlCheckpoint.State restored) {
+        if (restored != null) {
+            return new LocalFrontier(restored.getRegions(), maxRequestsPerCrawl, restored.getResponses().size());
+        }
+        if (coordination == null) {
+            return new LocalFrontier(initialRegion, maxRequestsPerCrawl);
+        }
+        LOGGER.info("Joining crawl " + coordination.getCrawlId() + " as node " + coordination.getNodeId());
+        return new LeasedFrontier(mongoWriter, coordination, initialRegion, maxRequestsPerCrawl);
+    }
+
+    /**
+     * Starts crawling all vehicles in the defined region. Multiple requests will be sent until the provider refined
+     * no region any further or until the request limits defined in the constructor are reached.
+     *
+     * @param frontier The regions to scan for vehicles
+     * @param mongoWriter The sink to write the vehicle locations into
+     * @param restored The state of an interrupted crawl to resume or {@code null} to start a new crawl
+     * @param partial {@code true} if only some regions are refreshed instead of crawling the whole area
+     * @throws IOException When the program failed to write to the log file or the checkpoint
+     */
+    private void scheduleCrawling(final Frontier frontier, final MongoConnection mongoWriter,
+            final CrawlCheckpoint.State restored, final boolean partial) throws IOException {
+
+        final Date crawlStarted = restored != null ? restored.getCrawlStarted() : new Date();
+        final var plates = new HashSet<String>();
+        final var vehicles = new HashSet<LimeVehicle>();
+        final var requestCounter = new Integer[] {0};
+        final var run = new CrawlRun(provider.name(), crawlStarted, restored != null, partial);
+        if (churn != null && !partial) {
+            churn.fullCrawlStarted();
+        }
+        if (restored != null) {
+            for (final var response : restored.getResponses()) {
+                final var returned = vehicles(response.getVehicles(), response.getRequestTime(), crawlStarted);
+                run.requested(response.getZoom(), collect(frontier, plates, vehicles, returned).size(), 0);
+            }
+            requestCounter[0] = restored.getResponses().size();
+        } else if (checkpoint != null) {
+            checkpoint.started(crawlStarted);
+        }
+        final var errorReceived = new Boolean[] {false};
+        final var budgetExhausted = new Boolean[] {false};
+        final var stalled = new Boolean[] {false};
+        // When this node started waiting for regions leased by other nodes, or 0 if it is not waiting
+        final var idleSince = new long[] {0L};
+        final var maxIdleMillis = coordination == null ? Long.MAX_VALUE
+                : MAX_IDLE_LEASES * TimeUnit.SECONDS.toMillis(coordination.getLeaseSeconds());
+        final var requestLog = debugExport == null ? null
+                : debugExport.open(debugFile(crawlStarted, "requests"), REQUEST_LOG);
+        final var crawlEvent = new CrawlEvent();
+        crawlEvent.begin();
+        crawlEvent.provider = run.getProvider();
+        crawlEvent.resumed = run.isResumed();
+
+        // Start scheduler
+        final var scheduler = Executors.newScheduledThreadPool(1);
+        final var period = Math.max(1L, TimeUnit.MILLISECONDS.toMicros(millisecondsBetweenRequests));
+        // Non-concurrent scheduling (subsequent starting late if previous still ongoing)
+        // noinspection rawtypes
+        final AtomicReference<ScheduledFuture> futureReference = new AtomicReference<>();
+        final var exec = scheduler.scheduleAtFixedRate(
+                () -> {
+                    BoundingBox bb = null;
+                    try {
+
+                        // Stop requests when limit is reached or queue is empty
+                        if (errorReceived[0] || budgetExhausted[0] || stalled[0] || frontier.isExhausted()) {
+                            futureReference.get().cancel(false); // Or else the persisting could be canceled?
+                            // Lets the thread terminate after persisting, each crawl starts its own scheduler
+                            scheduler.shutdown();
+
+                            LOGGER.info("\n\n-------------- Done crawling, persisting data ... -------------");
+                            try {
+                                if (churn != null && !partial) {
+                                    churn.fullCrawlFinished();
+                                }
+                                listeners.forEach(l -> l.crawled(vehicles, run));
+                                if (requestLog != null) {
+                                    requestLog.close();
+                                    dumpToFile(plates, vehicles, crawlStarted);
+                                }
+                                final var persisted = stateCache == null ? vehicles : stateCache.changed(vehicles);
+                                if (spool == null) {
+                                    mongoWriter.write(persisted, provider.collectionName());
+                                } else {
+                                    spool.append(persisted, provider.collectionName());
+                                }
+                                if (stateCache != null) {
+                                    stateCache.persisted(persisted);
+                                }
+                                run.finished(errorReceived[0] ? CrawlRun.ERROR
+                                        : stalled[0] ? CrawlRun.STALLED
+                                                : budgetExhausted[0] ? CrawlRun.BUDGET_EXHAUSTED
+                                                        : CrawlRun.COMPLETED,
+                                        persisted.size());
+                            } catch (IOException | RuntimeException e) {
+                                // The task is not scheduled again, so this crawl is lost
+                                LOGGER.error("Unable to persist the crawl started at " + crawlStarted, e);
+                                return;
+                            } finally {
+                                frontier.close();
+                                crawlEvent.requests = requestCounter[0];
+                                crawlEvent.found = vehicles.size();
+                                crawlEvent.frontierPeak = run.getFrontierPeak();
+                                crawlEvent.commit();
+                                if (checkpoint != null) {
+                                    checkpoint.close();
+                                }
+                            }
+                            if (checkpoint != null) {
+                                checkpoint.delete();
+                            }
+                            listeners.forEach(l -> l.persisted(run));
+                            try {
+                                mongoWriter.write(run);
+                            } catch (MongoException e) {
+                                // The statistics are not worth delaying the next crawl
+                                LOGGER.warn("Unable to persist crawl statistics: " + e.getMessage());
+                            }
+                            LOGGER.info("-------------- Data persisted. -------------\n\n");
+                            LOGGER.info(transport.statistics());
+
+                            return;
+                        }
+
+                        // Request
+                        bb = frontier.next();
+                        if (bb == null) {
+                            // The remaining regions are leased by other nodes which may still add sub-regions
+                            final var now = System.currentTimeMillis();
+                            if (idleSince[0] == 0L) {
+                                idleSince[0] = now;
+                            } else if (now - idleSince[0] > maxIdleMillis) {
+                                LOGGER.warn("The regions leased by other nodes made no progress for " + maxIdleMillis
+                                        + " ms, stopping the crawl");
+                                stalled[0] = true;
+                            }
+                            return;
+                        }
+                        idleSince[0] = 0L;
+                        if (!frontier.acquireRequest()) {
+                            frontier.release(bb);
+                            budgetExhausted[0] = true;
+                            return;
+                        }
+                        final var requestTime = new Date();
+                        final JSONArray result;
+                        result = api.vehicles(bb, frontier.size(), vehicles.size(), requestCounter, requestTime);
+
+                        // Collect new vehicles
+                        final var returned = vehicles(result, requestTime, crawlStarted);
+                        final var found = collect(frontier, plates, vehicles, returned);
+                        final var newFound = found.size();
+                        log(requestLog, requestCounter, requestTime, bb, newFound, frontier.size());
+
+                        // Calculate sub-regions, saturated regions are sliced even without new vehicles
+                        if (newFound > 0) {
+                            LOGGER.info(newFound + " new found");
+                        }
+                        final var subRegions = provider.refine(bb, newFound, returned);
+                        frontier.completed(bb, subRegions);
+                        run.requested(bb.getZoom(), newFound, frontier.size());
+                        if (churn != null) {
+                            churn.observed(bb, returned, requestTime, subRegions.isEmpty(), partial);
+                        }
+                        if (checkpoint != null) {
+                            final var foundFirst = new JSONArray();
+                            found.forEach(i -> foundFirst.put(result.get(i)));
+                            checkpoint.requested(bb, subRegions, foundFirst, requestTime);
+                        }
+
+                    } catch (ApiUnavailable | IOException | RuntimeException e) {
+                        // Stops the crawl on the next scheduling event. An uncaught exception would cancel this task
+                        // silently, so that the crawl is never persisted and the frontier never closed.
+                        LOGGER.warn("Request failed: " + e.getMessage(), e);
+                        errorReceived[0] = true;
+                        run.failed();
+                        if (bb != null) {
+                            // Allows other nodes to retry the region without waiting for the lease to expire
+                            try {
+                                frontier.release(bb);
+                            } catch (MongoException releaseFailed) {
+                                LOGGER.warn("Unable to release " + bb.key() + ": " + releaseFailed.getMessage());
+                            }
+                        }
+                    }
+
+                }, 0, period, TimeUnit.MICROSECONDS);
+        futureReference.set(exec);
+    }
+
+    /**
+     * Write statistics into a log file for monitoring or debugging purposes.
+     *
+     * @param requestLog The log to write to or {@code null} if not in debug mode.
+     * @param requestCounter The number of the request sent.
+     * @param requestTime The time when the request was sent.
+     * @param bb The bounding box which was requested at the API.
+     * @param newFound The number of new vehicles found in the request.
+     * @param queueSize The number of regions still in the queue for subsequent requests.
+     * @throws IOException When the program failed to write to the log file.
+     */
+    private void log(final Exporter requestLog, final Integer[] requestCounter, final Date requestTime,
+            final BoundingBox bb, final int newFound, final int queueSize) throws IOException {
+
+        if (requestLog != null) {
+            requestLog.write(requestCounter[0], requestTime.getTime(), bb.getCenterLat(), bb.getCenterLon(),
+                    newFound, bb.getFoundByParent(), (int)bb.getZoom(), queueSize);
+        }
+    }
+
+    /**
+     * Adds the vehicles returned by a request which were not found before in this crawl.
+     * <p>
+     * The {@link Frontier} decides which vehicles were found before, so that vehicles found by another node sharing
+     * the crawl are neither counted nor persisted again.
+     *
+     * @param frontier The regions of the crawl.
+     * @param plates The keys of the vehicles found so far, see {@link #key(LimeVehicle)}.
+     * @param vehicles The vehicles found so far.
+     * @param returned The vehicles returned by the request.
+     * @return The indexes of the new vehicles in {@code returned}.
+     */
+    private List<Integer> collect(final Frontier frontier, final Set<String> plates, final Set<LimeVehicle> vehicles,
+            final List<LimeVehicle> returned) {
+
+        final var unseen = frontier.firstSeen(returned.stream().map(CrawlEngine::key).collect(Collectors.toList()));
+        final var ret = new ArrayList<Integer>();
+        for (int i = 0; i < returned.size(); i++) {
+            final var vehicle = returned.get(i);
+            final var key = key(vehicle);
+            if (unseen.remove(key)) {
+                plates.add(key);
+                vehicles.add(vehicle);
+                ret.add(i);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param vehicle A vehicle returned by a request.
+     * @return The plate number, together with the coordinates, to catch vehicles with identical "last three" plate
+     *         numbers but different locations
+     */
+    private static String key(final LimeVehicle vehicle) {
+        return vehicle.getPlateNumber() + "," + vehicle.getLatitude() + "," + vehicle.getLongitude();
+    }
+
+    /**
+     * Decodes the vehicles returned by a request with the {@link VehicleProvider}.
+     *
+     * @param result the part of the response which contains the vehicles
+     * @param requestTime the time at which the request was sent
+     * @param crawlStarted the time at which the crawler was stated
+     * @return the parsed data as POJOs
+     */
+    private List<LimeVehicle> vehicles(final JSONArray result, final Date requestTime, final Date crawlStarted) {
+
+        final var ret = new ArrayList<LimeVehicle>(result.length());
+        for (int i = 0; i < result.length(); i++) {
+            ret.add(provider.vehicle(result.getJSONObject(i), requestTime, crawlStarted));
+        }
+        return ret;
+    }
+
+    /**
+     * @param crawlStarted The time when the crawl started.
+     * @param kind The content of the file, e.g. "requests".
+     * @return The debug file of the crawl, which is unique for each provider.
+     */
+    private Path debugFile(final Date crawlStarted, final String kind) {
+        return debugExport.file(WORKING_DIRECTORY, crawlStarted.getTime() + "_" + provider.name() + "_" + kind);
+    }
+
+    /**
+     * Writes the current state of the crawl into files for debugging.
+     *
+     * @param knownPlates The vehicle plates found so far.
+     * @param knownVehicles The vehicles found so far.
+     * @param crawlStarted The time when the crawl started.
+     * @throws IOException If the files could not be written to.
+     */
+    private void dumpToFile(final Set<String> knownPlates, final Set<LimeVehicle> knownVehicles,
+            final Date crawlStarted) throws IOException {
+
+        // Dump plate_numbers state
+        final var platesFile = debugFile(crawlStarted, "plates");
+        try (var plates = debugExport.open(platesFile, PLATES)) {
+            for (final var plate : knownPlates) {
+                // The plate, latitude and longitude joined by `key(LimeVehicle)`
+                plates.write((Object[])plate.split(",", PLATES.getColumns().size()));
+            }
+        }
+
+        // Dump vehicles state
+        final var vehiclesFile = debugFile(crawlStarted, "vehicles");
+        try (var vehicles = debugExport.open(vehiclesFile, VEHICLES)) {
+            for (final var v : knownVehicles) {
+                vehicles.write(v.getPlateNumber(), v.getLatitude(), v.getLongitude(), v.getMeterRange(),
+                        v.getStatus(), v.getLastActivityAt(), v.getBatteryLevel(), v.getTypeName(),
+                        v.getRequestTime());
+            }
+        }
+    }
+}
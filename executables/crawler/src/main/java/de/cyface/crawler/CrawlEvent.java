@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event spanning one crawl, from its start until its results are persisted.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+@Name("de.cyface.crawler.Crawl")
+@Label("Crawl")
+@Category({"Cyface", "Crawler"})
+@Description("One crawl of a provider API, from its start until its results are persisted")
+@StackTrace(false)
+final class CrawlEvent extends Event {
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Requests")
+    @Description("The number of API requests sent during the crawl")
+    int requests;
+
+    @Label("Vehicles Found")
+    int found;
+
+    @Label("Frontier Peak")
+    @Description("The maximal number of regions waiting to be requested")
+    int frontierPeak;
+
+    @Label("Resumed")
+    @Description("Whether the crawl was resumed from a checkpoint")
+    boolean resumed;
+}
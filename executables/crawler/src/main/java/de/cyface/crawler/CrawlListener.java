@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.Collection;
+
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * Is notified about the vehicles found by each crawl, e.g. to keep an in-memory view of the fleet.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public interface CrawlListener {
+
+    /**
+     * Called when a crawl stopped, before its results are persisted.
+     *
+     * @param vehicles The vehicles found by the crawl
+     * @param run The statistics of the crawl, which are persisted after all listeners were called
+     */
+    void crawled(final Collection<LimeVehicle> vehicles, final CrawlRun run);
+
+    /**
+     * Called when the results of a crawl were persisted, before its statistics are persisted.
+     *
+     * @param run The statistics of the crawl
+     */
+    default void persisted(final CrawlRun run) {
+        // Nothing to do
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+import org.bson.Document;
+
+/**
+ * The statistics of one crawl, persisted to the {@link #COLLECTION_NAME} collection to track the efficiency of the
+ * crawl strategy over time.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class CrawlRun {
+
+    /**
+     * The collection the statistics of all crawls are persisted to.
+     */
+    public static final String COLLECTION_NAME = "crawl_runs";
+    /**
+     * The reason why a crawl stopped when all regions were requested.
+     */
+    public static final String COMPLETED = "completed";
+    /**
+     * The reason why a crawl stopped when the request budget was used up.
+     */
+    public static final String BUDGET_EXHAUSTED = "budget_exhausted";
+    /**
+     * The reason why a crawl stopped when a request failed.
+     */
+    public static final String ERROR = "error";
+    /**
+     * The reason why a crawl stopped when the regions leased by other nodes made no progress for too long.
+     */
+    public static final String STALLED = "stalled";
+    /**
+     * The provider crawled, e.g. "lime".
+     */
+    private final String provider;
+    /**
+     * When the crawl started.
+     */
+    private final Date crawlStarted;
+    /**
+     * When the results of the crawl were persisted or {@code null} while the crawl is running.
+     */
+    private Date crawlFinished;
+    /**
+     * The number of new vehicles found by each request, in the order the requests were sent.
+     */
+    private final List<Integer> newPerRequest;
+    /**
+     * The number of vehicles found.
+     */
+    private int vehicles;
+    /**
+     * The number of vehicle records persisted, which is lower than {@link #vehicles} with delta persistence.
+     */
+    private int persisted;
+    /**
+     * The highest zoom level requested.
+     */
+    private int maxZoom;
+    /**
+     * The maximal number of regions waiting to be requested.
+     */
+    private int frontierPeak;
+    /**
+     * The number of failed requests.
+     */
+    private int errors;
+    /**
+     * Why the crawl stopped, e.g. {@link #COMPLETED}.
+     */
+    private String stopReason;
+    /**
+     * {@code true} if the crawl was resumed from a checkpoint.
+     */
+    private final boolean resumed;
+    /**
+     * {@code true} if the crawl only refreshed some regions instead of the whole area.
+     */
+    private final boolean partial;
+    /**
+     * The number of vehicles which appeared, disappeared or moved per minute since the previous crawl or {@code null}
+     * if unknown.
+     */
+    private Double changesPerMinute;
+
+    /**
+     * Creates the statistics of a running crawl.
+     *
+     * @param provider The provider crawled, e.g. "lime"
+     * @param crawlStarted When the crawl started
+     * @param resumed {@code true} if the crawl was resumed from a checkpoint
+     */
+    public CrawlRun(final String provider, final Date crawlStarted, final boolean resumed) {
+        this(provider, crawlStarted, resumed, false);
+    }
+
+    /**
+     * Creates the statistics of a running crawl.
+     *
+     * @param provider The provider crawled, e.g. "lime"
+     * @param crawlStarted When the crawl started
+     * @param resumed {@code true} if the crawl was resumed from a checkpoint
+     * @param partial {@code true} if the crawl only refreshes some regions instead of the whole area
+     */
+    public CrawlRun(final String provider, final Date crawlStarted, final boolean resumed, final boolean partial) {
+        Validate.notEmpty(provider);
+        Validate.notNull(crawlStarted);
+
+        this.provider = provider;
+        this.crawlStarted = crawlStarted;
+        this.resumed = resumed;
+        this.partial = partial;
+        this.newPerRequest = new ArrayList<>();
+    }
+
+    /**
+     * Creates the statistics of a completed crawl.
+     *
+     * @param document The statistics as written by {@link #toBson()}
+     * @return The statistics
+     */
+    public static CrawlRun fromBson(final Document document) {
+        final var ret = new CrawlRun(document.getString("provider"), document.getDate("crawl_started"),
+                document.getBoolean("resumed", false), document.getBoolean("partial", false));
+        ret.crawlFinished = document.getDate("crawl_finished");
+        ret.newPerRequest.addAll(document.getList("new_per_request", Integer.class));
+        ret.vehicles = document.getInteger("vehicles");
+        ret.persisted = document.getInteger("persisted");
+        ret.maxZoom = document.getInteger("max_zoom");
+        ret.frontierPeak = document.getInteger("frontier_peak");
+        ret.errors = document.getInteger("errors");
+        ret.stopReason = document.getString("stop_reason");
+        ret.changesPerMinute = document.getDouble("changes_per_minute");
+        return ret;
+    }
+
+    /**
+     * @return The statistics as {@code Document} which can be inserted into a mongo db
+     */
+    public Document toBson() {
+        return new Document("provider", provider)
+                .append("crawl_started", crawlStarted)
+                .append("crawl_finished", crawlFinished)
+                .append("duration_millis", getDurationMillis())
+                .append("requests", getRequests())
+                .append("vehicles", vehicles)
+                .append("persisted", persisted)
+                .append("requests_per_vehicle", getRequestsPerVehicle())
+                .append("new_per_request", newPerRequest)
+                .append("max_zoom", maxZoom)
+                .append("frontier_peak", frontierPeak)
+                .append("errors", errors)
+                .append("stop_reason", stopReason)
+                .append("resumed", resumed)
+                .append("partial", partial)
+                .append("changes_per_minute", changesPerMinute);
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param zoom The zoom level of the region requested
+     * @param newFound The number of new vehicles found by the request
+     * @param frontierSize The number of regions waiting to be requested after the request
+     */
+    public void requested(final int zoom, final int newFound, final int frontierSize) {
+        newPerRequest.add(newFound);
+        vehicles += newFound;
+        maxZoom = Math.max(maxZoom, zoom);
+        frontierPeak = Math.max(frontierPeak, frontierSize);
+    }
+
+    /**
+     * Records a failed request.
+     */
+    public void failed() {
+        errors++;
+    }
+
+    /**
+     * Records how fast the fleet changed since the previous crawl.
+     *
+     * @param changesPerMinute The number of vehicles which appeared, disappeared or moved per minute
+     */
+    public void changed(final double changesPerMinute) {
+        Validate.isTrue(changesPerMinute >= 0);
+        this.changesPerMinute = changesPerMinute;
+    }
+
+    /**
+     * Records the end of the crawl.
+     *
+     * @param stopReason Why the crawl stopped, e.g. {@link #COMPLETED}
+     * @param persisted The number of vehicle records persisted
+     */
+    public void finished(final String stopReason, final int persisted) {
+        this.stopReason = stopReason;
+        this.persisted = persisted;
+        this.crawlFinished = new Date();
+    }
+
+    /**
+     * @return The provider crawled, e.g. "lime".
+     */
+    public String getProvider() {
+        return provider;
+    }
+
+    /**
+     * @return When the crawl started.
+     */
+    public Date getCrawlStarted() {
+        return crawlStarted;
+    }
+
+    /**
+     * @return When the results of the crawl were persisted or {@code null} while the crawl is running.
+     */
+    public Date getCrawlFinished() {
+        return crawlFinished;
+    }
+
+    /**
+     * @return The milliseconds from the start of the crawl until its results were persisted or {@code null} while
+     *         the crawl is running.
+     */
+    public Long getDurationMillis() {
+        return crawlFinished == null ? null : crawlFinished.getTime() - crawlStarted.getTime();
+    }
+
+    /**
+     * @return The number of requests sent.
+     */
+    public int getRequests() {
+        return newPerRequest.size();
+    }
+
+    /**
+     * @return The number of vehicles found.
+     */
+    public int getVehicles() {
+        return vehicles;
+    }
+
+    /**
+     * @return The number of vehicle records persisted.
+     */
+    public int getPersisted() {
+        return persisted;
+    }
+
+    /**
+     * @return The number of requests sent per vehicle found, the lower the more efficient the crawl, or {@code null}
+     *         if no vehicle was found.
+     */
+    public Double getRequestsPerVehicle() {
+        return vehicles == 0 ? null : getRequests() / (double)vehicles;
+    }
+
+    /**
+     * @return The number of new vehicles found by each request, in the order the requests were sent.
+     */
+    public List<Integer> getNewPerRequest() {
+        return Collections.unmodifiableList(newPerRequest);
+    }
+
+    /**
+     * @return The highest zoom level requested.
+     */
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * @return The maximal number of regions waiting to be requested.
+     */
+    public int getFrontierPeak() {
+        return frontierPeak;
+    }
+
+    /**
+     * @return The number of failed requests.
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return Why the crawl stopped, e.g. {@link #COMPLETED}.
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * @return {@code true} if the crawl was resumed from a checkpoint.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * @return {@code true} if the crawl only refreshed some regions instead of the whole area.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * @return The number of vehicles which appeared, disappeared or moved per minute since the previous crawl or
+     *         {@code null} if unknown.
+     */
+    public Double getChangesPerMinute() {
+        return changesPerMinute;
+    }
+}
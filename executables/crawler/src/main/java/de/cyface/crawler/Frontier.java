@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import de.cyface.crawler.model.BoundingBox;
+
+/**
+ * The regions which still need to be requested during one crawl, together with the request budget of that crawl.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public interface Frontier extends AutoCloseable {
+
+    /**
+     * Takes the next region to request out of the frontier.
+     *
+     * @return The region to request next or {@code null} if no region is available at the moment. This does not mean
+     *         the frontier is exhausted, see {@link #isExhausted()}.
+     */
+    BoundingBox next();
+
+    /**
+     * Marks a region returned by {@link #next()} as requested and adds its sub-regions to the frontier.
+     *
+     * @param region The region which was requested.
+     * @param subRegions The regions to request in addition, may be empty.
+     */
+    void completed(final BoundingBox region, final List<BoundingBox> subRegions);
+
+    /**
+     * Hands a region returned by {@link #next()} back to the frontier without requesting it.
+     *
+     * @param region The region which was not requested.
+     */
+    void release(final BoundingBox region);
+
+    /**
+     * Registers the vehicles found by a request, so that each vehicle is only counted and persisted by the first
+     * request which found it, even if the crawl is shared by multiple nodes.
+     *
+     * @param keys The keys identifying the vehicles returned by a request.
+     * @return The keys which were not registered before.
+     */
+    Set<String> firstSeen(final Collection<String> keys);
+
+    /**
+     * Reserves one request of the crawl's request budget.
+     *
+     * @return {@code true} if a request may be sent, {@code false} if the budget is used up.
+     */
+    boolean acquireRequest();
+
+    /**
+     * @return {@code true} if there are no regions left to request and none which are currently being requested.
+     */
+    boolean isExhausted();
+
+    /**
+     * @return The number of regions waiting to be requested.
+     */
+    int size();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import de.cyface.crawler.model.BoundingBox;
+
+/**
+ * The orders in which a {@link LocalFrontier} hands out its regions.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public enum FrontierOrder {
+
+    /**
+     * Regions are requested in the order they were found, i.e. breadth-first, zoom level by zoom level.
+     */
+    FIFO {
+        @Override
+        Queue<BoundingBox> queue() {
+            return new ArrayDeque<>();
+        }
+    },
+    /**
+     * The regions found last are requested first, i.e. depth-first.
+     */
+    LIFO {
+        @Override
+        Queue<BoundingBox> queue() {
+            return Collections.asLifoQueue(new ArrayDeque<>());
+        }
+    },
+    /**
+     * Regions whose parent found the most new vehicles are requested first.
+     */
+    MOST_FOUND_FIRST {
+        @Override
+        Queue<BoundingBox> queue() {
+            return new PriorityQueue<>(Comparator.comparingInt(BoundingBox::getFoundByParent).reversed());
+        }
+    };
+
+    /**
+     * @return A new, empty queue which hands out regions in this order
+     */
+    abstract Queue<BoundingBox> queue();
+}
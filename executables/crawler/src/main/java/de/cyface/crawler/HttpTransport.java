@@ -0,0 +1,256 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The HTTP transport shared by all API clients of the application.
+ * <p>
+ * One {@link HttpClient} is kept for the lifetime of the application so that connections and TLS sessions are reused
+ * between requests and crawls. HTTP/2 is preferred and compressed responses are requested and decompressed while they
+ * are received.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class HttpTransport {
+
+    /**
+     * Client used to send all HTTP requests of the application.
+     */
+    private final HttpClient httpClient;
+    /**
+     * The time after which a request without response fails.
+     */
+    private final Duration requestTimeout;
+    /**
+     * The number of requests sent.
+     */
+    private final AtomicLong requests = new AtomicLong();
+    /**
+     * The number of requests which failed without a response.
+     */
+    private final AtomicLong failures = new AtomicLong();
+    /**
+     * The number of responses received via HTTP/2.
+     */
+    private final AtomicLong http2Responses = new AtomicLong();
+    /**
+     * The number of response body bytes received, i.e. before decompression.
+     */
+    private final AtomicLong receivedBytes = new AtomicLong();
+    /**
+     * The number of response body bytes after decompression.
+     */
+    private final AtomicLong decodedBytes = new AtomicLong();
+    /**
+     * The sum of the time between sending a request and reading the complete response in nanoseconds.
+     */
+    private final AtomicLong latencyNanos = new AtomicLong();
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param connectTimeout The time after which establishing a connection fails.
+     * @param requestTimeout The time after which a request without response fails.
+     */
+    public HttpTransport(final Duration connectTimeout, final Duration requestTimeout) {
+        Validate.notNull(connectTimeout);
+        Validate.notNull(requestTimeout);
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Sends a GET request and reads the complete response body.
+     *
+     * @param uri The resource to request.
+     * @param headers Additional headers to send with the request.
+     * @return The status code and the decompressed body of the response.
+     * @throws IOException If the request failed or the response could not be read.
+     * @throws InterruptedException If the thread was interrupted while waiting for the response.
+     */
+    public Response get(final URI uri, final Map<String, String> headers) throws IOException, InterruptedException {
+
+        final var builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip");
+        headers.forEach(builder::header);
+        final var request = builder.GET().build();
+
+        final var start = System.nanoTime();
+        requests.incrementAndGet();
+        try {
+            final var response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.version() == HttpClient.Version.HTTP_2) {
+                http2Responses.incrementAndGet();
+            }
+            final var gzip = response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase)
+                    .orElse(false);
+            final byte[] body;
+            final long bodyBytes;
+            try (var received = new CountingInputStream(response.body());
+                    var decoded = gzip ? new GZIPInputStream(received) : received) {
+                body = decoded.readAllBytes();
+                bodyBytes = received.count;
+            }
+            receivedBytes.addAndGet(bodyBytes);
+            decodedBytes.addAndGet(body.length);
+            return new Response(response.statusCode(), new String(body, StandardCharsets.UTF_8), bodyBytes);
+        } catch (IOException | InterruptedException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            latencyNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return A summary of the requests sent through this transport so far, e.g. to log it.
+     */
+    public String statistics() {
+        final var requestCount = requests.get();
+        final var averageLatencyMillis = requestCount == 0 ? 0 : latencyNanos.get() / requestCount / 1_000_000;
+        return String.format(
+                "HTTP transport: %d requests, %d failed, %d via HTTP/2, %d bytes received, %d bytes decoded, "
+                        + "%d ms average latency",
+                requestCount, failures.get(), http2Responses.get(), receivedBytes.get(), decodedBytes.get(),
+                averageLatencyMillis);
+    }
+
+    /**
+     * The part of an HTTP response relevant to the API clients.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class Response {
+
+        /**
+         * The HTTP status code of the response.
+         */
+        private final int statusCode;
+        /**
+         * The decompressed response body.
+         */
+        private final String body;
+        /**
+         * The number of response body bytes received, i.e. before decompression.
+         */
+        private final long receivedBytes;
+
+        /**
+         * Creates a fully initialized instance of this class.
+         *
+         * @param statusCode The HTTP status code of the response.
+         * @param body The decompressed response body.
+         * @param receivedBytes The number of response body bytes received, i.e. before decompression.
+         */
+        Response(final int statusCode, final String body, final long receivedBytes) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.receivedBytes = receivedBytes;
+        }
+
+        /**
+         * @return The HTTP status code of the response.
+         */
+        public int statusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return The decompressed response body.
+         */
+        public String body() {
+            return body;
+        }
+
+        /**
+         * @return The number of response body bytes received, i.e. before decompression.
+         */
+        public long receivedBytes() {
+            return receivedBytes;
+        }
+    }
+
+    /**
+     * Counts the bytes read from the wrapped stream.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        /**
+         * The number of bytes read so far.
+         */
+        private long count;
+
+        /**
+         * @param in The stream to count the bytes of.
+         */
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final var read = super.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final var read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final var skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lt;
+import static com.mongodb.client.model.Filters.or;
+import static com.mongodb.client.model.Updates.combine;
+import static com.mongodb.client.model.Updates.inc;
+import static com.mongodb.client.model.Updates.set;
+import static com.mongodb.client.model.Updates.setOnInsert;
+import static com.mongodb.client.model.Updates.unset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+import de.cyface.crawler.model.BoundingBox;
+
+/**
+ * A {@link Frontier} shared by multiple crawler nodes through a Mongo collection of leases.
+ * <p>
+ * Each region of a crawl is stored as one document. A node claims an open region by leasing it, requests it and marks
+ * it as done after adding its sub-regions. The leases held by a node are renewed in the background while it requests
+ * the regions, so that slow requests do not lose their lease. Leases of nodes which die or stall expire after
+ * {@link Coordination#getLeaseSeconds()} and are claimed by another node. All nodes share one request budget which is
+ * stored in a counter document of the same collection, and the vehicles found, so that each vehicle is only counted
+ * and persisted by the node which found it first.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class LeasedFrontier implements Frontier {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeasedFrontier.class);
+    /**
+     * The name of the collection which contains the leases.
+     */
+    static final String COLLECTION_NAME = "crawl_leases";
+    /**
+     * The state of a region which can be claimed.
+     */
+    private static final String OPEN = "open";
+    /**
+     * The state of a region which is currently requested by a node.
+     */
+    private static final String LEASED = "leased";
+    /**
+     * The state of a region which was requested.
+     */
+    private static final String DONE = "done";
+    /**
+     * The number of days after which the leases of a crawl are removed from the database.
+     */
+    private static final long RETENTION_DAYS = 1;
+    /**
+     * The client used to access the lease collection during the crawl.
+     */
+    private final MongoClient client;
+    /**
+     * The collection which contains the leases.
+     */
+    private final MongoCollection<Document> leases;
+    /**
+     * How this node takes part in the crawl.
+     */
+    private final Coordination coordination;
+    /**
+     * The maximum number of requests allowed for this crawl, shared between all nodes.
+     */
+    private final int maxRequests;
+    /**
+     * The identifiers of the lease documents of the regions currently leased by this node.
+     */
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    /**
+     * Renews the leases {@link #held} by this node.
+     */
+    private final ScheduledExecutorService renewal = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Creates a fully initialized instance of this class and adds the initial region to the shared frontier, unless
+     * another node already did so.
+     *
+     * @param mongoConnection The database containing the lease collection
+     * @param coordination How this node takes part in the crawl
+     * @param initialRegion The region to start the crawl with
+     * @param maxRequests The maximum number of requests allowed for this crawl, shared between all nodes
+     */
+    public LeasedFrontier(final MongoConnection mongoConnection, final Coordination coordination,
+            final BoundingBox initialRegion, final int maxRequests) {
+        this.client = mongoConnection.connect();
+        this.leases = client.getDatabase(mongoConnection.getDatabaseName()).getCollection(COLLECTION_NAME);
+        this.coordination = coordination;
+        this.maxRequests = maxRequests;
+
+        leases.createIndex(Indexes.ascending("crawl", "state", "zoom"));
+        leases.createIndex(Indexes.ascending("created"), new IndexOptions().expireAfter(RETENTION_DAYS, TimeUnit.DAYS));
+        leases.updateOne(eq("_id", budgetId()),
+                combine(setOnInsert("crawl", coordination.getCrawlId()), setOnInsert("requests", 0),
+                        setOnInsert("created", new Date())),
+                new UpdateOptions().upsert(true));
+        add(List.of(initialRegion));
+
+        // Renew well before the leases expire
+        final var renewalMillis = TimeUnit.SECONDS.toMillis(coordination.getLeaseSeconds()) / 3;
+        renewal.scheduleAtFixedRate(this::renew, renewalMillis, renewalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public BoundingBox next() {
+        final var now = new Date();
+        final var claimable = and(eq("crawl", coordination.getCrawlId()),
+                or(eq("state", OPEN), and(eq("state", LEASED), lt("expires", now))));
+        final var lease = combine(set("state", LEASED), set("owner", coordination.getNodeId()),
+                set("expires", expires(now)));
+        // Breadth-first, just as the local frontier
+        final var options = new FindOneAndUpdateOptions().sort(Sorts.ascending("zoom", "created"))
+                .returnDocument(ReturnDocument.AFTER);
+
+        final var claimed = leases.findOneAndUpdate(claimable, lease, options);
+        if (claimed == null) {
+            return null;
+        }
+        held.add(claimed.getString("_id"));
+        return BoundingBox.fromBson(claimed.get("region", Document.class));
+    }
+
+    @Override
+    public void completed(final BoundingBox region, final List<BoundingBox> subRegions) {
+        // Add the sub-regions first so the frontier never looks exhausted in between
+        add(subRegions);
+
+        held.remove(id(region));
+        final var result = leases.updateOne(and(eq("_id", id(region)), eq("owner", coordination.getNodeId())),
+                combine(set("state", DONE), unset("expires")));
+        if (result.getMatchedCount() == 0) {
+            LOGGER.warn("Lease on " + region.key() + " expired before the region was completed");
+        }
+    }
+
+    @Override
+    public void release(final BoundingBox region) {
+        held.remove(id(region));
+        leases.updateOne(and(eq("_id", id(region)), eq("owner", coordination.getNodeId()), eq("state", LEASED)),
+                combine(set("state", OPEN), unset("owner"), unset("expires")));
+    }
+
+    @Override
+    public Set<String> firstSeen(final Collection<String> keys) {
+        final var ids = new ArrayList<String>(new HashSet<>(keys));
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+
+        // The unique `_id` rejects the vehicles already registered by any node
+        final var now = new Date();
+        final var documents = new ArrayList<Document>(ids.size());
+        ids.forEach(key -> documents.add(new Document("_id", vehicleId(key))
+                .append("crawl", coordination.getCrawlId()).append("created", now)));
+        final var ret = new HashSet<String>(ids);
+        try {
+            leases.insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            for (final var error : e.getWriteErrors()) {
+                if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                    throw e;
+                }
+                ret.remove(ids.get(error.getIndex()));
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public boolean acquireRequest() {
+        final var reserved = leases.findOneAndUpdate(and(eq("_id", budgetId()), lt("requests", maxRequests)),
+                inc("requests", 1));
+        return reserved != null;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return leases.countDocuments(and(eq("crawl", coordination.getCrawlId()), in("state", OPEN, LEASED))) == 0;
+    }
+
+    @Override
+    public int size() {
+        return (int)leases.countDocuments(and(eq("crawl", coordination.getCrawlId()), eq("state", OPEN)));
+    }
+
+    @Override
+    public void close() {
+        renewal.shutdownNow();
+        client.close();
+    }
+
+    /**
+     * Extends the leases {@link #held} by this node.
+     */
+    private void renew() {
+        if (held.isEmpty()) {
+            return;
+        }
+        try {
+            leases.updateMany(and(in("_id", held), eq("owner", coordination.getNodeId()), eq("state", LEASED)),
+                    set("expires", expires(new Date())));
+        } catch (MongoException e) {
+            // The leases are renewed again before they expire
+            LOGGER.warn("Unable to renew leases: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param now The time when the lease is claimed or renewed
+     * @return The time when the lease expires
+     */
+    private Date expires(final Date now) {
+        return new Date(now.getTime() + TimeUnit.SECONDS.toMillis(coordination.getLeaseSeconds()));
+    }
+
+    /**
+     * Adds regions to the shared frontier. Regions which were already added by any node are ignored.
+     *
+     * @param regions The regions to add
+     */
+    private void add(final List<BoundingBox> regions) {
+        if (regions.isEmpty()) {
+            return;
+        }
+
+        final var now = new Date();
+        final var inserts = new ArrayList<WriteModel<Document>>();
+        regions.forEach(region -> inserts.add(new UpdateOneModel<>(eq("_id", id(region)),
+                combine(setOnInsert("crawl", coordination.getCrawlId()), setOnInsert("state", OPEN),
+                        setOnInsert("zoom", (int)region.getZoom()), setOnInsert("region", region.toBson()),
+                        setOnInsert("created", now)),
+                new UpdateOptions().upsert(true))));
+        leases.bulkWrite(inserts, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * @param region The region to identify
+     * @return The identifier of the lease document of the region in this crawl
+     */
+    private String id(final BoundingBox region) {
+        return coordination.getCrawlId() + "/" + region.key();
+    }
+
+    /**
+     * @param key The key identifying a vehicle, see {@link #firstSeen(Collection)}
+     * @return The identifier of the document registering the vehicle in this crawl
+     */
+    private String vehicleId(final String key) {
+        return coordination.getCrawlId() + "/vehicle/" + key;
+    }
+
+    /**
+     * @return The identifier of the document counting the requests of this crawl
+     */
+    private String budgetId() {
+        return coordination.getCrawlId() + "/budget";
+    }
+}
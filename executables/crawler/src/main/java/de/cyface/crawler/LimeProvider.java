@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * The {@link VehicleProvider} for the e-scooter provider Lime.
+ * <p>
+ * The Lime API returns at most {@link #MAX_VEHICLES_PER_RESPONSE} vehicles per region, so saturated regions
+ * are sliced by the {@link #SPLIT_STRATEGY}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class LimeProvider implements VehicleProvider {
+
+    /**
+     * The name of this provider.
+     */
+    public static final String NAME = "lime";
+    /**
+     * The collection the vehicle records are persisted to.
+     */
+    public static final String COLLECTION_NAME = "lime_records";
+    /**
+     * The key of the setting which contains the auth token, see {@link #configure(Map)}.
+     */
+    public static final String AUTH_TOKEN = "lime.auth-token";
+    /**
+     * The key of the optional setting which contains the base URI, see {@link #configure(Map)}.
+     */
+    public static final String BASE_URI = "lime.base-uri";
+    /**
+     * The base uniform resource identifier of the server providing the Lime-API to query.
+     */
+    public static final String DEFAULT_BASE_URI = "https://web-production.lime.bike";
+    /**
+     * The maximal number of vehicles returned per request. Regions with more vehicles need to be sliced.
+     */
+    public static final int MAX_VEHICLES_PER_RESPONSE = 50;
+    /**
+     * The highest zoom level requested. Regions which are still saturated at this level are not sliced any further.
+     */
+    public static final short MAX_ZOOM = 22;
+    /**
+     * The region each crawl starts with: the "green zone" of a sample city (+ 50 m).
+     * <p>
+     * Zoom 15+ returns `bikes`, zoom &lt; 15 returns 401 with attributes.title "No nearby vehicles".
+     */
+    public static final BoundingBox AREA = new BoundingBox(0, 51.090157213909116, 13.809081655279853,
+            51.02319889010608, 13.686292542430092, (short)15);
+    /**
+     * The strategy used to slice regions for which the API returned the maximal number of vehicles.
+     * <p>
+     * Compare the strategies offline using the {@code StrategyEvaluation} of the simulator.
+     */
+    private static final SplitStrategy SPLIT_STRATEGY = SplitStrategy.MEDIAN;
+    /**
+     * The path of the endpoint providing the vehicle locations, relative to the base URI.
+     */
+    private static final String MAP_PATH = "/api/rider/v1/views/map";
+    /**
+     * The uniform resource identifier of the endpoint providing the Lime-API to query.
+     */
+    private String uriString;
+    /**
+     * This token has to be manually requested via REST and SMS. It's user-dependent.
+     */
+    private String authToken;
+
+    /**
+     * Creates an instance of this class which needs to be configured by {@link #configure(Map)}, as required by the
+     * {@link java.util.ServiceLoader}.
+     */
+    public LimeProvider() {
+        // Nothing to do
+    }
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param baseUri The base uniform resource identifier of the server providing the Lime-API, e.g.
+     *            {@link #DEFAULT_BASE_URI} or the address of a local simulator.
+     * @param authToken This token has to be manually requested via REST and SMS. It's user-dependent.
+     */
+    public LimeProvider(final String baseUri, final String authToken) {
+        init(baseUri, authToken);
+    }
+
+    /**
+     * @param baseUri The base uniform resource identifier of the server providing the Lime-API
+     * @param authToken This token has to be manually requested via REST and SMS. It's user-dependent.
+     */
+    private void init(final String baseUri, final String authToken) {
+        Validate.notEmpty(baseUri);
+
+        this.uriString = (baseUri.endsWith("/") ? baseUri.substring(0, baseUri.length() - 1) : baseUri) + MAP_PATH;
+        this.authToken = authToken;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String collectionName() {
+        return COLLECTION_NAME;
+    }
+
+    @Override
+    public boolean configure(final Map<String, String> settings) {
+        final var token = settings.get(AUTH_TOKEN);
+        if (token == null) {
+            return false;
+        }
+        init(settings.getOrDefault(BASE_URI, DEFAULT_BASE_URI), token);
+        return true;
+    }
+
+    @Override
+    public BoundingBox area() {
+        return AREA;
+    }
+
+    @Override
+    public URI uri(final BoundingBox region) {
+        return URI.create(uriString + String.format(
+                "?ne_lat=%f&ne_lng=%f&sw_lat=%f&sw_lng=%f&user_latitude=%f&user_longitude=%f&zoom=%d",
+                region.getNorthEastLat(), region.getNorthEastLon(), region.getSouthWestLat(),
+                region.getSouthWestLon(), region.getCenterLat(), region.getCenterLon(), region.getZoom()));
+    }
+
+    @Override
+    public Map<String, String> headers() {
+        return Map.of("authorization", String.format("Bearer %s", authToken));
+    }
+
+    @Override
+    public JSONArray vehicles(final String body, final BoundingBox region) {
+        final var responseBody = new JSONObject(body);
+
+        // Validate response
+        final var attributes = responseBody.getJSONObject("data").getJSONObject("attributes");
+        Validate.isTrue(attributes.getString("current_level").equals("block"), String.format(
+                "Zoom levels below 15 were not supported anymore, not expecting city levels.\nRequest: %s.\nResponse.attributes: %s",
+                uri(region), attributes));
+        Validate.isTrue(attributes.get("bikes") != null, "Error: " + attributes.getString("title"));
+
+        return attributes.getJSONArray("bikes");
+    }
+
+    @Override
+    public LimeVehicle vehicle(final JSONObject vehicle, final Date requestTime, final Date crawlStarted) {
+        return new LimeVehicle(vehicle, requestTime, crawlStarted);
+    }
+
+    @Override
+    public List<BoundingBox> refine(final BoundingBox region, final int newFound, final List<LimeVehicle> returned) {
+        return SPLIT_STRATEGY.refine(region, newFound, returned);
+    }
+}
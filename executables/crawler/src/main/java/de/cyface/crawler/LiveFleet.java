@@ -0,0 +1,382 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.Validate;
+
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * The latest state of each vehicle and its recent positions, kept in memory to answer live map queries without
+ * reading from the database.
+ * <p>
+ * The vehicles found by the latest crawl are indexed in a uniform grid, so that bounding box queries only look at the
+ * vehicles in the cells overlapping the box. Vehicles are identified by their plate number. The positions of a
+ * vehicle are kept for {@link #historyMillis}, even after it was not found anymore, e.g. because it is rented.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class LiveFleet implements CrawlListener {
+
+    /**
+     * The size of the grid cells in degrees, about 1 km in latitude.
+     */
+    private static final double CELL_DEGREES = 0.01;
+    /**
+     * The maximal number of positions kept per vehicle.
+     */
+    private static final int HISTORY_CAPACITY = 64;
+    /**
+     * The milliseconds for which the positions of a vehicle are kept.
+     */
+    private final long historyMillis;
+    /**
+     * The state of each vehicle by its plate number.
+     */
+    private final Map<String, Entry> vehicles = new HashMap<>();
+    /**
+     * The plate numbers of the vehicles found by the latest crawl, by their grid cell.
+     */
+    private final Map<Long, Set<String>> grid = new HashMap<>();
+    /**
+     * Allows concurrent queries while no crawl result is applied.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a fully initialized, empty instance of this class.
+     *
+     * @param historyMinutes The minutes for which the positions of a vehicle are kept
+     */
+    public LiveFleet(final int historyMinutes) {
+        Validate.isTrue(historyMinutes > 0);
+
+        this.historyMillis = historyMinutes * 60_000L;
+    }
+
+    /**
+     * Replaces the snapshot with the vehicles found by a crawl and appends their positions to their history.
+     *
+     * @param crawled The vehicles found by the crawl
+     */
+    public void update(final Collection<LimeVehicle> crawled) {
+        apply(crawled, true);
+    }
+
+    /**
+     * Adds the vehicles found by a partial crawl to the snapshot and appends their positions to their history.
+     * <p>
+     * Vehicles which were not found by the partial crawl stay in the snapshot until the next full crawl.
+     *
+     * @param crawled The vehicles found by the partial crawl
+     */
+    public void merge(final Collection<LimeVehicle> crawled) {
+        apply(crawled, false);
+    }
+
+    @Override
+    public void crawled(final Collection<LimeVehicle> vehicles, final CrawlRun run) {
+        if (run.isPartial()) {
+            merge(vehicles);
+        } else {
+            update(vehicles);
+        }
+    }
+
+    /**
+     * @param crawled The vehicles found by a crawl
+     * @param replace {@code true} to replace the snapshot, {@code false} to add the vehicles to it
+     */
+    private void apply(final Collection<LimeVehicle> crawled, final boolean replace) {
+        lock.writeLock().lock();
+        try {
+            if (replace) {
+                grid.clear();
+            }
+            final var now = System.currentTimeMillis();
+            for (final var vehicle : crawled) {
+                final var plate = vehicle.getPlateNumber();
+                if (plate == null) {
+                    continue;
+                }
+                final var entry = vehicles.computeIfAbsent(plate, k -> new Entry());
+                if (!replace && entry.latest != null) {
+                    removeFromGrid(plate, entry.latest);
+                }
+                entry.update(vehicle);
+                grid.computeIfAbsent(cell(vehicle.getLatitude(), vehicle.getLongitude()), k -> new HashSet<>())
+                        .add(plate);
+            }
+            final var expired = vehicles.entrySet().iterator();
+            while (expired.hasNext()) {
+                final var next = expired.next();
+                if (next.getValue().latest.getRequestTime().getTime() < now - historyMillis) {
+                    removeFromGrid(next.getKey(), next.getValue().latest);
+                    expired.remove();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param plate The plate number of a vehicle
+     * @param latest The latest state of the vehicle, which defines its grid cell
+     */
+    private void removeFromGrid(final String plate, final LimeVehicle latest) {
+        final var cell = cell(latest.getLatitude(), latest.getLongitude());
+        final var plates = grid.get(cell);
+        if (plates != null && plates.remove(plate) && plates.isEmpty()) {
+            grid.remove(cell);
+        }
+    }
+
+    /**
+     * @param minLat The southern bound of the area to return the vehicles for
+     * @param minLon The western bound of the area to return the vehicles for
+     * @param maxLat The northern bound of the area to return the vehicles for
+     * @param maxLon The eastern bound of the area to return the vehicles for
+     * @return The vehicles found inside the area by the latest crawl
+     */
+    public List<LimeVehicle> within(final double minLat, final double minLon, final double maxLat,
+            final double maxLon) {
+        Validate.isTrue(minLat <= maxLat && minLon <= maxLon, "Invalid bounds");
+
+        final var ret = new ArrayList<LimeVehicle>();
+        lock.readLock().lock();
+        try {
+            final long minRow = index(minLat);
+            final long maxRow = index(maxLat);
+            final long minColumn = index(minLon);
+            final long maxColumn = index(maxLon);
+            final Collection<Set<String>> cells;
+            if ((maxRow - minRow + 1) * (maxColumn - minColumn + 1) > grid.size()) {
+                // Large areas are faster answered by looking at all occupied cells
+                cells = grid.values();
+            } else {
+                cells = new ArrayList<>();
+                for (var row = minRow; row <= maxRow; row++) {
+                    for (var column = minColumn; column <= maxColumn; column++) {
+                        final var plates = grid.get(key(row, column));
+                        if (plates != null) {
+                            cells.add(plates);
+                        }
+                    }
+                }
+            }
+            for (final var plates : cells) {
+                for (final var plate : plates) {
+                    final var vehicle = vehicles.get(plate).latest;
+                    if (vehicle.getLatitude() >= minLat && vehicle.getLatitude() <= maxLat
+                            && vehicle.getLongitude() >= minLon && vehicle.getLongitude() <= maxLon) {
+                        ret.add(vehicle);
+                    }
+                }
+            }
+            return ret;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param plateNumber The plate number of a vehicle
+     * @return The latest state of the vehicle or {@code null} if it was not found within the history
+     */
+    public LimeVehicle latest(final String plateNumber) {
+        lock.readLock().lock();
+        try {
+            final var entry = vehicles.get(plateNumber);
+            return entry == null ? null : entry.latest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param plateNumber The plate number of a vehicle
+     * @param since The earliest request time of the positions to return
+     * @return The positions of the vehicle since that time, oldest first
+     */
+    public List<Position> history(final String plateNumber, final Date since) {
+        lock.readLock().lock();
+        try {
+            final var entry = vehicles.get(plateNumber);
+            return entry == null ? List.of() : entry.history(since.getTime());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of vehicles found by the latest crawl
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return grid.values().stream().mapToInt(Set::size).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param latitude The latitude of a location
+     * @param longitude The longitude of a location
+     * @return The key of the grid cell containing the location
+     */
+    private static long cell(final double latitude, final double longitude) {
+        return key(index(latitude), index(longitude));
+    }
+
+    /**
+     * @param degrees A latitude or longitude
+     * @return The row or column of the grid cell containing the coordinate
+     */
+    private static long index(final double degrees) {
+        return (long)Math.floor(degrees / CELL_DEGREES);
+    }
+
+    /**
+     * @param row The row of a grid cell
+     * @param column The column of a grid cell
+     * @return The key of the grid cell
+     */
+    private static long key(final long row, final long column) {
+        // Rows and columns are within [-18000, 18000], so both fit into 32 bits
+        return row << 32 | column & 0xFFFFFFFFL;
+    }
+
+    /**
+     * A position of a vehicle returned by a crawl.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class Position {
+
+        /**
+         * of the vehicle
+         */
+        private final double latitude;
+        /**
+         * of the vehicle
+         */
+        private final double longitude;
+        /**
+         * when the API request was sent which returned this position, in milliseconds since epoch
+         */
+        private final long requestTime;
+
+        /**
+         * @param latitude of the vehicle
+         * @param longitude of the vehicle
+         * @param requestTime when the API request was sent which returned this position, in milliseconds since epoch
+         */
+        private Position(final double latitude, final double longitude, final long requestTime) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.requestTime = requestTime;
+        }
+
+        /**
+         * @return The latitude of the vehicle
+         */
+        public double getLatitude() {
+            return latitude;
+        }
+
+        /**
+         * @return The longitude of the vehicle
+         */
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * @return When the API request was sent which returned this position
+         */
+        public Date getRequestTime() {
+            return new Date(requestTime);
+        }
+    }
+
+    /**
+     * The latest state of a vehicle and a ring buffer of its recent positions.
+     */
+    private static final class Entry {
+
+        /**
+         * The positions, the oldest one at {@link #head} once the buffer is full.
+         */
+        private final Position[] positions = new Position[HISTORY_CAPACITY];
+        /**
+         * The index the next position is written to.
+         */
+        private int head;
+        /**
+         * The number of positions in the buffer.
+         */
+        private int size;
+        /**
+         * The latest state of the vehicle.
+         */
+        private LimeVehicle latest;
+
+        /**
+         * @param vehicle The state of the vehicle returned by the latest crawl
+         */
+        private void update(final LimeVehicle vehicle) {
+            latest = vehicle;
+            positions[head] = new Position(vehicle.getLatitude(), vehicle.getLongitude(),
+                    vehicle.getRequestTime().getTime());
+            head = (head + 1) % positions.length;
+            size = Math.min(size + 1, positions.length);
+        }
+
+        /**
+         * @param since The earliest request time of the positions to return, in milliseconds since epoch
+         * @return The positions since that time, oldest first
+         */
+        private List<Position> history(final long since) {
+            final var ret = new ArrayList<Position>(size);
+            for (int i = 0; i < size; i++) {
+                final var position = positions[(head - size + i + positions.length) % positions.length];
+                if (position.requestTime >= since) {
+                    ret.add(position);
+                }
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * An embedded HTTP server answering live map queries from the {@link LiveFleet}.
+ * <p>
+ * {@code GET /vehicles?bbox=minLon,minLat,maxLon,maxLat} returns the vehicles found by the latest crawl inside the
+ * box. {@code GET /vehicles/{plateNumber}?minutes=60} returns the latest state of a vehicle and its positions within
+ * the given minutes.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class LiveFleetServer implements AutoCloseable {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveFleetServer.class);
+    /**
+     * The path of the endpoint.
+     */
+    static final String PATH = "/vehicles";
+    /**
+     * The number of threads answering requests.
+     */
+    private static final int THREADS = 4;
+    /**
+     * The minutes of history returned if the request does not specify them.
+     */
+    private static final int DEFAULT_HISTORY_MINUTES = 60;
+    /**
+     * The fleet to answer the queries from.
+     */
+    private final LiveFleet fleet;
+    /**
+     * The embedded server.
+     */
+    private final HttpServer server;
+    /**
+     * The threads answering requests, which are shut down with the server.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a fully initialized instance of this class and starts the server.
+     *
+     * @param fleet The fleet to answer the queries from
+     * @param port The port to listen on or {@code 0} to choose a free port
+     * @throws IOException If the server could not be started
+     */
+    public LiveFleetServer(final LiveFleet fleet, final int port) throws IOException {
+        Validate.notNull(fleet);
+
+        this.fleet = fleet;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(PATH, this::handle);
+        this.executor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Serving the live fleet on port " + server.getAddress().getPort());
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Answers a request to the {@link #PATH}.
+     *
+     * @param exchange The request to answer
+     * @throws IOException If the response could not be sent
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, new JSONObject().put("error", "Method not allowed"));
+                return;
+            }
+            final var query = query(exchange.getRequestURI().getRawQuery());
+            final var path = exchange.getRequestURI().getPath();
+            if (path.equals(PATH) || path.equals(PATH + "/")) {
+                send(exchange, 200, within(query.get("bbox")));
+                return;
+            }
+
+            final var plateNumber = URLDecoder.decode(path.substring(PATH.length() + 1), StandardCharsets.UTF_8);
+            final var vehicle = fleet.latest(plateNumber);
+            if (vehicle == null) {
+                send(exchange, 404, new JSONObject().put("error", "Unknown vehicle " + plateNumber));
+                return;
+            }
+            final var minutes = Integer.parseInt(query.getOrDefault("minutes",
+                    String.valueOf(DEFAULT_HISTORY_MINUTES)));
+            final var since = new Date(System.currentTimeMillis() - minutes * 60_000L);
+            final var history = new JSONArray();
+            fleet.history(plateNumber, since).forEach(p -> history.put(new JSONObject()
+                    .put("latitude", p.getLatitude())
+                    .put("longitude", p.getLongitude())
+                    .put("request_time", p.getRequestTime().toInstant().toString())));
+            send(exchange, 200, toJson(vehicle).put("history", history));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to answer request " + exchange.getRequestURI() + ": " + e.getMessage());
+            send(exchange, 400, new JSONObject().put("error", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param bbox The box as {@code minLon,minLat,maxLon,maxLat} or {@code null} for all vehicles
+     * @return The vehicles found by the latest crawl inside the box
+     */
+    private JSONObject within(final String bbox) {
+        final var bounds = bbox == null ? new double[] {-180, -90, 180, 90} : new double[4];
+        if (bbox != null) {
+            final var values = bbox.split(",");
+            Validate.isTrue(values.length == 4, "Expected bbox=minLon,minLat,maxLon,maxLat");
+            for (int i = 0; i < 4; i++) {
+                bounds[i] = Double.parseDouble(values[i]);
+            }
+        }
+        final var vehicles = new JSONArray();
+        fleet.within(bounds[1], bounds[0], bounds[3], bounds[2]).forEach(v -> vehicles.put(toJson(v)));
+        return new JSONObject().put("vehicles", vehicles);
+    }
+
+    /**
+     * @param vehicle The vehicle to return
+     * @return The vehicle as returned by the server
+     */
+    private static JSONObject toJson(final LimeVehicle vehicle) {
+        return new JSONObject()
+                .put("plate_number", vehicle.getPlateNumber())
+                .put("type_name", vehicle.getTypeName())
+                .put("status", vehicle.getStatus())
+                .put("latitude", vehicle.getLatitude())
+                .put("longitude", vehicle.getLongitude())
+                .put("battery_percentage", vehicle.getBatteryPercentage())
+                .put("meter_range", vehicle.getMeterRange())
+                .put("request_time", vehicle.getRequestTime().toInstant().toString());
+    }
+
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange The request to answer
+     * @param statusCode The HTTP status code of the response
+     * @param body The response body
+     * @throws IOException If the response could not be sent
+     */
+    private static void send(final HttpExchange exchange, final int statusCode, final JSONObject body)
+            throws IOException {
+        final var bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * @param rawQuery The encoded query of the request, may be {@code null}
+     * @return The decoded query parameters
+     */
+    private static Map<String, String> query(final String rawQuery) {
+        final var ret = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return ret;
+        }
+        for (final var parameter : rawQuery.split("&")) {
+            final var separator = parameter.indexOf('=');
+            if (separator > 0) {
+                ret.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import de.cyface.crawler.model.BoundingBox;
+
+/**
+ * A {@link Frontier} kept in memory, used when a single crawler crawls the whole area alone.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class LocalFrontier implements Frontier {
+
+    /**
+     * The regions still in the queue for subsequent requests.
+     */
+    private final Queue<BoundingBox> regions;
+    /**
+     * The maximum number of requests allowed for this crawl.
+     */
+    private final int maxRequests;
+    /**
+     * The number of requests reserved so far.
+     */
+    private int requests;
+    /**
+     * The keys of the vehicles registered so far.
+     */
+    private final Set<String> seen = new HashSet<>();
+
+    /**
+     * Creates a fully initialized instance of this class which hands out regions in {@link FrontierOrder#FIFO}
+     * order.
+     *
+     * @param initialRegion The region to start the crawl with
+     * @param maxRequests The maximum number of requests allowed for this crawl
+     */
+    public LocalFrontier(final BoundingBox initialRegion, final int maxRequests) {
+        this(initialRegion, maxRequests, FrontierOrder.FIFO);
+    }
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param initialRegion The region to start the crawl with
+     * @param maxRequests The maximum number of requests allowed for this crawl
+     * @param order The order in which the regions are handed out
+     */
+    public LocalFrontier(final BoundingBox initialRegion, final int maxRequests, final FrontierOrder order) {
+        this.regions = order.queue();
+        this.regions.add(initialRegion);
+        this.maxRequests = maxRequests;
+        this.requests = 0;
+    }
+
+    /**
+     * Creates a fully initialized instance of this class which continues an interrupted crawl in
+     * {@link FrontierOrder#FIFO} order.
+     *
+     * @param regions The regions still in the queue when the crawl was interrupted
+     * @param maxRequests The maximum number of requests allowed for this crawl
+     * @param requestsUsed The number of requests sent before the crawl was interrupted
+     */
+    public LocalFrontier(final List<BoundingBox> regions, final int maxRequests, final int requestsUsed) {
+        this.regions = FrontierOrder.FIFO.queue();
+        this.regions.addAll(regions);
+        this.maxRequests = maxRequests;
+        this.requests = requestsUsed;
+    }
+
+    @Override
+    public BoundingBox next() {
+        return regions.poll();
+    }
+
+    @Override
+    public void completed(final BoundingBox region, final List<BoundingBox> subRegions) {
+        regions.addAll(subRegions);
+    }
+
+    @Override
+    public Set<String> firstSeen(final Collection<String> keys) {
+        final var ret = new HashSet<String>();
+        keys.forEach(key -> {
+            if (seen.add(key)) {
+                ret.add(key);
+            }
+        });
+        return ret;
+    }
+
+    @Override
+    public void release(final BoundingBox region) {
+        // Retry the region next, as far as the order allows
+        if (regions instanceof Deque) {
+            ((Deque<BoundingBox>)regions).addFirst(region);
+        } else {
+            regions.add(region);
+        }
+    }
+
+    @Override
+    public boolean acquireRequest() {
+        if (requests >= maxRequests) {
+            return false;
+        }
+        requests++;
+        return true;
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return regions.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return regions.size();
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -18,9 +18,12 @@
  */
 package de.cyface.crawler;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.Validate;
 import org.bson.Document;
@@ -29,10 +32,20 @@ import org.slf4j.LoggerFactory;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
 
 import de.cyface.crawler.model.LimeVehicle;
+import de.cyface.crawler.model.ModelCodecs;
+import de.cyface.crawler.model.RecordSchema;
 
 /**
  * A data lake to write records to and read from.
@@ -50,10 +63,6 @@ public final class MongoConnection {
      * The MongoDB database to use.
      */
     private final String databaseName;
-    /**
-     * A MongoDB client to access the Mongo database.
-     */
-    private MongoClient client;
     /**
      * The host name used to access the Mongo database to write to.
      */
@@ -70,6 +79,10 @@ public final class MongoConnection {
      * The password of the user to authenticate at the database.
      */
     private final String password;
+    /**
+     * The collections provisioned as time-series collection, see {@link #provision(String)}.
+     */
+    private final Set<String> timeSeriesCollections = ConcurrentHashMap.newKeySet();
 
     /**
      * Creates a new completely initialized database source for one Mongo database instance.
@@ -95,41 +108,197 @@ public final class MongoConnection {
     }
 
     /**
-     * Persist a list of documents.
-     * 
-     * @param documents the data to persist
-     * @param collectionName to write the data to
+     * Opens a new client to the database configured for this connection.
+     * <p>
+     * The caller is responsible for closing the client.
+     *
+     * @return The connected client
      */
-    private void write(final List<Document> documents, final String collectionName) {
-
+    MongoClient connect() {
         final var connectionString = new ConnectionString(
                 String.format("mongodb://%s:%s@%s:%s", username, password, host, port));
         final var settings = MongoClientSettings.builder()
                 .applyConnectionString(connectionString)
                 .retryWrites(true)
                 .build();
-        try {
-            client = MongoClients.create(settings);
-            final var database = client.getDatabase(databaseName);
-            final var collection = database.getCollection(collectionName);
-            collection.insertMany(documents);
-        } finally {
-            if (client != null) {
-                client.close();
-            }
-        }
+        return MongoClients.create(settings);
+    }
+
+    /**
+     * @return The MongoDB database to use.
+     */
+    String getDatabaseName() {
+        return databaseName;
     }
 
     /**
      * Persist a list of vehicle records.
+     * <p>
+     * The records are encoded directly to BSON by the {@link de.cyface.crawler.model.LimeVehicleCodec}. Uses its own
+     * client as it is also called by the {@link WriteSpool} drainer thread.
      *
      * @param records the data to persist
      * @param collectionName to write the data to
      */
     public void write(final Set<LimeVehicle> records, final String collectionName) {
 
-        final var documents = records.stream().map(LimeVehicle::toBson).collect(Collectors.toList());
-        write(documents, collectionName);
+        if (records.isEmpty()) {
+            // `insertMany` does not accept empty lists
+            return;
+        }
+        final var event = new MongoWriteEvent();
+        event.begin();
+        try (var client = connect()) {
+            final var collection = client.getDatabase(databaseName)
+                    .getCollection(collectionName, LimeVehicle.class)
+                    .withCodecRegistry(ModelCodecs.registry(timeSeriesCollections.contains(collectionName)));
+            collection.insertMany(new ArrayList<>(records));
+        } finally {
+            event.collection = collectionName;
+            event.documents = records.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Prepares the collection the vehicle records are written to.
+     * <p>
+     * A missing collection is created as time-series collection with `request_time` as time field and the fields
+     * identifying a vehicle as meta field, so that the records are stored in compressed buckets. Existing collections
+     * keep their layout. The index used by the processor to read the records of each vehicle in order is created
+     * for both layouts.
+     *
+     * @param collectionName The collection to write the vehicle records to
+     */
+    public void provision(final String collectionName) {
+
+        try (var client = connect()) {
+            final var database = client.getDatabase(databaseName);
+            final var existing = database.listCollections().filter(new Document("name", collectionName)).first();
+            boolean timeSeries;
+            if (existing == null) {
+                try {
+                    final var timeSeriesOptions = new TimeSeriesOptions("request_time")
+                            .metaField("meta")
+                            .granularity(TimeSeriesGranularity.MINUTES);
+                    database.createCollection(collectionName,
+                            new CreateCollectionOptions().timeSeriesOptions(timeSeriesOptions));
+                    timeSeries = true;
+                } catch (MongoCommandException e) {
+                    LOGGER.warn("Unable to create time-series collection, which requires MongoDB 5.0: "
+                            + e.getMessage());
+                    timeSeries = false;
+                }
+            } else {
+                timeSeries = "timeseries".equals(existing.getString("type"));
+            }
+            if (timeSeries) {
+                timeSeriesCollections.add(collectionName);
+            }
+
+            final var lastThree = RecordSchema.identity(RecordSchema.LAST_THREE, timeSeries);
+            database.getCollection(collectionName)
+                    .createIndex(Indexes.ascending(lastThree, RecordSchema.REQUEST_TIME));
+            database.getCollection(CrawlRun.COLLECTION_NAME)
+                    .createIndex(Indexes.ascending("provider", "crawl_started"));
+            LOGGER.info(String.format("Writing to %s collection %s.", timeSeries ? "time-series" : "plain",
+                    collectionName));
+        }
+    }
+
+    /**
+     * Persists the statistics of a crawl to the {@link CrawlRun#COLLECTION_NAME} collection.
+     *
+     * @param run The statistics of the completed crawl
+     */
+    public void write(final CrawlRun run) {
+
+        try (var client = connect()) {
+            client.getDatabase(databaseName).getCollection(CrawlRun.COLLECTION_NAME).insertOne(run.toBson());
+        }
+    }
+
+    /**
+     * Loads the statistics of the crawls started in a time range, using the index created by
+     * {@link #provision(String)}.
+     *
+     * @param provider The provider crawled, e.g. "lime"
+     * @param from The earliest start of the crawls to load, inclusive
+     * @param to The latest start of the crawls to load, exclusive
+     * @return The statistics of the crawls, in the order the crawls started
+     */
+    public List<CrawlRun> crawlRuns(final String provider, final Date from, final Date to) {
+        Validate.notEmpty(provider);
+        Validate.isTrue(from.before(to));
+
+        try (var client = connect()) {
+            final var filter = Filters.and(Filters.eq("provider", provider), Filters.gte("crawl_started", from),
+                    Filters.lt("crawl_started", to));
+            final var ret = new ArrayList<CrawlRun>();
+            client.getDatabase(databaseName).getCollection(CrawlRun.COLLECTION_NAME)
+                    .find(filter)
+                    .sort(Sorts.ascending("crawl_started"))
+                    .forEach(d -> ret.add(CrawlRun.fromBson(d)));
+            return ret;
+        }
+    }
+
+    /**
+     * Loads the keys of the vehicle records persisted in a time range, to skip records which are already persisted
+     * when a write is retried.
+     *
+     * @param collectionName The collection the vehicle records are persisted to
+     * @param from The earliest request time of the records, inclusive
+     * @param to The latest request time of the records, inclusive
+     * @return The keys of the records as returned by {@link #key(String, Date)}
+     */
+    public Set<String> persistedKeys(final String collectionName, final Date from, final Date to) {
+
+        final var filter = Filters.and(Filters.gte(RecordSchema.REQUEST_TIME, from),
+                Filters.lte(RecordSchema.REQUEST_TIME, to));
+        final var ret = new HashSet<String>();
+        try (var client = connect()) {
+            client.getDatabase(databaseName).getCollection(collectionName)
+                    .find(filter)
+                    .projection(Projections.include(RecordSchema.ID, RecordSchema.REQUEST_TIME))
+                    .forEach(d -> ret.add(key(d.getString(RecordSchema.ID), d.getDate(RecordSchema.REQUEST_TIME))));
+        }
+        return ret;
+    }
+
+    /**
+     * @param id The id of a vehicle as returned by the API
+     * @param requestTime When the API request was sent which returned the vehicle
+     * @return The key which identifies a vehicle record
+     */
+    static String key(final String id, final Date requestTime) {
+        return id + "@" + requestTime.getTime();
+    }
+
+    /**
+     * Loads the latest record of each vehicle.
+     *
+     * @param collectionName The collection the vehicle records are persisted to
+     * @return One document per "last three" of a plate number, with the "last three" as `_id` and the `latitude`,
+     *         `longitude`, `status`, `battery_percentage` and `request_time` of its latest record
+     */
+    public List<Document> latestStates(final String collectionName) {
+
+        final var lastThree = RecordSchema.identity(RecordSchema.LAST_THREE,
+                timeSeriesCollections.contains(collectionName));
+        final var latest = new Document("_id", "$" + lastThree);
+        for (final var field : List.of(RecordSchema.LATITUDE, RecordSchema.LONGITUDE, RecordSchema.STATUS,
+                RecordSchema.BATTERY_PERCENTAGE, RecordSchema.REQUEST_TIME)) {
+            latest.append(field, new Document("$first", "$" + field));
+        }
+        final var pipeline = List.of(
+                new Document("$sort", new Document(lastThree, 1).append(RecordSchema.REQUEST_TIME, -1)),
+                new Document("$group", latest));
+
+        try (var client = connect()) {
+            final var collection = client.getDatabase(databaseName).getCollection(collectionName);
+            return collection.aggregate(pipeline).allowDiskUse(true).into(new ArrayList<>());
+        }
     }
 
     /**
@@ -139,17 +308,11 @@ public final class MongoConnection {
      */
     public void check(final String collectionName) {
 
-        final String connectionString = String.format("mongodb://%s:%s@%s:%s", username, password, host, port);
-        try {
-            client = MongoClients.create(new ConnectionString(connectionString));
+        try (var client = connect()) {
             final var db = client.getDatabase(databaseName);
             final var collection = db.getCollection(collectionName);
             final var count = collection.countDocuments();
             LOGGER.info("------------- Connected to mongoDB, " + count + " " + collectionName + " found. ---------");
-        } finally {
-            if (client != null) {
-                client.close();
-            }
         }
     }
 }
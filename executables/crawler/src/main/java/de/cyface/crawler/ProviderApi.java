@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.model.BoundingBox;
+
+/**
+ * Represents the API of a {@link VehicleProvider} which can be crawled for vehicle records.
+ * <p>
+ * Sends the requests built by the provider and records each of them as {@link ApiRequestEvent}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class ProviderApi {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProviderApi.class);
+
+    /**
+     * Transport used to send HTTP requests to a server running the API.
+     */
+    private final HttpTransport transport;
+
+    /**
+     * The provider which builds the requests and extracts the vehicles from the responses.
+     */
+    private final VehicleProvider provider;
+
+    /**
+     * Constructs a fully initialized instance of this class.
+     *
+     * @param transport Transport used to send HTTP requests to a server running the API.
+     * @param provider The provider which builds the requests and extracts the vehicles from the responses.
+     */
+    public ProviderApi(final HttpTransport transport, final VehicleProvider provider) {
+        Validate.notNull(provider);
+
+        this.transport = transport;
+        this.provider = provider;
+    }
+
+    /**
+     * Queries the API for vehicle locations in a specific bounding box.
+     *
+     * @param bb The bounding box to search vehicles for.
+     * @param regionCount The number of regions in the queue for subsequent API requests.
+     * @param vehicleCount The number of vehicles found so far.
+     * @param requestCounter The number of requests sent so far.
+     * @param requestTime The time when this request was initiated.
+     * @return The part of the response which contains the vehicles, see {@link VehicleProvider#vehicles}.
+     * @throws ApiUnavailable If the API is not available.
+     * @throws JSONException If the response could not be parsed.
+     */
+    public JSONArray vehicles(final BoundingBox bb, final int regionCount, final int vehicleCount,
+            Integer[] requestCounter, final Date requestTime) throws ApiUnavailable, JSONException {
+
+        // API Request
+        requestCounter[0]++;
+        LOGGER.info(requestTime.toString() + " " + provider.name() + " request " + requestCounter[0] + ": "
+                + vehicleCount + " knownBefore [parent: " + bb.getFoundByParent() + "], zoom " + bb.getZoom()
+                + ", queue: " + regionCount + ", centerLat: " + bb.getCenterLat() + ", centerLon: "
+                + bb.getCenterLon());
+        final var event = new ApiRequestEvent();
+        event.begin();
+        try {
+            // API Result
+            final var vehicles = sendRequest(bb, event);
+            event.vehicles = vehicles.length();
+            return vehicles;
+        } finally {
+            event.provider = provider.name();
+            event.northEastLat = bb.getNorthEastLat();
+            event.northEastLon = bb.getNorthEastLon();
+            event.southWestLat = bb.getSouthWestLat();
+            event.southWestLon = bb.getSouthWestLon();
+            event.zoom = bb.getZoom();
+            event.commit();
+        }
+    }
+
+    /**
+     * Sends the API requests.
+     *
+     * @param bb The bounding box to search vehicles for.
+     * @param event The flight recorder event of the request, to record the response in
+     * @return The part of the response which contains the vehicles.
+     * @throws ApiUnavailable If the API is not available.
+     */
+    private JSONArray sendRequest(final BoundingBox bb, final ApiRequestEvent event) throws ApiUnavailable {
+        try {
+            final var response = transport.get(provider.uri(bb), provider.headers());
+            Validate.notNull(response);
+            event.statusCode = response.statusCode();
+            event.bytes = response.receivedBytes();
+
+            if (response.statusCode() == 200) {
+                return provider.vehicles(response.body(), bb);
+            } else if (response.statusCode() == 429) {
+                throw new ApiUnavailable(provider.name() + " request was rate limited (HTTP 429)");
+            } else {
+                throw new ApiUnavailable(
+                        String.format("%s request returned wrong HTTP status code. Expected 200! received %d",
+                                provider.name(), response.statusCode()));
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new ApiUnavailable(e);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * Tracks how many vehicles appear and disappear per minute in each leaf region, to refresh only the regions with the
+ * highest churn between two full crawls.
+ * <p>
+ * A leaf region is a region which was not split by the crawl, so that its response contains all vehicles inside it.
+ * The leaves of a full crawl replace the leaves of the previous full crawl. As the regions are split at the vehicle
+ * positions, the leaves differ between crawls. A new leaf thus continues the score of the previous leaf which
+ * contains its center. Partial crawls request the leaves with the highest score and update their score.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class RegionChurn {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegionChurn.class);
+    /**
+     * The weight of a new observation in the smoothed churn of a region.
+     */
+    private static final double SMOOTHING = 0.3;
+    /**
+     * The edge length in degrees of the grid cells which index the leaves by location.
+     */
+    private static final double CELL_DEGREES = 0.01;
+    /**
+     * The last known position of each vehicle by its plate number.
+     */
+    private final Map<String, double[]> known = new HashMap<>();
+    /**
+     * The leaves of the latest full crawl.
+     */
+    private Leaves leaves = new Leaves();
+    /**
+     * The leaves found by the running full crawl or {@code null} if no full crawl is running.
+     */
+    private Leaves next;
+
+    /**
+     * Starts collecting the leaves of a full crawl.
+     */
+    public synchronized void fullCrawlStarted() {
+        next = new Leaves();
+    }
+
+    /**
+     * Replaces the leaves of the previous full crawl with the leaves of the full crawl which stopped.
+     * <p>
+     * Leaves of the previous full crawl are kept where the full crawl stopped before it reached them.
+     */
+    public synchronized void fullCrawlFinished() {
+        if (next == null) {
+            return;
+        }
+        for (final var leaf : leaves.values()) {
+            if (next.containing(leaf.region.getCenterLat(), leaf.region.getCenterLon()) == null) {
+                next.put(leaf);
+            }
+        }
+        leaves = next;
+        next = null;
+        LOGGER.info(String.format("Tracking the churn of %d regions.", leaves.size()));
+    }
+
+    /**
+     * Records the response of a request.
+     *
+     * @param region The region requested
+     * @param returned The vehicles returned for the region
+     * @param requestTime The time when the request was sent
+     * @param leaf {@code true} if the region was not split, i.e. all vehicles inside the region were returned
+     * @param partial {@code true} if the request was sent by a partial crawl
+     */
+    public synchronized void observed(final BoundingBox region, final Collection<LimeVehicle> returned,
+            final Date requestTime, final boolean leaf, final boolean partial) {
+        final var current = returned.stream().filter(v -> v.getPlateNumber() != null)
+                .collect(Collectors.toMap(LimeVehicle::getPlateNumber,
+                        v -> new double[] {v.getLatitude(), v.getLongitude()}, (a, b) -> b));
+        if (!leaf) {
+            // The response contains only some of the vehicles in the region
+            known.putAll(current);
+            return;
+        }
+
+        final var before = new HashSet<String>();
+        known.forEach((plate, position) -> {
+            if (contains(region, position[0], position[1])) {
+                before.add(plate);
+            }
+        });
+        var changes = current.keySet().stream().filter(p -> !before.contains(p)).count();
+        changes += before.stream().filter(p -> !current.containsKey(p)).count();
+
+        final var previous = partial ? leaves.get(region.key())
+                : leaves.containing(region.getCenterLat(), region.getCenterLon());
+        if (partial && previous == null) {
+            // A split leaf, the sub-regions are tracked once the next full crawl finds them
+            return;
+        }
+        var score = 0.;
+        if (previous != null) {
+            final var minutes = (requestTime.getTime() - previous.refreshed) / 60_000.;
+            score = minutes > 0 ? SMOOTHING * changes / minutes + (1 - SMOOTHING) * previous.score : previous.score;
+        }
+        final var updated = new Leaf(region, score, requestTime.getTime());
+        if (partial) {
+            leaves.put(updated);
+        } else if (next != null) {
+            next.put(updated);
+        }
+
+        before.forEach(known::remove);
+        known.putAll(current);
+    }
+
+    /**
+     * @param limit The maximal number of regions to return
+     * @return The leaves with the highest churn, highest first, only leaves in which vehicles changed
+     */
+    public synchronized List<BoundingBox> hottest(final int limit) {
+        return leaves.values().stream()
+                .filter(l -> l.score > 0)
+                .sorted(Comparator.comparingDouble((Leaf l) -> l.score).reversed())
+                .limit(limit)
+                .map(l -> l.region)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param region The region to check
+     * @param latitude The latitude of the location
+     * @param longitude The longitude of the location
+     * @return {@code true} if the location lies inside the region
+     */
+    private static boolean contains(final BoundingBox region, final double latitude, final double longitude) {
+        return latitude >= region.getSouthWestLat() && latitude < region.getNorthEastLat()
+                && longitude >= region.getSouthWestLon() && longitude < region.getNorthEastLon();
+    }
+
+    /**
+     * @param latitude The latitude of a location
+     * @param longitude The longitude of a location
+     * @return The key of the grid cell which contains the location
+     */
+    private static long cell(final double latitude, final double longitude) {
+        return cell((int)Math.floor(latitude / CELL_DEGREES), (int)Math.floor(longitude / CELL_DEGREES));
+    }
+
+    /**
+     * @param row The row of a grid cell
+     * @param column The column of a grid cell
+     * @return The key of the grid cell
+     */
+    private static long cell(final int row, final int column) {
+        return (long)row << 32 | column & 0xFFFFFFFFL;
+    }
+
+    /**
+     * The leaves of a full crawl, indexed by their {@link BoundingBox#key()} and by the grid cells they overlap, so
+     * that the leaf containing a location is found without checking all leaves.
+     */
+    private static final class Leaves {
+
+        /**
+         * The leaves by their {@link BoundingBox#key()}.
+         */
+        private final Map<String, Leaf> byKey = new HashMap<>();
+        /**
+         * The keys of the leaves overlapping each grid cell of {@link #CELL_DEGREES}.
+         */
+        private final Map<Long, List<String>> byCell = new HashMap<>();
+
+        /**
+         * Adds a leaf or replaces the leaf of the same region.
+         *
+         * @param leaf The leaf to add
+         */
+        private void put(final Leaf leaf) {
+            final var region = leaf.region;
+            final var key = region.key();
+            if (byKey.put(key, leaf) != null) {
+                // The region is already indexed
+                return;
+            }
+            final var minRow = (int)Math.floor(region.getSouthWestLat() / CELL_DEGREES);
+            final var maxRow = (int)Math.floor(region.getNorthEastLat() / CELL_DEGREES);
+            final var minColumn = (int)Math.floor(region.getSouthWestLon() / CELL_DEGREES);
+            final var maxColumn = (int)Math.floor(region.getNorthEastLon() / CELL_DEGREES);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int column = minColumn; column <= maxColumn; column++) {
+                    byCell.computeIfAbsent(cell(row, column), c -> new ArrayList<>()).add(key);
+                }
+            }
+        }
+
+        /**
+         * @param key The {@link BoundingBox#key()} of a region
+         * @return The leaf of the region or {@code null} if there is none
+         */
+        private Leaf get(final String key) {
+            return byKey.get(key);
+        }
+
+        /**
+         * @param latitude The latitude of the location
+         * @param longitude The longitude of the location
+         * @return The leaf which contains the location or {@code null} if there is none
+         */
+        private Leaf containing(final double latitude, final double longitude) {
+            final var keys = byCell.get(cell(latitude, longitude));
+            if (keys == null) {
+                return null;
+            }
+            for (final var key : keys) {
+                final var leaf = byKey.get(key);
+                if (contains(leaf.region, latitude, longitude)) {
+                    return leaf;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return All leaves
+         */
+        private Collection<Leaf> values() {
+            return byKey.values();
+        }
+
+        /**
+         * @return The number of leaves
+         */
+        private int size() {
+            return byKey.size();
+        }
+    }
+
+    /**
+     * The churn of a leaf region.
+     */
+    private static final class Leaf {
+
+        /**
+         * The region which was not split.
+         */
+        private final BoundingBox region;
+        /**
+         * The smoothed number of vehicles which appeared or disappeared per minute.
+         */
+        private final double score;
+        /**
+         * When the region was requested last, in milliseconds since epoch.
+         */
+        private final long refreshed;
+
+        /**
+         * @param region The region which was not split.
+         * @param score The smoothed number of vehicles which appeared or disappeared per minute.
+         * @param refreshed When the region was requested last, in milliseconds since epoch.
+         */
+        private Leaf(final BoundingBox region, final double score, final long refreshed) {
+            this.region = region;
+            this.score = score;
+            this.refreshed = refreshed;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * The strategies available to slice a region into sub-regions which are requested subsequently.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public enum SplitStrategy {
+
+    /**
+     * Slices the region into two halves, alternating between rows and columns with each zoom level.
+     * <p>
+     * Tried multiple slicing strategies in live crawls, this "slowest" one seemed to be the best (small queue).
+     */
+    ALTERNATING {
+        @Override
+        public List<BoundingBox> split(final BoundingBox region, final int newFound,
+                final List<LimeVehicle> returned) {
+            return region.getZoom() % 2 == 1 ? slice(region, newFound, 2, 1) : slice(region, newFound, 1, 2);
+        }
+    },
+    /**
+     * Slices the region into four quadrants.
+     */
+    QUADRANTS {
+        @Override
+        public List<BoundingBox> split(final BoundingBox region, final int newFound,
+                final List<LimeVehicle> returned) {
+            return slice(region, newFound, 2, 2);
+        }
+    },
+    /**
+     * Slices the region into two parts along its longer side, at the median position of the vehicles returned for
+     * the region, so that both parts contain about the same number of vehicles.
+     */
+    MEDIAN {
+        @Override
+        public List<BoundingBox> split(final BoundingBox region, final int newFound,
+                final List<LimeVehicle> returned) {
+            final var latDiff = region.getNorthEastLat() - region.getSouthWestLat();
+            final var lonDiff = (region.getNorthEastLon() - region.getSouthWestLon())
+                    * Math.cos(Math.toRadians(region.getCenterLat()));
+            final var splitLatitudes = latDiff >= lonDiff;
+            final var positions = returned.stream()
+                    .mapToDouble(v -> splitLatitudes ? v.getLatitude() : v.getLongitude())
+                    .toArray();
+            final var lower = splitLatitudes ? region.getSouthWestLat() : region.getSouthWestLon();
+            final var upper = splitLatitudes ? region.getNorthEastLat() : region.getNorthEastLon();
+
+            // Fall back to the geometric middle if the vehicles do not allow a split inside the region
+            final var median = median(positions);
+            final var at = Double.isNaN(median) || median <= lower || median >= upper
+                    ? BoundingBox.middleBetween(lower, upper)
+                    : median;
+
+            final var nextZoom = (short)(region.getZoom() + 1);
+            if (splitLatitudes) {
+                return List.of(
+                        new BoundingBox(newFound, at, region.getNorthEastLon(), region.getSouthWestLat(),
+                                region.getSouthWestLon(), nextZoom),
+                        new BoundingBox(newFound, region.getNorthEastLat(), region.getNorthEastLon(), at,
+                                region.getSouthWestLon(), nextZoom));
+            }
+            return List.of(
+                    new BoundingBox(newFound, region.getNorthEastLat(), at, region.getSouthWestLat(),
+                            region.getSouthWestLon(), nextZoom),
+                    new BoundingBox(newFound, region.getNorthEastLat(), region.getNorthEastLon(),
+                            region.getSouthWestLat(), at, nextZoom));
+        }
+    };
+
+    /**
+     * Slices a region into sub-regions.
+     *
+     * @param region The region of the previous request to be sliced.
+     * @param newFound The number of new vehicles found in the previous request.
+     * @param returned The vehicles returned for the previous request.
+     * @return The sub-regions
+     */
+    public abstract List<BoundingBox> split(final BoundingBox region, final int newFound,
+            final List<LimeVehicle> returned);
+
+    /**
+     * Decides which sub-regions of a requested region are requested subsequently.
+     * <p>
+     * The API returns at most {@link LimeProvider#MAX_VEHICLES_PER_RESPONSE} vehicles, the ones closest to the center of
+     * the region. A response below this cap thus contains all vehicles of the region and the region is completely
+     * crawled, no matter whether the vehicles were seen before. A saturated response may miss vehicles and the region
+     * is sliced, up to {@link LimeProvider#MAX_ZOOM}.
+     *
+     * @param region The region of the previous request.
+     * @param newFound The number of new vehicles found in the previous request.
+     * @param returned All vehicles returned for the previous request.
+     * @return The sub-regions to request or an empty list if the region is completely crawled
+     */
+    public List<BoundingBox> refine(final BoundingBox region, final int newFound,
+            final List<LimeVehicle> returned) {
+        final var saturated = returned.size() >= LimeProvider.MAX_VEHICLES_PER_RESPONSE;
+        return saturated && region.getZoom() < LimeProvider.MAX_ZOOM ? split(region, newFound, returned) : List.of();
+    }
+
+    /**
+     * Slices a bounding box into a specific number of equal sized parts.
+     *
+     * @param bb The bounding box of the previous request to be sliced.
+     * @param newFound The number of new vehicles found in the previous request (which is the reason why the previous
+     *            region is sliced).
+     * @param rows The number of rows to slice the region into
+     * @param cols The number of columns to slice the region into
+     * @return The subregions
+     */
+    static List<BoundingBox> slice(final BoundingBox bb, final int newFound, final int rows, final int cols) {
+
+        final var latDiff = bb.getNorthEastLat() - bb.getSouthWestLat();
+        final var lonDiff = bb.getNorthEastLon() - bb.getSouthWestLon();
+        final var latSlice = latDiff / rows;
+        final var lonSlice = lonDiff / cols;
+        final var nextZoom = (short)(bb.getZoom() + 1);
+
+        final var res = new ArrayList<BoundingBox>();
+        for (int row = 0; row < rows; ++row) {
+            for (int col = 0; col < cols; ++col) {
+                final var southWestLat = bb.getSouthWestLat() + row * latSlice;
+                final var northEastLat = bb.getSouthWestLat() + (row + 1) * latSlice;
+                final var southWestLon = bb.getSouthWestLon() + col * lonSlice;
+                final var northEastLon = bb.getSouthWestLon() + (col + 1) * lonSlice;
+                res.add(new BoundingBox(newFound, northEastLat, northEastLon, southWestLat, southWestLon, nextZoom));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @param values The values to find the median of
+     * @return The median or {@code NaN} if there are no values
+     */
+    private static double median(final double[] values) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        final var sorted = values.clone();
+        Arrays.sort(sorted);
+        final var middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
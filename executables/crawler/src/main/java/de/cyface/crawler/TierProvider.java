@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+import de.cyface.crawler.model.TierVehicle;
+
+/**
+ * The {@link VehicleProvider} for the e-scooter provider Tier.
+ * <p>
+ * The Tier API returns all vehicles of a zone with one request, so regions are never sliced.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class TierProvider implements VehicleProvider {
+
+    /**
+     * The name of this provider.
+     */
+    public static final String NAME = "tier";
+    /**
+     * The collection the vehicle records are persisted to.
+     */
+    public static final String COLLECTION_NAME = "tier_records";
+    /**
+     * The key of the setting which contains the API key, see {@link #configure(Map)}.
+     */
+    public static final String API_KEY = "tier.api-key";
+    /**
+     * The key of the optional setting which contains the id of the zone to crawl, see {@link #configure(Map)}.
+     */
+    public static final String ZONE_ID = "tier.zone-id";
+    /**
+     * The zone crawled if no {@link #ZONE_ID} is configured.
+     */
+    private static final String DEFAULT_ZONE_ID = "DRESDEN";
+    /**
+     * The uniform resource identifier of the endpoint providing the TIER-API to query.
+     */
+    private static final String URI_STRING = "https://platform.tier-services.io/v2/vehicle";
+    /**
+     * This token is hard-coded into the TIER apk and is user-independent.
+     */
+    private String apiKey;
+    /**
+     * The id of the zone to crawl.
+     */
+    private String zoneId;
+
+    /**
+     * Creates an instance of this class which needs to be configured by {@link #configure(Map)}, as required by the
+     * {@link java.util.ServiceLoader}.
+     */
+    public TierProvider() {
+        // Nothing to do
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String collectionName() {
+        return COLLECTION_NAME;
+    }
+
+    @Override
+    public boolean configure(final Map<String, String> settings) {
+        final var key = settings.get(API_KEY);
+        if (key == null) {
+            return false;
+        }
+        this.apiKey = key;
+        this.zoneId = settings.getOrDefault(ZONE_ID, DEFAULT_ZONE_ID);
+        Validate.notEmpty(zoneId);
+        return true;
+    }
+
+    @Override
+    public BoundingBox area() {
+        // The zone is requested by its id, the region of the default zone is only used for the crawl statistics
+        return LimeProvider.AREA;
+    }
+
+    @Override
+    public URI uri(final BoundingBox region) {
+        return URI.create(URI_STRING + String.format("?zoneId=%s", zoneId));
+    }
+
+    @Override
+    public Map<String, String> headers() {
+        return Map.of("X-Api-Key", apiKey);
+    }
+
+    @Override
+    public JSONArray vehicles(final String body, final BoundingBox region) {
+        return new JSONObject(body).getJSONArray("data");
+    }
+
+    @Override
+    public LimeVehicle vehicle(final JSONObject vehicle, final Date requestTime, final Date crawlStarted) {
+        return new TierVehicle(vehicle).toRecord(requestTime, crawlStarted);
+    }
+
+    @Override
+    public List<BoundingBox> refine(final BoundingBox region, final int newFound, final List<LimeVehicle> returned) {
+        return List.of();
+    }
+}
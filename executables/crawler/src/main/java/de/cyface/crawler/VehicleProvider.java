@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * A provider of shared vehicles whose API is crawled by the {@link CrawlEngine}.
+ * <p>
+ * Providers only build the requests and decode the responses. The pacing, deduplication, persistence and metrics are
+ * supplied by the engine and shared by all providers. Providers are discovered by the {@link ServiceLoader} from
+ * {@code META-INF/services/de.cyface.crawler.VehicleProvider} and require a public constructor without arguments.
+ * <p>
+ * All providers decode their vehicles into a {@link LimeVehicle}. It is named after the first provider crawled, but
+ * is the record shared by all providers: it is what the engine deduplicates, caches and spools, what the codecs
+ * persist and what the processor reads. Attributes a provider does not report are left empty, see
+ * {@link de.cyface.crawler.model.TierVehicle#toRecord(Date, Date)}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public interface VehicleProvider {
+
+    /**
+     * Loads all registered providers and configures them.
+     *
+     * @param settings The settings passed on the command line, by the keys defined by the providers
+     * @return The providers for which the required settings were passed, in the order they are registered
+     */
+    static List<VehicleProvider> load(final Map<String, String> settings) {
+        final var ret = new ArrayList<VehicleProvider>();
+        for (final var provider : ServiceLoader.load(VehicleProvider.class)) {
+            if (provider.configure(settings)) {
+                ret.add(provider);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return The name of the provider, e.g. "lime", as used in the crawl statistics.
+     */
+    String name();
+
+    /**
+     * @return The collection the vehicle records of this provider are persisted to.
+     */
+    String collectionName();
+
+    /**
+     * Configures the provider before it is used.
+     *
+     * @param settings The settings passed on the command line, by the keys defined by the providers
+     * @return {@code false} if the settings required by this provider, e.g. its credentials, were not passed, so that
+     *         the provider is not crawled
+     */
+    boolean configure(Map<String, String> settings);
+
+    /**
+     * @return The region each crawl starts with.
+     */
+    BoundingBox area();
+
+    /**
+     * @param region The region to request the vehicles of
+     * @return The URI of the request
+     */
+    URI uri(BoundingBox region);
+
+    /**
+     * @return The headers to send with each request, e.g. the credentials.
+     */
+    Map<String, String> headers();
+
+    /**
+     * Extracts the vehicles from a successful response.
+     *
+     * @param body The body of the response
+     * @param region The requested region
+     * @return The part of the response which contains the vehicles, one {@code JSONObject} per vehicle
+     * @throws IllegalArgumentException If the response is not valid
+     */
+    JSONArray vehicles(String body, BoundingBox region);
+
+    /**
+     * Decodes a vehicle into the {@link LimeVehicle} record persisted for all providers.
+     *
+     * @param vehicle One entry of the array returned by {@link #vehicles(String, BoundingBox)}
+     * @param requestTime The time when the request was sent
+     * @param crawlStarted The time when the crawl started
+     * @return The decoded vehicle
+     */
+    LimeVehicle vehicle(JSONObject vehicle, Date requestTime, Date crawlStarted);
+
+    /**
+     * Decides which sub-regions of a requested region need to be requested, too.
+     *
+     * @param region The requested region
+     * @param newFound The number of vehicles which were not found by any previous request of the crawl
+     * @param returned The vehicles returned for the region
+     * @return The sub-regions to request or an empty list if the region is complete
+     */
+    List<BoundingBox> refine(BoundingBox region, int newFound, List<LimeVehicle> returned);
+}
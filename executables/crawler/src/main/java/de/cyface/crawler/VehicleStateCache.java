@@ -0,0 +1,275 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.model.LimeVehicle;
+import de.cyface.crawler.model.RecordSchema;
+
+/**
+ * Remembers the last persisted state of each vehicle, so that only changed states need to be persisted.
+ * <p>
+ * A vehicle is persisted again when it moved or its battery changed beyond the configured thresholds, when its status
+ * changed or when its last persisted state is older than the heartbeat interval. Vehicles are identified by the "last
+ * three" of their plate number. As some vehicles share the same "last three", all vehicles whose "last three" is seen
+ * multiple times in one crawl are always persisted.
+ * <p>
+ * The processor pairs the last record of a vehicle before a trip with the first record after it. As unchanged vehicles
+ * are only persisted each heartbeat, the source of a trip is the last persisted record and not the last time the
+ * vehicle was seen, so the start of a trip is only known to the heartbeat. The heartbeat must stay below
+ * {@link RecordSchema#MAX_CRAWLING_GAP_MINUTES}, and trips longer than the gap minus the heartbeat are dropped.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class VehicleStateCache {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehicleStateCache.class);
+    /**
+     * The mean radius of the earth in meters, used to approximate distances.
+     */
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    /**
+     * The last persisted state of each vehicle by its "last three".
+     */
+    private final Map<String, State> states = new HashMap<>();
+    /**
+     * The distance in meters a vehicle has to move to be persisted again.
+     */
+    private final double distanceThresholdMeters;
+    /**
+     * The change in battery percentage points required to persist a vehicle again.
+     */
+    private final int batteryThreshold;
+    /**
+     * The milliseconds after which a vehicle is persisted again even if it did not change.
+     */
+    private final long heartbeatMillis;
+
+    /**
+     * Creates a fully initialized, empty instance of this class.
+     *
+     * @param distanceThresholdMeters The distance in meters a vehicle has to move to be persisted again.
+     * @param batteryThreshold The change in battery percentage points required to persist a vehicle again.
+     * @param heartbeatMinutes The minutes after which a vehicle is persisted again even if it did not change.
+     */
+    public VehicleStateCache(final double distanceThresholdMeters, final int batteryThreshold,
+            final int heartbeatMinutes) {
+        Validate.isTrue(distanceThresholdMeters >= 0);
+        Validate.isTrue(batteryThreshold >= 0);
+        Validate.isTrue(heartbeatMinutes > 0);
+        Validate.isTrue(heartbeatMinutes < RecordSchema.MAX_CRAWLING_GAP_MINUTES, String.format(
+                "The heartbeat must be shorter than the %d minutes the processor accepts between two records",
+                RecordSchema.MAX_CRAWLING_GAP_MINUTES));
+
+        this.distanceThresholdMeters = distanceThresholdMeters;
+        this.batteryThreshold = batteryThreshold;
+        this.heartbeatMillis = heartbeatMinutes * 60_000L;
+    }
+
+    /**
+     * Loads the last persisted state of each vehicle, e.g. after the crawler was restarted.
+     * <p>
+     * Vehicles whose latest record lacks one of the fields compared are not loaded, so they are persisted again when
+     * they are crawled next.
+     *
+     * @param mongoConnection The database to load the states from
+     * @param collectionName The collection the vehicle records are persisted to
+     */
+    public synchronized void rebuild(final MongoConnection mongoConnection, final String collectionName) {
+        states.clear();
+        mongoConnection.latestStates(collectionName).forEach(d -> {
+            final var state = State.of(d);
+            if (state != null) {
+                states.put(d.getString(RecordSchema.OBJECT_ID), state);
+            }
+        });
+        LOGGER.info("Loaded the last persisted state of " + states.size() + " vehicles.");
+    }
+
+    /**
+     * Selects the vehicles whose state changed since they were persisted last.
+     * <p>
+     * Call {@link #persisted(Collection)} after the selected vehicles were persisted.
+     *
+     * @param crawled The vehicles found by a crawl
+     * @return The vehicles to persist
+     */
+    public synchronized Set<LimeVehicle> changed(final Collection<LimeVehicle> crawled) {
+
+        final var byLastThree = crawled.stream().collect(Collectors.groupingBy(LimeVehicle::getLastThree));
+        final var ret = new HashSet<LimeVehicle>();
+        byLastThree.forEach((lastThree, vehicles) -> {
+            if (vehicles.size() > 1) {
+                // Different vehicles with the same "last three" cannot be told apart
+                ret.addAll(vehicles);
+                return;
+            }
+            final var vehicle = vehicles.get(0);
+            final var last = states.get(lastThree);
+            if (last == null || changed(last, State.of(vehicle))) {
+                ret.add(vehicle);
+            }
+        });
+        LOGGER.info(String.format("%d of %d vehicles changed since they were persisted last.", ret.size(),
+                crawled.size()));
+        return ret;
+    }
+
+    /**
+     * Remembers the state of vehicles which were persisted successfully.
+     *
+     * @param persisted The vehicles selected by {@link #changed(Collection)} which were persisted
+     */
+    public synchronized void persisted(final Collection<LimeVehicle> persisted) {
+
+        final var byLastThree = persisted.stream().collect(Collectors.groupingBy(LimeVehicle::getLastThree));
+        byLastThree.forEach((lastThree, vehicles) -> {
+            if (vehicles.size() > 1) {
+                states.remove(lastThree);
+            } else {
+                states.put(lastThree, State.of(vehicles.get(0)));
+            }
+        });
+    }
+
+    /**
+     * @param last The last persisted state of a vehicle
+     * @param current The current state of the vehicle
+     * @return {@code true} if the current state needs to be persisted
+     */
+    private boolean changed(final State last, final State current) {
+        final var batteryChange = Math.abs(current.batteryPercentage - last.batteryPercentage);
+        return current.requestTime - last.requestTime >= heartbeatMillis
+                || !Objects.equals(last.status, current.status)
+                || batteryChange > 0 && batteryChange >= batteryThreshold
+                || distanceMeters(last, current) > distanceThresholdMeters;
+    }
+
+    /**
+     * Approximates the distance between two locations, which is sufficient for the short distances compared.
+     *
+     * @param a The first location
+     * @param b The second location
+     * @return The distance in meters
+     */
+    private static double distanceMeters(final State a, final State b) {
+        return distanceMeters(a.latitude, a.longitude, b.latitude, b.longitude);
+    }
+
+    /**
+     * Approximates the distance between two locations, which is sufficient for short distances.
+     *
+     * @param latA The latitude of the first location
+     * @param lonA The longitude of the first location
+     * @param latB The latitude of the second location
+     * @param lonB The longitude of the second location
+     * @return The distance in meters
+     */
+    static double distanceMeters(final double latA, final double lonA, final double latB, final double lonB) {
+        final var latDiff = Math.toRadians(latB - latA);
+        final var lonDiff = Math.toRadians(lonB - lonA) * Math.cos(Math.toRadians((latA + latB) / 2));
+        return Math.sqrt(latDiff * latDiff + lonDiff * lonDiff) * EARTH_RADIUS_METERS;
+    }
+
+    /**
+     * The part of a persisted vehicle record which decides whether a vehicle needs to be persisted again.
+     */
+    private static final class State {
+
+        /**
+         * of the vehicle
+         */
+        private final double latitude;
+        /**
+         * of the vehicle
+         */
+        private final double longitude;
+        /**
+         * The status of the vehicle, e.g. "locked".
+         */
+        private final String status;
+        /**
+         * percentage of the battery charge left
+         */
+        private final int batteryPercentage;
+        /**
+         * when the API request was sent which returned this state, in milliseconds since epoch
+         */
+        private final long requestTime;
+
+        /**
+         * @param latitude of the vehicle
+         * @param longitude of the vehicle
+         * @param status The status of the vehicle, e.g. "locked".
+         * @param batteryPercentage percentage of the battery charge left
+         * @param requestTime when the API request was sent which returned this state
+         */
+        private State(final double latitude, final double longitude, final String status,
+                final int batteryPercentage, final Date requestTime) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.status = status;
+            this.batteryPercentage = batteryPercentage;
+            this.requestTime = requestTime.getTime();
+        }
+
+        /**
+         * @param vehicle The vehicle as returned by the API
+         * @return The state of the vehicle
+         */
+        private static State of(final LimeVehicle vehicle) {
+            return new State(vehicle.getLatitude(), vehicle.getLongitude(), vehicle.getStatus(),
+                    vehicle.getBatteryPercentage(), vehicle.getRequestTime());
+        }
+
+        /**
+         * @param document The latest record of a vehicle as returned by {@link MongoConnection#latestStates(String)}
+         * @return The state of the vehicle or {@code null} if the record lacks one of the fields compared
+         */
+        private static State of(final Document document) {
+            final var latitude = document.getDouble(RecordSchema.LATITUDE);
+            final var longitude = document.getDouble(RecordSchema.LONGITUDE);
+            final var batteryPercentage = document.getInteger(RecordSchema.BATTERY_PERCENTAGE);
+            final var requestTime = document.getDate(RecordSchema.REQUEST_TIME);
+            if (latitude == null || longitude == null || batteryPercentage == null || requestTime == null) {
+                return null;
+            }
+            return new State(latitude, longitude, LimeVehicle.STATUSES.decode(document.get(RecordSchema.STATUS)),
+                    batteryPercentage, requestTime);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.MongoException;
+
+import de.cyface.crawler.model.LimeVehicle;
+import de.cyface.crawler.model.LimeVehicleCodec;
+
+/**
+ * A local write-ahead spool for the vehicle records of each crawl, so that the crawler neither blocks on nor loses
+ * data to a slow or unavailable database.
+ * <p>
+ * The records of each crawl are appended to a new segment file, a sequence of BSON documents, which is moved into
+ * place atomically once it is flushed to disk. A background drainer inserts the segments into the database in the
+ * order they were written. A segment is renamed before it is inserted and only deleted afterwards. A segment found
+ * renamed was inserted partially by an earlier attempt, so the records already persisted are skipped, identified by
+ * the vehicle id and request time. This way each record is written at least once and duplicates are avoided.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class WriteSpool {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteSpool.class);
+    /**
+     * The suffix of segments which are ready to be drained.
+     */
+    private static final String SUFFIX = ".bson";
+    /**
+     * The suffix appended to segments which are drained, or whose draining was interrupted.
+     */
+    private static final String DRAINING_SUFFIX = ".draining";
+    /**
+     * The suffix appended to segments which are still written.
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    /**
+     * The seconds between two attempts to drain the spool, if no new segment is appended in the meantime.
+     */
+    private static final long DRAIN_INTERVAL_SECONDS = 60;
+    /**
+     * The codec used to write the records to the segments. The segments always use the plain layout, the layout of
+     * the collection is chosen when the records are inserted.
+     */
+    private static final LimeVehicleCodec CODEC = new LimeVehicleCodec(false);
+    /**
+     * The directory the segments are written to.
+     */
+    private final Path directory;
+    /**
+     * The database the segments are drained into.
+     */
+    private final MongoConnection mongoConnection;
+    /**
+     * {@code true} to access the segments via memory-mapped files.
+     */
+    private final boolean memoryMapped;
+    /**
+     * The number of the last segment written, which orders the segments also across restarts.
+     */
+    private final AtomicLong sequence;
+    /**
+     * The thread draining the segments into the database or {@code null} until the spool is started.
+     */
+    private volatile ScheduledExecutorService drainer;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param directory The directory to write the segments to
+     * @param mongoConnection The database to drain the segments into
+     * @param memoryMapped {@code true} to access the segments via memory-mapped files
+     * @throws IOException If the directory could not be created
+     */
+    public WriteSpool(final Path directory, final MongoConnection mongoConnection, final boolean memoryMapped)
+            throws IOException {
+        Validate.notNull(directory);
+        Validate.notNull(mongoConnection);
+
+        this.directory = Files.createDirectories(directory);
+        this.mongoConnection = mongoConnection;
+        this.memoryMapped = memoryMapped;
+        this.sequence = new AtomicLong(System.currentTimeMillis() * 1_000);
+    }
+
+    /**
+     * Deletes segments which were not written completely and starts draining the segments left by earlier runs.
+     *
+     * @throws IOException If the directory could not be read or a segment not be deleted
+     */
+    public void start() throws IOException {
+        Validate.validState(drainer == null, "Spool already started");
+        try (var files = Files.list(directory)) {
+            for (final var path : (Iterable<Path>)files::iterator) {
+                if (path.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    LOGGER.warn("Deleting incomplete spool segment " + path);
+                    Files.delete(path);
+                }
+            }
+        }
+        drainer = Executors.newSingleThreadScheduledExecutor();
+        drainer.scheduleWithFixedDelay(this::drain, 0, DRAIN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Appends the records of a crawl to the spool and triggers the drainer, if the spool is started.
+     * <p>
+     * Returns as soon as the records are flushed to disk.
+     *
+     * @param records The records to persist
+     * @param collectionName The collection to persist the records to
+     * @throws IOException If the segment could not be written
+     */
+    public void append(final Collection<LimeVehicle> records, final String collectionName) throws IOException {
+        Validate.notEmpty(collectionName);
+
+        if (records.isEmpty()) {
+            return;
+        }
+        final var buffer = new BasicOutputBuffer();
+        for (final var record : records) {
+            try (var writer = new BsonBinaryWriter(buffer)) {
+                CODEC.encode(writer, record, EncoderContext.builder().build());
+            }
+        }
+        final var bytes = buffer.toByteArray();
+
+        final var name = String.format("%020d.%s%s", sequence.incrementAndGet(), collectionName, SUFFIX);
+        final var temporary = directory.resolve(name + TEMPORARY_SUFFIX);
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (memoryMapped) {
+                final var mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes.length);
+                mapped.put(bytes);
+                mapped.force();
+            } else {
+                final var source = ByteBuffer.wrap(bytes);
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+                channel.force(true);
+            }
+        }
+        Files.move(temporary, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.info(String.format("Spooled %d records to %s.", records.size(), name));
+        if (drainer != null) {
+            drainer.execute(this::drain);
+        }
+    }
+
+    /**
+     * Drains the segments into the database in the order they were written, until the database fails.
+     */
+    private void drain() {
+        try {
+            for (final var segment : segments()) {
+                if (!drain(segment)) {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Or else the drainer is not scheduled again
+            LOGGER.error("Unable to drain the spool: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Drains one segment into the database.
+     *
+     * @param segment The segment to drain
+     * @return {@code true} if the segment was persisted and deleted, {@code false} if the database failed
+     * @throws IOException If the segment could not be read, renamed or deleted
+     */
+    private boolean drain(final Path segment) throws IOException {
+        final var fileName = segment.getFileName().toString();
+        final var retry = fileName.endsWith(DRAINING_SUFFIX);
+        final var draining = retry ? segment : segment.resolveSibling(fileName + DRAINING_SUFFIX);
+        if (!retry) {
+            Files.move(segment, draining, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        final var records = read(draining);
+        final var collectionName = collectionName(draining);
+        try {
+            final var pending = retry ? unpersisted(records, collectionName) : records;
+            mongoConnection.write(new LinkedHashSet<>(pending), collectionName);
+            LOGGER.info(String.format("Drained %d of %d records from %s.", pending.size(), records.size(),
+                    fileName));
+        } catch (MongoException e) {
+            LOGGER.warn(String.format("Unable to drain %s, retrying later: %s", fileName, e.getMessage()));
+            return false;
+        }
+        Files.delete(draining);
+        return true;
+    }
+
+    /**
+     * @param records The records of a segment whose draining was interrupted
+     * @param collectionName The collection the records are persisted to
+     * @return The records which are not yet persisted
+     */
+    private List<LimeVehicle> unpersisted(final List<LimeVehicle> records, final String collectionName) {
+        final var requestTimes = records.stream().map(LimeVehicle::getRequestTime).collect(Collectors.toList());
+        final var from = requestTimes.stream().min(Date::compareTo).orElseThrow();
+        final var to = requestTimes.stream().max(Date::compareTo).orElseThrow();
+        final var persisted = mongoConnection.persistedKeys(collectionName, from, to);
+        return records.stream()
+                .filter(r -> !persisted.contains(MongoConnection.key(r.getId(), r.getRequestTime())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The segments ready to be drained or whose draining was interrupted, in the order they were written
+     * @throws IOException If the directory could not be read
+     */
+    List<Path> segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(p -> {
+                final var name = p.getFileName().toString();
+                return name.endsWith(SUFFIX) || name.endsWith(SUFFIX + DRAINING_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the records of a segment.
+     *
+     * @param segment The segment to read
+     * @return The records in the order they were written
+     * @throws IOException If the segment could not be read
+     */
+    List<LimeVehicle> read(final Path segment) throws IOException {
+        final ByteBuffer bytes;
+        if (memoryMapped) {
+            try (var channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } else {
+            bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        }
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+
+        final var ret = new ArrayList<LimeVehicle>();
+        while (bytes.hasRemaining()) {
+            // Each BSON document starts with its length
+            final var length = bytes.getInt(bytes.position());
+            final var document = bytes.slice().limit(length);
+            try (var reader = new BsonBinaryReader(document)) {
+                ret.add(CODEC.decode(reader, DecoderContext.builder().build()));
+            }
+            bytes.position(bytes.position() + length);
+        }
+        return ret;
+    }
+
+    /**
+     * @param segment A segment
+     * @return The collection the records of the segment are persisted to
+     */
+    private static String collectionName(final Path segment) {
+        final var name = segment.getFileName().toString();
+        final var end = name.endsWith(DRAINING_SUFFIX) ? name.length() - DRAINING_SUFFIX.length() : name.length();
+        return name.substring(name.indexOf('.') + 1, end - SUFFIX.length());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static de.cyface.crawler.TestVehicles.vehicle;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveScheduleTest {
+
+    @Test
+    public void testCrawlsFollowTheChangeRate() {
+        // Arrange
+        final var oocut = new AdaptiveSchedule(7_200, 3_600, ZoneOffset.UTC);
+        final var rush = new CrawlRun("lime", Date.from(Instant.parse("2021-03-18T08:00:00Z")), false);
+        rush.changed(10.);
+        final var night = new CrawlRun("lime", Date.from(Instant.parse("2021-03-18T03:00:00Z")), false);
+        night.changed(.1);
+
+        // Act
+        oocut.learn(List.of(night, rush));
+
+        // Assert
+        final var crawls = oocut.crawlsPerSlot();
+        assertThat(Math.abs(Arrays.stream(crawls).sum() - 12.) < 1E-9, is(true));
+        assertThat(crawls[3], is(equalTo(.5 * AdaptiveSchedule.MIN_SHARE)));
+        final var rushDelay = oocut.nextDelaySeconds(Instant.parse("2021-03-19T08:30:00Z"));
+        assertThat(rushDelay >= 3_600 && rushDelay < 7_200, is(true));
+        assertThat(oocut.nextDelaySeconds(Instant.parse("2021-03-19T03:30:00Z")), is(equalTo(28_800L)));
+    }
+
+    @Test
+    public void testCrawledRecordsTheChangeRate() {
+        // Arrange
+        final var oocut = new AdaptiveSchedule(7_200, 3_600, ZoneOffset.UTC);
+        final var first = new CrawlRun("lime", new Date(0L), false);
+        oocut.crawled(List.of(vehicle("XXX-001", 51.05, 13.70), vehicle("XXX-002", 51.06, 13.70),
+                vehicle("XXX-003", 51.07, 13.70)), first);
+        final var second = new CrawlRun("lime", new Date(600_000L), false);
+
+        // Act
+        // One vehicle moved, one disappeared and one appeared within 10 minutes
+        oocut.crawled(List.of(vehicle("XXX-001", 51.05, 13.70), vehicle("XXX-002", 51.061, 13.70),
+                vehicle("XXX-004", 51.08, 13.70)), second);
+
+        // Assert
+        assertThat(first.getChangesPerMinute() == null, is(true));
+        assertThat(Math.abs(second.getChangesPerMinute() - .3) < 1E-9, is(true));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cyface.crawler.model.BoundingBox;
+
+public class CrawlCheckpointTest {
+
+    private static final BoundingBox REGION = new BoundingBox(0, 51.09, 13.71, 51.05, 13.69, (short)15);
+
+    @Test
+    public void testRestoreReplaysTheFrontier(@TempDir final Path directory) throws IOException {
+        // Arrange
+        final var oocut = new CrawlCheckpoint(directory, 1L);
+        final var crawlStarted = new Date(1_000L);
+        final var subRegions = SplitStrategy.slice(REGION, 3, 1, 2);
+        final var bikes = new JSONArray().put(new JSONObject().put("id", "1"));
+        oocut.started(crawlStarted);
+        oocut.requested(REGION, subRegions, bikes, new Date(2_000L));
+        oocut.requested(subRegions.get(0), List.of(), new JSONArray(), new Date(3_000L));
+        // A line which was not written completely when the crawler died
+        Files.writeString(directory.resolve("crawl_1.jsonl"), "{\"type\":\"requ", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        // Act
+        final var res = oocut.restore(REGION);
+
+        // Assert
+        assertThat(res.getCrawlStarted(), is(equalTo(crawlStarted)));
+        assertThat(res.getRegions(), is(equalTo(List.of(subRegions.get(1)))));
+        assertThat(res.getResponses().size(), is(equalTo(2)));
+        assertThat(res.getResponses().get(0).getVehicles().length(), is(equalTo(1)));
+        assertThat(res.getResponses().get(1).getRequestTime(), is(equalTo(new Date(3_000L))));
+    }
+
+    @Test
+    public void testResumedCrawlsAppendToTheJournal(@TempDir final Path directory) throws IOException {
+        // Arrange
+        final var subRegions = SplitStrategy.slice(REGION, 3, 1, 2);
+        final var interrupted = new CrawlCheckpoint(directory, 1L);
+        interrupted.started(new Date(1_000L));
+        interrupted.requested(REGION, subRegions, new JSONArray(), new Date(2_000L));
+        final var oocut = new CrawlCheckpoint(directory, 1L);
+        oocut.restore(REGION);
+
+        // Act
+        oocut.requested(subRegions.get(0), List.of(), new JSONArray(), new Date(3_000L));
+        oocut.close();
+
+        // Assert
+        final var res = new CrawlCheckpoint(directory, 1L).restore(REGION);
+        assertThat(res.getResponses().size(), is(equalTo(2)));
+        assertThat(res.getRegions(), is(equalTo(List.of(subRegions.get(1)))));
+    }
+
+    @Test
+    public void testResumingTwiceAfterATornLineKeepsAllEntries(@TempDir final Path directory) throws IOException {
+        // Arrange
+        final var subRegions = SplitStrategy.slice(REGION, 3, 1, 3);
+        final var interrupted = new CrawlCheckpoint(directory, 1L);
+        interrupted.started(new Date(1_000L));
+        interrupted.requested(REGION, subRegions, new JSONArray(), new Date(2_000L));
+        interrupted.close();
+        // A line which was not written completely when the crawler died
+        Files.writeString(directory.resolve("crawl_1.jsonl"), "{\"type\":\"requ", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        final var firstResume = new CrawlCheckpoint(directory, 1L);
+        firstResume.restore(REGION);
+        firstResume.requested(subRegions.get(0), List.of(), new JSONArray(), new Date(3_000L));
+        firstResume.close();
+        final var oocut = new CrawlCheckpoint(directory, 1L);
+        oocut.restore(REGION);
+
+        // Act
+        oocut.requested(subRegions.get(1), List.of(), new JSONArray(), new Date(4_000L));
+        oocut.close();
+
+        // Assert
+        final var res = new CrawlCheckpoint(directory, 1L).restore(REGION);
+        assertThat(res.getResponses().size(), is(equalTo(3)));
+        assertThat(res.getResponses().get(2).getRequestTime(), is(equalTo(new Date(4_000L))));
+        assertThat(res.getRegions(), is(equalTo(List.of(subRegions.get(2)))));
+    }
+
+    @Test
+    public void testDeleteStaleKeepsTheCurrentWindow(@TempDir final Path directory) throws IOException {
+        // Arrange
+        new CrawlCheckpoint(directory, 1L).started(new Date());
+        final var current = new CrawlCheckpoint(directory, 2L);
+        current.started(new Date());
+
+        // Act
+        CrawlCheckpoint.deleteStale(directory, 2L);
+
+        // Assert
+        assertThat(new CrawlCheckpoint(directory, 1L).exists(), is(false));
+        assertThat(current.exists(), is(true));
+    }
+}
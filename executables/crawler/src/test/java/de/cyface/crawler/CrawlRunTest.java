@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CrawlRunTest {
+
+    @Test
+    public void testBsonRoundTrip() {
+        // Arrange
+        final var oocut = new CrawlRun("lime", new Date(1_000L), true);
+        oocut.requested(15, 3, 4);
+        oocut.requested(16, 1, 7);
+        oocut.requested(17, 0, 5);
+        oocut.failed();
+        oocut.finished(CrawlRun.ERROR, 2);
+
+        // Act
+        final var res = CrawlRun.fromBson(oocut.toBson());
+
+        // Assert
+        assertThat(res.getRequests(), is(equalTo(3)));
+        assertThat(res.getNewPerRequest(), is(equalTo(List.of(3, 1, 0))));
+        assertThat(res.getVehicles(), is(equalTo(4)));
+        assertThat(res.getPersisted(), is(equalTo(2)));
+        assertThat(res.getRequestsPerVehicle(), is(equalTo(0.75)));
+        assertThat(res.getMaxZoom(), is(equalTo(17)));
+        assertThat(res.getFrontierPeak(), is(equalTo(7)));
+        assertThat(res.getErrors(), is(equalTo(1)));
+        assertThat(res.getStopReason(), is(equalTo(CrawlRun.ERROR)));
+        assertThat(res.isResumed(), is(true));
+        assertThat(res.getDurationMillis(), is(equalTo(oocut.getDurationMillis())));
+    }
+}
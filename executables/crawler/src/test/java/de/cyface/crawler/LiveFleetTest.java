@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static de.cyface.crawler.TestVehicles.vehicle;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+public class LiveFleetTest {
+
+    @Test
+    public void testWithinReturnsTheLatestCrawlOnly() {
+        // Arrange
+        final var oocut = new LiveFleet(60);
+        oocut.update(List.of(vehicle("XXX-001", 51.05, 13.70), vehicle("XXX-002", 51.20, 13.70)));
+
+        // Act
+        oocut.update(List.of(vehicle("XXX-001", 51.06, 13.71)));
+
+        // Assert
+        final var res = oocut.within(51.0, 13.6, 51.1, 13.8);
+        assertThat(res.size(), is(equalTo(1)));
+        assertThat(res.get(0).getLatitude(), is(equalTo(51.06)));
+        assertThat(oocut.within(51.1, 13.6, 51.3, 13.8).size(), is(equalTo(0)));
+        assertThat(oocut.history("XXX-001", new Date(0L)).size(), is(equalTo(2)));
+        assertThat(oocut.latest("XXX-002").getLatitude(), is(equalTo(51.20)));
+    }
+
+    @Test
+    public void testMergeKeepsTheVehiclesNotRefreshed() {
+        // Arrange
+        final var oocut = new LiveFleet(60);
+        oocut.update(List.of(vehicle("XXX-001", 51.05, 13.70), vehicle("XXX-002", 51.20, 13.70)));
+
+        // Act
+        oocut.merge(List.of(vehicle("XXX-001", 51.25, 13.71)));
+
+        // Assert
+        assertThat(oocut.within(51.0, 13.6, 51.1, 13.8).size(), is(equalTo(0)));
+        assertThat(oocut.within(51.1, 13.6, 51.3, 13.8).size(), is(equalTo(2)));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import de.cyface.crawler.model.BoundingBox;
+
+public class LocalFrontierTest {
+
+    private static final BoundingBox REGION = new BoundingBox(0, 51.09, 13.71, 51.05, 13.69, (short)15);
+    private static final BoundingBox NORTH = new BoundingBox(1, 51.09, 13.71, 51.07, 13.69, (short)16);
+    private static final BoundingBox SOUTH = new BoundingBox(2, 51.07, 13.71, 51.05, 13.69, (short)16);
+
+    @Test
+    public void testRegionsAreHandedOutUntilExhausted() {
+        // Arrange
+        final var oocut = new LocalFrontier(REGION, 10);
+
+        // Act
+        final var first = oocut.next();
+        oocut.completed(first, List.of(NORTH, SOUTH));
+
+        // Assert
+        assertThat(first, is(equalTo(REGION)));
+        assertThat(oocut.size(), is(equalTo(2)));
+        assertThat(oocut.next(), is(equalTo(NORTH)));
+        assertThat(oocut.next(), is(equalTo(SOUTH)));
+        assertThat(oocut.isExhausted(), is(true));
+        assertThat(oocut.next(), is(nullValue()));
+    }
+
+    @Test
+    public void testTheBudgetLimitsTheRequests() {
+        // Arrange
+        final var oocut = new LocalFrontier(REGION, 2);
+
+        // Act
+        final var first = oocut.acquireRequest();
+        final var second = oocut.acquireRequest();
+        final var third = oocut.acquireRequest();
+
+        // Assert
+        assertThat(first, is(true));
+        assertThat(second, is(true));
+        assertThat(third, is(false));
+    }
+
+    @Test
+    public void testResumedCrawlsContinueTheBudget() {
+        // Arrange
+        final var oocut = new LocalFrontier(List.of(NORTH, SOUTH), 2, 1);
+
+        // Act
+        final var first = oocut.acquireRequest();
+        final var second = oocut.acquireRequest();
+
+        // Assert
+        assertThat(first, is(true));
+        assertThat(second, is(false));
+        assertThat(oocut.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testReleasedRegionsAreRetriedFirst() {
+        // Arrange
+        final var oocut = new LocalFrontier(REGION, 10);
+        oocut.completed(oocut.next(), List.of(NORTH, SOUTH));
+
+        // Act
+        final var released = oocut.next();
+        oocut.release(released);
+
+        // Assert
+        assertThat(oocut.next(), is(equalTo(NORTH)));
+        assertThat(oocut.next(), is(equalTo(SOUTH)));
+    }
+
+    @Test
+    public void testReleasedRegionsAreRetriedFirstInLifoOrder() {
+        // Arrange
+        final var oocut = new LocalFrontier(REGION, 10, FrontierOrder.LIFO);
+        oocut.completed(oocut.next(), List.of(NORTH, SOUTH));
+
+        // Act
+        final var released = oocut.next();
+        oocut.release(released);
+
+        // Assert
+        assertThat(released, is(equalTo(SOUTH)));
+        assertThat(oocut.next(), is(equalTo(SOUTH)));
+        assertThat(oocut.next(), is(equalTo(NORTH)));
+    }
+
+    @Test
+    public void testReleasedRegionsAreRequeuedByPriority() {
+        // Arrange
+        final var oocut = new LocalFrontier(REGION, 10, FrontierOrder.MOST_FOUND_FIRST);
+        oocut.completed(oocut.next(), List.of(NORTH, SOUTH));
+
+        // Act
+        final var released = oocut.next();
+        oocut.release(released);
+
+        // Assert
+        assertThat(released, is(equalTo(SOUTH)));
+        assertThat(oocut.next(), is(equalTo(SOUTH)));
+        assertThat(oocut.next(), is(equalTo(NORTH)));
+    }
+
+    @Test
+    public void testVehiclesAreOnlySeenFirstOnce() {
+        // Arrange
+        final var oocut = new LocalFrontier(REGION, 10);
+        oocut.firstSeen(List.of("XXX-001,51.06,13.70"));
+
+        // Act
+        final var res = oocut.firstSeen(List.of("XXX-001,51.06,13.70", "XXX-002,51.06,13.70", "XXX-002,51.06,13.70"));
+
+        // Assert
+        assertThat(res, is(equalTo(Set.of("XXX-002,51.06,13.70"))));
+    }
+}
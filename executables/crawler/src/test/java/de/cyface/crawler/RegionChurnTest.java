@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static de.cyface.crawler.TestVehicles.vehicle;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+public class RegionChurnTest {
+
+    private static final BoundingBox SOUTH = new BoundingBox(0, 51.05, 13.80, 51.00, 13.70, (short)16);
+    private static final BoundingBox NORTH = new BoundingBox(0, 51.10, 13.80, 51.05, 13.70, (short)16);
+
+    @Test
+    public void testHottestReturnsTheLeavesWithChurn() {
+        // Arrange
+        final var oocut = new RegionChurn();
+        crawl(oocut, new Date(0L), List.of(vehicle("XXX-001", 51.02, 13.75), vehicle("XXX-002", 51.03, 13.75)),
+                List.of(vehicle("XXX-003", 51.07, 13.75), vehicle("XXX-004", 51.08, 13.75)));
+
+        // Act
+        // One vehicle disappeared and one appeared in the north within 10 minutes
+        crawl(oocut, new Date(600_000L), List.of(vehicle("XXX-001", 51.02, 13.75), vehicle("XXX-002", 51.03, 13.75)),
+                List.of(vehicle("XXX-003", 51.07, 13.75), vehicle("XXX-005", 51.09, 13.75)));
+
+        // Assert
+        final var res = oocut.hottest(10);
+        assertThat(res.size(), is(equalTo(1)));
+        assertThat(res.get(0).key(), is(equalTo(NORTH.key())));
+    }
+
+    @Test
+    public void testNoLeafIsHotAfterTheFirstCrawl() {
+        // Arrange
+        final var oocut = new RegionChurn();
+
+        // Act
+        crawl(oocut, new Date(0L), List.of(vehicle("XXX-001", 51.02, 13.75)),
+                List.of(vehicle("XXX-003", 51.07, 13.75)));
+
+        // Assert
+        assertThat(oocut.hottest(10).isEmpty(), is(true));
+    }
+
+    /**
+     * Records a full crawl which requested the southern and the northern leaf.
+     *
+     * @param oocut The object of the class under test
+     * @param requestTime The time when both leaves were requested
+     * @param south The vehicles returned for the southern leaf
+     * @param north The vehicles returned for the northern leaf
+     */
+    private static void crawl(final RegionChurn oocut, final Date requestTime, final List<LimeVehicle> south,
+            final List<LimeVehicle> north) {
+        oocut.fullCrawlStarted();
+        oocut.observed(SOUTH, south, requestTime, true, false);
+        oocut.observed(NORTH, north, requestTime, true, false);
+        oocut.fullCrawlFinished();
+    }
+}
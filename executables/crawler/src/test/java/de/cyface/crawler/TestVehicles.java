@@ -0,0 +1,77 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import java.util.Date;
+
+import org.json.JSONObject;
+
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * Creates the vehicles used by the crawler tests, in the format returned by the Lime API.
+ */
+final class TestVehicles {
+
+    /**
+     * Static methods only.
+     */
+    private TestVehicles() {
+        // Nothing to do
+    }
+
+    /**
+     * @param plateNumber The plate number of the vehicle, which ends with its "last three"
+     * @param latitude The latitude of the vehicle
+     * @param longitude The longitude of the vehicle
+     * @return A locked vehicle as returned by a crawl now
+     */
+    static LimeVehicle vehicle(final String plateNumber, final double latitude, final double longitude) {
+        return vehicle(plateNumber, latitude, longitude, 80, "locked", new Date());
+    }
+
+    /**
+     * @param plateNumber The plate number of the vehicle, which ends with its "last three"
+     * @param latitude The latitude of the vehicle
+     * @param longitude The longitude of the vehicle
+     * @param batteryPercentage percentage of the battery charge left
+     * @param status The status of the vehicle, e.g. "locked"
+     * @param requestTime When the API request was sent which returned the vehicle, also used as start of the crawl
+     * @return A vehicle as returned by a crawl
+     */
+    static LimeVehicle vehicle(final String plateNumber, final double latitude, final double longitude,
+            final int batteryPercentage, final String status, final Date requestTime) {
+        final var attributes = new JSONObject()
+                .put("generation", "4")
+                .put("swappable_battery", true)
+                .put("type_name", "scooter")
+                .put("battery_level", "high")
+                .put("last_three", plateNumber.substring(plateNumber.length() - 3))
+                .put("latitude", latitude)
+                .put("longitude", longitude)
+                .put("meter_range", 20_000)
+                .put("last_activity_at", "2021-03-18T12:00:00Z")
+                .put("plate_number", plateNumber)
+                .put("battery_percentage", batteryPercentage)
+                .put("brand", "lime")
+                .put("status", status);
+        final var bike = new JSONObject().put("id", plateNumber).put("type", "bikes").put("attributes", attributes);
+        return new LimeVehicle(bike, requestTime, requestTime);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+public class TierProviderTest {
+
+    @Test
+    public void testVehiclesAreDecodedIntoTheSharedRecord() {
+        // Arrange
+        final var oocut = new TierProvider();
+        oocut.configure(Map.of(TierProvider.API_KEY, "MOCK_KEY"));
+        final var attributes = new JSONObject()
+                .put("lastStateChange", "2021-03-01T09:00:00Z")
+                .put("code", 123)
+                .put("lat", 51.05)
+                .put("lng", 13.73)
+                .put("isRentable", true)
+                .put("licencePlate", "123ABC")
+                .put("hasHelmetBox", false)
+                .put("maxSpeed", 20)
+                .put("hasHelmet", false)
+                .put("zoneId", "DRESDEN")
+                .put("state", "ACTIVE")
+                .put("iotVendor", "okai")
+                .put("vehicleType", "escooter")
+                .put("lastLocationUpdate", "2021-03-01T10:00:00Z")
+                .put("batteryLevel", 87);
+        final var vehicle = new JSONObject().put("id", "1").put("type", "vehicle").put("attributes", attributes);
+        final var body = new JSONObject().put("data", new JSONArray().put(vehicle)).toString();
+        final var requestTime = new Date(2_000L);
+
+        // Act
+        final var vehicles = oocut.vehicles(body, oocut.area());
+        final var res = oocut.vehicle(vehicles.getJSONObject(0), requestTime, new Date(1_000L));
+
+        // Assert
+        assertThat(vehicles.length(), is(equalTo(1)));
+        assertThat(res.getPlateNumber(), is(equalTo("123ABC")));
+        assertThat(res.getLastThree(), is(equalTo("ABC")));
+        assertThat(res.getBatteryPercentage(), is(equalTo(87)));
+        assertThat(res.getBrand(), is(equalTo("tier")));
+        assertThat(res.getLastActivityAt(), is(equalTo(Date.from(Instant.parse("2021-03-01T10:00:00Z")))));
+        assertThat(res.getRequestTime(), is(equalTo(requestTime)));
+        assertThat(oocut.refine(oocut.area(), 1, List.of(res)).isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static de.cyface.crawler.TestVehicles.vehicle;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.number.IsCloseTo.closeTo;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class VehicleStateCacheTest {
+
+    /**
+     * The latitude difference of roughly 11 meters.
+     */
+    private static final double ELEVEN_METERS = 0.0001;
+
+    @Test
+    public void testNewVehiclesArePersisted() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        final var vehicle = vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L));
+
+        // Act
+        final var res = oocut.changed(List.of(vehicle));
+
+        // Assert
+        assertThat(res, is(equalTo(Set.of(vehicle))));
+    }
+
+    @Test
+    public void testUnchangedVehiclesAreSkipped() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        oocut.persisted(List.of(vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L))));
+
+        // Act
+        final var res = oocut.changed(List.of(vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(60_000L))));
+
+        // Assert
+        assertThat(res.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testDistanceThreshold() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        oocut.persisted(List.of(vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L)),
+                vehicle("XXX-002", 51.05, 13.70, 80, "locked", new Date(0L))));
+        final var moved = vehicle("XXX-002", 51.05 + 2 * ELEVEN_METERS, 13.70, 80, "locked", new Date(60_000L));
+
+        // Act
+        final var res = oocut.changed(List.of(
+                vehicle("XXX-001", 51.05 + ELEVEN_METERS, 13.70, 80, "locked", new Date(60_000L)), moved));
+
+        // Assert
+        assertThat(res, is(equalTo(Set.of(moved))));
+    }
+
+    @Test
+    public void testBatteryThreshold() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        oocut.persisted(List.of(vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L)),
+                vehicle("XXX-002", 51.05, 13.70, 80, "locked", new Date(0L))));
+        final var charged = vehicle("XXX-002", 51.05, 13.70, 90, "locked", new Date(60_000L));
+
+        // Act
+        final var res = oocut.changed(List.of(vehicle("XXX-001", 51.05, 13.70, 71, "locked", new Date(60_000L)),
+                charged));
+
+        // Assert
+        assertThat(res, is(equalTo(Set.of(charged))));
+    }
+
+    @Test
+    public void testStatusChangesArePersisted() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        oocut.persisted(List.of(vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L))));
+        final var unlocked = vehicle("XXX-001", 51.05, 13.70, 80, "unlocked", new Date(60_000L));
+
+        // Act
+        final var res = oocut.changed(List.of(unlocked));
+
+        // Assert
+        assertThat(res, is(equalTo(Set.of(unlocked))));
+    }
+
+    @Test
+    public void testHeartbeat() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        oocut.persisted(List.of(vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L))));
+        final var beforeHeartbeat = vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(60 * 60_000L - 1L));
+        final var atHeartbeat = vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(60 * 60_000L));
+
+        // Act
+        final var before = oocut.changed(List.of(beforeHeartbeat));
+        final var at = oocut.changed(List.of(atHeartbeat));
+
+        // Assert
+        assertThat(before.size(), is(equalTo(0)));
+        assertThat(at, is(equalTo(Set.of(atHeartbeat))));
+    }
+
+    @Test
+    public void testDuplicateLastThreeAreAlwaysPersisted() {
+        // Arrange
+        final var oocut = new VehicleStateCache(20.0, 10, 60);
+        final var first = vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(0L));
+        final var second = vehicle("YYY-001", 51.06, 13.70, 80, "locked", new Date(0L));
+        oocut.persisted(List.of(first, second));
+        final var firstAgain = vehicle("XXX-001", 51.05, 13.70, 80, "locked", new Date(60_000L));
+        final var secondAgain = vehicle("YYY-001", 51.06, 13.70, 80, "locked", new Date(60_000L));
+
+        // Act
+        final var duplicates = oocut.changed(List.of(firstAgain, secondAgain));
+        final var single = oocut.changed(List.of(firstAgain));
+
+        // Assert
+        assertThat(duplicates, is(equalTo(Set.of(firstAgain, secondAgain))));
+        // No state is remembered for a "last three" seen multiple times
+        assertThat(single, is(equalTo(Set.of(firstAgain))));
+    }
+
+    @Test
+    public void testDistanceMeters() {
+        // Arrange
+
+        // Act
+        final var res = VehicleStateCache.distanceMeters(51.05, 13.70, 51.05 + ELEVEN_METERS, 13.70);
+
+        // Assert
+        assertThat(res, is(closeTo(11.1, 0.1)));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler;
+
+import static de.cyface.crawler.TestVehicles.vehicle;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cyface.crawler.model.LimeVehicle;
+
+public class WriteSpoolTest {
+
+    @Test
+    public void testAppendedSegmentsAreReadBack(@TempDir final Path directory) throws IOException {
+        appendAndRead(directory, false);
+    }
+
+    @Test
+    public void testMemoryMappedSegmentsAreReadBack(@TempDir final Path directory) throws IOException {
+        appendAndRead(directory, true);
+    }
+
+    /**
+     * @param directory The directory to write the spool to
+     * @param memoryMapped {@code true} to access the spool via memory-mapped files
+     * @throws IOException If the spool could not be written or read
+     */
+    private static void appendAndRead(final Path directory, final boolean memoryMapped) throws IOException {
+        // Arrange
+        final var mongoConnection = new MongoConnection("localhost", 27017, "test", "user", "password");
+        final var oocut = new WriteSpool(directory, mongoConnection, memoryMapped);
+        final var first = vehicles(3);
+        final var second = vehicles(1);
+
+        // Act
+        oocut.append(first, "lime_records");
+        oocut.append(second, "lime_records");
+
+        // Assert
+        final var segments = oocut.segments();
+        assertThat(segments.size(), is(equalTo(2)));
+        final var res = oocut.read(segments.get(0));
+        assertThat(res, is(equalTo(first)));
+        assertThat(res.get(2).getRequestTime(), is(equalTo(first.get(2).getRequestTime())));
+        assertThat(oocut.read(segments.get(1)), is(equalTo(second)));
+    }
+
+    /**
+     * @param count The number of vehicles to create
+     * @return Vehicles with distinct plates
+     */
+    private static List<LimeVehicle> vehicles(final int count) {
+        final var ret = new ArrayList<LimeVehicle>();
+        for (int i = 0; i < count; i++) {
+            ret.add(vehicle(String.format("XXX-%03d", i), 51.05 + i * 0.001, 13.70, 80, "locked",
+                    new Date(1_000L + i)));
+        }
+        return ret;
+    }
+}
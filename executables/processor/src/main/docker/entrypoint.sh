@@ -18,6 +18,18 @@
 #
 # Version 1.0.0
 
+SHARD_PARAMETER=""
+if [[ -n $SHARDS ]]; then
+	echo "'Shards' parameter provided, processing shard ${SHARD:-0} of $SHARDS"
+	SHARD_PARAMETER=" -sh ${SHARD:-0} -shs $SHARDS "
+fi
+
+LOCAL_SORT_PARAMETER=""
+if [[ -n $LOCAL_SORT ]]; then
+	echo "'Local sort' parameter provided, sorting the records locally in runs of ${SORT_RUN_SIZE:-500000}"
+	LOCAL_SORT_PARAMETER=" -ls -sr ${SORT_RUN_SIZE:-500000} "
+fi
+
 echo "Running Processor"
 
 echo "Waiting for Databases to start!"
@@ -64,4 +76,4 @@ fi
 
 # PROCESSOR
 echo "Starting Processor"
-java -jar processor-all.jar &> /logs/processor-out.log
+java -jar processor-all.jar $SHARD_PARAMETER $LOCAL_SORT_PARAMETER &> /logs/processor-out.log
@@ -19,9 +19,7 @@
 package de.cyface.crawler.processor;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -32,9 +30,15 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.cyface.crawler.export.Column;
+import de.cyface.crawler.export.ColumnType;
+import de.cyface.crawler.export.ExportFormat;
+import de.cyface.crawler.export.ExportSchema;
+
 /**
  * This application processes the data collected by the crawler and extracts source-destination-relations.
  * <p>
@@ -68,8 +72,41 @@ public class Application {
     static final String POSTGRES_USER_LONG_OPTION = "postgres-user";
     static final String POSTGRES_PASSWORD_SHORT_OPTION = "pp";
     static final String POSTGRES_PASSWORD_LONG_OPTION = "postgres-password";
+    static final String POSTGRES_BATCH_SIZE_SHORT_OPTION = "pb";
+    static final String POSTGRES_BATCH_SIZE_LONG_OPTION = "postgres-batch-size";
+    static final String POSTGRES_PARALLELISM_SHORT_OPTION = "pl";
+    static final String POSTGRES_PARALLELISM_LONG_OPTION = "postgres-parallelism";
+    static final String REPLACE_SHORT_OPTION = "rp";
+    static final String REPLACE_LONG_OPTION = "replace";
     static final String DEBUG_MODE_SHORT_OPTION = "dm";
     static final String DEBUG_MODE_LONG_OPTION = "debug-mode";
+    static final String EXPORT_FORMAT_SHORT_OPTION = "ef";
+    static final String EXPORT_FORMAT_LONG_OPTION = "export-format";
+    static final String SHARD_SHORT_OPTION = "sh";
+    static final String SHARD_LONG_OPTION = "shard";
+    static final String SHARDS_SHORT_OPTION = "shs";
+    static final String SHARDS_LONG_OPTION = "shards";
+    static final String ZONES_FILE_SHORT_OPTION = "zf";
+    static final String ZONES_FILE_LONG_OPTION = "zones-file";
+    static final String ZONES_ONLY_SHORT_OPTION = "zo";
+    static final String ZONES_ONLY_LONG_OPTION = "zones-only";
+    static final String LOCAL_SORT_SHORT_OPTION = "ls";
+    static final String LOCAL_SORT_LONG_OPTION = "local-sort";
+    static final String SORT_RUN_SIZE_SHORT_OPTION = "sr";
+    static final String SORT_RUN_SIZE_LONG_OPTION = "sort-run-size";
+    /**
+     * The number of records sorted in memory per thread by default when sorting locally, about 100 MB.
+     */
+    private static final int DEFAULT_SORT_RUN_SIZE = 500_000;
+    /**
+     * The columns of the debug dump of the relations found.
+     */
+    private static final ExportSchema RESULTS = new ExportSchema("results",
+            new Column("sourceLat", ColumnType.DOUBLE), new Column("sourceLon", ColumnType.DOUBLE),
+            new Column("destinationLat", ColumnType.DOUBLE), new Column("destinationLon", ColumnType.DOUBLE),
+            new Column("lastActivity", ColumnType.TIMESTAMP), new Column("sourceRequest", ColumnType.TIMESTAMP),
+            new Column("destinationRequest", ColumnType.TIMESTAMP), new Column("sourceZone", ColumnType.STRING),
+            new Column("destinationZone", ColumnType.STRING));
     /**
      * Database to persist crawled data into.
      */
@@ -90,13 +127,18 @@ public class Application {
      * @param postgresUrl The postgres URL to write extracted relations into
      * @param postgresUser The username to authenticate to the postgres db
      * @param postgresPassword The password to authenticate to the postgres db
+     * @param postgresBatchSize The number of relations inserted per round trip
+     * @param postgresParallelism The number of partitions of the relations loaded concurrently
+     * @param localSort {@code null} to let the mongo db sort the records or else the sort to apply on this host
      */
     public Application(final String mongoHost, final String mongoPort, final String mongoDatabase,
             final String mongoUser, final String mongoPassword, final String postgresUrl, final String postgresUser,
-            final String postgresPassword) {
+            final String postgresPassword, final int postgresBatchSize, final int postgresParallelism,
+            final ExternalRecordSort localSort) {
         this.dataSource = new MongoConnection(mongoHost, Integer.parseInt(mongoPort), mongoDatabase, mongoUser,
-                mongoPassword);
-        this.dataLake = new PostgresConnection(postgresUrl, postgresUser, postgresPassword);
+                mongoPassword, localSort);
+        this.dataLake = new PostgresConnection(postgresUrl, postgresUser, postgresPassword, postgresBatchSize,
+                postgresParallelism);
     }
 
     /**
@@ -121,12 +163,33 @@ public class Application {
             final var postgresTable = commandLine.getOptionValue(POSTGRES_TABLE_SHORT_OPTION, "source_destination");
             final var postgresUser = commandLine.getOptionValue(POSTGRES_USER_SHORT_OPTION, "postgres");
             final var postgresPassword = commandLine.getOptionValue(POSTGRES_PASSWORD_SHORT_OPTION, "postgres");
-            final var debugMode = commandLine.hasOption(DEBUG_MODE_SHORT_OPTION);
+            final var postgresBatchSize = Integer.parseInt(commandLine.getOptionValue(
+                    POSTGRES_BATCH_SIZE_SHORT_OPTION, String.valueOf(PostgresConnection.DEFAULT_BATCH_SIZE)));
+            final var postgresParallelism = Integer.parseInt(commandLine.getOptionValue(
+                    POSTGRES_PARALLELISM_SHORT_OPTION, String.valueOf(PostgresConnection.DEFAULT_PARALLELISM)));
+            final var debugExport = commandLine.hasOption(DEBUG_MODE_SHORT_OPTION)
+                    ? ExportFormat.of(commandLine.getOptionValue(EXPORT_FORMAT_SHORT_OPTION, ExportFormat.CSV.name()))
+                    : null;
+            final var shard = new Shard(Integer.parseInt(commandLine.getOptionValue(SHARD_SHORT_OPTION, "0")),
+                    Integer.parseInt(commandLine.getOptionValue(SHARDS_SHORT_OPTION, "1")));
+            final var zonesFile = commandLine.getOptionValue(ZONES_FILE_SHORT_OPTION, null);
+            final var zones = zonesFile != null ? ZoneIndex.load(Paths.get(zonesFile)) : null;
+            final var zonesOnly = commandLine.hasOption(ZONES_ONLY_SHORT_OPTION);
+            final var replace = commandLine.hasOption(REPLACE_SHORT_OPTION);
+            Validate.isTrue(!replace || shard.isAll(),
+                    "Replacing the table would drop the relations of the other shards");
+            final var localSort = commandLine.hasOption(LOCAL_SORT_SHORT_OPTION)
+                    ? new ExternalRecordSort(Paths.get(System.getProperty("java.io.tmpdir")),
+                            Integer.parseInt(commandLine.getOptionValue(SORT_RUN_SIZE_SHORT_OPTION,
+                                    String.valueOf(DEFAULT_SORT_RUN_SIZE))),
+                            Runtime.getRuntime().availableProcessors())
+                    : null;
 
             // Execution
             final var application = new Application(mongoHost, mongoPort, mongoDatabase, mongoUser,
-                    mongoPassword, postgresUrl, postgresUser, postgresPassword);
-            application.run(mongoCollection, postgresTable, debugMode);
+                    mongoPassword, postgresUrl, postgresUser, postgresPassword, postgresBatchSize, postgresParallelism,
+                    localSort);
+            application.run(mongoCollection, postgresTable, debugExport, shard, zones, zonesOnly, replace);
 
         } catch (ParseException e) {
             final var header = String.format("Processing Input Preparation%n%n\tError: %s%n%n",
@@ -136,6 +199,8 @@ public class Application {
             formatter.printHelp("processing", header, options(), footer, true);
             LOGGER.error("Error: \n", e);
             throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load the zones", e);
         }
     }
 
@@ -144,20 +209,29 @@ public class Application {
      * 
      * @param mongoCollection name of the collection to load the raw data from
      * @param postgresTable name of the table to write the processing result to
-     * @param debugMode {@code true} to log processing results into CSV files
+     * @param debugExport {@code null} or the format to log processing results in for debugging
+     * @param shard The vehicles to process, {@link Shard#ALL} to process all vehicles. The relations of each shard
+     *            are written independently, so multiple instances can process the shards of one collection in
+     *            parallel.
+     * @param zones {@code null} or the zones, e.g. service areas or districts, to assign the relations to
+     * @param zonesOnly {@code true} to drop relations which neither start nor end in one of the {@code zones}
+     * @param replace {@code true} to replace the relations in the table instead of appending to them
      */
-    public void run(final String mongoCollection, final String postgresTable, final boolean debugMode) {
-        final var res = new Processor(dataSource).run(mongoCollection);
+    public void run(final String mongoCollection, final String postgresTable, final ExportFormat debugExport,
+            final Shard shard, final ZoneIndex zones, final boolean zonesOnly, final boolean replace) {
+        final var res = new Processor(dataSource, zones, zonesOnly).run(mongoCollection, shard);
         final var relations = new ArrayList<SourceDestinationRelation>();
         res.values().forEach(relations::addAll);
 
         try {
-            if (debugMode) {
-                dumpToFile(relations);
+            if (debugExport != null) {
+                dumpToFile(relations, debugExport);
             }
 
             // Write into result DB
-            dataLake.write(relations, postgresTable);
+            final var persist = new ProcessorStageEvent("persist", relations.size());
+            dataLake.write(relations, postgresTable, replace);
+            persist.end(relations.size());
         } catch (SQLException | IOException e) {
             throw new IllegalStateException(e);
         }
@@ -167,25 +241,20 @@ public class Application {
      * Writes the current state of the processor into a file for debugging.
      *
      * @param relations The relations found so far.
+     * @param format The format of the file.
      * @throws IOException If the file could not be written to.
      */
-    private void dumpToFile(final ArrayList<SourceDestinationRelation> relations) throws IOException {
+    private void dumpToFile(final ArrayList<SourceDestinationRelation> relations, final ExportFormat format)
+            throws IOException {
         // Dump into file for fast debugging
-        final var requestsFile = Paths.get(new Date().getTime() + "_results.csv");
-        Files.writeString(requestsFile,
-                "sourceLat, sourceLon, destinationLat, destinationLon, lastActivity, sourceRequest, destinationRequest\n",
-                StandardOpenOption.CREATE);
-        relations.forEach(r -> {
-            final var builder = r.source.getLatitude() + "," + r.source.getLongitude() + ","
-                    + r.destination.getLatitude() + "," + r.destination.getLongitude() + ","
-                    + r.destination.getLastActivityAt() + "," + r.source.getRequestTime()
-                    + "," + r.destination.getRequestTime() + "\n";
-            try {
-                Files.writeString(requestsFile, builder, StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
+        final var resultsFile = format.file(Paths.get(""), new Date().getTime() + "_results");
+        try (var results = format.open(resultsFile, RESULTS)) {
+            for (final var r : relations) {
+                results.write(r.source.getLatitude(), r.source.getLongitude(), r.destination.getLatitude(),
+                        r.destination.getLongitude(), r.destination.getLastActivityAt(), r.source.getRequestTime(),
+                        r.destination.getRequestTime(), r.sourceZone, r.destinationZone);
             }
-        });
+        }
     }
 
     /**
@@ -213,8 +282,31 @@ public class Application {
                 "Please provide a Postgres Database username.");
         ret.addOption(POSTGRES_PASSWORD_SHORT_OPTION, POSTGRES_PASSWORD_LONG_OPTION, true,
                 "Please provide a Postgres Database password.");
+        ret.addOption(POSTGRES_BATCH_SIZE_SHORT_OPTION, POSTGRES_BATCH_SIZE_LONG_OPTION, true,
+                "Please provide the number of relations inserted per round trip.");
+        ret.addOption(POSTGRES_PARALLELISM_SHORT_OPTION, POSTGRES_PARALLELISM_LONG_OPTION, true,
+                "Please provide the number of connections the relations are loaded over concurrently.");
+        ret.addOption(REPLACE_SHORT_OPTION, REPLACE_LONG_OPTION, false,
+                "Set this flag to replace the relations in the table with the results of this run.");
         ret.addOption(DEBUG_MODE_SHORT_OPTION, DEBUG_MODE_LONG_OPTION, false,
-                "Set this flag to log processing results into CSV files.");
+                "Set this flag to log processing results into files.");
+        ret.addOption(EXPORT_FORMAT_SHORT_OPTION, EXPORT_FORMAT_LONG_OPTION, true,
+                "Please provide the format of the debug files, `csv` (default) or `parquet`.");
+        ret.addOption(SHARD_SHORT_OPTION, SHARD_LONG_OPTION, true,
+                "Please provide the shard to process, from 0 to the number of shards - 1.");
+        ret.addOption(SHARDS_SHORT_OPTION, SHARDS_LONG_OPTION, true,
+                "Please provide the number of shards the vehicles are split into, to process them on multiple "
+                        + "instances.");
+        ret.addOption(ZONES_FILE_SHORT_OPTION, ZONES_FILE_LONG_OPTION, true,
+                "Please provide a GeoJSON file with the zones, e.g. service areas or districts, to assign the "
+                        + "relations to.");
+        ret.addOption(ZONES_ONLY_SHORT_OPTION, ZONES_ONLY_LONG_OPTION, false,
+                "Set this flag to drop relations which neither start nor end in one of the zones.");
+        ret.addOption(LOCAL_SORT_SHORT_OPTION, LOCAL_SORT_LONG_OPTION, false,
+                "Set this flag to read the records unsorted and sort them on this host instead of the database.");
+        ret.addOption(SORT_RUN_SIZE_SHORT_OPTION, SORT_RUN_SIZE_LONG_OPTION, true,
+                "Please provide the number of records sorted in memory per thread before they are spilled to the "
+                        + "temporary directory, when sorting locally.");
         return ret;
     }
 
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.Validate;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.model.Record;
+
+/**
+ * Sorts the records of a collection on the processor host instead of the database server.
+ * <p>
+ * The records are read in natural order and collected into runs of {@link #runSize} records. Each full run is sorted
+ * and spilled to a temporary file by a thread pool while the next run is read, so that at most one run per thread
+ * plus the run being read are in memory. The spilled runs are then merged and the records of each vehicle, ordered
+ * by the time of the request which returned them, are passed on one vehicle at a time. Only the records of the
+ * current vehicle are kept while merging. If all records fit into a single run, no file is written.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class ExternalRecordSort {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalRecordSort.class);
+    /**
+     * The order the processor expects the records in: by vehicle, then by the time of the request.
+     */
+    static final Comparator<Record> ORDER = Comparator.comparing(Record::getLastThree)
+            .thenComparing(Record::getRequestTime);
+    /**
+     * The number of bytes buffered when a run is written or read.
+     */
+    private static final int BUFFER_BYTES = 1 << 16;
+    /**
+     * The directory to spill the sorted runs to.
+     */
+    private final Path directory;
+    /**
+     * The maximal number of records sorted in memory at once.
+     */
+    private final int runSize;
+    /**
+     * The number of runs sorted and spilled in parallel.
+     */
+    private final int threads;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param directory The directory to spill the sorted runs to
+     * @param runSize The maximal number of records sorted in memory at once
+     * @param threads The number of runs sorted and spilled in parallel
+     */
+    public ExternalRecordSort(final Path directory, final int runSize, final int threads) {
+        Validate.notNull(directory);
+        Validate.isTrue(runSize > 0);
+        Validate.isTrue(threads > 0);
+
+        this.directory = directory;
+        this.runSize = runSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Sorts and groups records by vehicle.
+     *
+     * @param records The records in any order
+     * @param vehicles Receives the records of each vehicle, ordered by request time, one vehicle at a time
+     * @return The number of records read
+     * @throws IOException If a run could not be spilled or read
+     */
+    public long group(final Iterable<Record> records, final Consumer<List<Record>> vehicles) throws IOException {
+
+        final var executor = Executors.newFixedThreadPool(threads);
+        final var files = new ArrayList<Path>();
+        try {
+            final var runs = new ArrayList<Future<?>>();
+            var run = new ArrayList<Record>(runSize);
+            for (final var record : records) {
+                run.add(record);
+                if (run.size() == runSize) {
+                    // Wait for the oldest run in flight to limit the records kept in memory
+                    if (runs.size() >= threads) {
+                        await(runs.get(runs.size() - threads));
+                    }
+                    files.add(Files.createTempFile(directory, "records_", ".run"));
+                    runs.add(spill(executor, run, files.get(files.size() - 1)));
+                    run = new ArrayList<>(runSize);
+                }
+            }
+            if (runs.isEmpty()) {
+                run.sort(ORDER);
+                return forEachVehicle(run, vehicles);
+            }
+            if (!run.isEmpty()) {
+                files.add(Files.createTempFile(directory, "records_", ".run"));
+                runs.add(spill(executor, run, files.get(files.size() - 1)));
+            }
+            // Releases the last run while merging
+            run = null;
+
+            for (final var spilled : runs) {
+                await(spilled);
+            }
+            LOGGER.info(String.format("Merging %d sorted runs of up to %d records.", files.size(), runSize));
+            return merge(files, vehicles);
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (final var file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Passes sorted records on one vehicle at a time.
+     *
+     * @param sorted Records in {@link #ORDER}
+     * @param vehicles Receives the records of each vehicle, ordered by request time
+     * @return The number of records read
+     */
+    static long forEachVehicle(final Iterable<Record> sorted, final Consumer<List<Record>> vehicles) {
+        var count = 0L;
+        var vehicle = new ArrayList<Record>();
+        for (final var record : sorted) {
+            if (!vehicle.isEmpty() && !record.getLastThree().equals(vehicle.get(0).getLastThree())) {
+                vehicles.accept(vehicle);
+                vehicle = new ArrayList<>();
+            }
+            vehicle.add(record);
+            count++;
+        }
+        if (!vehicle.isEmpty()) {
+            vehicles.accept(vehicle);
+        }
+        return count;
+    }
+
+    /**
+     * Sorts a run and writes it to a temporary file on the thread pool.
+     *
+     * @param executor The thread pool to sort and write the run on
+     * @param run The records of the run, in any order
+     * @param file The file to write the sorted run to
+     * @return Completes when the run is written
+     */
+    private Future<?> spill(final ExecutorService executor, final List<Record> run, final Path file) {
+        return executor.submit(() -> {
+            run.sort(ORDER);
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                    BUFFER_BYTES))) {
+                out.writeInt(run.size());
+                for (final var record : run) {
+                    write(out, record);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Merges sorted runs and passes the records on one vehicle at a time.
+     *
+     * @param files The sorted runs
+     * @param vehicles Receives the records of each vehicle, ordered by request time
+     * @return The number of records read
+     * @throws IOException If a run could not be read
+     */
+    private long merge(final List<Path> files, final Consumer<List<Record>> vehicles) throws IOException {
+        final var readers = new ArrayList<RunReader>(files.size());
+        try {
+            final var heads = new PriorityQueue<RunReader>(files.size(),
+                    Comparator.comparing(RunReader::head, ORDER));
+            for (final var file : files) {
+                final var reader = new RunReader(file);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+
+            final var merged = new Iterator<Record>() {
+                @Override
+                public boolean hasNext() {
+                    return !heads.isEmpty();
+                }
+
+                @Override
+                public Record next() {
+                    if (heads.isEmpty()) {
+                        throw new NoSuchElementException();
+                    }
+                    final var reader = heads.poll();
+                    final var record = reader.head();
+                    if (reader.advance()) {
+                        heads.add(reader);
+                    }
+                    return record;
+                }
+            };
+            return forEachVehicle(() -> merged, vehicles);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (final var reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Waits for a run to be sorted and spilled.
+     *
+     * @param run The run to wait for
+     * @throws IOException If the run could not be written
+     */
+    private static void await(final Future<?> run) throws IOException {
+        try {
+            run.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param out The stream to write the record to
+     * @param record The record to write
+     * @throws IOException If the record could not be written
+     */
+    static void write(final DataOutputStream out, final Record record) throws IOException {
+        writeString(out, record.getId() == null ? null : record.getId().toHexString());
+        writeString(out, record.getLastThree());
+        out.writeDouble(record.getLatitude());
+        out.writeDouble(record.getLongitude());
+        writeDate(out, record.getLastActivityAt());
+        writeDate(out, record.getRequestTime());
+        out.writeInt(record.getMeterRange());
+        writeDate(out, record.getCrawlingStarted());
+        out.writeInt(record.getBatteryPercentage());
+        writeString(out, record.getPlateNumber());
+    }
+
+    /**
+     * @param in A stream positioned at a record written by {@link #write(DataOutputStream, Record)}
+     * @return The record
+     * @throws IOException If the record could not be read
+     */
+    static Record read(final DataInputStream in) throws IOException {
+        final var id = readString(in);
+        final var lastThree = readString(in);
+        final var latitude = in.readDouble();
+        final var longitude = in.readDouble();
+        final var lastActivityAt = readDate(in);
+        final var requestTime = readDate(in);
+        final var meterRange = in.readInt();
+        final var crawlingStarted = readDate(in);
+        final var batteryPercentage = in.readInt();
+        final var plateNumber = readString(in);
+        return new Record(id == null ? null : new ObjectId(id), lastThree, latitude, longitude, lastActivityAt,
+                requestTime, meterRange, crawlingStarted, batteryPercentage, plateNumber);
+    }
+
+    /**
+     * @param out The stream to write to
+     * @param value The value to write, may be {@code null}
+     * @throws IOException If the value could not be written
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * @param in The stream to read from
+     * @return The value written by {@link #writeString(DataOutputStream, String)}
+     * @throws IOException If the value could not be read
+     */
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * @param out The stream to write to
+     * @param value The value to write, may be {@code null}
+     * @throws IOException If the value could not be written
+     */
+    private static void writeDate(final DataOutputStream out, final Date value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getTime());
+        }
+    }
+
+    /**
+     * @param in The stream to read from
+     * @return The value written by {@link #writeDate(DataOutputStream, Date)}
+     * @throws IOException If the value could not be read
+     */
+    private static Date readDate(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+
+    /**
+     * Reads a sorted run one record at a time.
+     */
+    private static final class RunReader {
+
+        /**
+         * The stream to read the run from.
+         */
+        private final DataInputStream in;
+        /**
+         * The number of records not read yet.
+         */
+        private int remaining;
+        /**
+         * The record read last.
+         */
+        private Record head;
+
+        /**
+         * @param file The file the run was written to
+         * @throws IOException If the file could not be opened
+         */
+        private RunReader(final Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES));
+            this.remaining = in.readInt();
+        }
+
+        /**
+         * @return The record read last.
+         */
+        private Record head() {
+            return head;
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return {@code false} if the run is exhausted
+         */
+        private boolean advance() {
+            if (remaining == 0) {
+                head = null;
+                return false;
+            }
+            try {
+                head = read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            remaining--;
+            return true;
+        }
+
+        /**
+         * Closes the file.
+         *
+         * @throws IOException If the file could not be closed
+         */
+        private void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -18,19 +18,28 @@
  */
 package de.cyface.crawler.processor;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.Validate;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.ConnectionString;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.Filters;
 
 import de.cyface.crawler.model.Record;
+import de.cyface.crawler.model.RecordCodec;
+import de.cyface.crawler.model.RecordSchema;
 
 /**
  * A data lake to write records to and read from.
@@ -39,6 +48,16 @@ import de.cyface.crawler.model.Record;
  */
 public final class MongoConnection {
 
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoConnection.class);
+    /**
+     * The number of records requested from the database and decoded at once.
+     * <p>
+     * Large enough for few round trips, small enough to keep all decoding threads busy on small shards.
+     */
+    private static final int READ_BATCH_SIZE = 4_096;
     /**
      * The MongoDB database to use.
      */
@@ -63,6 +82,11 @@ public final class MongoConnection {
      * The password of the user to authenticate at the database.
      */
     private final String password;
+    /**
+     * {@code null} to let the database sort the records or else the sort to apply to the records read in natural
+     * order.
+     */
+    private final ExternalRecordSort localSort;
 
     /**
      * Creates a new completely initialized database source for one Mongo database instance.
@@ -75,6 +99,22 @@ public final class MongoConnection {
      */
     public MongoConnection(final String host, final int port, final String databaseName, final String username,
             final String password) {
+        this(host, port, databaseName, username, password, null);
+    }
+
+    /**
+     * Creates a new completely initialized database source for one Mongo database instance.
+     *
+     * @param host The host name used to access the Mongo database
+     * @param port The port at which the Mongo database is reachable at
+     * @param databaseName The mongoDB database to write to
+     * @param username The name of the user to authenticate at the database
+     * @param password The password of the user to authenticate at the database
+     * @param localSort {@code null} to let the database sort the records or else the sort to apply to the records
+     *            read in natural order, which moves the sort from the database server to the processor host
+     */
+    public MongoConnection(final String host, final int port, final String databaseName, final String username,
+            final String password, final ExternalRecordSort localSort) {
         Validate.notNull(host);
         Validate.notNull(databaseName);
         Validate.notNull(username);
@@ -85,43 +125,82 @@ public final class MongoConnection {
         this.databaseName = databaseName;
         this.username = username;
         this.password = password;
+        this.localSort = localSort;
     }
 
     /**
      * Loads the location {@link Record}s from the database.
      *
      * @param collectionName The collection name of the database to load the data from
-     * @return A {@link Map} which contains the "last three" of the plate number identifying a vehicle as key and the
-     *         records of that vehicle as value
+     * @param shard The vehicles to load, {@link Shard#ALL} to load all vehicles
+     * @param vehicles Receives the records of each vehicle identified by the "last three" of its plate number,
+     *            ordered by request time, one vehicle at a time
+     * @return The number of records loaded
      */
-    public Map<String, List<Record>> records(final String collectionName) {
+    public long records(final String collectionName, final Shard shard, final Consumer<List<Record>> vehicles) {
 
         final String connectionString = String.format("mongodb://%s:%s@%s:%s", username, password, host, port);
         try {
             client = MongoClients.create(new ConnectionString(connectionString));
             final var db = client.getDatabase(databaseName);
-            final var collection = db.getCollection(collectionName);
+            // The raw documents are decoded into records by the pipeline, for both plain and time-series collections
+            final var collection = db.getCollection(collectionName, RawBsonDocument.class);
 
-            final var sort = new BasicDBObject("last_three", 1).append("request_time", 1);
-            // Allowing disk use or else sorting a large data set (e.g. 500k records) throws the error:
-            // 'Sort exceeded memory limit of 104857600 bytes, but did not opt in to external sorting.'
-            final var res = collection.find().sort(sort).allowDiskUse(true);
+            // The crawler writes to time-series collections with the fields identifying a vehicle in `meta`
+            final var info = db.listCollections().filter(new Document("name", collectionName)).first();
+            final var timeSeries = info != null && "timeseries".equals(info.getString("type"));
+            final var lastThree = RecordSchema.identity(RecordSchema.LAST_THREE, timeSeries);
+            final var find = shard.isAll() ? collection.find()
+                    : collection.find(Filters.in(lastThree, shardPlates(collection, lastThree, shard)));
+            if (localSort != null) {
+                // Reading in natural order does not load the database server with sorting the collection
+                try (var records = pipeline(find)) {
+                    return localSort.group(records, vehicles);
+                }
+            }
+            final var sort = new BasicDBObject(lastThree, 1).append(RecordSchema.REQUEST_TIME, 1);
+            // The sort and the shard filter are supported by an index created by the crawler. Allowing disk use for
+            // collections written by older crawlers without that index or else sorting a large data set (e.g. 500k
+            // records) throws the error: 'Sort exceeded memory limit of 104857600 bytes, but did not opt in to
+            // external sorting.'
+            final var res = find.sort(sort).allowDiskUse(true);
 
-            final var ret = new HashMap<String, List<Record>>();
-            res.forEach(d -> {
-                final var lastThree = d.getString("last_three");
-                final var list = ret.containsKey(lastThree) ? ret.get(lastThree) : new ArrayList<Record>();
-                list.add(new Record(d.getObjectId("_id"), d.getString("last_three"), d.getDouble("latitude"),
-                        d.getDouble("longitude"), d.getDate("last_activity_at"), d.getDate("request_time"),
-                        d.getInteger("meter_range"), d.getDate("crawling_started"),
-                        d.getInteger("battery_percentage"), d.getString("plate_number")));
-                ret.put(lastThree, list);
-            });
-            return ret;
+            // The records arrive sorted, so the records of each vehicle are grouped in the order of the cursor
+            try (var records = pipeline(res)) {
+                return ExternalRecordSort.forEachVehicle(records, vehicles);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to sort the records locally", e);
         } finally {
             if (client != null) {
                 client.close();
             }
         }
     }
+
+    /**
+     * @param source The raw documents to read
+     * @return The pipeline which fetches and decodes the records in parallel to the caller consuming them
+     */
+    private RecordPipeline pipeline(final MongoIterable<RawBsonDocument> source) {
+        return new RecordPipeline(source, new RecordCodec(), READ_BATCH_SIZE,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Selects the vehicles of a shard. The distinct "last three" are read from the index, so that the records of the
+     * other shards are never loaded.
+     *
+     * @param collection The collection to load the records from
+     * @param lastThree The name of the field containing the "last three" of the plate number
+     * @param shard The vehicles to select
+     * @return The "last three" of the plate numbers of the vehicles in the shard
+     */
+    private List<String> shardPlates(final MongoCollection<RawBsonDocument> collection, final String lastThree,
+            final Shard shard) {
+        final var all = collection.distinct(lastThree, String.class).into(new ArrayList<>());
+        final var ret = shard.select(all);
+        LOGGER.info(String.format("Processing %d of %d vehicles in %s.", ret.size(), all.size(), shard));
+        return ret;
+    }
 }
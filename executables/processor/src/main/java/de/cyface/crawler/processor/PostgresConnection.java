@@ -18,12 +18,18 @@
  */
 package de.cyface.crawler.processor;
 
+import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -31,6 +37,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A data lake to write to.
+ * <p>
+ * The relations are split into partitions which are loaded concurrently, each over its own connection into its own
+ * staging table in one transaction. The staging tables are moved into the result table in one final transaction, so
+ * either all or none of the relations are written.
  *
  * @author Armin Schnabel
  */
@@ -40,7 +50,40 @@ public final class PostgresConnection {
      * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(PostgresConnection.class);
-
+    /**
+     * The number of relations inserted per round trip by default.
+     */
+    static final int DEFAULT_BATCH_SIZE = 1_000;
+    /**
+     * The number of partitions loaded concurrently by default.
+     */
+    static final int DEFAULT_PARALLELISM = 4;
+    /**
+     * The columns written for each relation, in the order they are bound by
+     * {@link #bind(PreparedStatement, SourceDestinationRelation)}.
+     */
+    private static final String COLUMNS = "sourceLat, sourceLon, destinationLat, destinationLon, lastActivity, "
+            + "sourceRequest, destinationRequest, plateNumber, sourceBattery, destinationBattery, sourceRange, "
+            + "destinationRange, sourceId, destinationId, sourceZone, destinationZone";
+    /**
+     * The definitions of the {@link #COLUMNS}.
+     */
+    private static final String COLUMN_DEFINITIONS = "  sourceLat float NOT NULL,\n" +
+            "  sourceLon float NOT NULL,\n" +
+            "  destinationLat float NOT NULL,\n" +
+            "  destinationLon float NOT NULL,\n" +
+            "  lastActivity timestamptz NOT NULL,\n" +
+            "  sourceRequest timestamptz NOT NULL,\n" +
+            "  destinationRequest timestamptz NOT NULL,\n" +
+            "  plateNumber VARCHAR(7) NOT NULL,\n" +
+            "  sourceBattery SMALLINT NOT NULL,\n" +
+            "  destinationBattery SMALLINT NOT NULL,\n" +
+            "  sourceRange INT NOT NULL,\n" +
+            "  destinationRange INT NOT NULL,\n" +
+            "  sourceId VARCHAR(24) NOT NULL,\n" +
+            "  destinationId VARCHAR(24) NOT NULL,\n" +
+            "  sourceZone TEXT,\n" +
+            "  destinationZone TEXT\n";
     /**
      * The JDBC database URL used to access the Mongo database to write to.
      */
@@ -53,6 +96,14 @@ public final class PostgresConnection {
      * The password of the user to authenticate at the database.
      */
     private final String password;
+    /**
+     * The number of relations inserted per round trip.
+     */
+    private final int batchSize;
+    /**
+     * The number of partitions loaded concurrently, each over its own connection.
+     */
+    private final int parallelism;
 
     /**
      * Creates a new completely initialized database source for one Postgres database instance.
@@ -62,91 +113,369 @@ public final class PostgresConnection {
      * @param password The password of the user to authenticate at the database
      */
     public PostgresConnection(final String url, final String username, final String password) {
+        this(url, username, password, DEFAULT_BATCH_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Creates a new completely initialized database source for one Postgres database instance.
+     *
+     * @param url The JDBC database URL used to access the Postgres database to write to.
+     * @param username The name of the user to authenticate at the database
+     * @param password The password of the user to authenticate at the database
+     * @param batchSize The number of relations inserted per round trip
+     * @param parallelism The number of partitions loaded concurrently, each over its own connection
+     */
+    public PostgresConnection(final String url, final String username, final String password, final int batchSize,
+            final int parallelism) {
         Validate.notNull(url);
         Validate.notNull(username);
         Validate.notNull(password);
+        Validate.isTrue(batchSize > 0);
+        Validate.isTrue(parallelism > 0);
 
         this.url = url;
         this.username = username;
         this.password = password;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
     }
 
     /**
-     * Persist a list of vehicle records.
+     * Persist a list of vehicle records, appended to the relations already written to the table.
      *
      * @param relations the data to persist
      * @param tableName to write the data to
+     * @throws SQLException If the relations could not be written, in which case none of them is written
      */
     public void write(final ArrayList<SourceDestinationRelation> relations, final String tableName)
             throws SQLException {
+        write(relations, tableName, false);
+    }
+
+    /**
+     * Persist a list of vehicle records.
+     * <p>
+     * To replace the table, the relations are written into a new table, ordered by {@code sourceRequest}, before
+     * its indexes are built in bulk. The new table is then renamed to replace the old table in one transaction, so
+     * readers see either the old or the new relations.
+     *
+     * @param relations the data to persist
+     * @param tableName to write the data to
+     * @param replace {@code true} to replace the relations written to the table before, {@code false} to append
+     * @throws SQLException If the relations could not be written, in which case none of them is written
+     */
+    public void write(final ArrayList<SourceDestinationRelation> relations, final String tableName,
+            final boolean replace) throws SQLException {
 
         final var props = new Properties();
         props.setProperty("user", username);
         props.setProperty("password", password);
+        // Lets the driver send each batch as multi-row inserts instead of one statement per row
+        props.setProperty("reWriteBatchedInserts", "true");
+
+        // A small pool with one connection per partition
+        final var partitions = partition(relations);
+        final var connections = new ArrayList<Connection>(partitions.size());
+        final var stagingTables = new ArrayList<String>(partitions.size());
+        final var executor = Executors.newFixedThreadPool(partitions.size());
+        // Concurrent instances, e.g. of other shards, write to other staging tables
+        final var loadId = Integer.toHexString(ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE);
+        final var nextTable = tableName + "_next_" + loadId;
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                connections.add(DriverManager.getConnection(url, props));
+            }
+            final var conn = connections.get(0);
+            if (!replace) {
+                createTable(conn, tableName);
+                if (relations.isEmpty()) {
+                    return;
+                }
+            }
+
+            // Unlogged tables without indexes are the cheapest to write and are dropped after the load anyway
+            try (var statement = conn.createStatement()) {
+                for (int i = 0; i < partitions.size(); i++) {
+                    final var stagingTable = tableName + "_load_" + loadId + "_" + i;
+                    statement.execute("CREATE UNLOGGED TABLE " + stagingTable + " (" + COLUMN_DEFINITIONS + ")");
+                    stagingTables.add(stagingTable);
+                }
+            }
+
+            final var loads = new ArrayList<Future<?>>(partitions.size());
+            for (int i = 0; i < partitions.size(); i++) {
+                final var connection = connections.get(i);
+                final var stagingTable = stagingTables.get(i);
+                final var partition = partitions.get(i);
+                loads.add(executor.submit(() -> {
+                    load(connection, stagingTable, partition);
+                    return null;
+                }));
+            }
+            for (final var load : loads) {
+                await(load);
+            }
+
+            if (replace) {
+                build(conn, stagingTables, nextTable);
+                rename(conn, nextTable, tableName);
+            } else {
+                swap(conn, stagingTables, tableName);
+            }
+            LOGGER.info(String.format("%s %d relations to %s in %d partitions.", replace ? "Replaced with" : "Wrote",
+                    relations.size(), tableName, partitions.size()));
+        } finally {
+            executor.shutdownNow();
+            final var leftovers = new ArrayList<>(stagingTables);
+            if (replace) {
+                // Only exists if the table was not replaced
+                leftovers.add(nextTable);
+            }
+            drop(connections, leftovers);
+            for (final var connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the result table and its indexes if they do not exist yet.
+     *
+     * @param conn The connection to create the table with
+     * @param tableName The name of the result table
+     * @throws SQLException If the table could not be created
+     */
+    private static void createTable(final Connection conn, final String tableName) throws SQLException {
+        final var createTableQuery = "CREATE TABLE IF NOT EXISTS " + tableName + " (\n" +
+                "  id bigserial primary key,\n" +
+                COLUMN_DEFINITIONS +
+                ")";
+        final var createStatement = conn.prepareStatement(createTableQuery);
+        createStatement.execute();
+        // Tables created before the zones were added
+        conn.prepareStatement("ALTER TABLE " + tableName + " ADD COLUMN IF NOT EXISTS sourceZone TEXT, "
+                + "ADD COLUMN IF NOT EXISTS destinationZone TEXT").execute();
+        try (var statement = conn.createStatement()) {
+            for (final var index : indexes(tableName)) {
+                statement.execute(index.replace("CREATE INDEX", "CREATE INDEX IF NOT EXISTS"));
+            }
+        }
+    }
+
+    /**
+     * @param tableName The name of the result table
+     * @return The statements creating the indexes of the result table, named after the table
+     */
+    private static List<String> indexes(final String tableName) {
+        // The relations are written ordered by time, which keeps the BRIN index small and selective
+        return List.of("CREATE INDEX " + tableName + "_request_brin ON " + tableName + " USING brin (sourceRequest)",
+                "CREATE INDEX " + tableName + "_plate_idx ON " + tableName + " (plateNumber)");
+    }
 
-        try (var conn = DriverManager.getConnection(url, props)) {
-
-            final var createTableQuery = "CREATE TABLE IF NOT EXISTS " + tableName + " (\n" +
-                    "  id bigserial primary key,\n" +
-                    "  sourceLat float NOT NULL,\n" +
-                    "  sourceLon float NOT NULL,\n" +
-                    "  destinationLat float NOT NULL,\n" +
-                    "  destinationLon float NOT NULL,\n" +
-                    "  lastActivity timestamptz NOT NULL,\n" +
-                    "  sourceRequest timestamptz NOT NULL,\n" +
-                    "  destinationRequest timestamptz NOT NULL,\n" +
-                    "  plateNumber VARCHAR(7) NOT NULL,\n" +
-                    "  sourceBattery SMALLINT NOT NULL,\n" +
-                    "  destinationBattery SMALLINT NOT NULL,\n" +
-                    "  sourceRange INT NOT NULL,\n" +
-                    "  destinationRange INT NOT NULL,\n" +
-                    "  sourceId VARCHAR(24) NOT NULL,\n" +
-                    "  destinationId VARCHAR(24) NOT NULL\n" +
-                    ")";
-            final var createStatement = conn.prepareStatement(createTableQuery);
-            createStatement.execute();
-
-            final var query = "INSERT INTO " + tableName + "\n"
-                    + "(sourceLat, sourceLon, destinationLat, destinationLon, lastActivity, sourceRequest, destinationRequest, plateNumber, sourceBattery, destinationBattery, sourceRange, destinationRange, sourceId, destinationId)\n"
-                    + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
-            final var statement = conn.prepareStatement(query);
-
-            AtomicInteger count = new AtomicInteger();
-            AtomicInteger inserted = new AtomicInteger();
-            relations.forEach(relation -> {
-                try {
-                    statement.setDouble(1, relation.source.getLatitude());
-                    statement.setDouble(2, relation.source.getLongitude());
-                    statement.setDouble(3, relation.destination.getLatitude());
-                    statement.setDouble(4, relation.destination.getLongitude());
-                    statement.setTimestamp(5, new Timestamp(relation.destination.getLastActivityAt().getTime()));
-                    statement.setTimestamp(6, new Timestamp(relation.source.getRequestTime().getTime()));
-                    statement.setTimestamp(7, new Timestamp(relation.destination.getRequestTime().getTime()));
-                    statement.setString(8, relation.source.getPlateNumber());
-                    statement.setShort(9, (short)relation.source.getBatteryPercentage());
-                    statement.setShort(10, (short)relation.destination.getBatteryPercentage());
-                    statement.setInt(11, relation.source.getMeterRange());
-                    statement.setInt(12, relation.destination.getMeterRange());
-                    statement.setString(13, relation.source.getId().toString());
-                    statement.setString(14, relation.destination.getId().toString());
-
-                    statement.addBatch();
-                    count.getAndIncrement();
-
-                    // execute every 100 rows or fewer
-                    if (count.get() % 100 == 0 || count.get() == relations.size()) {
-                        final var affectedRows = statement.executeBatch();
-                        final var expected = (count.get() - inserted.get());
-                        if (affectedRows.length != expected) {
-                            LOGGER.warn("Unexpected number of rows affected after insert: " + affectedRows.length
-                                    + " instead of " + expected);
-                        }
-                        inserted.addAndGet(affectedRows.length);
+    /**
+     * Loads one partition into its staging table in one transaction.
+     *
+     * @param conn The connection of the partition
+     * @param stagingTable The staging table of the partition
+     * @param relations The relations of the partition
+     * @throws SQLException If the partition could not be loaded
+     */
+    private void load(final Connection conn, final String stagingTable, final List<SourceDestinationRelation> relations)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        try (var statement = conn.prepareStatement("INSERT INTO " + stagingTable + "\n(" + COLUMNS + ")\n"
+                + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)")) {
+            var count = 0;
+            var inserted = 0;
+            for (final var relation : relations) {
+                bind(statement, relation);
+                statement.addBatch();
+                count++;
+
+                // execute every `batchSize` rows or fewer
+                if (count % batchSize == 0 || count == relations.size()) {
+                    final var event = new PostgresWriteEvent();
+                    event.begin();
+                    final var affectedRows = statement.executeBatch();
+                    event.table = stagingTable;
+                    event.rows = affectedRows.length;
+                    event.commit();
+                    final var expected = count - inserted;
+                    if (affectedRows.length != expected) {
+                        LOGGER.warn("Unexpected number of rows affected after insert: " + affectedRows.length
+                                + " instead of " + expected);
                     }
-                } catch (SQLException e) {
-                    throw new IllegalStateException(e);
+                    inserted += affectedRows.length;
                 }
-            });
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
         }
     }
+
+    /**
+     * Moves the loaded partitions into the result table in one transaction.
+     *
+     * @param conn The connection to move the partitions with
+     * @param stagingTables The staging tables of all partitions
+     * @param tableName The name of the result table
+     * @throws SQLException If the partitions could not be moved, in which case none of them is moved
+     */
+    private static void swap(final Connection conn, final List<String> stagingTables, final String tableName)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        try (var statement = conn.createStatement()) {
+            for (final var stagingTable : stagingTables) {
+                statement.executeUpdate("INSERT INTO " + tableName + " (" + COLUMNS + ") SELECT " + COLUMNS
+                        + " FROM " + stagingTable);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Writes the loaded partitions into a new table, ordered by {@code sourceRequest}, and builds its indexes.
+     *
+     * @param conn The connection to build the table with
+     * @param stagingTables The staging tables of all partitions
+     * @param nextTable The name of the new table
+     * @throws SQLException If the table could not be built
+     */
+    private static void build(final Connection conn, final List<String> stagingTables, final String nextTable)
+            throws SQLException {
+        try (var statement = conn.createStatement()) {
+            // The primary key is added after the load, so that no index is maintained row by row
+            statement.execute("CREATE TABLE " + nextTable + " (\n  id bigserial,\n" + COLUMN_DEFINITIONS + ")");
+            final var union = new StringBuilder();
+            for (final var stagingTable : stagingTables) {
+                union.append(union.length() == 0 ? "" : " UNION ALL ").append("SELECT ").append(COLUMNS)
+                        .append(" FROM ").append(stagingTable);
+            }
+            statement.executeUpdate("INSERT INTO " + nextTable + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM ("
+                    + union + ") AS loaded ORDER BY sourceRequest");
+            statement.execute("ALTER TABLE " + nextTable + " ADD CONSTRAINT " + nextTable + "_pkey PRIMARY KEY (id)");
+            for (final var index : indexes(nextTable)) {
+                statement.execute(index);
+            }
+            statement.execute("ANALYZE " + nextTable);
+        }
+    }
+
+    /**
+     * Replaces the result table with the new table in one transaction.
+     *
+     * @param conn The connection to rename the table with
+     * @param nextTable The name of the new table
+     * @param tableName The name of the result table
+     * @throws SQLException If the table could not be replaced, in which case the old table is kept
+     */
+    private static void rename(final Connection conn, final String nextTable, final String tableName)
+            throws SQLException {
+        conn.setAutoCommit(false);
+        try (var statement = conn.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + tableName);
+            statement.execute("ALTER TABLE " + nextTable + " RENAME TO " + tableName);
+            // Names as if the table was created by `createTable`, so that appending to it finds the indexes
+            statement.execute("ALTER TABLE " + tableName + " RENAME CONSTRAINT " + nextTable + "_pkey TO "
+                    + tableName + "_pkey");
+            statement.execute("ALTER SEQUENCE " + nextTable + "_id_seq RENAME TO " + tableName + "_id_seq");
+            for (final var suffix : List.of("_request_brin", "_plate_idx")) {
+                statement.execute("ALTER INDEX " + nextTable + suffix + " RENAME TO " + tableName + suffix);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Drops the staging tables after they were moved or the load failed.
+     *
+     * @param connections The connections opened, the first one is used to drop the tables
+     * @param tables The tables to drop
+     */
+    private static void drop(final List<Connection> connections, final List<String> tables) {
+        if (connections.isEmpty() || tables.isEmpty()) {
+            return;
+        }
+        try (var statement = connections.get(0).createStatement()) {
+            for (final var table : tables) {
+                statement.execute("DROP TABLE IF EXISTS " + table);
+            }
+        } catch (SQLException e) {
+            LOGGER.warn("Unable to drop the staging tables " + tables, e);
+        }
+    }
+
+    /**
+     * @param relations The relations to write
+     * @return The relations split into {@link #parallelism} partitions of about the same size, fewer if there are
+     *         fewer relations than one batch per partition
+     */
+    private List<List<SourceDestinationRelation>> partition(final List<SourceDestinationRelation> relations) {
+        final var count = Math.max(1, Math.min(parallelism, relations.size() / batchSize));
+        final var ret = new ArrayList<List<SourceDestinationRelation>>(count);
+        for (int i = 0; i < count; i++) {
+            ret.add(relations.subList(relations.size() * i / count, relations.size() * (i + 1) / count));
+        }
+        return ret;
+    }
+
+    /**
+     * Waits for a partition to be loaded.
+     *
+     * @param load The load of the partition
+     * @throws SQLException If the partition could not be loaded
+     */
+    private static void await(final Future<?> load) throws SQLException {
+        try {
+            load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException)e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param statement The insert statement to bind the relation to, with the parameters in the order of
+     *            {@link #COLUMNS}
+     * @param relation The relation to bind
+     * @throws SQLException If a parameter could not be bound
+     */
+    private static void bind(final PreparedStatement statement, final SourceDestinationRelation relation)
+            throws SQLException {
+        statement.setDouble(1, relation.source.getLatitude());
+        statement.setDouble(2, relation.source.getLongitude());
+        statement.setDouble(3, relation.destination.getLatitude());
+        statement.setDouble(4, relation.destination.getLongitude());
+        statement.setTimestamp(5, new Timestamp(relation.destination.getLastActivityAt().getTime()));
+        statement.setTimestamp(6, new Timestamp(relation.source.getRequestTime().getTime()));
+        statement.setTimestamp(7, new Timestamp(relation.destination.getRequestTime().getTime()));
+        statement.setString(8, relation.source.getPlateNumber());
+        statement.setShort(9, (short)relation.source.getBatteryPercentage());
+        statement.setShort(10, (short)relation.destination.getBatteryPercentage());
+        statement.setInt(11, relation.source.getMeterRange());
+        statement.setInt(12, relation.destination.getMeterRange());
+        statement.setString(13, relation.source.getId().toString());
+        statement.setString(14, relation.destination.getId().toString());
+        statement.setString(15, relation.sourceZone);
+        statement.setString(16, relation.destinationZone);
+    }
 }
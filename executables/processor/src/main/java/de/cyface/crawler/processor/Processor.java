@@ -24,10 +24,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.cyface.crawler.model.Record;
+import de.cyface.crawler.model.RecordSchema;
 
 /**
  * Processes the vehicle records acquired by the API Crawler and extracts the source-destination relations.
@@ -42,10 +44,8 @@ public class Processor {
     private static final Logger LOGGER = LoggerFactory.getLogger(Processor.class);
     /**
      * The maximum number of minutes allowed between source and destination.
-     * <p>
-     * This values is suggested by VÖ and often used in literature as the longest drives are usually 2-3 hours.
      */
-    private static final long MAX_CRAWLING_GAP_MINUTES = 120;
+    private static final long MAX_CRAWLING_GAP_MINUTES = RecordSchema.MAX_CRAWLING_GAP_MINUTES;
     /**
      * The minimum distance between source and destination.
      * <p>
@@ -57,116 +57,159 @@ public class Processor {
      * The data source of the raw vehicle records to process.
      */
     private final MongoConnection mongoConnection;
+    /**
+     * The zones to assign the relations to or {@code null} to skip the zone assignment.
+     */
+    private final ZoneIndex zones;
+    /**
+     * {@code true} to drop relations which neither start nor end in one of the {@link #zones}.
+     */
+    private final boolean zonesOnly;
 
     /**
      * @param mongoConnection The data source of the raw vehicle records to process.
+     * @param zones The zones to assign the relations to or {@code null} to skip the zone assignment.
+     * @param zonesOnly {@code true} to drop relations which neither start nor end in one of the {@code zones}.
      */
-    public Processor(MongoConnection mongoConnection) {
+    public Processor(final MongoConnection mongoConnection, final ZoneIndex zones, final boolean zonesOnly) {
+        Validate.isTrue(zones != null || !zonesOnly, "Filtering by zones requires zones");
+
         this.mongoConnection = mongoConnection;
+        this.zones = zones;
+        this.zonesOnly = zonesOnly;
     }
 
     /**
      * Executable to process the raw data.
      *
      * @param mongoCollection The data source of the raw vehicle records to process.
+     * @param shard The vehicles to process, {@link Shard#ALL} to process all vehicles.
      * @return a list of source-destination relations for all vehicles (key = lastThree). Relations considered "invalid"
      *         where filtered from the results.
      */
-    public Map<String, List<SourceDestinationRelation>> run(final String mongoCollection) {
-        final var records = mongoConnection.records(mongoCollection);
-
-        // Building pairs for all locations of one plate number (TS1,TS2), (TS2,TS3), etc.
-        final var locationPairs = pair(records);
-
-        // Check and filter invalid pairs
+    public Map<String, List<SourceDestinationRelation>> run(final String mongoCollection, final Shard shard) {
+        // The records are loaded, paired and filtered one vehicle at a time, so that the records of all vehicles are
+        // never kept in memory at once
+        final var extract = new ProcessorStageEvent("extract", 0);
         final var result = new HashMap<String, List<SourceDestinationRelation>>();
-        locationPairs.forEach((plate, pairs) -> {
-
-            // Filter entries without location change
-            final var withoutIdenticalLocations = pairs.stream()
-                    .filter(r -> r.source.getLatitude() != r.destination.getLatitude()
-                            && r.source.getLongitude() != r.destination.getLongitude())
-                    .collect(Collectors.toList());
-
-            // Filter vehicles which share the same `lastThree` plate number:
-            // - The destination "last active" is earlier then the source "last active" time
-            // - The same algorithm is used by VÖ (post-processing)
-            final var duplicatePlates = withoutIdenticalLocations.stream()
-                    .filter(p -> p.destination.getLastActivityAt().getTime() < p.source.getLastActivityAt().getTime())
-                    .collect(Collectors.toList());
-
-            // Ignore plate number completely (instead of just filtering pairs!)
-            if (duplicatePlates.size() == 0) {
-
-                // Filter when the travel time is unrealistically large
-                final var withoutCrawlingGaps = withoutIdenticalLocations.stream()
-                        .filter(p -> (p.destination.getRequestTime().getTime()
-                                - p.source.getRequestTime().getTime()) <= MAX_CRAWLING_GAP_MINUTES * 1000 * 60)
-                        .collect(Collectors.toList());
-
-                // Filter relations which are too close to each other (GPS noise, round-trips, etc.)
-                final var withoutCloseRelations = withoutCrawlingGaps.stream()
-                        .filter(p -> distanceKm(p.source.getLatitude(), p.source.getLongitude(),
-                                p.destination.getLatitude(), p.destination.getLongitude()) >= MIN_DISTANCE_KM)
-                        .collect(Collectors.toList());
-
-                /*
-                 * We don't remove "maintenance drives"
-                 * - this is done in post-processing (TUD) as the "drives" are routed and with that things like
-                 * disposition, battery range vs. traveled range discrepancies etc. can be identified better
-                 *
-                 * final var recharged = withoutCrawlingGaps.stream().filter(p -> p.destination.getBatteryPercentage()
-                 * == 100).collect(Collectors.toList());
-                 * final var batteryIncreased = withoutCrawlingGaps.stream().filter(p ->
-                 * p.destination.getBatteryPercentage() > p.source.getBatteryPercentage()).collect(Collectors.toList());
-                 * final var rangeDistanceNotEqual = withoutCrawlingGaps.stream().filter(p -> {
-                 * final var meterRangeDecrease = p.source.getMeterRange() - p.destination.getMeterRange();
-                 * final var metersTraveled = distanceKm(p.source.getLatitude(), p.source.getLongitude(),
-                 * p.destination.getLatitude(), p.destination.getLongitude()) * 1000;
-                 * final var diffBatteryDistance = metersTraveled - meterRangeDecrease;
-                 * return diffBatteryDistance > 1000;
-                 * }).collect(Collectors.toList());
-                 *
-                 * Identify vehicles which moved without lastActiveAt changes (potential service moves)
-                 * - When the lastActiveAt did not change at all [never happens]
-                 * final var serviceMoves = withoutCloseRelations.stream()
-                 * .filter(p -> p.source.getLastActivityAt() == p.destination.getLastActivityAt())
-                 * .collect(Collectors.toList());
-                 * final var withoutServiceMoves = withoutCloseRelations.stream()
-                 * .filter(p -> p.source.getLastActivityAt() != p.destination.getLastActivityAt())
-                 * .collect(Collectors.toList());
-                 */
-
-                if (withoutCloseRelations.size() > 0) {
-                    result.put(plate, withoutCloseRelations);
-                }
+        final var recordCount = mongoConnection.records(mongoCollection, shard, records -> {
+            final var relations = relations(records);
+            if (relations.size() > 0) {
+                result.put(records.get(0).getLastThree(), relations);
             }
         });
+        extract.input = recordCount;
 
         final var numberOfRelations = result.values().stream().mapToInt(List::size).sum();
+        extract.end(numberOfRelations);
+
+        if (zones != null) {
+            final var zoning = new ProcessorStageEvent("zone", numberOfRelations);
+            zone(result);
+            zoning.end(result.values().stream().mapToInt(List::size).sum());
+        }
 
         LOGGER.info(String.format("%d Source-Destination relations found from %d different plate numbers.",
-                numberOfRelations, result.size()));
+                result.values().stream().mapToInt(List::size).sum(), result.size()));
         return result;
     }
 
+    /**
+     * Assigns the relations to the {@link #zones} they start and end in.
+     *
+     * @param relations The relations of each vehicle, replaced by the relations with zones
+     */
+    private void zone(final Map<String, List<SourceDestinationRelation>> relations) {
+        relations.replaceAll((plate, pairs) -> pairs.stream()
+                .map(p -> p.withZones(zones))
+                .filter(p -> !zonesOnly || p.sourceZone != null || p.destinationZone != null)
+                .collect(Collectors.toList()));
+        relations.values().removeIf(List::isEmpty);
+    }
+
+    /**
+     * Extracts the source-destination relations of one vehicle.
+     *
+     * @param records The records of the vehicle ("lastThree" of the plate), ordered by request time
+     * @return The relations of the vehicle, relations considered "invalid" are filtered
+     */
+    private List<SourceDestinationRelation> relations(final List<Record> records) {
+
+        // Building pairs for all locations of one plate number (TS1,TS2), (TS2,TS3), etc.
+        final var pairs = pair(records);
+
+        // Filter entries without location change
+        final var withoutIdenticalLocations = pairs.stream()
+                .filter(r -> r.source.getLatitude() != r.destination.getLatitude()
+                        && r.source.getLongitude() != r.destination.getLongitude())
+                .collect(Collectors.toList());
+
+        // Filter vehicles which share the same `lastThree` plate number:
+        // - The destination "last active" is earlier then the source "last active" time
+        // - The same algorithm is used by VÖ (post-processing)
+        final var duplicatePlates = withoutIdenticalLocations.stream()
+                .filter(p -> p.destination.getLastActivityAt().getTime() < p.source.getLastActivityAt().getTime())
+                .collect(Collectors.toList());
+
+        // Ignore plate number completely (instead of just filtering pairs!)
+        if (duplicatePlates.size() == 0) {
+
+            // Filter when the travel time is unrealistically large
+            final var withoutCrawlingGaps = withoutIdenticalLocations.stream()
+                    .filter(p -> (p.destination.getRequestTime().getTime()
+                            - p.source.getRequestTime().getTime()) <= MAX_CRAWLING_GAP_MINUTES * 1000 * 60)
+                    .collect(Collectors.toList());
+
+            // Filter relations which are too close to each other (GPS noise, round-trips, etc.)
+            final var withoutCloseRelations = withoutCrawlingGaps.stream()
+                    .filter(p -> distanceKm(p.source.getLatitude(), p.source.getLongitude(),
+                            p.destination.getLatitude(), p.destination.getLongitude()) >= MIN_DISTANCE_KM)
+                    .collect(Collectors.toList());
+
+            /*
+             * We don't remove "maintenance drives"
+             * - this is done in post-processing (TUD) as the "drives" are routed and with that things like
+             * disposition, battery range vs. traveled range discrepancies etc. can be identified better
+             *
+             * final var recharged = withoutCrawlingGaps.stream().filter(p -> p.destination.getBatteryPercentage()
+             * == 100).collect(Collectors.toList());
+             * final var batteryIncreased = withoutCrawlingGaps.stream().filter(p ->
+             * p.destination.getBatteryPercentage() > p.source.getBatteryPercentage()).collect(Collectors.toList());
+             * final var rangeDistanceNotEqual = withoutCrawlingGaps.stream().filter(p -> {
+             * final var meterRangeDecrease = p.source.getMeterRange() - p.destination.getMeterRange();
+             * final var metersTraveled = distanceKm(p.source.getLatitude(), p.source.getLongitude(),
+             * p.destination.getLatitude(), p.destination.getLongitude()) * 1000;
+             * final var diffBatteryDistance = metersTraveled - meterRangeDecrease;
+             * return diffBatteryDistance > 1000;
+             * }).collect(Collectors.toList());
+             *
+             * Identify vehicles which moved without lastActiveAt changes (potential service moves)
+             * - When the lastActiveAt did not change at all [never happens]
+             * final var serviceMoves = withoutCloseRelations.stream()
+             * .filter(p -> p.source.getLastActivityAt() == p.destination.getLastActivityAt())
+             * .collect(Collectors.toList());
+             * final var withoutServiceMoves = withoutCloseRelations.stream()
+             * .filter(p -> p.source.getLastActivityAt() != p.destination.getLastActivityAt())
+             * .collect(Collectors.toList());
+             */
+
+            return withoutCloseRelations;
+        }
+        return List.of();
+    }
+
     /**
      * Creates pairs from an ordered list of records.
      *
-     * @param plateRecords the ordered list of records of each vehicle ("lastThree" of the plate)
-     * @return the pairs of each vehicle
+     * @param records the ordered list of records of one vehicle ("lastThree" of the plate)
+     * @return the pairs of the vehicle
      */
-    private Map<String, List<SourceDestinationRelation>> pair(final Map<String, List<Record>> plateRecords) {
-        final var ret = new HashMap<String, List<SourceDestinationRelation>>();
-        plateRecords.keySet().forEach(plate -> {
-            final var records = plateRecords.get(plate);
-            final var res = new ArrayList<SourceDestinationRelation>();
-            // Start with seconds, collect pairs
-            for (int i = 1; i < records.size(); i++) {
-                res.add(new SourceDestinationRelation(records.get(i - 1), records.get(i)));
-            }
-            ret.put(plate, res);
-        });
+    private List<SourceDestinationRelation> pair(final List<Record> records) {
+        final var ret = new ArrayList<SourceDestinationRelation>();
+        // Start with seconds, collect pairs
+        for (int i = 1; i < records.size(); i++) {
+            ret.add(new SourceDestinationRelation(records.get(i - 1), records.get(i)));
+        }
         return ret;
     }
 
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event spanning one stage of the {@link Processor}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+@Name("de.cyface.crawler.processor.ProcessorStage")
+@Label("Processor Stage")
+@Category({"Cyface", "Processor"})
+@Description("One stage of the extraction of source-destination relations")
+@StackTrace(false)
+final class ProcessorStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Input")
+    @Description("The number of records or relations the stage started with")
+    long input;
+
+    @Label("Output")
+    @Description("The number of records or relations the stage produced")
+    long output;
+
+    /**
+     * Creates a started event.
+     *
+     * @param stage The name of the stage
+     * @param input The number of records or relations the stage started with
+     */
+    ProcessorStageEvent(final String stage, final long input) {
+        this.stage = stage;
+        this.input = input;
+        begin();
+    }
+
+    /**
+     * Completes the event.
+     *
+     * @param output The number of records or relations the stage produced
+     */
+    void end(final long output) {
+        this.output = output;
+        commit();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.Validate;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Decoder;
+
+import com.mongodb.client.MongoIterable;
+
+import de.cyface.crawler.model.Record;
+
+/**
+ * Reads records in stages, so that waiting for the database and decoding the records overlap.
+ * <p>
+ * A fetcher thread reads the raw BSON documents from the cursor in batches. The batches are decoded into
+ * {@link Record}s by a thread pool. The decoded batches are handed to the thread iterating this pipeline in the order
+ * of the cursor, so that records sorted by the database stay sorted. The number of batches in flight is bounded, so a
+ * slow consumer stalls the fetcher instead of filling the memory.
+ * <p>
+ * The records can be iterated only once. Close the pipeline to stop the fetcher when the records are not read to the
+ * end.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+final class RecordPipeline implements Iterable<Record>, AutoCloseable {
+
+    /**
+     * Marks the end of the cursor in the {@link #batches} queue.
+     */
+    private static final Future<List<Record>> END = CompletableFuture.completedFuture(List.of());
+    /**
+     * The decoded batches in the order of the cursor.
+     */
+    private final BlockingQueue<Future<List<Record>>> batches;
+    /**
+     * The threads decoding the batches.
+     */
+    private final ExecutorService decoders;
+    /**
+     * The thread reading the batches from the cursor.
+     */
+    private final Thread fetcher;
+    /**
+     * {@code true} after {@link #iterator()} was called.
+     */
+    private boolean iterated;
+
+    /**
+     * Creates a fully initialized instance of this class and starts reading from the cursor.
+     *
+     * @param source The raw documents to read, in the order to return them
+     * @param decoder The decoder to create the records from the raw documents
+     * @param batchSize The number of documents requested from the database and decoded at once
+     * @param threads The number of threads decoding the batches
+     */
+    RecordPipeline(final MongoIterable<RawBsonDocument> source, final Decoder<Record> decoder, final int batchSize,
+            final int threads) {
+        Validate.notNull(source);
+        Validate.notNull(decoder);
+        Validate.isTrue(batchSize > 0);
+        Validate.isTrue(threads > 0);
+
+        this.batches = new ArrayBlockingQueue<>(2 * threads);
+        this.decoders = Executors.newFixedThreadPool(threads);
+        this.fetcher = new Thread(() -> fetch(source.batchSize(batchSize), decoder, batchSize), "record-fetcher");
+        fetcher.setDaemon(true);
+        fetcher.start();
+    }
+
+    /**
+     * Reads the raw documents and submits them in batches to the {@link #decoders}.
+     *
+     * @param source The raw documents to read
+     * @param decoder The decoder to create the records from the raw documents
+     * @param batchSize The number of documents decoded at once
+     */
+    private void fetch(final MongoIterable<RawBsonDocument> source, final Decoder<Record> decoder,
+            final int batchSize) {
+        try {
+            try (var cursor = source.iterator()) {
+                var batch = new ArrayList<RawBsonDocument>(batchSize);
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() == batchSize) {
+                        batches.put(decode(batch, decoder));
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    batches.put(decode(batch, decoder));
+                }
+            }
+            batches.put(END);
+        } catch (InterruptedException e) {
+            // The pipeline was closed
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            try {
+                batches.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @param batch The raw documents to decode
+     * @param decoder The decoder to create the records from the raw documents
+     * @return The records, once decoded
+     */
+    private Future<List<Record>> decode(final List<RawBsonDocument> batch, final Decoder<Record> decoder) {
+        return decoders.submit(() -> {
+            final var ret = new ArrayList<Record>(batch.size());
+            batch.forEach(document -> ret.add(document.decode(decoder)));
+            return ret;
+        });
+    }
+
+    @Override
+    public Iterator<Record> iterator() {
+        Validate.isTrue(!iterated, "The records can be iterated only once");
+        iterated = true;
+
+        return new Iterator<>() {
+
+            /**
+             * The records of the current batch not returned yet.
+             */
+            private Iterator<Record> batch = Collections.emptyIterator();
+            /**
+             * {@code true} after the end of the cursor was reached.
+             */
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext() && !exhausted) {
+                    final Future<List<Record>> next;
+                    try {
+                        next = batches.take();
+                        if (next == END) {
+                            exhausted = true;
+                        } else {
+                            batch = next.get().iterator();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof RuntimeException) {
+                            throw (RuntimeException)e.getCause();
+                        }
+                        throw new IllegalStateException(e.getCause());
+                    }
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        fetcher.interrupt();
+        decoders.shutdownNow();
+    }
+}
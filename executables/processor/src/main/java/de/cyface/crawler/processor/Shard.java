@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The part of the vehicles processed by one processor instance, so that a large reprocessing job can be spread
+ * across multiple machines.
+ * <p>
+ * The vehicles are assigned to the shards by the hash of the "last three" of their plate number. As relations are only
+ * built between the records of one vehicle, the shards can be processed and written independently and the union of
+ * all shards equals the result of processing all vehicles at once.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class Shard {
+
+    /**
+     * The shard containing all vehicles.
+     */
+    public static final Shard ALL = new Shard(0, 1);
+    /**
+     * The number of this shard, starting at 0.
+     */
+    private final int index;
+    /**
+     * The total number of shards.
+     */
+    private final int count;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param index The number of this shard, starting at 0
+     * @param count The total number of shards
+     */
+    public Shard(final int index, final int count) {
+        Validate.isTrue(count >= 1, "Invalid number of shards: " + count);
+        Validate.isTrue(index >= 0 && index < count, String.format("Shard out of range: %d != [0...%d]", index,
+                count - 1));
+
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * @return {@code true} if this shard contains all vehicles.
+     */
+    public boolean isAll() {
+        return count == 1;
+    }
+
+    /**
+     * @param lastThree The "last three" of the plate number of a vehicle
+     * @return {@code true} if the vehicle belongs to this shard
+     */
+    public boolean contains(final String lastThree) {
+        // `String.hashCode` is specified, so all instances agree on the shard of each vehicle
+        return Math.floorMod(lastThree.hashCode(), count) == index;
+    }
+
+    /**
+     * @param lastThrees The "last three" of the plate numbers of all vehicles
+     * @return The "last three" of the vehicles which belong to this shard
+     */
+    public List<String> select(final Collection<String> lastThrees) {
+        return lastThrees.stream().filter(this::contains).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("shard %d of %d", index + 1, count);
+    }
+}
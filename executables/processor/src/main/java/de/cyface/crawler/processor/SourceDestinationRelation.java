@@ -38,15 +38,50 @@ public class SourceDestinationRelation {
      * The later record.
      */
     public final Record destination;
+    /**
+     * The identifier of the zone the relation starts in or {@code null} if it starts outside all zones or no zones
+     * were provided.
+     */
+    public final String sourceZone;
+    /**
+     * The identifier of the zone the relation ends in or {@code null} if it ends outside all zones or no zones were
+     * provided.
+     */
+    public final String destinationZone;
 
     /**
-     * Constructs a fully initialized instance of this class.
+     * Constructs a fully initialized instance of this class, without zones.
      *
      * @param source The earlier record
      * @param destination The later record
      */
     public SourceDestinationRelation(final Record source, final Record destination) {
+        this(source, destination, null, null);
+    }
+
+    /**
+     * Constructs a fully initialized instance of this class.
+     *
+     * @param source The earlier record
+     * @param destination The later record
+     * @param sourceZone The identifier of the zone the relation starts in or {@code null}
+     * @param destinationZone The identifier of the zone the relation ends in or {@code null}
+     */
+    public SourceDestinationRelation(final Record source, final Record destination, final String sourceZone,
+            final String destinationZone) {
         this.source = source;
         this.destination = destination;
+        this.sourceZone = sourceZone;
+        this.destinationZone = destinationZone;
+    }
+
+    /**
+     * @param zones The zones to assign the relation to
+     * @return This relation with the zones it starts and ends in
+     */
+    public SourceDestinationRelation withZones(final ZoneIndex zones) {
+        return new SourceDestinationRelation(source, destination,
+                zones.zoneOf(source.getLatitude(), source.getLongitude()),
+                zones.zoneOf(destination.getLatitude(), destination.getLongitude()));
     }
 }
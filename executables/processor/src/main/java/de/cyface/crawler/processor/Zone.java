@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * An area, e.g. a service area or a district, bounded by one or more polygons which may contain holes.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+final class Zone {
+
+    /**
+     * The identifier of the zone, written with each relation starting or ending in the zone.
+     */
+    private final String id;
+    /**
+     * The outer and inner rings of all polygons of the zone, each as alternating longitude and latitude.
+     */
+    private final List<double[]> rings;
+    /**
+     * The bounding box of the zone, as minimal longitude, minimal latitude, maximal longitude and maximal latitude.
+     */
+    private final double[] bounds;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param id The identifier of the zone
+     * @param rings The outer and inner rings of all polygons of the zone, each as alternating longitude and latitude
+     */
+    Zone(final String id, final List<double[]> rings) {
+        Validate.notEmpty(id);
+        Validate.notEmpty(rings);
+
+        this.id = id;
+        this.rings = rings;
+        this.bounds = new double[] {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (final var ring : rings) {
+            Validate.isTrue(ring.length >= 6 && ring.length % 2 == 0, "Invalid ring in zone " + id);
+            for (int i = 0; i < ring.length; i += 2) {
+                bounds[0] = Math.min(bounds[0], ring[i]);
+                bounds[1] = Math.min(bounds[1], ring[i + 1]);
+                bounds[2] = Math.max(bounds[2], ring[i]);
+                bounds[3] = Math.max(bounds[3], ring[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Tests if a location lies inside the zone, using the even-odd rule so that holes are excluded.
+     *
+     * @param longitude The longitude of the location
+     * @param latitude The latitude of the location
+     * @return {@code true} if the location lies inside the zone
+     */
+    boolean contains(final double longitude, final double latitude) {
+        if (longitude < bounds[0] || latitude < bounds[1] || longitude > bounds[2] || latitude > bounds[3]) {
+            return false;
+        }
+        var inside = false;
+        for (final var ring : rings) {
+            for (int i = 0, j = ring.length - 2; i < ring.length; j = i, i += 2) {
+                final var y1 = ring[j + 1];
+                final var y2 = ring[i + 1];
+                if ((y1 > latitude) != (y2 > latitude)
+                        && longitude < (ring[i] - ring[j]) * (latitude - y1) / (y2 - y1) + ring[j]) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * @return The identifier of the zone, written with each relation starting or ending in the zone.
+     */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * @return The outer and inner rings of all polygons of the zone, each as alternating longitude and latitude.
+     */
+    List<double[]> getRings() {
+        return rings;
+    }
+
+    /**
+     * @return The bounding box of the zone, as minimal longitude, minimal latitude, maximal longitude and maximal
+     *         latitude.
+     */
+    double[] getBounds() {
+        return bounds;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Assigns locations to the zones, e.g. service areas or districts, loaded from a GeoJSON file.
+ * <p>
+ * The bounding box of all zones is divided into a uniform grid. For each cell, the zones which cover the whole cell
+ * and the zones whose border crosses the cell are precomputed. A location in a cell which is covered by a zone or
+ * crossed by no border is assigned without testing any polygon, only locations near a border are tested against the
+ * polygons crossing their cell.
+ * <p>
+ * When zones overlap, a location is assigned to the zone which comes first in the file.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class ZoneIndex {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZoneIndex.class);
+    /**
+     * The number of grid cells along each axis of the bounding box of all zones.
+     */
+    static final int DEFAULT_CELLS = 256;
+    /**
+     * The candidates of cells without any zone.
+     */
+    private static final int[] NONE = new int[0];
+    /**
+     * The zones in the order of their priority.
+     */
+    private final List<Zone> zones;
+    /**
+     * The minimal longitude of the grid.
+     */
+    private final double minLongitude;
+    /**
+     * The minimal latitude of the grid.
+     */
+    private final double minLatitude;
+    /**
+     * The maximal longitude of the grid.
+     */
+    private final double maxLongitude;
+    /**
+     * The maximal latitude of the grid.
+     */
+    private final double maxLatitude;
+    /**
+     * The width of each cell in degrees of longitude.
+     */
+    private final double cellWidth;
+    /**
+     * The height of each cell in degrees of latitude.
+     */
+    private final double cellHeight;
+    /**
+     * The number of cells along each axis.
+     */
+    private final int cells;
+    /**
+     * The zones of each cell, row by row, in the order of their priority. A zone {@code z} which covers the whole
+     * cell is stored as {@code z}, a zone whose border crosses the cell as {@code -z - 1}.
+     */
+    private final int[][] candidates;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param zones The zones in the order of their priority
+     * @param cells The number of grid cells along each axis of the bounding box of all zones
+     */
+    ZoneIndex(final List<Zone> zones, final int cells) {
+        Validate.notEmpty(zones);
+        Validate.isTrue(cells > 0);
+
+        this.zones = zones;
+        this.cells = cells;
+        final var bounds = new double[] {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        zones.forEach(z -> {
+            bounds[0] = Math.min(bounds[0], z.getBounds()[0]);
+            bounds[1] = Math.min(bounds[1], z.getBounds()[1]);
+            bounds[2] = Math.max(bounds[2], z.getBounds()[2]);
+            bounds[3] = Math.max(bounds[3], z.getBounds()[3]);
+        });
+        this.minLongitude = bounds[0];
+        this.minLatitude = bounds[1];
+        this.maxLongitude = bounds[2];
+        this.maxLatitude = bounds[3];
+        // Avoids empty cells for degenerated bounds
+        this.cellWidth = Math.max(bounds[2] - bounds[0], Double.MIN_NORMAL) / cells;
+        this.cellHeight = Math.max(bounds[3] - bounds[1], Double.MIN_NORMAL) / cells;
+
+        final var lists = new ArrayList<List<Integer>>(cells * cells);
+        for (int i = 0; i < cells * cells; i++) {
+            lists.add(null);
+        }
+        for (int z = 0; z < zones.size(); z++) {
+            final var covered = cover(zones.get(z));
+            for (int cell = 0; cell < covered.length; cell++) {
+                if (covered[cell] != 0) {
+                    if (lists.get(cell) == null) {
+                        lists.set(cell, new ArrayList<>());
+                    }
+                    lists.get(cell).add(covered[cell] > 0 ? z : -z - 1);
+                }
+            }
+        }
+        this.candidates = new int[cells * cells][];
+        var boundaryCells = 0;
+        for (int cell = 0; cell < candidates.length; cell++) {
+            final var list = lists.get(cell);
+            candidates[cell] = list == null ? NONE : list.stream().mapToInt(Integer::intValue).toArray();
+            if (Arrays.stream(candidates[cell]).anyMatch(c -> c < 0)) {
+                boundaryCells++;
+            }
+        }
+        LOGGER.info(String.format("Indexed %d zones, %d of %d grid cells require polygon tests.", zones.size(),
+                boundaryCells, candidates.length));
+    }
+
+    /**
+     * Loads the zones from a GeoJSON file.
+     * <p>
+     * Supports a `FeatureCollection` of `Polygon` and `MultiPolygon` features. The zone of each feature is identified
+     * by its `id`, its `id` or `name` property or else its position in the file.
+     *
+     * @param file The GeoJSON file to load
+     * @return The index of the zones in the file
+     * @throws IOException If the file could not be read
+     */
+    public static ZoneIndex load(final Path file) throws IOException {
+        final var json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+        Validate.isTrue("FeatureCollection".equals(json.optString("type")), "Expected a GeoJSON FeatureCollection");
+
+        final var features = json.getJSONArray("features");
+        final var zones = new ArrayList<Zone>();
+        for (int i = 0; i < features.length(); i++) {
+            final var feature = features.getJSONObject(i);
+            final var properties = feature.optJSONObject("properties");
+            final var id = feature.has("id") ? feature.get("id").toString()
+                    : properties != null && properties.has("id") ? properties.get("id").toString()
+                            : properties != null && properties.has("name") ? properties.getString("name")
+                                    : String.valueOf(i);
+            final var geometry = feature.getJSONObject("geometry");
+            final var rings = new ArrayList<double[]>();
+            switch (geometry.getString("type")) {
+                case "Polygon":
+                    addRings(geometry.getJSONArray("coordinates"), rings);
+                    break;
+                case "MultiPolygon":
+                    final var polygons = geometry.getJSONArray("coordinates");
+                    for (int p = 0; p < polygons.length(); p++) {
+                        addRings(polygons.getJSONArray(p), rings);
+                    }
+                    break;
+                default:
+                    LOGGER.warn("Ignoring zone " + id + " with unsupported geometry " + geometry.getString("type"));
+                    continue;
+            }
+            zones.add(new Zone(id, rings));
+        }
+        return new ZoneIndex(zones, DEFAULT_CELLS);
+    }
+
+    /**
+     * @param latitude The latitude of a location
+     * @param longitude The longitude of a location
+     * @return The identifier of the zone the location lies in or {@code null} if it lies in no zone
+     */
+    public String zoneOf(final double latitude, final double longitude) {
+        if (longitude < minLongitude || latitude < minLatitude || longitude > maxLongitude
+                || latitude > maxLatitude) {
+            return null;
+        }
+        // Locations on the upper bounds belong to the last cell
+        final var column = Math.min((int)Math.floor((longitude - minLongitude) / cellWidth), cells - 1);
+        final var row = Math.min((int)Math.floor((latitude - minLatitude) / cellHeight), cells - 1);
+        for (final var candidate : candidates[row * cells + column]) {
+            if (candidate >= 0) {
+                return zones.get(candidate).getId();
+            }
+            final var zone = zones.get(-candidate - 1);
+            if (zone.contains(longitude, latitude)) {
+                return zone.getId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Classifies the cells of the grid for one zone.
+     * <p>
+     * First, the cells crossed by an edge of the zone are marked. Then each row of cells is scanned at the latitude of
+     * the cell centers, the cells whose center lies between two crossings of the zone's edges lie inside the zone.
+     * As no edge crosses these cells, the whole cell lies inside the zone.
+     *
+     * @param zone The zone to classify the cells for
+     * @return For each cell, row by row, {@code 1} if the zone covers the whole cell, {@code -1} if the border of the
+     *         zone crosses the cell or else {@code 0}
+     */
+    private byte[] cover(final Zone zone) {
+        final var ret = new byte[cells * cells];
+        for (final var ring : zone.getRings()) {
+            for (int i = 0, j = ring.length - 2; i < ring.length; j = i, i += 2) {
+                markEdge(ring[j], ring[j + 1], ring[i], ring[i + 1], ret);
+            }
+        }
+
+        final var crossings = new ArrayList<Double>();
+        for (int row = 0; row < cells; row++) {
+            final var latitude = minLatitude + (row + .5) * cellHeight;
+            crossings.clear();
+            for (final var ring : zone.getRings()) {
+                for (int i = 0, j = ring.length - 2; i < ring.length; j = i, i += 2) {
+                    final var y1 = ring[j + 1];
+                    final var y2 = ring[i + 1];
+                    if ((y1 > latitude) != (y2 > latitude)) {
+                        crossings.add((ring[i] - ring[j]) * (latitude - y1) / (y2 - y1) + ring[j]);
+                    }
+                }
+            }
+            crossings.sort(Double::compare);
+            for (int c = 0; c + 1 < crossings.size(); c += 2) {
+                final var from = (int)Math.ceil((crossings.get(c) - minLongitude) / cellWidth - .5);
+                final var to = (int)Math.floor((crossings.get(c + 1) - minLongitude) / cellWidth - .5);
+                for (int column = Math.max(from, 0); column <= Math.min(to, cells - 1); column++) {
+                    if (ret[row * cells + column] == 0) {
+                        ret[row * cells + column] = 1;
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Marks the cells crossed by an edge.
+     *
+     * @param x1 The longitude of the start of the edge
+     * @param y1 The latitude of the start of the edge
+     * @param x2 The longitude of the end of the edge
+     * @param y2 The latitude of the end of the edge
+     * @param cover The cells to mark with {@code -1}
+     */
+    private void markEdge(final double x1, final double y1, final double x2, final double y2, final byte[] cover) {
+        final var fromColumn = Math.max((int)Math.floor((Math.min(x1, x2) - minLongitude) / cellWidth), 0);
+        final var toColumn = Math.min((int)Math.floor((Math.max(x1, x2) - minLongitude) / cellWidth), cells - 1);
+        final var fromRow = Math.max((int)Math.floor((Math.min(y1, y2) - minLatitude) / cellHeight), 0);
+        final var toRow = Math.min((int)Math.floor((Math.max(y1, y2) - minLatitude) / cellHeight), cells - 1);
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                final var minX = minLongitude + column * cellWidth;
+                final var minY = minLatitude + row * cellHeight;
+                if (crosses(x1, y1, x2, y2, minX, minY, minX + cellWidth, minY + cellHeight)) {
+                    cover[row * cells + column] = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests if an edge crosses a cell, whose bounding boxes are known to overlap.
+     *
+     * @param x1 The longitude of the start of the edge
+     * @param y1 The latitude of the start of the edge
+     * @param x2 The longitude of the end of the edge
+     * @param y2 The latitude of the end of the edge
+     * @param minX The minimal longitude of the cell
+     * @param minY The minimal latitude of the cell
+     * @param maxX The maximal longitude of the cell
+     * @param maxY The maximal latitude of the cell
+     * @return {@code true} unless all corners of the cell lie strictly on the same side of the edge
+     */
+    private static boolean crosses(final double x1, final double y1, final double x2, final double y2,
+            final double minX, final double minY, final double maxX, final double maxY) {
+        final var dx = x2 - x1;
+        final var dy = y2 - y1;
+        final var a = Math.signum(dx * (minY - y1) - dy * (minX - x1));
+        final var b = Math.signum(dx * (minY - y1) - dy * (maxX - x1));
+        final var c = Math.signum(dx * (maxY - y1) - dy * (minX - x1));
+        final var d = Math.signum(dx * (maxY - y1) - dy * (maxX - x1));
+        return !(a == b && b == c && c == d && a != 0);
+    }
+
+    /**
+     * Adds the rings of a GeoJSON polygon.
+     *
+     * @param polygon The coordinates of the polygon, the outer ring followed by the holes
+     * @param rings The rings to add to, each as alternating longitude and latitude
+     */
+    private static void addRings(final JSONArray polygon, final List<double[]> rings) {
+        for (int r = 0; r < polygon.length(); r++) {
+            final var positions = polygon.getJSONArray(r);
+            final var ring = new double[positions.length() * 2];
+            for (int p = 0; p < positions.length(); p++) {
+                ring[p * 2] = positions.getJSONArray(p).getDouble(0);
+                ring[p * 2 + 1] = positions.getJSONArray(p).getDouble(1);
+            }
+            rings.add(ring);
+        }
+    }
+}
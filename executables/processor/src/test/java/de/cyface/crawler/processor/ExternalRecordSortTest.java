@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.cyface.crawler.model.Record;
+
+public class ExternalRecordSortTest {
+
+    @Test
+    public void testGroupMergesTheSpilledRuns(@TempDir final Path directory) throws IOException {
+        // Arrange
+        final var random = new Random(1L);
+        final var records = new ArrayList<Record>();
+        for (int i = 0; i < 1_000; i++) {
+            records.add(new Record(new ObjectId(), "P" + random.nextInt(20), 51.05, 13.73, new Date(0L),
+                    new Date(random.nextInt(1_000_000)), 1_000, new Date(0L), 50, null));
+        }
+        final var oocut = new ExternalRecordSort(directory, 64, 3);
+
+        // Act
+        final var res = new ArrayList<List<Record>>();
+        final var count = oocut.group(records, res::add);
+
+        // Assert
+        assertThat(count, is(equalTo((long)records.size())));
+        assertThat(res.stream().mapToInt(List::size).sum(), is(equalTo(records.size())));
+        final var lastThrees = new HashSet<String>();
+        for (final var vehicle : res) {
+            final var lastThree = vehicle.get(0).getLastThree();
+            // Each vehicle is passed on once, with all its records
+            assertThat(lastThrees.add(lastThree), is(true));
+            for (int i = 0; i < vehicle.size(); i++) {
+                assertThat(vehicle.get(i).getLastThree(), is(equalTo(lastThree)));
+                if (i > 0) {
+                    assertThat(vehicle.get(i - 1).getRequestTime().after(vehicle.get(i).getRequestTime()), is(false));
+                }
+            }
+        }
+        try (var files = Files.list(directory)) {
+            assertThat(files.count(), is(equalTo(0L)));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Decoder;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+
+import de.cyface.crawler.model.Record;
+import de.cyface.crawler.model.RecordCodec;
+
+public class RecordPipelineTest {
+
+    @Test
+    public void testBatchesAreReturnedInCursorOrder() {
+        // Arrange
+        final var codec = new RecordCodec();
+        final var random = new Random(1L);
+        // Decodes the batches at different speeds, so that they are completed out of order
+        final Decoder<Record> decoder = (reader, context) -> {
+            sleep(random.nextInt(3));
+            return codec.decode(reader, context);
+        };
+        final var source = source(documents(100));
+
+        // Act
+        final var res = new ArrayList<Integer>();
+        try (var oocut = new RecordPipeline(source.iterable, decoder, 3, 4)) {
+            oocut.forEach(record -> res.add(record.getMeterRange()));
+        }
+
+        // Assert
+        final var expected = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        assertThat(res, is(equalTo(expected)));
+    }
+
+    @Test
+    public void testDecodeFailuresAreRethrown() {
+        // Arrange
+        final var codec = new RecordCodec();
+        final Decoder<Record> decoder = (reader, context) -> {
+            final var record = codec.decode(reader, context);
+            if (record.getMeterRange() == 42) {
+                throw new IllegalArgumentException("Corrupt record");
+            }
+            return record;
+        };
+        final var source = source(documents(100));
+
+        // Act
+        try (var oocut = new RecordPipeline(source.iterable, decoder, 5, 2)) {
+            final var iterator = oocut.iterator();
+            final var res = assertThrows(IllegalArgumentException.class, () -> {
+                while (iterator.hasNext()) {
+                    iterator.next();
+                }
+            });
+
+            // Assert
+            assertThat(res.getMessage(), is(equalTo("Corrupt record")));
+        }
+    }
+
+    @Test
+    public void testCloseStopsTheFetcherBeforeTheEnd() {
+        // Arrange
+        final var source = source(documents(1_000));
+        final var oocut = new RecordPipeline(source.iterable, new RecordCodec(), 1, 1);
+        final var iterator = oocut.iterator();
+        iterator.next();
+
+        // Act
+        oocut.close();
+
+        // Assert
+        verify(source.cursor, timeout(5_000)).close();
+    }
+
+    /**
+     * @param count The number of documents to create
+     * @return Raw records, each with its index as meter range
+     */
+    private static List<RawBsonDocument> documents(final int count) {
+        final var codec = new RecordCodec();
+        final var ret = new ArrayList<RawBsonDocument>(count);
+        for (int i = 0; i < count; i++) {
+            final var record = new Record(new ObjectId(), "001", 51.05, 13.73, new Date(0L), new Date(i), i,
+                    new Date(0L), 50, "XXX-001");
+            ret.add(new RawBsonDocument(record, codec));
+        }
+        return ret;
+    }
+
+    /**
+     * @param documents The documents returned by the cursor
+     * @return A query result which returns the documents
+     */
+    @SuppressWarnings("unchecked")
+    private static Source source(final List<RawBsonDocument> documents) {
+        final MongoIterable<RawBsonDocument> iterable = mock(MongoIterable.class);
+        final MongoCursor<RawBsonDocument> cursor = mock(MongoCursor.class);
+        final var iterator = documents.iterator();
+        when(iterable.batchSize(anyInt())).thenReturn(iterable);
+        when(iterable.iterator()).thenReturn(cursor);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return new Source(iterable, cursor);
+    }
+
+    /**
+     * @param millis The milliseconds to sleep
+     */
+    private static void sleep(final int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A stubbed query result together with the cursor it returns.
+     */
+    private static final class Source {
+
+        /**
+         * The query result.
+         */
+        private final MongoIterable<RawBsonDocument> iterable;
+        /**
+         * The cursor returned by {@link #iterable}.
+         */
+        private final MongoCursor<RawBsonDocument> cursor;
+
+        /**
+         * @param iterable The query result.
+         * @param cursor The cursor returned by {@code iterable}.
+         */
+        private Source(final MongoIterable<RawBsonDocument> iterable, final MongoCursor<RawBsonDocument> cursor) {
+            this.iterable = iterable;
+            this.cursor = cursor;
+        }
+    }
+}
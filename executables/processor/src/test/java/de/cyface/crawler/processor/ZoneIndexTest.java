@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.processor;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ZoneIndexTest {
+
+    @Test
+    public void testZoneOf() {
+        // Arrange
+        final var area = new double[] {13.60, 51.00, 13.80, 51.00, 13.80, 51.10, 13.60, 51.10};
+        final var hole = new double[] {13.65, 51.05, 13.66, 51.05, 13.66, 51.06, 13.65, 51.06};
+        final var district = new double[] {13.70, 51.02, 13.75, 51.02, 13.70, 51.08};
+        final var oocut = new ZoneIndex(List.of(new Zone("district", List.of(district)),
+                new Zone("area", List.of(area, hole))), 8);
+
+        // Act & Assert
+        assertThat(oocut.zoneOf(51.03, 13.71), is(equalTo("district")));
+        assertThat(oocut.zoneOf(51.07, 13.74), is(equalTo("area")));
+        assertThat(oocut.zoneOf(51.055, 13.655), is(nullValue()));
+        assertThat(oocut.zoneOf(51.01, 13.61), is(equalTo("area")));
+        assertThat(oocut.zoneOf(51.11, 13.70), is(nullValue()));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.io.IOException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This application starts a local simulation of the Lime API which the crawler can be pointed to using its
+ * {@code --lime-base-uri} option, e.g. to measure crawl durations and the requests required to cover the area offline.
+ * <p>
+ * To view the accepted command line parameters just call the application with an invalid one.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class Application {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
+    static final String PORT_SHORT_OPTION = "p";
+    static final String PORT_LONG_OPTION = "port";
+    static final String SEED_SHORT_OPTION = "s";
+    static final String SEED_LONG_OPTION = "seed";
+    static final String FLEET_SIZE_SHORT_OPTION = "fs";
+    static final String FLEET_SIZE_LONG_OPTION = "fleet-size";
+    static final String LATENCY_SHORT_OPTION = "l";
+    static final String LATENCY_LONG_OPTION = "latency-milliseconds";
+    static final String RATE_LIMIT_SHARE_SHORT_OPTION = "rl";
+    static final String RATE_LIMIT_SHARE_LONG_OPTION = "rate-limit-share";
+    static final String VIEWPORT_TILES_SHORT_OPTION = "vt";
+    static final String VIEWPORT_TILES_LONG_OPTION = "viewport-tiles";
+    /**
+     * The port the simulator listens on by default.
+     */
+    private static final int DEFAULT_PORT = 8080;
+    /**
+     * The seed used to generate the fleet and to inject rate limits by default.
+     */
+    private static final long DEFAULT_SEED = 42;
+    /**
+     * The number of vehicles simulated by default.
+     */
+    private static final int DEFAULT_FLEET_SIZE = 1_500;
+    /**
+     * The number of milliseconds each response is delayed by default.
+     */
+    private static final int DEFAULT_LATENCY_MILLISECONDS = 150;
+    /**
+     * The share of requests rejected with {@code 429 Too Many Requests} by default.
+     */
+    private static final double DEFAULT_RATE_LIMIT_SHARE = 0.0;
+    /**
+     * The width of the visible area in map tiles by default.
+     */
+    private static final int DEFAULT_VIEWPORT_TILES = 4;
+    /**
+     * Bounding box of the area crawled by the crawler, i.e. the "green zone" of a sample city (+ 50 m).
+     */
+    private static final double NORTH_EAST_LAT = 51.090157213909116;
+    private static final double NORTH_EAST_LON = 13.809081655279853;
+    private static final double SOUTH_WEST_LAT = 51.02319889010608;
+    private static final double SOUTH_WEST_LON = 13.686292542430092;
+
+    /**
+     * Runs the application from the command line.
+     *
+     * @param args The arguments provided via the current application execution.
+     */
+    public static void main(final String[] args) {
+        try {
+            final CommandLine commandLine = commandLineParser().parse(options(), args);
+            final var port = commandLine.getOptionValue(PORT_SHORT_OPTION, String.valueOf(DEFAULT_PORT));
+            final var seed = commandLine.getOptionValue(SEED_SHORT_OPTION, String.valueOf(DEFAULT_SEED));
+            final var fleetSize = commandLine.getOptionValue(FLEET_SIZE_SHORT_OPTION,
+                    String.valueOf(DEFAULT_FLEET_SIZE));
+            final var latency = commandLine.getOptionValue(LATENCY_SHORT_OPTION,
+                    String.valueOf(DEFAULT_LATENCY_MILLISECONDS));
+            final var rateLimitShare = commandLine.getOptionValue(RATE_LIMIT_SHARE_SHORT_OPTION,
+                    String.valueOf(DEFAULT_RATE_LIMIT_SHARE));
+            final var viewportTiles = commandLine.getOptionValue(VIEWPORT_TILES_SHORT_OPTION,
+                    String.valueOf(DEFAULT_VIEWPORT_TILES));
+
+            // Execution
+            final var fleet = SyntheticFleet.generate(Long.parseLong(seed), Integer.parseInt(fleetSize),
+                    SOUTH_WEST_LAT, SOUTH_WEST_LON, NORTH_EAST_LAT, NORTH_EAST_LON);
+            final var endpoint = new MapEndpoint(fleet, Integer.parseInt(viewportTiles));
+            final var simulator = new LimeSimulator(endpoint, Integer.parseInt(port), Integer.parseInt(latency),
+                    Double.parseDouble(rateLimitShare), Long.parseLong(seed));
+            Runtime.getRuntime().addShutdownHook(new Thread(simulator::close));
+
+        } catch (ParseException e) {
+            final var header = String.format("Lime API Simulator%n%n\tError: %s%n%n", e.getLocalizedMessage());
+            final var footer = "\nPlease provide appropriate arguments!";
+            final var formatter = new HelpFormatter();
+            formatter.printHelp("simulator", header, options(), footer, true);
+            LOGGER.error("Error: \n", e);
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return An Apache CLI <code>Options</code> object configured with the options available for this application.
+     */
+    private static Options options() {
+        final var ret = new Options();
+        ret.addOption(PORT_SHORT_OPTION, PORT_LONG_OPTION, true,
+                "Please provide the port to listen on.");
+        ret.addOption(SEED_SHORT_OPTION, SEED_LONG_OPTION, true,
+                "Please provide the seed used to generate the fleet and to inject rate limits.");
+        ret.addOption(FLEET_SIZE_SHORT_OPTION, FLEET_SIZE_LONG_OPTION, true,
+                "Please provide the number of vehicles to simulate.");
+        ret.addOption(LATENCY_SHORT_OPTION, LATENCY_LONG_OPTION, true,
+                "Please provide the number of milliseconds each response is delayed.");
+        ret.addOption(RATE_LIMIT_SHARE_SHORT_OPTION, RATE_LIMIT_SHARE_LONG_OPTION, true,
+                "Please provide the share of requests rejected with HTTP 429, between 0 and 1.");
+        ret.addOption(VIEWPORT_TILES_SHORT_OPTION, VIEWPORT_TILES_LONG_OPTION, true,
+                "Please provide the width of the area visible per request in map tiles.");
+
+        return ret;
+    }
+
+    /**
+     * @return An Apache CLI parser used to parse the command line arguments.
+     */
+    private static CommandLineParser commandLineParser() {
+        return new DefaultParser();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server which simulates the Lime API to test crawls without the real API and a token.
+ * <p>
+ * The {@link MapEndpoint} is served with a configurable latency per request and a configurable share of requests
+ * which are rejected with {@code 429 Too Many Requests}. The injected rejections are drawn from a seeded random
+ * generator so that runs are reproducible.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class LimeSimulator implements AutoCloseable {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LimeSimulator.class);
+    /**
+     * The HTTP status code returned for rejected requests.
+     */
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    /**
+     * The number of seconds the client is asked to wait after a rejected request.
+     */
+    private static final int RETRY_AFTER_SECONDS = 1;
+    /**
+     * The number of threads answering requests concurrently.
+     */
+    private static final int THREADS = 4;
+    /**
+     * The endpoint answering the requests.
+     */
+    private final MapEndpoint endpoint;
+    /**
+     * The number of milliseconds each response is delayed.
+     */
+    private final int latencyMillis;
+    /**
+     * The share of requests rejected with {@code 429 Too Many Requests}, between 0 and 1.
+     */
+    private final double rateLimitShare;
+    /**
+     * The random generator deciding which requests are rejected.
+     */
+    private final Random random;
+    /**
+     * The embedded server.
+     */
+    private final HttpServer server;
+    /**
+     * The threads answering requests, which are shut down with the server.
+     */
+    private final ExecutorService executor;
+    /**
+     * The number of requests answered with vehicles.
+     */
+    private final AtomicLong answered = new AtomicLong();
+    /**
+     * The number of requests rejected with {@code 429 Too Many Requests}.
+     */
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    /**
+     * Creates a fully initialized instance of this class and starts the server.
+     *
+     * @param endpoint The endpoint answering the requests
+     * @param port The port to listen on or {@code 0} to choose a free port
+     * @param latencyMillis The number of milliseconds each response is delayed
+     * @param rateLimitShare The share of requests rejected with {@code 429 Too Many Requests}, between 0 and 1
+     * @param seed The seed of the random generator deciding which requests are rejected
+     * @throws IOException If the server could not be started
+     */
+    public LimeSimulator(final MapEndpoint endpoint, final int port, final int latencyMillis,
+            final double rateLimitShare, final long seed) throws IOException {
+        Validate.notNull(endpoint);
+        Validate.isTrue(latencyMillis >= 0);
+        Validate.isTrue(rateLimitShare >= 0 && rateLimitShare <= 1);
+
+        this.endpoint = endpoint;
+        this.latencyMillis = latencyMillis;
+        this.rateLimitShare = rateLimitShare;
+        this.random = new Random(seed);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext(MapEndpoint.PATH, this::handle);
+        this.executor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info(String.format("Simulating Lime API with %d vehicles at %s", endpoint.size(), baseUri()));
+    }
+
+    /**
+     * @return The base URI to configure the crawler with, e.g. {@code http://localhost:8080}
+     */
+    public String baseUri() {
+        return String.format("http://localhost:%d", server.getAddress().getPort());
+    }
+
+    /**
+     * @return The number of requests answered with vehicles
+     */
+    public long getAnswered() {
+        return answered.get();
+    }
+
+    /**
+     * @return The number of requests rejected with {@code 429 Too Many Requests}
+     */
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        LOGGER.info(String.format("Stopped Lime API simulator after %d answered and %d rate limited requests",
+                answered.get(), rateLimited.get()));
+    }
+
+    /**
+     * Answers a request to the {@link MapEndpoint}.
+     *
+     * @param exchange The request to answer
+     * @throws IOException If the response could not be sent
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+
+            final var authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith("Bearer ")) {
+                send(exchange, 401, new JSONObject().put("error", "Missing auth token"));
+                return;
+            }
+            final boolean reject;
+            synchronized (random) {
+                reject = random.nextDouble() < rateLimitShare;
+            }
+            if (reject) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                send(exchange, STATUS_TOO_MANY_REQUESTS, new JSONObject().put("error", "Too many requests"));
+                return;
+            }
+
+            final var response = endpoint.respond(query(exchange.getRequestURI().getRawQuery()));
+            answered.incrementAndGet();
+            send(exchange, response.getStatusCode(), response.getBody());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to answer request " + exchange.getRequestURI(), e);
+            send(exchange, 400, new JSONObject().put("error", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a JSON response, compressed if the client accepts it.
+     *
+     * @param exchange The request to answer
+     * @param statusCode The HTTP status code of the response
+     * @param body The response body
+     * @throws IOException If the response could not be sent
+     */
+    private void send(final HttpExchange exchange, final int statusCode, final JSONObject body) throws IOException {
+        var bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        final var acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            final var compressed = new ByteArrayOutputStream();
+            try (var gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * @param rawQuery The encoded query of the request, may be {@code null}
+     * @return The decoded query parameters
+     */
+    private static Map<String, String> query(final String rawQuery) {
+        final var ret = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return ret;
+        }
+        for (final var parameter : rawQuery.split("&")) {
+            final var separator = parameter.indexOf('=');
+            if (separator > 0) {
+                ret.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Answers requests to the `/api/rider/v1/views/map` endpoint of the Lime API from a fixed fleet.
+ * <p>
+ * The vehicles closest to the user location are returned, at most {@link #MAX_VEHICLES_PER_RESPONSE}. Only vehicles
+ * within the area visible at the requested zoom level and within the requested bounding box are returned, so that a
+ * request never returns vehicles outside of the region the crawler asked for. Zoom levels below {@link #MIN_ZOOM} are
+ * rejected.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class MapEndpoint {
+
+    /**
+     * The path of the endpoint.
+     */
+    public static final String PATH = "/api/rider/v1/views/map";
+    /**
+     * The maximum number of vehicles returned per response.
+     */
+    public static final int MAX_VEHICLES_PER_RESPONSE = 50;
+    /**
+     * The lowest zoom level which returns `bikes`.
+     */
+    public static final int MIN_ZOOM = 15;
+    /**
+     * The HTTP status returned for zoom levels below {@link #MIN_ZOOM}.
+     */
+    private static final int STATUS_NO_VEHICLES = 401;
+    /**
+     * The fleet sorted by longitude to find the vehicles in a viewport by binary search.
+     */
+    private final List<SimulatedVehicle> fleet;
+    /**
+     * The longitudes of {@link #fleet}, in the same order.
+     */
+    private final double[] longitudes;
+    /**
+     * The width of the visible area in map tiles, which defines how much is visible at a zoom level.
+     */
+    private final int viewportTiles;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param fleet The vehicles to serve
+     * @param viewportTiles The width of the visible area in map tiles, which defines how much is visible at a zoom
+     *            level
+     */
+    public MapEndpoint(final List<SimulatedVehicle> fleet, final int viewportTiles) {
+        Validate.isTrue(viewportTiles > 0);
+
+        this.fleet = new ArrayList<>(fleet);
+        this.fleet.sort(Comparator.comparingDouble(SimulatedVehicle::getLongitude));
+        this.longitudes = this.fleet.stream().mapToDouble(SimulatedVehicle::getLongitude).toArray();
+        this.viewportTiles = viewportTiles;
+    }
+
+    /**
+     * Answers a request to the endpoint.
+     *
+     * @param query The query parameters of the request
+     * @return The HTTP status and body to respond with
+     */
+    public Response respond(final Map<String, String> query) {
+        final var zoom = Integer.parseInt(query.get("zoom"));
+        if (zoom < MIN_ZOOM) {
+            final var attributes = new JSONObject().put("title", "No nearby vehicles");
+            return new Response(STATUS_NO_VEHICLES, body(attributes));
+        }
+
+        final var userLatitude = Double.parseDouble(query.get("user_latitude"));
+        final var userLongitude = Double.parseDouble(query.get("user_longitude"));
+        final var bikes = new JSONArray();
+        final List<SimulatedVehicle> visible;
+        if (query.containsKey("ne_lat")) {
+            visible = visible(userLatitude, userLongitude, zoom, Double.parseDouble(query.get("sw_lat")),
+                    Double.parseDouble(query.get("sw_lng")), Double.parseDouble(query.get("ne_lat")),
+                    Double.parseDouble(query.get("ne_lng")));
+        } else {
+            visible = visible(userLatitude, userLongitude, zoom);
+        }
+        visible.forEach(v -> bikes.put(v.getBike()));
+        final var attributes = new JSONObject()
+                .put("current_level", "block")
+                .put("bikes", bikes);
+        return new Response(200, body(attributes));
+    }
+
+    /**
+     * Selects the vehicles returned for a request without a bounding box.
+     *
+     * @param userLatitude The latitude of the user location, i.e. the center of the visible area
+     * @param userLongitude The longitude of the user location, i.e. the center of the visible area
+     * @param zoom The zoom level which defines the size of the visible area
+     * @return The visible vehicles closest to the user location, at most {@link #MAX_VEHICLES_PER_RESPONSE}
+     */
+    public List<SimulatedVehicle> visible(final double userLatitude, final double userLongitude, final int zoom) {
+        return visible(userLatitude, userLongitude, zoom, -90.0, -180.0, 90.0, 180.0);
+    }
+
+    /**
+     * Selects the vehicles returned for a request.
+     *
+     * @param userLatitude The latitude of the user location, i.e. the center of the visible area
+     * @param userLongitude The longitude of the user location, i.e. the center of the visible area
+     * @param zoom The zoom level which defines the size of the visible area
+     * @param southWestLat The latitude of the south-west corner of the requested bounding box
+     * @param southWestLon The longitude of the south-west corner of the requested bounding box
+     * @param northEastLat The latitude of the north-east corner of the requested bounding box
+     * @param northEastLon The longitude of the north-east corner of the requested bounding box
+     * @return The vehicles within the visible area and the bounding box which are closest to the user location, at
+     *         most {@link #MAX_VEHICLES_PER_RESPONSE}
+     */
+    public List<SimulatedVehicle> visible(final double userLatitude, final double userLongitude, final int zoom,
+            final double southWestLat, final double southWestLon, final double northEastLat,
+            final double northEastLon) {
+        final var lonSpan = viewportTiles * 360.0 / Math.pow(2, zoom);
+        final var latSpan = lonSpan * Math.cos(Math.toRadians(userLatitude));
+        final var minLon = Math.max(userLongitude - lonSpan / 2, southWestLon);
+        final var maxLon = Math.min(userLongitude + lonSpan / 2, northEastLon);
+        final var minLat = Math.max(userLatitude - latSpan / 2, southWestLat);
+        final var maxLat = Math.min(userLatitude + latSpan / 2, northEastLat);
+
+        // Keeps the closest vehicles, the farthest on top to be replaced first
+        final Comparator<SimulatedVehicle> byDistance = Comparator
+                .comparingDouble(v -> squaredDistance(v, userLatitude, userLongitude));
+        final var closest = new PriorityQueue<>(MAX_VEHICLES_PER_RESPONSE + 1, byDistance.reversed());
+        for (int i = firstIndexFrom(minLon); i < longitudes.length && longitudes[i] <= maxLon; i++) {
+            final var vehicle = fleet.get(i);
+            if (vehicle.getLatitude() < minLat || vehicle.getLatitude() > maxLat) {
+                continue;
+            }
+            closest.add(vehicle);
+            if (closest.size() > MAX_VEHICLES_PER_RESPONSE) {
+                closest.poll();
+            }
+        }
+
+        final var ret = new ArrayList<>(closest);
+        ret.sort(byDistance);
+        return ret;
+    }
+
+    /**
+     * @return The number of vehicles served by this endpoint
+     */
+    public int size() {
+        return fleet.size();
+    }
+
+    /**
+     * @param longitude The smallest longitude to find
+     * @return The index of the first vehicle with a longitude equal to or larger than {@code longitude}
+     */
+    private int firstIndexFrom(final double longitude) {
+        int low = 0;
+        int high = longitudes.length;
+        while (low < high) {
+            final var middle = (low + high) >>> 1;
+            if (longitudes[middle] < longitude) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param vehicle The vehicle to calculate the distance for
+     * @param latitude The latitude of the location to calculate the distance to
+     * @param longitude The longitude of the location to calculate the distance to
+     * @return An approximation of the squared distance, sufficient to order vehicles by distance
+     */
+    private static double squaredDistance(final SimulatedVehicle vehicle, final double latitude,
+            final double longitude) {
+        final var latDiff = vehicle.getLatitude() - latitude;
+        final var lonDiff = (vehicle.getLongitude() - longitude) * Math.cos(Math.toRadians(latitude));
+        return latDiff * latDiff + lonDiff * lonDiff;
+    }
+
+    /**
+     * @param attributes The `data.attributes` part of the response
+     * @return The complete response body
+     */
+    private static JSONObject body(final JSONObject attributes) {
+        return new JSONObject().put("data", new JSONObject().put("attributes", attributes));
+    }
+
+    /**
+     * A response of the simulated endpoint.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class Response {
+
+        /**
+         * The HTTP status code of the response.
+         */
+        private final int statusCode;
+        /**
+         * The response body.
+         */
+        private final JSONObject body;
+
+        /**
+         * Creates a fully initialized instance of this class.
+         *
+         * @param statusCode The HTTP status code of the response.
+         * @param body The response body.
+         */
+        Response(final int statusCode, final JSONObject body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        /**
+         * @return The HTTP status code of the response.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return The response body.
+         */
+        public JSONObject getBody() {
+            return body;
+        }
+    }
+}
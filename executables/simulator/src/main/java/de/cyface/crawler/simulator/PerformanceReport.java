@@ -0,0 +1,162 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.json.JSONObject;
+
+/**
+ * The metrics measured by one run of the {@link PerformanceSuite}, which can be compared to a baseline to detect
+ * performance regressions.
+ * <p>
+ * The report is stored as JSON, e.g. {@code {"metrics": {"crawl.requests_per_second": {"value": 812.5, "unit":
+ * "1/s", "higher_is_better": true}}}}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class PerformanceReport {
+
+    /**
+     * The metrics by their name, in the order they were measured.
+     */
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+    /**
+     * Adds a measured metric.
+     *
+     * @param name The name of the metric, e.g. "crawl.requests_per_second"
+     * @param value The measured value
+     * @param unit The unit of the value, e.g. "ms"
+     * @param higherIsBetter {@code true} if higher values are better, e.g. for throughput
+     */
+    public void add(final String name, final double value, final String unit, final boolean higherIsBetter) {
+        Validate.notEmpty(name);
+        Validate.isTrue(!Double.isNaN(value) && !Double.isInfinite(value), "Invalid value for " + name);
+
+        metrics.put(name, new Metric(value, unit, higherIsBetter));
+    }
+
+    /**
+     * @param name The name of a metric
+     * @return The measured value or {@code null} if the metric was not measured
+     */
+    public Double value(final String name) {
+        final var metric = metrics.get(name);
+        return metric == null ? null : metric.value;
+    }
+
+    /**
+     * Compares the metrics with a baseline. Metrics which are not part of the baseline are ignored.
+     *
+     * @param baseline The report to compare with
+     * @param tolerance The relative change tolerated, e.g. {@code 0.2} for 20 %
+     * @return A description of each metric which got worse than tolerated, empty if there is no regression
+     */
+    public List<String> regressions(final PerformanceReport baseline, final double tolerance) {
+        Validate.isTrue(tolerance >= 0);
+
+        final var ret = new ArrayList<String>();
+        metrics.forEach((name, metric) -> {
+            final var base = baseline.metrics.get(name);
+            if (base == null || base.value <= 0) {
+                return;
+            }
+            final var change = (metric.value - base.value) / base.value;
+            final var worse = metric.higherIsBetter ? -change : change;
+            if (worse > tolerance) {
+                ret.add(String.format("%s regressed by %.1f %%: %.2f -> %.2f %s", name, worse * 100, base.value,
+                        metric.value, metric.unit));
+            }
+        });
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * @param file The file to write the report to as JSON
+     * @throws IOException If the file could not be written
+     */
+    public void write(final Path file) throws IOException {
+        final var json = new JSONObject();
+        metrics.forEach((name, metric) -> json.put(name, new JSONObject()
+                .put("value", metric.value)
+                .put("unit", metric.unit)
+                .put("higher_is_better", metric.higherIsBetter)));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, new JSONObject().put("metrics", json).toString(2), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param file A report written by {@link #write(Path)}
+     * @return The report
+     * @throws IOException If the file could not be read
+     */
+    public static PerformanceReport read(final Path file) throws IOException {
+        final var json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8)).getJSONObject("metrics");
+        final var ret = new PerformanceReport();
+        for (final var name : json.keySet()) {
+            final var metric = json.getJSONObject(name);
+            ret.add(name, metric.getDouble("value"), metric.getString("unit"), metric.getBoolean("higher_is_better"));
+        }
+        return ret;
+    }
+
+    /**
+     * One measured metric.
+     */
+    private static final class Metric {
+
+        /**
+         * The measured value.
+         */
+        private final double value;
+        /**
+         * The unit of the value, e.g. "ms".
+         */
+        private final String unit;
+        /**
+         * {@code true} if higher values are better, e.g. for throughput.
+         */
+        private final boolean higherIsBetter;
+
+        /**
+         * @param value The measured value.
+         * @param unit The unit of the value, e.g. "ms".
+         * @param higherIsBetter {@code true} if higher values are better, e.g. for throughput.
+         */
+        private Metric(final double value, final String unit, final boolean higherIsBetter) {
+            this.value = value;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClients;
+
+import de.cyface.crawler.CrawlEngine;
+import de.cyface.crawler.CrawlListener;
+import de.cyface.crawler.CrawlRun;
+import de.cyface.crawler.HttpTransport;
+import de.cyface.crawler.LimeProvider;
+import de.cyface.crawler.MongoConnection;
+import de.cyface.crawler.VehicleStateCache;
+import de.cyface.crawler.model.LimeVehicle;
+import de.cyface.crawler.processor.PostgresConnection;
+import de.cyface.crawler.processor.Processor;
+import de.cyface.crawler.processor.Shard;
+import de.cyface.crawler.processor.SourceDestinationRelation;
+
+/**
+ * Detects performance regressions of the crawler and the processor by running both over a fixed, seeded dataset.
+ * <p>
+ * The crawl phase crawls a sequence of synthetic fleets, in which a share of the vehicles moves between two
+ * snapshots, from the {@link LimeSimulator} with the {@link CrawlEngine} of the crawler, without delay between the
+ * requests and with delta persistence, and writes the records into a Mongo database. The process phase runs
+ * the processor over these records and writes the relations into a Postgres database. The throughput, the request
+ * latencies, the peak heap and the allocation rate of each phase are written to a {@link PerformanceReport} and
+ * compared with a stored baseline. The run fails if a metric got worse than tolerated or if there is no baseline to
+ * compare with, unless the results are stored as new baseline.
+ * <p>
+ * The collections and the table used are dropped before and after the run. Results are only comparable between runs
+ * on the same machine with the same JVM settings.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class PerformanceSuite {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PerformanceSuite.class);
+    static final String MONGO_HOST_SHORT_OPTION = "mh";
+    static final String MONGO_HOST_LONG_OPTION = "mongo-host";
+    static final String MONGO_PORT_SHORT_OPTION = "mp";
+    static final String MONGO_PORT_LONG_OPTION = "mongo-port";
+    static final String MONGO_DATABASE_SHORT_OPTION = "md";
+    static final String MONGO_DATABASE_LONG_OPTION = "mongo-database";
+    static final String MONGO_USER_SHORT_OPTION = "mu";
+    static final String MONGO_USER_LONG_OPTION = "mongo-user";
+    static final String MONGO_PASSWORD_SHORT_OPTION = "mpw";
+    static final String MONGO_PASSWORD_LONG_OPTION = "mongo-password";
+    static final String POSTGRES_URL_SHORT_OPTION = "purl";
+    static final String POSTGRES_URL_LONG_OPTION = "postgres-url";
+    static final String POSTGRES_USER_SHORT_OPTION = "pu";
+    static final String POSTGRES_USER_LONG_OPTION = "postgres-user";
+    static final String POSTGRES_PASSWORD_SHORT_OPTION = "pp";
+    static final String POSTGRES_PASSWORD_LONG_OPTION = "postgres-password";
+    static final String REPORT_SHORT_OPTION = "r";
+    static final String REPORT_LONG_OPTION = "report";
+    static final String BASELINE_SHORT_OPTION = "bl";
+    static final String BASELINE_LONG_OPTION = "baseline";
+    static final String TOLERANCE_SHORT_OPTION = "t";
+    static final String TOLERANCE_LONG_OPTION = "tolerance";
+    static final String UPDATE_BASELINE_SHORT_OPTION = "ub";
+    static final String UPDATE_BASELINE_LONG_OPTION = "update-baseline";
+    /**
+     * The relative change of a metric tolerated by default.
+     */
+    private static final double DEFAULT_TOLERANCE = 0.2;
+    /**
+     * The seed of the fleets crawled.
+     */
+    private static final long SEED = 1L;
+    /**
+     * The number of vehicles in each fleet.
+     */
+    private static final int FLEET_SIZE = 1_500;
+    /**
+     * The number of fleets crawled, each one after a share of the vehicles moved.
+     */
+    private static final int SNAPSHOTS = 8;
+    /**
+     * The share of vehicles which move between two snapshots.
+     */
+    private static final double MOVED_SHARE = 0.2;
+    /**
+     * The standard deviation of the distance a vehicle moves in degrees, about 1 km.
+     */
+    private static final double TRIP_DEGREES = 0.01;
+    /**
+     * The width of the area visible per request in map tiles.
+     */
+    private static final int VIEWPORT_TILES = 4;
+    /**
+     * The number of requests after which a crawl is aborted if it did not stop before.
+     */
+    private static final int MAX_REQUESTS = 20_000;
+    /**
+     * The minutes to wait for a crawl to be persisted.
+     */
+    private static final long CRAWL_TIMEOUT_MINUTES = 10;
+    /**
+     * The distance in meters a vehicle needs to move to be persisted again, as by default in delta persistence mode.
+     */
+    private static final double DELTA_DISTANCE_METERS = 20;
+    /**
+     * The change in battery percentage points required to persist a vehicle again, as by default in delta
+     * persistence mode.
+     */
+    private static final int DELTA_BATTERY_PERCENTAGE = 5;
+    /**
+     * The minutes after which a vehicle is persisted again even if it did not change, as by default in delta
+     * persistence mode.
+     */
+    private static final int HEARTBEAT_MINUTES = 60;
+    /**
+     * The collection the records are written to and processed from.
+     */
+    private static final String COLLECTION_NAME = "performance_records";
+    /**
+     * The table the relations are written to.
+     */
+    private static final String TABLE_NAME = "performance_relations";
+
+    /**
+     * Runs the suite from the command line.
+     *
+     * @param args The arguments provided via the current application execution.
+     */
+    public static void main(final String[] args) {
+        try {
+            final CommandLine commandLine = commandLineParser().parse(options(), args);
+            final var mongoHost = commandLine.getOptionValue(MONGO_HOST_SHORT_OPTION, "localhost");
+            final var mongoPort = Integer.parseInt(commandLine.getOptionValue(MONGO_PORT_SHORT_OPTION, "27017"));
+            final var mongoDatabase = commandLine.getOptionValue(MONGO_DATABASE_SHORT_OPTION, "performance");
+            final var mongoUser = commandLine.getOptionValue(MONGO_USER_SHORT_OPTION, "root");
+            final var mongoPassword = commandLine.getOptionValue(MONGO_PASSWORD_SHORT_OPTION, "example");
+            final var postgresUrl = commandLine.getOptionValue(POSTGRES_URL_SHORT_OPTION,
+                    "jdbc:postgresql://localhost:5432/postgres");
+            final var postgresUser = commandLine.getOptionValue(POSTGRES_USER_SHORT_OPTION, "postgres");
+            final var postgresPassword = commandLine.getOptionValue(POSTGRES_PASSWORD_SHORT_OPTION, "postgres");
+            final var report = Paths.get(commandLine.getOptionValue(REPORT_SHORT_OPTION, "performance.json"));
+            final var baseline = commandLine.hasOption(BASELINE_SHORT_OPTION)
+                    ? Paths.get(commandLine.getOptionValue(BASELINE_SHORT_OPTION))
+                    : null;
+            final var tolerance = Double.parseDouble(commandLine.getOptionValue(TOLERANCE_SHORT_OPTION,
+                    String.valueOf(DEFAULT_TOLERANCE)));
+
+            final var suite = new PerformanceSuite();
+            final var mongo = new MongoConnection(mongoHost, mongoPort, mongoDatabase, mongoUser, mongoPassword);
+            final var processorMongo = new de.cyface.crawler.processor.MongoConnection(mongoHost, mongoPort,
+                    mongoDatabase, mongoUser, mongoPassword);
+            final var postgres = new PostgresConnection(postgresUrl, postgresUser, postgresPassword);
+            final var mongoUri = String.format("mongodb://%s:%s@%s:%s", mongoUser, mongoPassword, mongoHost,
+                    mongoPort);
+
+            dropCollection(mongoUri, mongoDatabase);
+            dropTable(postgresUrl, postgresUser, postgresPassword);
+            final PerformanceReport result;
+            try {
+                result = suite.run(mongo, processorMongo, postgres);
+            } finally {
+                dropCollection(mongoUri, mongoDatabase);
+                dropTable(postgresUrl, postgresUser, postgresPassword);
+            }
+            result.write(report);
+            LOGGER.info("Wrote performance report to " + report.toAbsolutePath());
+
+            if (baseline == null) {
+                return;
+            }
+            if (commandLine.hasOption(UPDATE_BASELINE_SHORT_OPTION)) {
+                result.write(baseline);
+                LOGGER.info("Stored the results as new baseline " + baseline.toAbsolutePath());
+                return;
+            }
+            if (!Files.exists(baseline)) {
+                throw new IllegalStateException(String.format(
+                        "No baseline %s to compare with, store the results of a run on this machine as baseline first",
+                        baseline.toAbsolutePath()));
+            }
+            final var regressions = result.regressions(PerformanceReport.read(baseline), tolerance);
+            if (!regressions.isEmpty()) {
+                regressions.forEach(LOGGER::error);
+                throw new IllegalStateException(String.format("%d metrics regressed by more than %.0f %%",
+                        regressions.size(), tolerance * 100));
+            }
+            LOGGER.info("No metric regressed by more than " + tolerance * 100 + " %");
+
+        } catch (ParseException e) {
+            final var header = String.format("Performance Regression Suite%n%n\tError: %s%n%n",
+                    e.getLocalizedMessage());
+            final var footer = "\nPlease provide appropriate arguments!";
+            final var formatter = new HelpFormatter();
+            formatter.printHelp("performance", header, options(), footer, true);
+            LOGGER.error("Error: \n", e);
+            throw new IllegalStateException(e);
+        } catch (IOException | SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs the crawl phase and the process phase.
+     *
+     * @param mongo The database the crawl phase writes the records to
+     * @param processorMongo The database the process phase reads the records from
+     * @param postgres The database the process phase writes the relations to
+     * @return The metrics measured
+     * @throws IOException If the simulator could not be started
+     * @throws SQLException If the relations could not be written
+     */
+    public PerformanceReport run(final MongoConnection mongo,
+            final de.cyface.crawler.processor.MongoConnection processorMongo, final PostgresConnection postgres)
+            throws IOException, SQLException {
+        final var report = new PerformanceReport();
+        mongo.provision(COLLECTION_NAME);
+
+        // Crawl phase
+        final var transport = new TimedTransport(Duration.ofSeconds(10), Duration.ofSeconds(30));
+        final var stateCache = new VehicleStateCache(DELTA_DISTANCE_METERS, DELTA_BATTERY_PERCENTAGE,
+                HEARTBEAT_MINUTES);
+        var records = 0L;
+        var writeNanos = 0L;
+        final var crawlProbe = ResourceProbe.start();
+        for (final var fleet : fleets()) {
+            try (var simulator = new LimeSimulator(new MapEndpoint(fleet, VIEWPORT_TILES), 0, 0, 0, SEED)) {
+                final var crawl = new CrawlWaiter();
+                final var provider = new LimeProvider(simulator.baseUri(), "MOCK_TOKEN") {
+                    @Override
+                    public String collectionName() {
+                        return COLLECTION_NAME;
+                    }
+                };
+                new CrawlEngine(transport, provider, MAX_REQUESTS, 0, null, null, stateCache, null, null, null,
+                        List.of(crawl)).crawl(mongo);
+                final var run = crawl.await();
+                Validate.isTrue(CrawlRun.COMPLETED.equals(run.getStopReason()),
+                        "The crawl of the simulated API stopped: " + run.getStopReason());
+                records += run.getPersisted();
+                writeNanos += crawl.persistNanos;
+            }
+        }
+        final var latencies = transport.latencies();
+        report.add("crawl.requests_per_second", latencies.size() / crawlProbe.seconds(), "1/s", true);
+        final var sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        report.add("crawl.latency_p50", percentile(sorted, 0.5) / 1E6, "ms", false);
+        report.add("crawl.latency_p95", percentile(sorted, 0.95) / 1E6, "ms", false);
+        report.add("crawl.latency_p99", percentile(sorted, 0.99) / 1E6, "ms", false);
+        report.add("crawl.peak_heap", crawlProbe.peakHeapMegabytes(), "MB", false);
+        report.add("crawl.allocation_rate", crawlProbe.allocationMegabytesPerSecond(), "MB/s", false);
+        report.add("crawl.written_records_per_second", records / (writeNanos / 1E9), "1/s", true);
+
+        // Process phase
+        final var processProbe = ResourceProbe.start();
+        final var relations = new ArrayList<SourceDestinationRelation>();
+        new Processor(processorMongo, null, false).run(COLLECTION_NAME, Shard.ALL).values()
+                .forEach(relations::addAll);
+        final var processSeconds = processProbe.seconds();
+        final var loadStart = System.nanoTime();
+        postgres.write(relations, TABLE_NAME);
+        final var loadSeconds = (System.nanoTime() - loadStart) / 1E9;
+        report.add("process.records_per_second", records / processSeconds, "1/s", true);
+        report.add("process.peak_heap", processProbe.peakHeapMegabytes(), "MB", false);
+        report.add("process.allocation_rate", processProbe.allocationMegabytesPerSecond(), "MB/s", false);
+        report.add("process.written_relations_per_second", relations.size() / loadSeconds, "1/s", true);
+
+        LOGGER.info(String.format("Crawled %d records with %d requests and found %d relations.", records,
+                latencies.size(), relations.size()));
+        return report;
+    }
+
+    /**
+     * Generates the fleets crawled. The first fleet is a {@link SyntheticFleet}, each subsequent fleet is the previous
+     * one after {@link #MOVED_SHARE} of the vehicles moved. The same fleets are generated on each run.
+     *
+     * @return The fleets in the order they are crawled
+     */
+    static List<List<SimulatedVehicle>> fleets() {
+        final var region = StrategyEvaluation.INITIAL_REGION;
+        final var random = new Random(SEED);
+        final var ret = new ArrayList<List<SimulatedVehicle>>(SNAPSHOTS);
+        var fleet = SyntheticFleet.generate(SEED, FLEET_SIZE, region.getSouthWestLat(), region.getSouthWestLon(),
+                region.getNorthEastLat(), region.getNorthEastLon());
+        ret.add(fleet);
+        for (int snapshot = 1; snapshot < SNAPSHOTS; snapshot++) {
+            final var moved = new ArrayList<SimulatedVehicle>(fleet.size());
+            for (final var vehicle : fleet) {
+                if (random.nextDouble() >= MOVED_SHARE) {
+                    moved.add(vehicle);
+                    continue;
+                }
+                final var attributes = vehicle.getBike().getJSONObject("attributes");
+                final var latitude = Math.min(region.getNorthEastLat(), Math.max(region.getSouthWestLat(),
+                        vehicle.getLatitude() + random.nextGaussian() * TRIP_DEGREES));
+                final var longitude = Math.min(region.getNorthEastLon(), Math.max(region.getSouthWestLon(),
+                        vehicle.getLongitude() + random.nextGaussian() * TRIP_DEGREES));
+                final var battery = Math.max(0, attributes.getInt("battery_percentage") - 5);
+                moved.add(SimulatedVehicle.create(vehicle.getBike().getString("id"),
+                        attributes.getString("last_three"), latitude, longitude, battery,
+                        attributes.getInt("meter_range") * battery / 100,
+                        OffsetDateTime.parse(attributes.getString("last_activity_at")).plusMinutes(10)));
+            }
+            fleet = moved;
+            ret.add(fleet);
+        }
+        return ret;
+    }
+
+    /**
+     * @param sorted The values in ascending order
+     * @param quantile The quantile to return, e.g. {@code 0.95}
+     * @return The value at the quantile by the nearest-rank method or {@code 0} if there are no values
+     */
+    static long percentile(final long[] sorted, final double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final var rank = (int)Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * @param mongoUri The connection string of the Mongo database
+     * @param databaseName The database which contains the collections
+     */
+    private static void dropCollection(final String mongoUri, final String databaseName) {
+        try (var client = MongoClients.create(new ConnectionString(mongoUri))) {
+            final var database = client.getDatabase(databaseName);
+            database.getCollection(COLLECTION_NAME).drop();
+            database.getCollection(CrawlRun.COLLECTION_NAME).drop();
+        }
+    }
+
+    /**
+     * @param url The JDBC database URL of the Postgres database
+     * @param username The name of the user to authenticate at the database
+     * @param password The password of the user to authenticate at the database
+     * @throws SQLException If the table could not be dropped
+     */
+    private static void dropTable(final String url, final String username, final String password)
+            throws SQLException {
+        try (var connection = DriverManager.getConnection(url, username, password);
+                var statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE_NAME);
+        }
+    }
+
+    /**
+     * @return An Apache CLI <code>Options</code> object configured with the options available for this application.
+     */
+    private static Options options() {
+        final var ret = new Options();
+        ret.addOption(MONGO_HOST_SHORT_OPTION, MONGO_HOST_LONG_OPTION, true,
+                "Please provide a Mongo Database hostname.");
+        ret.addOption(MONGO_PORT_SHORT_OPTION, MONGO_PORT_LONG_OPTION, true,
+                "Please provide a Mongo Database port.");
+        ret.addOption(MONGO_DATABASE_SHORT_OPTION, MONGO_DATABASE_LONG_OPTION, true,
+                "Please provide a Mongo Database name.");
+        ret.addOption(MONGO_USER_SHORT_OPTION, MONGO_USER_LONG_OPTION, true,
+                "Please provide a Mongo Database username.");
+        ret.addOption(MONGO_PASSWORD_SHORT_OPTION, MONGO_PASSWORD_LONG_OPTION, true,
+                "Please provide a Mongo Database password.");
+        ret.addOption(POSTGRES_URL_SHORT_OPTION, POSTGRES_URL_LONG_OPTION, true,
+                "Please provide a Postgres Database URL.");
+        ret.addOption(POSTGRES_USER_SHORT_OPTION, POSTGRES_USER_LONG_OPTION, true,
+                "Please provide a Postgres Database username.");
+        ret.addOption(POSTGRES_PASSWORD_SHORT_OPTION, POSTGRES_PASSWORD_LONG_OPTION, true,
+                "Please provide a Postgres Database password.");
+        ret.addOption(REPORT_SHORT_OPTION, REPORT_LONG_OPTION, true,
+                "Please provide the file to write the JSON report to.");
+        ret.addOption(BASELINE_SHORT_OPTION, BASELINE_LONG_OPTION, true,
+                "Please provide the JSON report to compare with.");
+        ret.addOption(TOLERANCE_SHORT_OPTION, TOLERANCE_LONG_OPTION, true,
+                "Please provide the relative change of a metric tolerated, e.g. 0.2 for 20 %.");
+        ret.addOption(UPDATE_BASELINE_SHORT_OPTION, UPDATE_BASELINE_LONG_OPTION, false,
+                "Set this flag to store the results as new baseline instead of comparing them.");
+
+        return ret;
+    }
+
+    /**
+     * @return An Apache CLI parser used to parse the command line arguments.
+     */
+    private static CommandLineParser commandLineParser() {
+        return new DefaultParser();
+    }
+
+    /**
+     * Waits for a crawl of the {@link CrawlEngine} to be persisted and measures how long persisting took.
+     */
+    private static final class CrawlWaiter implements CrawlListener {
+
+        /**
+         * Released when the crawl was persisted.
+         */
+        private final CountDownLatch persisted = new CountDownLatch(1);
+        /**
+         * The statistics of the crawl, once persisted.
+         */
+        private CrawlRun run;
+        /**
+         * When persisting the crawl started, by {@link System#nanoTime()}.
+         */
+        private long persistStart;
+        /**
+         * The nanoseconds persisting the crawl took.
+         */
+        private long persistNanos;
+
+        @Override
+        public void crawled(final Collection<LimeVehicle> vehicles, final CrawlRun run) {
+            persistStart = System.nanoTime();
+        }
+
+        @Override
+        public void persisted(final CrawlRun run) {
+            persistNanos = System.nanoTime() - persistStart;
+            this.run = run;
+            persisted.countDown();
+        }
+
+        /**
+         * @return The statistics of the crawl
+         */
+        private CrawlRun await() {
+            try {
+                Validate.isTrue(persisted.await(CRAWL_TIMEOUT_MINUTES, TimeUnit.MINUTES),
+                        "The crawl of the simulated API was not persisted in time");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return run;
+        }
+    }
+
+    /**
+     * The transport of the crawler which records the latency of each request.
+     */
+    private static final class TimedTransport extends HttpTransport {
+
+        /**
+         * The latency of each request sent, in nanoseconds.
+         */
+        private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * @param connectTimeout The time to wait for a connection to be established
+         * @param requestTimeout The time to wait for a response
+         */
+        private TimedTransport(final Duration connectTimeout, final Duration requestTimeout) {
+            super(connectTimeout, requestTimeout);
+        }
+
+        @Override
+        public Response get(final URI uri, final Map<String, String> headers)
+                throws IOException, InterruptedException {
+            final var start = System.nanoTime();
+            try {
+                return super.get(uri, headers);
+            } finally {
+                latencies.add(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * @return The latency of each request sent so far, in nanoseconds
+         */
+        private List<Long> latencies() {
+            synchronized (latencies) {
+                return new ArrayList<>(latencies);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.bson.Document;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+
+/**
+ * Loads the fleets recorded by past crawls, to replay them against the simulated API.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class RecordedSnapshots {
+
+    /**
+     * The MongoDB database to use.
+     */
+    private final String databaseName;
+    /**
+     * The host name used to access the Mongo database to read from.
+     */
+    private final String host;
+    /**
+     * The port at which the Mongo database is reachable at.
+     */
+    private final int port;
+    /**
+     * The name of the user to authenticate at the database.
+     */
+    private final String username;
+    /**
+     * The password of the user to authenticate at the database.
+     */
+    private final String password;
+
+    /**
+     * Creates a new completely initialized database source for one Mongo database instance.
+     *
+     * @param host The host name used to access the Mongo database
+     * @param port The port at which the Mongo database is reachable at
+     * @param databaseName The mongoDB database to read from
+     * @param username The name of the user to authenticate at the database
+     * @param password The password of the user to authenticate at the database
+     */
+    public RecordedSnapshots(final String host, final int port, final String databaseName, final String username,
+            final String password) {
+        Validate.notNull(host);
+        Validate.notNull(databaseName);
+        Validate.notNull(username);
+        Validate.notNull(password);
+
+        this.host = host;
+        this.port = port;
+        this.databaseName = databaseName;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Loads the most recent recorded crawls.
+     *
+     * @param collectionName The collection name of the database to load the vehicle records from
+     * @param limit The maximal number of crawls to load
+     * @return The vehicles found by each crawl, by the time the crawl started, most recent first
+     */
+    public Map<Date, List<SimulatedVehicle>> load(final String collectionName, final int limit) {
+
+        final String connectionString = String.format("mongodb://%s:%s@%s:%s", username, password, host, port);
+        try (MongoClient client = MongoClients.create(new ConnectionString(connectionString))) {
+            final var collection = client.getDatabase(databaseName).getCollection(collectionName);
+
+            final var crawls = new ArrayList<Date>();
+            collection.distinct("crawling_started", Date.class).into(crawls);
+            crawls.sort(Comparator.reverseOrder());
+
+            final var ret = new LinkedHashMap<Date, List<SimulatedVehicle>>();
+            for (final var crawl : crawls.subList(0, Math.min(limit, crawls.size()))) {
+                final var fleet = new ArrayList<SimulatedVehicle>();
+                collection.find(new BasicDBObject("crawling_started", crawl))
+                        .forEach(d -> fleet.add(vehicle(d)));
+                ret.put(crawl, fleet);
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * @param document A vehicle record as written by the crawler, to a plain or time-series collection
+     * @return The vehicle to be served by the simulated API
+     */
+    private static SimulatedVehicle vehicle(final Document document) {
+        final var identity = document.containsKey("meta") ? document.get("meta", Document.class) : document;
+        return SimulatedVehicle.create(document.getString("id"), identity.getString("last_three"),
+                document.getDouble("latitude"), document.getDouble("longitude"),
+                document.getInteger("battery_percentage"), document.getInteger("meter_range"),
+                document.getDate("last_activity_at").toInstant().atOffset(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the duration, the peak heap and the allocations of one phase of the {@link PerformanceSuite}.
+ * <p>
+ * The peak heap is the sum of the peaks of all heap memory pools, which is an upper bound as the pools may peak at
+ * different times. The allocations are summed over all threads alive at the end of the phase, so that threads which
+ * terminated during the phase are missed.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+final class ResourceProbe {
+
+    /**
+     * The bytes per megabyte.
+     */
+    private static final double BYTES_PER_MEGABYTE = 1024. * 1024.;
+    /**
+     * When the phase started, as returned by {@link System#nanoTime()}.
+     */
+    private final long startNanos;
+    /**
+     * The bytes allocated by all threads when the phase started.
+     */
+    private final long startAllocated;
+
+    /**
+     * @param startNanos When the phase started, as returned by {@link System#nanoTime()}.
+     * @param startAllocated The bytes allocated by all threads when the phase started.
+     */
+    private ResourceProbe(final long startNanos, final long startAllocated) {
+        this.startNanos = startNanos;
+        this.startAllocated = startAllocated;
+    }
+
+    /**
+     * Starts measuring a phase. Collects the garbage of the previous phases first, so that the peak heap only
+     * reflects this phase.
+     *
+     * @return The probe of the phase
+     */
+    static ResourceProbe start() {
+        System.gc();
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+        return new ResourceProbe(System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * @return The seconds since the phase started
+     */
+    double seconds() {
+        return (System.nanoTime() - startNanos) / 1E9;
+    }
+
+    /**
+     * @return The peak heap usage since the phase started in megabytes
+     */
+    double peakHeapMegabytes() {
+        return heapPools().stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum() / BYTES_PER_MEGABYTE;
+    }
+
+    /**
+     * @return The megabytes allocated per second since the phase started
+     */
+    double allocationMegabytesPerSecond() {
+        return (allocatedBytes() - startAllocated) / BYTES_PER_MEGABYTE / seconds();
+    }
+
+    /**
+     * @return The memory pools of the heap
+     */
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return The bytes allocated by all threads alive
+     */
+    private static long allocatedBytes() {
+        final var threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(b -> b > 0).sum();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.time.OffsetDateTime;
+
+import org.json.JSONObject;
+
+/**
+ * A vehicle served by the simulated API.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class SimulatedVehicle {
+
+    /**
+     * of the vehicle
+     */
+    private final double latitude;
+    /**
+     * of the vehicle
+     */
+    private final double longitude;
+    /**
+     * The vehicle as returned in the `bikes` part of the API response.
+     */
+    private final JSONObject bike;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param latitude of the vehicle
+     * @param longitude of the vehicle
+     * @param bike The vehicle as returned in the `bikes` part of the API response.
+     */
+    public SimulatedVehicle(final double latitude, final double longitude, final JSONObject bike) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.bike = bike;
+    }
+
+    /**
+     * Creates a vehicle in the format returned by the Lime API.
+     *
+     * @param id The encoded id of the vehicle
+     * @param lastThree the last three letters of the plate number
+     * @param latitude of the vehicle
+     * @param longitude of the vehicle
+     * @param batteryPercentage percentage of the battery charge left
+     * @param meterRange how far the vehicle can travel with the current battery level
+     * @param lastActivityAt last time the vehicle was active
+     * @return The simulated vehicle
+     */
+    public static SimulatedVehicle create(final String id, final String lastThree, final double latitude,
+            final double longitude, final int batteryPercentage, final int meterRange,
+            final OffsetDateTime lastActivityAt) {
+        final var batteryLevel = batteryPercentage > 60 ? "high" : batteryPercentage > 30 ? "medium" : "low";
+        final var attributes = new JSONObject()
+                .put("generation", "4")
+                .put("swappable_battery", true)
+                .put("type_name", "scooter")
+                .put("battery_level", batteryLevel)
+                .put("last_three", lastThree)
+                .put("latitude", latitude)
+                .put("longitude", longitude)
+                .put("meter_range", meterRange)
+                .put("last_activity_at", lastActivityAt.toString())
+                .put("plate_number", "XXX-" + lastThree)
+                .put("battery_percentage", batteryPercentage)
+                .put("brand", "lime")
+                .put("status", "locked");
+        final var bike = new JSONObject()
+                .put("id", id)
+                .put("type", "bikes")
+                .put("attributes", attributes);
+        return new SimulatedVehicle(latitude, longitude, bike);
+    }
+
+    /**
+     * @return of the vehicle
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * @return of the vehicle
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * @return The vehicle as returned in the `bikes` part of the API response.
+     */
+    public JSONObject getBike() {
+        return bike;
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.cyface.crawler.FrontierOrder;
+import de.cyface.crawler.LimeProvider;
+import de.cyface.crawler.LocalFrontier;
+import de.cyface.crawler.SplitStrategy;
+import de.cyface.crawler.model.BoundingBox;
+import de.cyface.crawler.model.LimeVehicle;
+
+/**
+ * Compares the crawl strategies offline by replaying fleets against the {@link MapEndpoint}.
+ * <p>
+ * Each combination of {@link SplitStrategy} and {@link FrontierOrder} crawls each fleet like the crawler does,
+ * without the delay between requests. The fleets are either loaded from the vehicle records of past crawls or
+ * generated synthetically.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public class StrategyEvaluation {
+
+    /**
+     * The logger used by objects of this class. Configure it using <tt>src/main/resources/logback.xml</tt>.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StrategyEvaluation.class);
+    static final String MONGO_HOST_SHORT_OPTION = "mh";
+    static final String MONGO_HOST_LONG_OPTION = "mongo-host";
+    static final String MONGO_PORT_SHORT_OPTION = "mp";
+    static final String MONGO_PORT_LONG_OPTION = "mongo-port";
+    static final String MONGO_DATABASE_SHORT_OPTION = "md";
+    static final String MONGO_DATABASE_LONG_OPTION = "mongo-database";
+    static final String MONGO_COLLECTION_SHORT_OPTION = "mc";
+    static final String MONGO_COLLECTION_LONG_OPTION = "mongo-collection";
+    static final String MONGO_USER_SHORT_OPTION = "mu";
+    static final String MONGO_USER_LONG_OPTION = "mongo-user";
+    static final String MONGO_PASSWORD_SHORT_OPTION = "mpw";
+    static final String MONGO_PASSWORD_LONG_OPTION = "mongo-password";
+    static final String SNAPSHOTS_SHORT_OPTION = "sn";
+    static final String SNAPSHOTS_LONG_OPTION = "snapshots";
+    static final String BUDGET_SHORT_OPTION = "b";
+    static final String BUDGET_LONG_OPTION = "budget";
+    static final String VIEWPORT_TILES_SHORT_OPTION = "vt";
+    static final String VIEWPORT_TILES_LONG_OPTION = "viewport-tiles";
+    /**
+     * The number of fleets to replay by default.
+     */
+    private static final int DEFAULT_SNAPSHOTS = 10;
+    /**
+     * The number of requests per crawl by default, the same as the crawler's default.
+     */
+    private static final int DEFAULT_BUDGET = 340;
+    /**
+     * The number of requests after which a crawl is aborted if it did not stop before.
+     */
+    private static final int MAX_REQUESTS = 20_000;
+    /**
+     * The width of the visible area in map tiles by default.
+     */
+    private static final int DEFAULT_VIEWPORT_TILES = 4;
+    /**
+     * The number of vehicles in each synthetic fleet.
+     */
+    private static final int SYNTHETIC_FLEET_SIZE = 1_500;
+    /**
+     * Bounding box of the area crawled by the crawler.
+     */
+    static final BoundingBox INITIAL_REGION = LimeProvider.AREA;
+
+    /**
+     * Runs the evaluation from the command line and logs the results.
+     *
+     * @param args The arguments provided via the current application execution.
+     */
+    public static void main(final String[] args) {
+        try {
+            final CommandLine commandLine = commandLineParser().parse(options(), args);
+            final var snapshots = Integer.parseInt(commandLine.getOptionValue(SNAPSHOTS_SHORT_OPTION,
+                    String.valueOf(DEFAULT_SNAPSHOTS)));
+            final var budget = Integer.parseInt(commandLine.getOptionValue(BUDGET_SHORT_OPTION,
+                    String.valueOf(DEFAULT_BUDGET)));
+            final var viewportTiles = Integer.parseInt(commandLine.getOptionValue(VIEWPORT_TILES_SHORT_OPTION,
+                    String.valueOf(DEFAULT_VIEWPORT_TILES)));
+
+            final Collection<List<SimulatedVehicle>> fleets;
+            if (commandLine.hasOption(MONGO_HOST_SHORT_OPTION)) {
+                final var recorded = new RecordedSnapshots(commandLine.getOptionValue(MONGO_HOST_SHORT_OPTION),
+                        Integer.parseInt(commandLine.getOptionValue(MONGO_PORT_SHORT_OPTION, "27017")),
+                        commandLine.getOptionValue(MONGO_DATABASE_SHORT_OPTION, "scone"),
+                        commandLine.getOptionValue(MONGO_USER_SHORT_OPTION, "root"),
+                        commandLine.getOptionValue(MONGO_PASSWORD_SHORT_OPTION, "example"));
+                fleets = recorded.load(commandLine.getOptionValue(MONGO_COLLECTION_SHORT_OPTION, "lime_records"),
+                        snapshots).values();
+            } else {
+                fleets = new ArrayList<>();
+                for (int seed = 0; seed < snapshots; seed++) {
+                    fleets.add(SyntheticFleet.generate(seed, SYNTHETIC_FLEET_SIZE, INITIAL_REGION.getSouthWestLat(),
+                            INITIAL_REGION.getSouthWestLon(), INITIAL_REGION.getNorthEastLat(),
+                            INITIAL_REGION.getNorthEastLon()));
+                }
+            }
+
+            final var endpoints = new ArrayList<MapEndpoint>();
+            fleets.forEach(fleet -> endpoints.add(new MapEndpoint(fleet, viewportTiles)));
+            final var summaries = evaluate(endpoints, budget);
+            LOGGER.info(String.format("Replayed %d fleets with a budget of %d requests per crawl:", endpoints.size(),
+                    budget));
+            summaries.values().forEach(s -> LOGGER.info(s.toString()));
+
+        } catch (ParseException e) {
+            final var header = String.format("Crawl Strategy Evaluation%n%n\tError: %s%n%n",
+                    e.getLocalizedMessage());
+            final var footer = "\nPlease provide appropriate arguments!";
+            final var formatter = new HelpFormatter();
+            formatter.printHelp("evaluation", header, options(), footer, true);
+            LOGGER.error("Error: \n", e);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Crawls each fleet with each combination of {@link SplitStrategy} and {@link FrontierOrder}.
+     *
+     * @param endpoints The simulated APIs serving the fleets to crawl
+     * @param budget The number of requests per crawl to report the coverage for
+     * @return The averaged results for each combination, in the order of the combinations
+     */
+    public static Map<String, Summary> evaluate(final List<MapEndpoint> endpoints, final int budget) {
+        Validate.isTrue(budget > 0);
+
+        final var ret = new LinkedHashMap<String, Summary>();
+        for (final var strategy : SplitStrategy.values()) {
+            for (final var order : FrontierOrder.values()) {
+                final var summary = new Summary(strategy, order);
+                endpoints.forEach(endpoint -> summary.add(crawl(endpoint, strategy, order, budget)));
+                ret.put(strategy + "/" + order, summary);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Crawls a simulated API until the crawl stops by itself or {@link #MAX_REQUESTS} are sent.
+     *
+     * @param endpoint The simulated API to crawl
+     * @param strategy The strategy used to slice regions
+     * @param order The order in which regions are requested
+     * @param budget The number of requests to report the coverage for
+     * @return The result of the crawl
+     */
+    public static Result crawl(final MapEndpoint endpoint, final SplitStrategy strategy, final FrontierOrder order,
+            final int budget) {
+
+        final var frontier = new LocalFrontier(INITIAL_REGION, MAX_REQUESTS, order);
+        final var found = new HashSet<SimulatedVehicle>();
+        final var now = new Date();
+        int requests = 0;
+        int requestsToFullCoverage = -1;
+        double coverageAtBudget = -1;
+        int queuePeak = frontier.size();
+
+        while (!frontier.isExhausted() && frontier.acquireRequest()) {
+            final var region = frontier.next();
+            requests++;
+            final var visible = endpoint.visible(region.getCenterLat(), region.getCenterLon(), region.getZoom(),
+                    region.getSouthWestLat(), region.getSouthWestLon(), region.getNorthEastLat(),
+                    region.getNorthEastLon());
+
+            final var sizeBefore = found.size();
+            found.addAll(visible);
+            final var newFound = found.size() - sizeBefore;
+            if (requestsToFullCoverage == -1 && found.size() == endpoint.size()) {
+                requestsToFullCoverage = requests;
+            }
+            if (requests == budget) {
+                coverageAtBudget = coverage(found.size(), endpoint.size());
+            }
+
+            final var returned = new ArrayList<LimeVehicle>(visible.size());
+            visible.forEach(v -> returned.add(new LimeVehicle(v.getBike(), now, now)));
+            frontier.completed(region, strategy.refine(region, newFound, returned));
+            queuePeak = Math.max(queuePeak, frontier.size());
+        }
+
+        if (coverageAtBudget == -1) {
+            // The crawl stopped before the budget was used up
+            coverageAtBudget = coverage(found.size(), endpoint.size());
+        }
+        return new Result(requests, requestsToFullCoverage, coverage(found.size(), endpoint.size()),
+                coverageAtBudget, queuePeak);
+    }
+
+    /**
+     * @param found The number of vehicles found
+     * @param total The number of vehicles in the fleet
+     * @return The share of vehicles found
+     */
+    private static double coverage(final int found, final int total) {
+        return total == 0 ? 1.0 : found / (double)total;
+    }
+
+    /**
+     * @return An Apache CLI <code>Options</code> object configured with the options available for this application.
+     */
+    private static Options options() {
+        final var ret = new Options();
+        ret.addOption(MONGO_HOST_SHORT_OPTION, MONGO_HOST_LONG_OPTION, true,
+                "Please provide a Mongo Database hostname to replay recorded crawls, or none to replay synthetic "
+                        + "fleets.");
+        ret.addOption(MONGO_PORT_SHORT_OPTION, MONGO_PORT_LONG_OPTION, true,
+                "Please provide a Mongo Database port.");
+        ret.addOption(MONGO_DATABASE_SHORT_OPTION, MONGO_DATABASE_LONG_OPTION, true,
+                "Please provide a Mongo Database name.");
+        ret.addOption(MONGO_COLLECTION_SHORT_OPTION, MONGO_COLLECTION_LONG_OPTION, true,
+                "Please provide a Mongo Database collection name.");
+        ret.addOption(MONGO_USER_SHORT_OPTION, MONGO_USER_LONG_OPTION, true,
+                "Please provide a Mongo Database username.");
+        ret.addOption(MONGO_PASSWORD_SHORT_OPTION, MONGO_PASSWORD_LONG_OPTION, true,
+                "Please provide a Mongo Database password.");
+        ret.addOption(SNAPSHOTS_SHORT_OPTION, SNAPSHOTS_LONG_OPTION, true,
+                "Please provide the number of fleets to replay.");
+        ret.addOption(BUDGET_SHORT_OPTION, BUDGET_LONG_OPTION, true,
+                "Please provide the number of requests per crawl to report the coverage for.");
+        ret.addOption(VIEWPORT_TILES_SHORT_OPTION, VIEWPORT_TILES_LONG_OPTION, true,
+                "Please provide the width of the area visible per request in map tiles.");
+
+        return ret;
+    }
+
+    /**
+     * @return An Apache CLI parser used to parse the command line arguments.
+     */
+    private static CommandLineParser commandLineParser() {
+        return new DefaultParser();
+    }
+
+    /**
+     * The result of one simulated crawl.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class Result {
+
+        /**
+         * The number of requests sent until the crawl stopped.
+         */
+        private final int requests;
+        /**
+         * The number of requests sent until all vehicles were found or {@code -1} if not all were found.
+         */
+        private final int requestsToFullCoverage;
+        /**
+         * The share of vehicles found until the crawl stopped.
+         */
+        private final double coverage;
+        /**
+         * The share of vehicles found when the budget was used up.
+         */
+        private final double coverageAtBudget;
+        /**
+         * The maximal number of regions in the queue.
+         */
+        private final int queuePeak;
+
+        /**
+         * Creates a fully initialized instance of this class.
+         *
+         * @param requests The number of requests sent until the crawl stopped.
+         * @param requestsToFullCoverage The number of requests sent until all vehicles were found or {@code -1} if
+         *            not all were found.
+         * @param coverage The share of vehicles found until the crawl stopped.
+         * @param coverageAtBudget The share of vehicles found when the budget was used up.
+         * @param queuePeak The maximal number of regions in the queue.
+         */
+        Result(final int requests, final int requestsToFullCoverage, final double coverage,
+                final double coverageAtBudget, final int queuePeak) {
+            this.requests = requests;
+            this.requestsToFullCoverage = requestsToFullCoverage;
+            this.coverage = coverage;
+            this.coverageAtBudget = coverageAtBudget;
+            this.queuePeak = queuePeak;
+        }
+
+        /**
+         * @return The number of requests sent until the crawl stopped.
+         */
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return The number of requests sent until all vehicles were found or {@code -1} if not all were found.
+         */
+        public int getRequestsToFullCoverage() {
+            return requestsToFullCoverage;
+        }
+
+        /**
+         * @return The share of vehicles found until the crawl stopped.
+         */
+        public double getCoverage() {
+            return coverage;
+        }
+
+        /**
+         * @return The share of vehicles found when the budget was used up.
+         */
+        public double getCoverageAtBudget() {
+            return coverageAtBudget;
+        }
+
+        /**
+         * @return The maximal number of regions in the queue.
+         */
+        public int getQueuePeak() {
+            return queuePeak;
+        }
+    }
+
+    /**
+     * The results of one combination of {@link SplitStrategy} and {@link FrontierOrder}, averaged over all fleets.
+     *
+     * @author Armin Schnabel
+     * @version 1.0.0
+     * @since 1.1.0
+     */
+    public static final class Summary {
+
+        /**
+         * The strategy used to slice regions.
+         */
+        private final SplitStrategy strategy;
+        /**
+         * The order in which regions were requested.
+         */
+        private final FrontierOrder order;
+        /**
+         * The results of the crawls.
+         */
+        private final List<Result> results = new ArrayList<>();
+
+        /**
+         * Creates a fully initialized instance of this class.
+         *
+         * @param strategy The strategy used to slice regions.
+         * @param order The order in which regions were requested.
+         */
+        Summary(final SplitStrategy strategy, final FrontierOrder order) {
+            this.strategy = strategy;
+            this.order = order;
+        }
+
+        /**
+         * @param result The result of another crawl.
+         */
+        void add(final Result result) {
+            results.add(result);
+        }
+
+        /**
+         * @return The results of the crawls.
+         */
+        public List<Result> getResults() {
+            return results;
+        }
+
+        @Override
+        public String toString() {
+            final var fullyCovered = results.stream().filter(r -> r.getRequestsToFullCoverage() != -1)
+                    .mapToInt(Result::getRequestsToFullCoverage).summaryStatistics();
+            return String.format(
+                    "%-11s %-16s requests to full coverage: %7.1f (%d/%d crawls), coverage at budget: %5.1f%%, "
+                            + "coverage: %5.1f%%, requests: %7.1f, queue peak: %6.1f",
+                    strategy, order, fullyCovered.getCount() == 0 ? Double.NaN : fullyCovered.getAverage(),
+                    fullyCovered.getCount(), results.size(),
+                    100 * results.stream().mapToDouble(Result::getCoverageAtBudget).average().orElse(0),
+                    100 * results.stream().mapToDouble(Result::getCoverage).average().orElse(0),
+                    results.stream().mapToInt(Result::getRequests).average().orElse(0),
+                    results.stream().mapToInt(Result::getQueuePeak).average().orElse(0));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Generates a reproducible fleet of vehicles for the simulated API.
+ * <p>
+ * Like real fleets most vehicles are gathered around a few hot spots (stations, the center) while the rest is spread
+ * over the whole area.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class SyntheticFleet {
+
+    /**
+     * The number of hot spots the clustered vehicles are gathered around.
+     */
+    private static final int HOT_SPOTS = 12;
+    /**
+     * The share of vehicles gathered around hot spots.
+     */
+    private static final double CLUSTERED_SHARE = 0.7;
+    /**
+     * The standard deviation of the distance of clustered vehicles from their hot spot in degree.
+     */
+    private static final double CLUSTER_DEVIATION = 0.002;
+    /**
+     * The characters used in the visible part of plate numbers.
+     */
+    private static final String PLATE_CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    /**
+     * Utility classes should not be instantiated.
+     */
+    private SyntheticFleet() {
+        // Nothing to do
+    }
+
+    /**
+     * Generates a fleet. The same parameters always generate the same fleet.
+     *
+     * @param seed The seed of the random generator
+     * @param size The number of vehicles to generate
+     * @param southWestLat The southern border of the area to place the vehicles in
+     * @param southWestLon The western border of the area to place the vehicles in
+     * @param northEastLat The northern border of the area to place the vehicles in
+     * @param northEastLon The eastern border of the area to place the vehicles in
+     * @return The generated vehicles
+     */
+    public static List<SimulatedVehicle> generate(final long seed, final int size, final double southWestLat,
+            final double southWestLon, final double northEastLat, final double northEastLon) {
+        Validate.isTrue(size >= 0);
+        Validate.isTrue(southWestLat < northEastLat && southWestLon < northEastLon);
+
+        final var random = new Random(seed);
+        final var latSpan = northEastLat - southWestLat;
+        final var lonSpan = northEastLon - southWestLon;
+        final var hotSpots = new double[HOT_SPOTS][2];
+        for (final var hotSpot : hotSpots) {
+            hotSpot[0] = southWestLat + random.nextDouble() * latSpan;
+            hotSpot[1] = southWestLon + random.nextDouble() * lonSpan;
+        }
+        final var reference = OffsetDateTime.of(2021, 3, 18, 12, 0, 0, 0, ZoneOffset.UTC);
+
+        final var ret = new ArrayList<SimulatedVehicle>(size);
+        for (int i = 0; i < size; i++) {
+            double latitude;
+            double longitude;
+            if (random.nextDouble() < CLUSTERED_SHARE) {
+                final var hotSpot = hotSpots[random.nextInt(HOT_SPOTS)];
+                latitude = hotSpot[0] + random.nextGaussian() * CLUSTER_DEVIATION;
+                longitude = hotSpot[1] + random.nextGaussian() * CLUSTER_DEVIATION;
+            } else {
+                latitude = southWestLat + random.nextDouble() * latSpan;
+                longitude = southWestLon + random.nextDouble() * lonSpan;
+            }
+            latitude = Math.min(northEastLat, Math.max(southWestLat, latitude));
+            longitude = Math.min(northEastLon, Math.max(southWestLon, longitude));
+
+            final var lastThree = new StringBuilder();
+            for (int c = 0; c < 3; c++) {
+                lastThree.append(PLATE_CHARACTERS.charAt(random.nextInt(PLATE_CHARACTERS.length())));
+            }
+            final var batteryPercentage = 5 + random.nextInt(96);
+            final var meterRange = batteryPercentage * 400;
+            final var lastActivityAt = reference.minusMinutes(random.nextInt(24 * 60));
+            final var id = new UUID(random.nextLong(), random.nextLong()).toString();
+
+            ret.add(SimulatedVehicle.create(id, lastThree.toString(), latitude, longitude, batteryPercentage,
+                    meterRange, lastActivityAt));
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class MapEndpointTest {
+
+    private static final double NORTH_EAST_LAT = 51.090157213909116;
+    private static final double NORTH_EAST_LON = 13.809081655279853;
+    private static final double SOUTH_WEST_LAT = 51.02319889010608;
+    private static final double SOUTH_WEST_LON = 13.686292542430092;
+
+    @Test
+    public void testResponsesAreCapped() {
+        // Arrange
+        final var fleet = SyntheticFleet.generate(1L, 5_000, SOUTH_WEST_LAT, SOUTH_WEST_LON, NORTH_EAST_LAT,
+                NORTH_EAST_LON);
+        final var oocut = new MapEndpoint(fleet, 4);
+        final var query = Map.of("zoom", "15", "user_latitude", "51.05", "user_longitude", "13.74");
+
+        // Act
+        final var response = oocut.respond(query);
+
+        // Assert
+        assertThat(response.getStatusCode(), is(equalTo(200)));
+        final var attributes = response.getBody().getJSONObject("data").getJSONObject("attributes");
+        assertThat(attributes.getString("current_level"), is(equalTo("block")));
+        assertThat(attributes.getJSONArray("bikes").length(), is(equalTo(MapEndpoint.MAX_VEHICLES_PER_RESPONSE)));
+    }
+
+    @Test
+    public void testLowZoomLevelsAreRejected() {
+        // Arrange
+        final var fleet = SyntheticFleet.generate(1L, 100, SOUTH_WEST_LAT, SOUTH_WEST_LON, NORTH_EAST_LAT,
+                NORTH_EAST_LON);
+        final var oocut = new MapEndpoint(fleet, 4);
+        final var query = Map.of("zoom", "14", "user_latitude", "51.05", "user_longitude", "13.74");
+
+        // Act
+        final var response = oocut.respond(query);
+
+        // Assert
+        assertThat(response.getStatusCode(), is(equalTo(401)));
+        final var attributes = response.getBody().getJSONObject("data").getJSONObject("attributes");
+        assertThat(attributes.getString("title"), is(equalTo("No nearby vehicles")));
+    }
+
+    @Test
+    public void testHigherZoomLevelsShowFewerVehicles() {
+        // Arrange
+        final var fleet = SyntheticFleet.generate(1L, 100, SOUTH_WEST_LAT, SOUTH_WEST_LON, NORTH_EAST_LAT,
+                NORTH_EAST_LON);
+        final var oocut = new MapEndpoint(fleet, 4);
+
+        // Act
+        final var wide = oocut.visible(51.05, 13.74, 15).size();
+        final var narrow = oocut.visible(51.05, 13.74, 19).size();
+
+        // Assert
+        assertThat(narrow <= wide, is(true));
+    }
+
+    @Test
+    public void testOnlyVehiclesWithinTheRequestedBoundingBoxAreReturned() {
+        // Arrange
+        final var fleet = SyntheticFleet.generate(1L, 100, SOUTH_WEST_LAT, SOUTH_WEST_LON, NORTH_EAST_LAT,
+                NORTH_EAST_LON);
+        final var oocut = new MapEndpoint(fleet, 4);
+        final var query = Map.of("zoom", "15", "user_latitude", "51.05", "user_longitude", "13.74", "ne_lat", "51.06",
+                "ne_lng", "13.75", "sw_lat", "51.04", "sw_lng", "13.74");
+
+        // Act
+        final var response = oocut.respond(query);
+
+        // Assert
+        final var bikes = response.getBody().getJSONObject("data").getJSONObject("attributes")
+                .getJSONArray("bikes");
+        for (int i = 0; i < bikes.length(); i++) {
+            final var attributes = bikes.getJSONObject(i).getJSONObject("attributes");
+            assertThat(attributes.getDouble("latitude") >= 51.04 && attributes.getDouble("latitude") <= 51.06,
+                    is(true));
+            assertThat(attributes.getDouble("longitude") >= 13.74 && attributes.getDouble("longitude") <= 13.75,
+                    is(true));
+        }
+        assertThat(bikes.length() < oocut.visible(51.05, 13.74, 15).size(), is(true));
+    }
+}
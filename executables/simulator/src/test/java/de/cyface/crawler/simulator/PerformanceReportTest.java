@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.simulator;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PerformanceReportTest {
+
+    @Test
+    public void testRegressionsRespectTheDirectionOfEachMetric(@TempDir final Path directory) throws IOException {
+        // Arrange
+        final var baseline = new PerformanceReport();
+        baseline.add("crawl.requests_per_second", 100.0, "1/s", true);
+        baseline.add("crawl.latency_p99", 10.0, "ms", false);
+        baseline.add("crawl.peak_heap", 200.0, "MB", false);
+        final var file = directory.resolve("baseline.json");
+        baseline.write(file);
+        final var oocut = new PerformanceReport();
+        oocut.add("crawl.requests_per_second", 70.0, "1/s", true);
+        oocut.add("crawl.latency_p99", 11.0, "ms", false);
+        oocut.add("crawl.peak_heap", 100.0, "MB", false);
+        oocut.add("process.records_per_second", 1.0, "1/s", true);
+
+        // Act
+        final var res = oocut.regressions(PerformanceReport.read(file), 0.2);
+
+        // Assert
+        assertThat(res.size(), is(equalTo(1)));
+        assertThat(res.get(0).startsWith("crawl.requests_per_second"), is(true));
+    }
+}
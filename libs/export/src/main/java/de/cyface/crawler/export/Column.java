@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A column of an exported table.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class Column {
+
+    /**
+     * The name of the column.
+     */
+    private final String name;
+    /**
+     * The type of the values in the column.
+     */
+    private final ColumnType type;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param name The name of the column
+     * @param type The type of the values in the column
+     */
+    public Column(final String name, final ColumnType type) {
+        Validate.notEmpty(name);
+        Validate.notNull(type);
+
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * @return The name of the column.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The type of the values in the column.
+     */
+    public ColumnType getType() {
+        return type;
+    }
+}
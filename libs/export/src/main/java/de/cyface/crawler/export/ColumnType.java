@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+/**
+ * The types of the values of a {@link Column}.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public enum ColumnType {
+    /**
+     * A {@code Double}.
+     */
+    DOUBLE,
+    /**
+     * An {@code Integer}.
+     */
+    INT,
+    /**
+     * A {@code Long}.
+     */
+    LONG,
+    /**
+     * A {@code Boolean}.
+     */
+    BOOLEAN,
+    /**
+     * A {@code String}.
+     */
+    STRING,
+    /**
+     * A {@code java.util.Date}, exported with millisecond precision.
+     */
+    TIMESTAMP
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Streams rows into a CSV file with a header line.
+ * <p>
+ * Timestamps are written in ISO-8601 format, values containing the separator, quotes or line breaks are quoted.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class CsvExporter implements Exporter {
+
+    /**
+     * The number of characters buffered before they are written to the file.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * The columns of the file.
+     */
+    private final ExportSchema schema;
+    /**
+     * The writer to the file.
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * Creates the file, replacing an existing one, and writes the header line.
+     *
+     * @param file The file to write to
+     * @param schema The columns of the file
+     * @throws IOException If the file could not be created
+     */
+    public CsvExporter(final Path file, final ExportSchema schema) throws IOException {
+        Validate.notNull(file);
+        Validate.notNull(schema);
+
+        this.schema = schema;
+        this.writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(schema.getColumns().stream().map(c -> escape(c.getName())).collect(Collectors.joining(",")));
+        writer.newLine();
+    }
+
+    @Override
+    public void write(final Object... values) throws IOException {
+        Validate.isTrue(values.length == schema.getColumns().size(), "Expected one value per column");
+
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            final var value = values[i];
+            if (value instanceof Date) {
+                writer.write(((Date)value).toInstant().toString());
+            } else if (value instanceof String) {
+                writer.write(escape((String)value));
+            } else if (value != null) {
+                writer.write(value.toString());
+            }
+        }
+        writer.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * @param value The value to write
+     * @return The value, quoted if required
+     */
+    private static String escape(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
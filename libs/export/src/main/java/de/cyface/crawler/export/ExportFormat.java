@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The file formats supported for exports.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public enum ExportFormat {
+    /**
+     * Comma separated values, for a quick look at the data.
+     */
+    CSV("csv") {
+        @Override
+        public Exporter open(final Path file, final ExportSchema schema) throws IOException {
+            return new CsvExporter(file, schema);
+        }
+    },
+    /**
+     * Apache Parquet, a compressed columnar format for analytics.
+     */
+    PARQUET("parquet") {
+        @Override
+        public Exporter open(final Path file, final ExportSchema schema) throws IOException {
+            return new ParquetExporter(file, schema);
+        }
+    };
+
+    /**
+     * The extension of files in this format, without the dot.
+     */
+    private final String extension;
+
+    /**
+     * @param extension The extension of files in this format, without the dot
+     */
+    ExportFormat(final String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Creates a file in this format, replacing an existing one.
+     *
+     * @param file The file to write to
+     * @param schema The columns of the file
+     * @return The exporter to stream the rows to, which has to be closed to complete the file
+     * @throws IOException If the file could not be created
+     */
+    public abstract Exporter open(final Path file, final ExportSchema schema) throws IOException;
+
+    /**
+     * @param directory The directory to create the file in
+     * @param baseName The name of the file without extension
+     * @return The file with the extension of this format
+     */
+    public Path file(final Path directory, final String baseName) {
+        return directory.resolve(baseName + "." + extension);
+    }
+
+    /**
+     * @param name The name of the format, case insensitive
+     * @return The format
+     */
+    public static ExportFormat of(final String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
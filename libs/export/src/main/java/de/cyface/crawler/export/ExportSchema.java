@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * The columns of an exported table.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class ExportSchema {
+
+    /**
+     * The name of the table, e.g. used as the name of the Parquet message type.
+     */
+    private final String name;
+    /**
+     * The columns of the table, in the order of the values of each row.
+     */
+    private final List<Column> columns;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param name The name of the table
+     * @param columns The columns of the table, in the order of the values of each row
+     */
+    public ExportSchema(final String name, final Column... columns) {
+        Validate.notEmpty(name);
+        Validate.notEmpty(columns);
+
+        this.name = name;
+        this.columns = List.of(columns);
+    }
+
+    /**
+     * @return The name of the table.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The columns of the table, in the order of the values of each row.
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+}
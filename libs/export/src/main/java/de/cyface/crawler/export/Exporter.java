@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import java.io.IOException;
+
+/**
+ * Streams the rows of a table into a file.
+ * <p>
+ * Rows are buffered and written in blocks, so that the memory required is independent of the number of rows.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public interface Exporter extends AutoCloseable {
+
+    /**
+     * Appends a row.
+     *
+     * @param values One value per column of the {@link ExportSchema}, in the same order, {@code null} for missing
+     *            values
+     * @throws IOException If the row could not be written
+     */
+    void write(final Object... values) throws IOException;
+
+    /**
+     * Flushes all buffered rows and closes the file.
+     *
+     * @throws IOException If the rows could not be written
+     */
+    @Override
+    void close() throws IOException;
+}
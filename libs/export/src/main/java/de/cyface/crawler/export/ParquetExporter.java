@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Streams rows into a Parquet file for analytics.
+ * <p>
+ * Rows are buffered in memory per row group and written column by column, compressed with Snappy. All columns are
+ * optional, so that missing values can be exported.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class ParquetExporter implements Exporter {
+
+    /**
+     * The columns of the file.
+     */
+    private final ExportSchema schema;
+    /**
+     * Creates an empty row for each call to {@link #write(Object...)}.
+     */
+    private final SimpleGroupFactory rows;
+    /**
+     * The writer to the file.
+     */
+    private final ParquetWriter<Group> writer;
+
+    /**
+     * Creates the file, replacing an existing one.
+     *
+     * @param file The file to write to
+     * @param schema The columns of the file
+     * @throws IOException If the file could not be created
+     */
+    public ParquetExporter(final java.nio.file.Path file, final ExportSchema schema) throws IOException {
+        Validate.notNull(file);
+        Validate.notNull(schema);
+
+        // The Parquet writer does not overwrite files
+        Files.deleteIfExists(file);
+        final var messageType = messageType(schema);
+        this.schema = schema;
+        this.rows = new SimpleGroupFactory(messageType);
+        this.writer = ExampleParquetWriter.builder(new Path(file.toAbsolutePath().toUri()))
+                .withType(messageType)
+                .withConf(new Configuration())
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .build();
+    }
+
+    @Override
+    public void write(final Object... values) throws IOException {
+        Validate.isTrue(values.length == schema.getColumns().size(), "Expected one value per column");
+
+        final var row = rows.newGroup();
+        for (int i = 0; i < values.length; i++) {
+            final var value = values[i];
+            if (value == null) {
+                continue;
+            }
+            final var column = schema.getColumns().get(i);
+            switch (column.getType()) {
+                case DOUBLE:
+                    row.append(column.getName(), ((Number)value).doubleValue());
+                    break;
+                case INT:
+                    row.append(column.getName(), ((Number)value).intValue());
+                    break;
+                case LONG:
+                    row.append(column.getName(), ((Number)value).longValue());
+                    break;
+                case BOOLEAN:
+                    row.append(column.getName(), (Boolean)value);
+                    break;
+                case STRING:
+                    row.append(column.getName(), value.toString());
+                    break;
+                case TIMESTAMP:
+                    row.append(column.getName(), ((Date)value).getTime());
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported column type " + column.getType());
+            }
+        }
+        writer.write(row);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * @param schema The columns of the file
+     * @return The Parquet schema of the file
+     */
+    private static MessageType messageType(final ExportSchema schema) {
+        final var types = schema.getColumns().stream().map(ParquetExporter::type).toArray(Type[]::new);
+        return Types.buildMessage().addFields(types).named(schema.getName());
+    }
+
+    /**
+     * @param column A column of the file
+     * @return The Parquet type of the column
+     */
+    private static Type type(final Column column) {
+        switch (column.getType()) {
+            case DOUBLE:
+                return Types.optional(PrimitiveTypeName.DOUBLE).named(column.getName());
+            case INT:
+                return Types.optional(PrimitiveTypeName.INT32).named(column.getName());
+            case LONG:
+                return Types.optional(PrimitiveTypeName.INT64).named(column.getName());
+            case BOOLEAN:
+                return Types.optional(PrimitiveTypeName.BOOLEAN).named(column.getName());
+            case STRING:
+                return Types.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType())
+                        .named(column.getName());
+            case TIMESTAMP:
+                return Types.optional(PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS))
+                        .named(column.getName());
+            default:
+                throw new IllegalArgumentException("Unsupported column type " + column.getType());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.export;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvExporterTest {
+
+    private static final ExportSchema SCHEMA = new ExportSchema("test", new Column("name", ColumnType.STRING),
+            new Column("lat", ColumnType.DOUBLE), new Column("time", ColumnType.TIMESTAMP));
+
+    @Test
+    public void testRowsAreEscaped(@TempDir final Path directory) throws IOException {
+        // Arrange
+        final var file = ExportFormat.CSV.file(directory, "test");
+
+        // Act
+        try (var oocut = ExportFormat.CSV.open(file, SCHEMA)) {
+            oocut.write("XXX-123", 51.05, new Date(0L));
+            oocut.write("a,\"b\"", null, null);
+        }
+
+        // Assert
+        assertThat(Files.readAllLines(file), is(equalTo(List.of("name,lat,time", "XXX-123,51.05,1970-01-01T00:00:00Z",
+                "\"a,\"\"b\"\"\",,"))));
+    }
+}
@@ -21,6 +21,7 @@ package de.cyface.crawler.model;
 import java.util.Objects;
 
 import org.apache.commons.lang3.Validate;
+import org.bson.Document;
 
 /**
  * Defines a rectangular region.
@@ -92,6 +93,38 @@ public final class BoundingBox {
         this.zoom = zoom;
     }
 
+    /**
+     * Reads a bounding box from a {@code Document} created by {@link #toBson()}.
+     *
+     * @param document the {@code Document} to read
+     * @return the bounding box described by the document
+     */
+    public static BoundingBox fromBson(final Document document) {
+        return new BoundingBox(document.getInteger("found_by_parent"), document.getDouble("ne_lat"),
+                document.getDouble("ne_lon"), document.getDouble("sw_lat"), document.getDouble("sw_lon"),
+                document.getInteger("zoom").shortValue());
+    }
+
+    /**
+     * @return this bounding box as a {@code Document} which can be inserted into a mongo db
+     */
+    public Document toBson() {
+        return new Document("found_by_parent", foundByParent)
+                .append("ne_lat", northEastLat)
+                .append("ne_lon", northEastLon)
+                .append("sw_lat", southWestLat)
+                .append("sw_lon", southWestLon)
+                .append("zoom", (int)zoom);
+    }
+
+    /**
+     * @return an identifier which is equal for bounding boxes covering the same region at the same zoom level,
+     *         independent of {@code foundByParent}
+     */
+    public String key() {
+        return zoom + "/" + southWestLat + "/" + southWestLon + "/" + northEastLat + "/" + northEastLon;
+    }
+
     /**
      * @param number1 one number
      * @param number2 another number
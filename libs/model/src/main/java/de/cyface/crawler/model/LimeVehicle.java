@@ -23,7 +23,6 @@ import java.util.Date;
 import java.util.Objects;
 
 import org.apache.commons.lang3.Validate;
-import org.bson.Document;
 import org.json.JSONObject;
 
 /**
@@ -33,6 +32,30 @@ import org.json.JSONObject;
  */
 public final class LimeVehicle {
 
+    /**
+     * The values of {@link #getType()}.
+     */
+    public static final ValueDictionary TYPES = new ValueDictionary("bikes");
+    /**
+     * The values of {@link #getGeneration()}.
+     */
+    public static final ValueDictionary GENERATIONS = new ValueDictionary("2", "2.5", "3", "4", "5");
+    /**
+     * The values of {@link #getTypeName()}.
+     */
+    public static final ValueDictionary TYPE_NAMES = new ValueDictionary("scooter", "bike", "electric");
+    /**
+     * The values of {@link #getBatteryLevel()}.
+     */
+    public static final ValueDictionary BATTERY_LEVELS = new ValueDictionary("high", "medium", "low");
+    /**
+     * The values of {@link #getBrand()}.
+     */
+    public static final ValueDictionary BRANDS = new ValueDictionary("lime", "jump");
+    /**
+     * The values of {@link #getStatus()}.
+     */
+    public static final ValueDictionary STATUSES = new ValueDictionary("locked", "unlocked", "reserved");
     /**
      * <b>Attention</b>: Is encoded. It cannot be used to identify the same vehicle as it changes between requests.
      */
@@ -113,12 +136,12 @@ public final class LimeVehicle {
         Validate.isTrue(vehicle.has("type"));
         Validate.isTrue(vehicle.has("attributes"));
         this.id = vehicle.getString("id");
-        this.type = vehicle.getString("type");
+        this.type = TYPES.intern(vehicle.getString("type"));
         final var attributes = vehicle.getJSONObject("attributes");
-        this.generation = attributes.getString("generation");
+        this.generation = GENERATIONS.intern(attributes.getString("generation"));
         this.swappableBattery = attributes.getBoolean("swappable_battery");
-        this.typeName = attributes.getString("type_name");
-        this.batteryLevel = attributes.getString("battery_level");
+        this.typeName = TYPE_NAMES.intern(attributes.getString("type_name"));
+        this.batteryLevel = BATTERY_LEVELS.intern(attributes.getString("battery_level"));
         this.lastThree = attributes.getString("last_three");
         this.latitude = attributes.getDouble("latitude");
         this.longitude = attributes.getDouble("longitude");
@@ -129,33 +152,56 @@ public final class LimeVehicle {
         this.lastActivityAt = Date.from(instant);
         this.plateNumber = attributes.getString("plate_number");
         this.batteryPercentage = attributes.getInt("battery_percentage");
-        this.brand = attributes.getString("brand");
-        this.status = attributes.getString("status");
+        this.brand = BRANDS.intern(attributes.getString("brand"));
+        this.status = STATUSES.intern(attributes.getString("status"));
         this.requestTime = requestTime;
         this.crawlingStarted = crawlStarted;
     }
 
     /**
-     * @return this vehicle as a {@code Document} which can be inserted into a mongo db
-     */
-    public Document toBson() {
-        return new Document("id", id)
-                .append("type", type)
-                .append("generation", generation)
-                .append("swappable_battery", swappableBattery)
-                .append("type_name", typeName)
-                .append("battery_level", batteryLevel)
-                .append("last_three", lastThree)
-                .append("latitude", latitude)
-                .append("longitude", longitude)
-                .append("meter_range", meterRange)
-                .append("last_activity_at", lastActivityAt)
-                .append("plate_number", plateNumber)
-                .append("battery_percentage", batteryPercentage)
-                .append("brand", brand)
-                .append("status", status)
-                .append("request_time", requestTime)
-                .append("crawling_started", crawlingStarted);
+     * Creates a vehicle record read from the database by the {@link LimeVehicleCodec}.
+     *
+     * @param id <b>Attention</b>: Is encoded. It cannot be used to identify the same vehicle.
+     * @param type of the vehicle
+     * @param generation of the vehicle
+     * @param swappableBattery {@code true} if the battery can be changed easily
+     * @param typeName the vehicle type
+     * @param batteryLevel something like "high", "low", etc.
+     * @param lastThree the last three letters of the plate number
+     * @param latitude of the vehicle
+     * @param longitude of the vehicle
+     * @param meterRange how far the vehicle can travel with the current battery level
+     * @param lastActivityAt last time the vehicle was active - whatever that means
+     * @param plateNumber of the vehicle
+     * @param batteryPercentage percentage of the battery charge left
+     * @param brand of the vehicle
+     * @param status of the vehicle
+     * @param requestTime when the API request was sent which returned this vehicle record
+     * @param crawlingStarted when the scheduler started the crawling which includes the request which returned this
+     *            vehicle record
+     */
+    LimeVehicle(final String id, final String type, final String generation, final boolean swappableBattery,
+            final String typeName, final String batteryLevel, final String lastThree, final double latitude,
+            final double longitude, final int meterRange, final Date lastActivityAt, final String plateNumber,
+            final int batteryPercentage, final String brand, final String status, final Date requestTime,
+            final Date crawlingStarted) {
+        this.id = id;
+        this.type = TYPES.intern(type);
+        this.generation = GENERATIONS.intern(generation);
+        this.swappableBattery = swappableBattery;
+        this.typeName = TYPE_NAMES.intern(typeName);
+        this.batteryLevel = BATTERY_LEVELS.intern(batteryLevel);
+        this.lastThree = lastThree;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.meterRange = meterRange;
+        this.lastActivityAt = lastActivityAt;
+        this.plateNumber = plateNumber;
+        this.batteryPercentage = batteryPercentage;
+        this.brand = BRANDS.intern(brand);
+        this.status = STATUSES.intern(status);
+        this.requestTime = requestTime;
+        this.crawlingStarted = crawlingStarted;
     }
 
     /**
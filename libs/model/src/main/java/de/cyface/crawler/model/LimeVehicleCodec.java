@@ -0,0 +1,329 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import static de.cyface.crawler.model.RecordSchema.BATTERY_LEVEL;
+import static de.cyface.crawler.model.RecordSchema.BATTERY_PERCENTAGE;
+import static de.cyface.crawler.model.RecordSchema.BRAND;
+import static de.cyface.crawler.model.RecordSchema.CRAWLING_STARTED;
+import static de.cyface.crawler.model.RecordSchema.GENERATION;
+import static de.cyface.crawler.model.RecordSchema.ID;
+import static de.cyface.crawler.model.RecordSchema.LAST_ACTIVITY_AT;
+import static de.cyface.crawler.model.RecordSchema.LAST_THREE;
+import static de.cyface.crawler.model.RecordSchema.LATITUDE;
+import static de.cyface.crawler.model.RecordSchema.LONGITUDE;
+import static de.cyface.crawler.model.RecordSchema.META;
+import static de.cyface.crawler.model.RecordSchema.METER_RANGE;
+import static de.cyface.crawler.model.RecordSchema.PLATE_NUMBER;
+import static de.cyface.crawler.model.RecordSchema.REQUEST_TIME;
+import static de.cyface.crawler.model.RecordSchema.STATUS;
+import static de.cyface.crawler.model.RecordSchema.SWAPPABLE_BATTERY;
+import static de.cyface.crawler.model.RecordSchema.TYPE;
+import static de.cyface.crawler.model.RecordSchema.TYPE_NAME;
+
+import java.util.Date;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Writes {@link LimeVehicle}s to BSON and reads them back, without creating an intermediate {@code Document}.
+ * <p>
+ * The attributes with only a handful of distinct values are encoded by their {@link ValueDictionary}, e.g.
+ * {@link LimeVehicle#STATUSES}. Time-series collections hold the fields identifying a vehicle in the
+ * {@link RecordSchema#META} sub-document.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class LimeVehicleCodec implements Codec<LimeVehicle> {
+
+    /**
+     * {@code true} to write the fields identifying a vehicle to the {@link RecordSchema#META} sub-document of
+     * time-series collections.
+     */
+    private final boolean timeSeries;
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param timeSeries {@code true} to write the fields identifying a vehicle to the {@link RecordSchema#META}
+     *            sub-document of time-series collections
+     */
+    public LimeVehicleCodec(final boolean timeSeries) {
+        this.timeSeries = timeSeries;
+    }
+
+    @Override
+    public void encode(final BsonWriter writer, final LimeVehicle vehicle, final EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        writeString(writer, ID, vehicle.getId());
+        if (timeSeries) {
+            writer.writeStartDocument(META);
+            writeIdentity(writer, vehicle);
+            writer.writeEndDocument();
+        }
+        writeCode(writer, GENERATION, LimeVehicle.GENERATIONS, vehicle.getGeneration());
+        writer.writeBoolean(SWAPPABLE_BATTERY, vehicle.isSwappableBattery());
+        writeCode(writer, TYPE_NAME, LimeVehicle.TYPE_NAMES, vehicle.getTypeName());
+        writeCode(writer, BATTERY_LEVEL, LimeVehicle.BATTERY_LEVELS, vehicle.getBatteryLevel());
+        if (!timeSeries) {
+            writeIdentity(writer, vehicle);
+        }
+        writer.writeDouble(LATITUDE, vehicle.getLatitude());
+        writer.writeDouble(LONGITUDE, vehicle.getLongitude());
+        writer.writeInt32(METER_RANGE, vehicle.getMeterRange());
+        writeDate(writer, LAST_ACTIVITY_AT, vehicle.getLastActivityAt());
+        writer.writeInt32(BATTERY_PERCENTAGE, vehicle.getBatteryPercentage());
+        writeCode(writer, BRAND, LimeVehicle.BRANDS, vehicle.getBrand());
+        writeCode(writer, STATUS, LimeVehicle.STATUSES, vehicle.getStatus());
+        writeDate(writer, REQUEST_TIME, vehicle.getRequestTime());
+        writeDate(writer, CRAWLING_STARTED, vehicle.getCrawlingStarted());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public LimeVehicle decode(final BsonReader reader, final DecoderContext decoderContext) {
+        final var fields = new Fields();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            final var name = reader.readName();
+            if (META.equals(name) && reader.getCurrentBsonType() == BsonType.DOCUMENT) {
+                reader.readStartDocument();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    fields.read(reader, reader.readName());
+                }
+                reader.readEndDocument();
+            } else {
+                fields.read(reader, name);
+            }
+        }
+        reader.readEndDocument();
+        return new LimeVehicle(fields.id, fields.type, fields.generation, fields.swappableBattery, fields.typeName,
+                fields.batteryLevel, fields.lastThree, fields.latitude, fields.longitude, fields.meterRange,
+                fields.lastActivityAt, fields.plateNumber, fields.batteryPercentage, fields.brand, fields.status,
+                fields.requestTime, fields.crawlingStarted);
+    }
+
+    @Override
+    public Class<LimeVehicle> getEncoderClass() {
+        return LimeVehicle.class;
+    }
+
+    /**
+     * Writes the fields identifying a vehicle.
+     *
+     * @param writer The writer to write to
+     * @param vehicle The vehicle to write
+     */
+    private static void writeIdentity(final BsonWriter writer, final LimeVehicle vehicle) {
+        writeString(writer, LAST_THREE, vehicle.getLastThree());
+        writeString(writer, PLATE_NUMBER, vehicle.getPlateNumber());
+        writeCode(writer, TYPE, LimeVehicle.TYPES, vehicle.getType());
+    }
+
+    /**
+     * Writes a value encoded by a {@link ValueDictionary}.
+     *
+     * @param writer The writer to write to
+     * @param name The name of the field
+     * @param dictionary The dictionary of the field
+     * @param value The value to write, may be {@code null}
+     */
+    static void writeCode(final BsonWriter writer, final String name, final ValueDictionary dictionary,
+            final String value) {
+        final var encoded = dictionary.encode(value);
+        if (encoded == null) {
+            writer.writeNull(name);
+        } else if (encoded instanceof Integer) {
+            writer.writeInt32(name, (Integer)encoded);
+        } else {
+            writer.writeString(name, (String)encoded);
+        }
+    }
+
+    /**
+     * @param writer The writer to write to
+     * @param name The name of the field
+     * @param value The value to write, may be {@code null}
+     */
+    static void writeString(final BsonWriter writer, final String name, final String value) {
+        if (value == null) {
+            writer.writeNull(name);
+        } else {
+            writer.writeString(name, value);
+        }
+    }
+
+    /**
+     * @param writer The writer to write to
+     * @param name The name of the field
+     * @param value The value to write, may be {@code null}
+     */
+    static void writeDate(final BsonWriter writer, final String name, final Date value) {
+        if (value == null) {
+            writer.writeNull(name);
+        } else {
+            writer.writeDateTime(name, value.getTime());
+        }
+    }
+
+    /**
+     * Reads a value encoded by a {@link ValueDictionary} or persisted before the values were encoded.
+     *
+     * @param reader The reader positioned at the value
+     * @param dictionary The dictionary of the field
+     * @return The shared instance of the value
+     */
+    static String readCode(final BsonReader reader, final ValueDictionary dictionary) {
+        return dictionary.decode(reader.getCurrentBsonType() == BsonType.INT32 ? (Object)reader.readInt32()
+                : reader.readString());
+    }
+
+    /**
+     * Reads an integer which older records may hold as other numeric type.
+     *
+     * @param reader The reader positioned at the value
+     * @return The value
+     */
+    static int readInt(final BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT64:
+                return (int)reader.readInt64();
+            case DOUBLE:
+                return (int)reader.readDouble();
+            default:
+                return reader.readInt32();
+        }
+    }
+
+    /**
+     * Reads a double which older records may hold as integer.
+     *
+     * @param reader The reader positioned at the value
+     * @return The value
+     */
+    static double readDouble(final BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            default:
+                return reader.readDouble();
+        }
+    }
+
+    /**
+     * The fields of a vehicle record collected while reading it.
+     */
+    private static final class Fields {
+
+        private String id;
+        private String type;
+        private String generation;
+        private boolean swappableBattery;
+        private String typeName;
+        private String batteryLevel;
+        private String lastThree;
+        private double latitude;
+        private double longitude;
+        private int meterRange;
+        private Date lastActivityAt;
+        private String plateNumber;
+        private int batteryPercentage;
+        private String brand;
+        private String status;
+        private Date requestTime;
+        private Date crawlingStarted;
+
+        /**
+         * Reads a field, unknown fields are skipped.
+         *
+         * @param reader The reader positioned at the value
+         * @param name The name of the field
+         */
+        private void read(final BsonReader reader, final String name) {
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                return;
+            }
+            switch (name) {
+                case ID:
+                    id = reader.readString();
+                    break;
+                case TYPE:
+                    type = readCode(reader, LimeVehicle.TYPES);
+                    break;
+                case GENERATION:
+                    generation = readCode(reader, LimeVehicle.GENERATIONS);
+                    break;
+                case SWAPPABLE_BATTERY:
+                    swappableBattery = reader.readBoolean();
+                    break;
+                case TYPE_NAME:
+                    typeName = readCode(reader, LimeVehicle.TYPE_NAMES);
+                    break;
+                case BATTERY_LEVEL:
+                    batteryLevel = readCode(reader, LimeVehicle.BATTERY_LEVELS);
+                    break;
+                case LAST_THREE:
+                    lastThree = reader.readString();
+                    break;
+                case LATITUDE:
+                    latitude = readDouble(reader);
+                    break;
+                case LONGITUDE:
+                    longitude = readDouble(reader);
+                    break;
+                case METER_RANGE:
+                    meterRange = readInt(reader);
+                    break;
+                case LAST_ACTIVITY_AT:
+                    lastActivityAt = new Date(reader.readDateTime());
+                    break;
+                case PLATE_NUMBER:
+                    plateNumber = reader.readString();
+                    break;
+                case BATTERY_PERCENTAGE:
+                    batteryPercentage = readInt(reader);
+                    break;
+                case BRAND:
+                    brand = readCode(reader, LimeVehicle.BRANDS);
+                    break;
+                case STATUS:
+                    status = readCode(reader, LimeVehicle.STATUSES);
+                    break;
+                case REQUEST_TIME:
+                    requestTime = new Date(reader.readDateTime());
+                    break;
+                case CRAWLING_STARTED:
+                    crawlingStarted = new Date(reader.readDateTime());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Registers the codecs of the model classes with the MongoDB driver.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class ModelCodecs {
+
+    /**
+     * Static methods only.
+     */
+    private ModelCodecs() {
+        // Nothing to do
+    }
+
+    /**
+     * @param timeSeries {@code true} if the vehicle records are written to a time-series collection
+     * @return The registry with the codecs of the model classes and the default codecs of the driver
+     */
+    public static CodecRegistry registry(final boolean timeSeries) {
+        return CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(new LimeVehicleCodec(timeSeries), new RecordCodec()),
+                MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import static de.cyface.crawler.model.RecordSchema.BATTERY_PERCENTAGE;
+import static de.cyface.crawler.model.RecordSchema.CRAWLING_STARTED;
+import static de.cyface.crawler.model.RecordSchema.LAST_ACTIVITY_AT;
+import static de.cyface.crawler.model.RecordSchema.LAST_THREE;
+import static de.cyface.crawler.model.RecordSchema.LATITUDE;
+import static de.cyface.crawler.model.RecordSchema.LONGITUDE;
+import static de.cyface.crawler.model.RecordSchema.META;
+import static de.cyface.crawler.model.RecordSchema.METER_RANGE;
+import static de.cyface.crawler.model.RecordSchema.OBJECT_ID;
+import static de.cyface.crawler.model.RecordSchema.PLATE_NUMBER;
+import static de.cyface.crawler.model.RecordSchema.REQUEST_TIME;
+
+import java.util.Date;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+/**
+ * Reads {@link Record}s from the vehicle records persisted by the crawler, without creating an intermediate
+ * {@code Document}. Records are read from plain and time-series collections, all fields not required by the
+ * {@code Record} are skipped.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class RecordCodec implements Codec<Record> {
+
+    @Override
+    public void encode(final BsonWriter writer, final Record record, final EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (record.getId() != null) {
+            writer.writeObjectId(OBJECT_ID, record.getId());
+        }
+        LimeVehicleCodec.writeString(writer, LAST_THREE, record.getLastThree());
+        writer.writeDouble(LATITUDE, record.getLatitude());
+        writer.writeDouble(LONGITUDE, record.getLongitude());
+        LimeVehicleCodec.writeDate(writer, LAST_ACTIVITY_AT, record.getLastActivityAt());
+        LimeVehicleCodec.writeDate(writer, REQUEST_TIME, record.getRequestTime());
+        writer.writeInt32(METER_RANGE, record.getMeterRange());
+        LimeVehicleCodec.writeDate(writer, CRAWLING_STARTED, record.getCrawlingStarted());
+        writer.writeInt32(BATTERY_PERCENTAGE, record.getBatteryPercentage());
+        LimeVehicleCodec.writeString(writer, PLATE_NUMBER, record.getPlateNumber());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Record decode(final BsonReader reader, final DecoderContext decoderContext) {
+        ObjectId id = null;
+        String lastThree = null;
+        double latitude = 0;
+        double longitude = 0;
+        Date lastActivityAt = null;
+        Date requestTime = null;
+        int meterRange = 0;
+        Date crawlingStarted = null;
+        int batteryPercentage = 0;
+        String plateNumber = null;
+
+        reader.readStartDocument();
+        var nested = false;
+        while (true) {
+            if (reader.readBsonType() == BsonType.END_OF_DOCUMENT) {
+                reader.readEndDocument();
+                if (!nested) {
+                    break;
+                }
+                // Continue with the fields after the `meta` sub-document
+                nested = false;
+                continue;
+            }
+            final var name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case OBJECT_ID:
+                    id = reader.readObjectId();
+                    break;
+                case META:
+                    reader.readStartDocument();
+                    nested = true;
+                    break;
+                case LAST_THREE:
+                    lastThree = reader.readString();
+                    break;
+                case LATITUDE:
+                    latitude = LimeVehicleCodec.readDouble(reader);
+                    break;
+                case LONGITUDE:
+                    longitude = LimeVehicleCodec.readDouble(reader);
+                    break;
+                case LAST_ACTIVITY_AT:
+                    lastActivityAt = new Date(reader.readDateTime());
+                    break;
+                case REQUEST_TIME:
+                    requestTime = new Date(reader.readDateTime());
+                    break;
+                case METER_RANGE:
+                    meterRange = LimeVehicleCodec.readInt(reader);
+                    break;
+                case CRAWLING_STARTED:
+                    crawlingStarted = new Date(reader.readDateTime());
+                    break;
+                case BATTERY_PERCENTAGE:
+                    batteryPercentage = LimeVehicleCodec.readInt(reader);
+                    break;
+                case PLATE_NUMBER:
+                    plateNumber = reader.readString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        return new Record(id, lastThree, latitude, longitude, lastActivityAt, requestTime, meterRange,
+                crawlingStarted, batteryPercentage, plateNumber);
+    }
+
+    @Override
+    public Class<Record> getEncoderClass() {
+        return Record.class;
+    }
+}
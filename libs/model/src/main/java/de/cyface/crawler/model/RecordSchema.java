@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+/**
+ * The names of the fields of the vehicle records persisted by the crawler and read by the processor.
+ * <p>
+ * Time-series collections hold the fields identifying a vehicle, i.e. {@link #LAST_THREE}, {@link #PLATE_NUMBER}
+ * and {@link #TYPE}, in the {@link #META} sub-document, plain collections hold all fields at the top level.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class RecordSchema {
+
+    /**
+     * The id of the record assigned by the database.
+     */
+    public static final String OBJECT_ID = "_id";
+    /**
+     * The encoded id returned by the API, which changes between requests.
+     */
+    public static final String ID = "id";
+    /**
+     * The type of the vehicle, e.g. "bikes", stored as code of {@link LimeVehicle#TYPES}.
+     */
+    public static final String TYPE = "type";
+    /**
+     * The generation of the vehicle, stored as code of {@link LimeVehicle#GENERATIONS}.
+     */
+    public static final String GENERATION = "generation";
+    /**
+     * {@code true} if the battery of the vehicle can be changed easily.
+     */
+    public static final String SWAPPABLE_BATTERY = "swappable_battery";
+    /**
+     * The vehicle type, e.g. "scooter", stored as code of {@link LimeVehicle#TYPE_NAMES}.
+     */
+    public static final String TYPE_NAME = "type_name";
+    /**
+     * The battery level, e.g. "high", stored as code of {@link LimeVehicle#BATTERY_LEVELS}.
+     */
+    public static final String BATTERY_LEVEL = "battery_level";
+    /**
+     * The last three letters of the plate number, which identify a vehicle.
+     */
+    public static final String LAST_THREE = "last_three";
+    /**
+     * The latitude of the vehicle.
+     */
+    public static final String LATITUDE = "latitude";
+    /**
+     * The longitude of the vehicle.
+     */
+    public static final String LONGITUDE = "longitude";
+    /**
+     * How far the vehicle can travel with the current battery level, in meters.
+     */
+    public static final String METER_RANGE = "meter_range";
+    /**
+     * The last time the vehicle was active as reported by the API.
+     */
+    public static final String LAST_ACTIVITY_AT = "last_activity_at";
+    /**
+     * The plate number of the vehicle, of which only the {@link #LAST_THREE} are shown.
+     */
+    public static final String PLATE_NUMBER = "plate_number";
+    /**
+     * The percentage of the battery charge left.
+     */
+    public static final String BATTERY_PERCENTAGE = "battery_percentage";
+    /**
+     * The brand of the vehicle, stored as code of {@link LimeVehicle#BRANDS}.
+     */
+    public static final String BRAND = "brand";
+    /**
+     * The status of the vehicle, e.g. "locked", stored as code of {@link LimeVehicle#STATUSES}.
+     */
+    public static final String STATUS = "status";
+    /**
+     * The time field of time-series collections.
+     */
+    public static final String REQUEST_TIME = "request_time";
+    /**
+     * When the crawl started which includes the request which returned the record.
+     */
+    public static final String CRAWLING_STARTED = "crawling_started";
+    /**
+     * The meta field of time-series collections.
+     */
+    public static final String META = "meta";
+    /**
+     * The maximum number of minutes allowed between the records of a vehicle which are processed into a relation.
+     * <p>
+     * This values is suggested by VÖ and often used in literature as the longest drives are usually 2-3 hours. The
+     * crawler must persist unchanged vehicles more often than this, or else the trips of parked vehicles are dropped.
+     */
+    public static final long MAX_CRAWLING_GAP_MINUTES = 120;
+
+    /**
+     * Constants only.
+     */
+    private RecordSchema() {
+        // Nothing to do
+    }
+
+    /**
+     * @param field The name of a field identifying a vehicle, e.g. {@link #LAST_THREE}
+     * @param timeSeries {@code true} if the field is accessed in a time-series collection
+     * @return The path of the field
+     */
+    public static String identity(final String field, final boolean timeSeries) {
+        return timeSeries ? META + "." + field : field;
+    }
+}
@@ -18,6 +18,9 @@
  */
 package de.cyface.crawler.model;
 
+import java.time.OffsetDateTime;
+import java.util.Date;
+
 import org.apache.commons.lang3.Validate;
 import org.json.JSONObject;
 
@@ -28,6 +31,11 @@ import org.json.JSONObject;
  */
 public class TierVehicle {
 
+    /**
+     * The brand of all vehicle records mapped by {@link #toRecord(Date, Date)}.
+     */
+    public static final String BRAND = "tier";
+
     /**
      * of the vehicle
      */
@@ -124,6 +132,24 @@ public class TierVehicle {
         this.batteryLevel = attributes.getInt("batteryLevel");
     }
 
+    /**
+     * Maps this vehicle to the record persisted for all providers.
+     * <p>
+     * Tier reports the battery charge as percentage only and no range, so the battery level is {@code null} and the
+     * range {@code 0}. The "last three" are the last three characters of the licence plate.
+     *
+     * @param requestTime the time at which the request was sent
+     * @param crawlStarted the time at which the crawler was stated
+     * @return The record of this vehicle
+     */
+    public LimeVehicle toRecord(final Date requestTime, final Date crawlStarted) {
+        final var lastThree = licencePlate.length() > 3 ? licencePlate.substring(licencePlate.length() - 3)
+                : licencePlate;
+        final var lastActivityAt = Date.from(OffsetDateTime.parse(lastLocationUpdate).toInstant());
+        return new LimeVehicle(id, type, null, false, vehicleType, null, lastThree, lat, lng, 0, lastActivityAt,
+                licencePlate, batteryLevel, BRAND, state, requestTime, crawlStarted);
+    }
+
     /**
      * @return of the vehicle
      */
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Shares the values of an attribute which only takes a handful of distinct values across the whole fleet, e.g. the
+ * battery level.
+ * <p>
+ * All vehicles reference the same {@code String} instance for each value. The values known in advance are assigned
+ * a fixed code which is persisted instead of the value. Values which are not known in advance are persisted as they
+ * are, so that no information is lost when the API returns new values. The persisted field thus holds an
+ * {@code int32} code or a {@code String}, which {@link #decode(Object)} both accepts.
+ * <p>
+ * Only the first {@link #MAX_UNKNOWN_VALUES} values which are not known in advance are shared, so that an attribute
+ * which takes more distinct values than expected, e.g. a free text, does not fill the memory.
+ * <p>
+ * <b>Attention</b>: The codes are persisted. New values must only be appended to the known values.
+ *
+ * @author Armin Schnabel
+ * @version 1.0.0
+ * @since 1.1.0
+ */
+public final class ValueDictionary {
+
+    /**
+     * The maximal number of values not known in advance which are shared.
+     */
+    static final int MAX_UNKNOWN_VALUES = 256;
+
+    /**
+     * The values known in advance, the index is the code of the value.
+     */
+    private final List<String> known;
+    /**
+     * The code of each value known in advance.
+     */
+    private final Map<String, Integer> codes;
+    /**
+     * The shared instance of each value seen so far.
+     */
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a fully initialized instance of this class.
+     *
+     * @param known The values known in advance, the index is the code of the value
+     */
+    public ValueDictionary(final String... known) {
+        this.known = List.of(known);
+        this.codes = new HashMap<>();
+        for (int i = 0; i < known.length; i++) {
+            Validate.isTrue(codes.put(known[i], i) == null, "Duplicate value " + known[i]);
+            values.put(known[i], known[i]);
+        }
+    }
+
+    /**
+     * @param value The value to share, may be {@code null}
+     * @return The instance of the value shared by all vehicles
+     */
+    public String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final var existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= known.size() + MAX_UNKNOWN_VALUES) {
+            return value;
+        }
+        final var shared = values.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    /**
+     * @param value The value to persist, may be {@code null}
+     * @return The code of the value if it is known in advance, or else the value itself
+     */
+    public Object encode(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final var code = codes.get(value);
+        return code != null ? code : value;
+    }
+
+    /**
+     * @param persisted The value as returned by {@link #encode(String)} or a value persisted before the values were
+     *            encoded
+     * @return The shared instance of the value
+     */
+    public String decode(final Object persisted) {
+        if (persisted == null) {
+            return null;
+        }
+        if (persisted instanceof Integer) {
+            final var code = (Integer)persisted;
+            Validate.isTrue(code >= 0 && code < known.size(), "Unknown code " + code);
+            return known.get(code);
+        }
+        return intern((String)persisted);
+    }
+}
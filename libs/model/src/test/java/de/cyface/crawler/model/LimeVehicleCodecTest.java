@@ -0,0 +1,191 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ * The Cyface Crawler is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The Cyface Crawler is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with the Cyface Crawler. If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Test;
+
+public class LimeVehicleCodecTest {
+
+    @Test
+    public void testRoundTripOfThePlainLayout() {
+        // Arrange
+        final var oocut = new LimeVehicleCodec(false);
+        final var vehicle = vehicle("locked");
+
+        // Act
+        final var document = encode(oocut, vehicle);
+        final var res = decode(oocut, document);
+
+        // Assert
+        assertThat(document.containsKey(RecordSchema.META), is(false));
+        assertThat(document.getString(RecordSchema.LAST_THREE).getValue(), is(equalTo("001")));
+        assertEqual(res, vehicle);
+    }
+
+    @Test
+    public void testRoundTripOfTheTimeSeriesLayout() {
+        // Arrange
+        final var oocut = new LimeVehicleCodec(true);
+        final var vehicle = vehicle("locked");
+
+        // Act
+        final var document = encode(oocut, vehicle);
+        final var res = decode(oocut, document);
+
+        // Assert
+        final var meta = document.getDocument(RecordSchema.META);
+        assertThat(meta.getString(RecordSchema.LAST_THREE).getValue(), is(equalTo("001")));
+        assertThat(meta.getString(RecordSchema.PLATE_NUMBER).getValue(), is(equalTo("XXX-001")));
+        assertThat(meta.containsKey(RecordSchema.TYPE), is(true));
+        assertThat(document.containsKey(RecordSchema.LAST_THREE), is(false));
+        assertEqual(res, vehicle);
+    }
+
+    @Test
+    public void testKnownValuesAreWrittenAsCodes() {
+        // Arrange
+        final var oocut = new LimeVehicleCodec(false);
+        final var vehicle = vehicle("unlocked");
+
+        // Act
+        final var document = encode(oocut, vehicle);
+        final var res = decode(oocut, document);
+
+        // Assert
+        assertThat(document.get(RecordSchema.STATUS), is(equalTo(new BsonInt32(1))));
+        assertThat(document.get(RecordSchema.BATTERY_LEVEL), is(equalTo(new BsonInt32(0))));
+        assertThat(res.getStatus(), is(sameInstance(LimeVehicle.STATUSES.intern("unlocked"))));
+    }
+
+    @Test
+    public void testUnknownValuesAreWrittenAsStrings() {
+        // Arrange
+        final var oocut = new LimeVehicleCodec(false);
+        final var vehicle = vehicle("broken");
+
+        // Act
+        final var document = encode(oocut, vehicle);
+        final var res = decode(oocut, document);
+
+        // Assert
+        assertThat(document.get(RecordSchema.STATUS), is(equalTo(new BsonString("broken"))));
+        assertThat(res.getStatus(), is(equalTo("broken")));
+    }
+
+    @Test
+    public void testReadsRecordsPersistedBeforeTheCodec() {
+        // Arrange
+        final var oocut = new LimeVehicleCodec(false);
+        final var document = new BsonDocument()
+                .append(RecordSchema.OBJECT_ID, new BsonString("ignored"))
+                .append(RecordSchema.ID, new BsonString("encoded-id"))
+                .append(RecordSchema.TYPE, new BsonString("bikes"))
+                .append(RecordSchema.GENERATION, new BsonString("4"))
+                .append(RecordSchema.SWAPPABLE_BATTERY, BsonBoolean.TRUE)
+                .append(RecordSchema.TYPE_NAME, new BsonString("scooter"))
+                .append(RecordSchema.BATTERY_LEVEL, new BsonString("high"))
+                .append(RecordSchema.LAST_THREE, new BsonString("001"))
+                .append(RecordSchema.LATITUDE, new BsonInt32(51))
+                .append(RecordSchema.LONGITUDE, new BsonInt64(13L))
+                .append(RecordSchema.METER_RANGE, new BsonDouble(20_000.7))
+                .append(RecordSchema.LAST_ACTIVITY_AT, BsonNull.VALUE)
+                .append(RecordSchema.PLATE_NUMBER, new BsonString("XXX-001"))
+                .append(RecordSchema.BATTERY_PERCENTAGE, new BsonInt64(80L))
+                .append(RecordSchema.BRAND, new BsonString("lime"))
+                .append(RecordSchema.STATUS, new BsonString("locked"))
+                .append(RecordSchema.REQUEST_TIME, new BsonDateTime(2_000L))
+                .append(RecordSchema.CRAWLING_STARTED, new BsonDateTime(1_000L));
+
+        // Act
+        final var res = decode(oocut, document);
+
+        // Assert
+        assertThat(res.getLatitude(), is(equalTo(51.0)));
+        assertThat(res.getLongitude(), is(equalTo(13.0)));
+        assertThat(res.getMeterRange(), is(equalTo(20_000)));
+        assertThat(res.getBatteryPercentage(), is(equalTo(80)));
+        assertThat(res.getLastActivityAt(), is(nullValue()));
+        assertThat(res.getStatus(), is(sameInstance(LimeVehicle.STATUSES.intern("locked"))));
+        assertThat(res.getRequestTime(), is(equalTo(new Date(2_000L))));
+    }
+
+    /**
+     * @param codec The codec to use
+     * @param vehicle The vehicle to encode
+     * @return The BSON document written by the codec
+     */
+    private static BsonDocument encode(final LimeVehicleCodec codec, final LimeVehicle vehicle) {
+        final var document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), vehicle, EncoderContext.builder().build());
+        return document;
+    }
+
+    /**
+     * @param codec The codec to use
+     * @param document The BSON document to decode
+     * @return The vehicle read by the codec
+     */
+    private static LimeVehicle decode(final LimeVehicleCodec codec, final BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    /**
+     * Compares all fields, as {@link LimeVehicle#equals(Object)} ignores the time of the request.
+     *
+     * @param actual The vehicle read by the codec
+     * @param expected The vehicle written by the codec
+     */
+    private static void assertEqual(final LimeVehicle actual, final LimeVehicle expected) {
+        assertThat(actual, is(equalTo(expected)));
+        assertThat(actual.getId(), is(equalTo(expected.getId())));
+        assertThat(actual.getType(), is(equalTo(expected.getType())));
+        assertThat(actual.getPlateNumber(), is(equalTo(expected.getPlateNumber())));
+        assertThat(actual.getRequestTime(), is(equalTo(expected.getRequestTime())));
+        assertThat(actual.getCrawlingStarted(), is(equalTo(expected.getCrawlingStarted())));
+    }
+
+    /**
+     * @param status The status of the vehicle
+     * @return A vehicle as read from the database
+     */
+    static LimeVehicle vehicle(final String status) {
+        return new LimeVehicle("encoded-id", "bikes", "4", true, "scooter", "high", "001", 51.05, 13.70, 20_000,
+                new Date(500L), "XXX-001", 80, "lime", status, new Date(2_000L), new Date(1_000L));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Test;
+
+public class ModelCodecsTest {
+
+    @Test
+    public void testTheRegistryWritesTheRequestedLayout() {
+        // Arrange
+        final var vehicle = LimeVehicleCodecTest.vehicle("locked");
+
+        for (final var timeSeries : new boolean[] {false, true}) {
+            final var oocut = ModelCodecs.registry(timeSeries);
+            final var document = new BsonDocument();
+
+            // Act
+            oocut.get(LimeVehicle.class).encode(new BsonDocumentWriter(document), vehicle,
+                    EncoderContext.builder().build());
+            final var res = oocut.get(Record.class).decode(new BsonDocumentReader(document),
+                    DecoderContext.builder().build());
+
+            // Assert
+            assertThat(document.containsKey(RecordSchema.META), is(equalTo(timeSeries)));
+            assertThat(res.getLastThree(), is(equalTo(vehicle.getLastThree())));
+            assertThat(res.getRequestTime(), is(equalTo(vehicle.getRequestTime())));
+        }
+    }
+}
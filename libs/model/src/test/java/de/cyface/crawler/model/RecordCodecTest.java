@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Date;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+public class RecordCodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        // Arrange
+        final var oocut = new RecordCodec();
+        final var record = new Record(new ObjectId(), "001", 51.05, 13.70, new Date(500L), new Date(2_000L), 20_000,
+                new Date(1_000L), 80, "XXX-001");
+        final var document = new BsonDocument();
+
+        // Act
+        oocut.encode(new BsonDocumentWriter(document), record, EncoderContext.builder().build());
+        final var res = decode(oocut, document);
+
+        // Assert
+        assertThat(res.getId(), is(equalTo(record.getId())));
+        assertThat(res.getLastThree(), is(equalTo("001")));
+        assertThat(res.getLatitude(), is(equalTo(51.05)));
+        assertThat(res.getLongitude(), is(equalTo(13.70)));
+        assertThat(res.getLastActivityAt(), is(equalTo(new Date(500L))));
+        assertThat(res.getRequestTime(), is(equalTo(new Date(2_000L))));
+        assertThat(res.getMeterRange(), is(equalTo(20_000)));
+        assertThat(res.getCrawlingStarted(), is(equalTo(new Date(1_000L))));
+        assertThat(res.getBatteryPercentage(), is(equalTo(80)));
+        assertThat(res.getPlateNumber(), is(equalTo("XXX-001")));
+    }
+
+    @Test
+    public void testReadsTheVehicleRecordsOfBothLayouts() {
+        // Arrange
+        final var oocut = new RecordCodec();
+        final var vehicle = LimeVehicleCodecTest.vehicle("locked");
+
+        for (final var timeSeries : new boolean[] {false, true}) {
+            final var document = new BsonDocument();
+            new LimeVehicleCodec(timeSeries).encode(new BsonDocumentWriter(document), vehicle,
+                    EncoderContext.builder().build());
+
+            // Act
+            final var res = decode(oocut, document);
+
+            // Assert
+            assertThat(res.getId(), is(nullValue()));
+            assertThat(res.getLastThree(), is(equalTo("001")));
+            assertThat(res.getPlateNumber(), is(equalTo("XXX-001")));
+            // The fields written after the `meta` sub-document
+            assertThat(res.getLatitude(), is(equalTo(51.05)));
+            assertThat(res.getBatteryPercentage(), is(equalTo(80)));
+            assertThat(res.getRequestTime(), is(equalTo(new Date(2_000L))));
+            assertThat(res.getCrawlingStarted(), is(equalTo(new Date(1_000L))));
+        }
+    }
+
+    @Test
+    public void testReadsNumbersOfOtherTypes() {
+        // Arrange
+        final var oocut = new RecordCodec();
+        final var document = new BsonDocument()
+                .append(RecordSchema.LAST_THREE, new BsonString("001"))
+                .append(RecordSchema.LATITUDE, new BsonInt32(51))
+                .append(RecordSchema.LONGITUDE, new BsonInt64(13L))
+                .append(RecordSchema.METER_RANGE, new BsonDouble(20_000.7))
+                .append(RecordSchema.BATTERY_PERCENTAGE, new BsonInt64(80L))
+                .append(RecordSchema.LAST_ACTIVITY_AT, BsonNull.VALUE)
+                .append(RecordSchema.REQUEST_TIME, new BsonDateTime(2_000L));
+
+        // Act
+        final var res = decode(oocut, document);
+
+        // Assert
+        assertThat(res.getLatitude(), is(equalTo(51.0)));
+        assertThat(res.getLongitude(), is(equalTo(13.0)));
+        assertThat(res.getMeterRange(), is(equalTo(20_000)));
+        assertThat(res.getBatteryPercentage(), is(equalTo(80)));
+        assertThat(res.getLastActivityAt(), is(nullValue()));
+        assertThat(res.getRequestTime(), is(equalTo(new Date(2_000L))));
+    }
+
+    /**
+     * @param codec The codec to use
+     * @param document The BSON document to decode
+     * @return The record read by the codec
+     */
+    private static Record decode(final RecordCodec codec, final BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Cyface GmbH
+ *
+ * This file is part of the Cyface Crawler.
+ *
+ *  The Cyface Crawler is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  The Cyface Crawler is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with the Cyface Crawler.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cyface.crawler.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class ValueDictionaryTest {
+
+    @Test
+    public void testKnownValuesAreEncodedAsCodes() {
+        // Arrange
+        final var oocut = new ValueDictionary("low", "medium", "high");
+
+        // Act
+        final var res = oocut.encode("medium");
+
+        // Assert
+        assertThat(res, is(equalTo(1)));
+        assertThat(oocut.decode(res), is(sameInstance(oocut.intern("medium"))));
+    }
+
+    @Test
+    public void testUnknownValuesArePersistedAsTheyAre() {
+        // Arrange
+        final var oocut = new ValueDictionary("low", "medium", "high");
+
+        // Act
+        final var res = oocut.encode("empty");
+
+        // Assert
+        assertThat(res, is(equalTo("empty")));
+        assertThat(oocut.decode(res), is(equalTo("empty")));
+    }
+
+    @Test
+    public void testNullIsKept() {
+        // Arrange
+        final var oocut = new ValueDictionary("low");
+
+        // Act & Assert
+        assertThat(oocut.encode(null), is(nullValue()));
+        assertThat(oocut.decode(null), is(nullValue()));
+        assertThat(oocut.intern(null), is(nullValue()));
+    }
+
+    @Test
+    public void testUnknownCodesAreRejected() {
+        // Arrange
+        final var oocut = new ValueDictionary("low");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> oocut.decode(1));
+    }
+
+    @Test
+    public void testUnknownValuesAreSharedUpToTheLimit() {
+        // Arrange
+        final var oocut = new ValueDictionary("low");
+        final var first = oocut.intern(new String("unknown"));
+        for (int i = 1; i < ValueDictionary.MAX_UNKNOWN_VALUES; i++) {
+            oocut.intern("value " + i);
+        }
+
+        // Act
+        final var shared = oocut.intern(new String("unknown"));
+        final var overflow = oocut.intern(new String("overflow"));
+
+        // Assert
+        assertThat(shared, is(sameInstance(first)));
+        assertThat(oocut.intern(new String("overflow")), is(not(sameInstance(overflow))));
+        assertThat(oocut.intern("overflow"), is(equalTo("overflow")));
+    }
+}